@@ -1,7 +1,18 @@
 package com.example.library.bad;
 
+import com.example.library.good.datastore.DataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -119,4 +130,230 @@ public class LibraryApp {
     static boolean isBookAvailable(String bookName) {
         return availability.containsKey(bookName) && availability.get(bookName);
     }
-}
\ No newline at end of file
+
+    /**
+     * Batch mode: {@code LibraryApp --batch <commands> [<output>]} runs a
+     * command file instead of prompting. Without an output file, results go
+     * to standard out.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !args[0].equals("--batch")) {
+            System.err.println("usage: LibraryApp --batch <commands> [<output>]");
+            System.exit(2);
+            return;
+        }
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8);
+             Writer out = args.length > 2
+                     ? Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8)
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            runBatch(in, out);
+        }
+    }
+
+    /**
+     * Runs commands against the static collections, one per line, fields
+     * separated by tabs:
+     * <pre>
+     * add     name
+     * borrow  name  borrower
+     * return  name
+     * view
+     * report
+     * </pre>
+     * Blank lines and lines starting with {@code #} are skipped. Results are
+     * written to {@code out} with the interactive mode's messages; the report
+     * goes to {@code out} as well rather than to a file. The writer is not
+     * flushed per command, so give it a buffer.
+     *
+     * @return the number of commands executed
+     */
+    static long runBatch(BufferedReader in, Writer out) throws IOException {
+        return runBatch(in, out, new StaticCatalog());
+    }
+
+    /**
+     * Same as {@link #runBatch(BufferedReader, Writer)}, but against a store:
+     * the book name is used as both ISBN and title.
+     */
+    static long runBatch(BufferedReader in, Writer out, DataStore store) throws IOException {
+        return runBatch(in, out, new StoreCatalog(store));
+    }
+
+    private static long runBatch(BufferedReader in, Writer out, Catalog catalog) throws IOException {
+        long executed = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            String command = tab < 0 ? line : line.substring(0, tab);
+            String name = tab < 0 ? "" : line.substring(tab + 1);
+            switch (command) {
+                case "add":
+                    catalog.add(name);
+                    out.write("Book added!\n");
+                    break;
+                case "borrow":
+                    int second = name.indexOf('\t');
+                    if (second < 0) {
+                        out.write("Missing borrower at line " + lineNumber + "\n");
+                        continue;
+                    }
+                    boolean borrowed = catalog.borrow(name.substring(0, second), name.substring(second + 1));
+                    out.write(borrowed ? "Book borrowed!\n" : "Book not available!\n");
+                    break;
+                case "return":
+                    out.write(catalog.giveBack(name) ? "Book returned!\n" : "Invalid book!\n");
+                    break;
+                case "view":
+                    out.write("Books in library:\n");
+                    catalog.view(out);
+                    break;
+                case "report":
+                    catalog.report(out);
+                    break;
+                default:
+                    out.write("Unknown command at line " + lineNumber + ": " + command + "\n");
+                    continue;
+            }
+            executed++;
+        }
+        out.flush();
+        return executed;
+    }
+
+    private interface Catalog {
+        void add(String name);
+
+        boolean borrow(String name, String borrower);
+
+        boolean giveBack(String name);
+
+        void view(Writer out) throws IOException;
+
+        void report(Writer out) throws IOException;
+    }
+
+    // Same rules as the interactive commands above, minus the prompts.
+    private static class StaticCatalog implements Catalog {
+        @Override
+        public void add(String name) {
+            books.add(name);
+            availability.put(name, true);
+        }
+
+        @Override
+        public boolean borrow(String name, String borrower) {
+            if (!isBookAvailable(name)) {
+                return false;
+            }
+            availability.put(name, false);
+            borrowers.put(name, borrower);
+            return true;
+        }
+
+        @Override
+        public boolean giveBack(String name) {
+            if (!availability.containsKey(name)) {
+                return false;
+            }
+            availability.put(name, true);
+            borrowers.remove(name);
+            return true;
+        }
+
+        @Override
+        public void view(Writer out) throws IOException {
+            for (String book : books) {
+                boolean available = availability.get(book);
+                out.write(book);
+                out.write(available ? " - Available" : " - Borrowed");
+                if (!available && borrowers.containsKey(book)) {
+                    out.write(" by ");
+                    out.write(borrowers.get(book));
+                }
+                out.write('\n');
+            }
+        }
+
+        @Override
+        public void report(Writer out) throws IOException {
+            int available = 0;
+            for (Boolean avail : availability.values()) {
+                if (avail) available++;
+            }
+            writeReport(out, books.size(), available);
+        }
+    }
+
+    private static class StoreCatalog implements Catalog {
+        private final DataStore store;
+
+        StoreCatalog(DataStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void add(String name) {
+            store.updateBook(new Book(name, name));
+        }
+
+        @Override
+        public boolean borrow(String name, String borrower) {
+            Optional<Book> book = store.findBookByIsbn(name);
+            if (book.isEmpty() || !book.get().isAvailable()) {
+                return false;
+            }
+            book.get().borrowBy(new User(borrower, borrower, false), null);
+            store.updateBook(book.get());
+            return true;
+        }
+
+        @Override
+        public boolean giveBack(String name) {
+            Optional<Book> book = store.findBookByIsbn(name);
+            if (book.isEmpty()) {
+                return false;
+            }
+            book.get().returnBook();
+            store.updateBook(book.get());
+            return true;
+        }
+
+        @Override
+        public void view(Writer out) throws IOException {
+            Iterator<Book> books = store.stream().iterator();
+            while (books.hasNext()) {
+                Book book = books.next();
+                out.write(book.getTitle());
+                out.write(book.isAvailable() ? " - Available" : " - Borrowed");
+                if (!book.isAvailable() && book.getBorrowedBy() != null) {
+                    out.write(" by ");
+                    out.write(book.getBorrowedBy().getName());
+                }
+                out.write('\n');
+            }
+        }
+
+        @Override
+        public void report(Writer out) throws IOException {
+            int[] counts = new int[2];
+            store.stream().forEach(book -> {
+                counts[0]++;
+                if (book.isAvailable()) counts[1]++;
+            });
+            writeReport(out, counts[0], counts[1]);
+        }
+    }
+
+    private static void writeReport(Writer out, int total, int available) throws IOException {
+        out.write("Library Report\n");
+        out.write("Generated: " + LocalDate.now().format(DateTimeFormatter.ISO_DATE) + "\n");
+        out.write("Total books: " + total + "\n");
+        out.write("Available: " + available + "\n");
+        out.write("Borrowed: " + (total - available) + "\n");
+    }
+}
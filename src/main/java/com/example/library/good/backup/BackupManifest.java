@@ -0,0 +1,93 @@
+package com.example.library.good.backup;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Lists the files in a backup with the length and CRC32C each had when it
+ * was copied. Written last, so a backup directory without a manifest is
+ * incomplete.
+ */
+public class BackupManifest {
+    static final String FILE_NAME = "backup.manifest";
+
+    private final Instant createdAt;
+    private final List<Entry> entries;
+
+    BackupManifest(Instant createdAt, List<Entry> entries) {
+        this.createdAt = createdAt;
+        this.entries = List.copyOf(entries);
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    void write(Writer writer) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("createdAt", createdAt.toString());
+        props.setProperty("files", Integer.toString(entries.size()));
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            props.setProperty("file." + i + ".name", entry.getName());
+            props.setProperty("file." + i + ".length", Long.toString(entry.getLength()));
+            props.setProperty("file." + i + ".crc32c", Long.toHexString(entry.getCrc32c()));
+        }
+        props.store(writer, "catalog backup");
+    }
+
+    static BackupManifest read(Path backupDir) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(backupDir.resolve(FILE_NAME), StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        try {
+            int files = Integer.parseInt(props.getProperty("files"));
+            List<Entry> entries = new ArrayList<>(files);
+            for (int i = 0; i < files; i++) {
+                entries.add(new Entry(props.getProperty("file." + i + ".name"),
+                        Long.parseLong(props.getProperty("file." + i + ".length")),
+                        Long.parseLong(props.getProperty("file." + i + ".crc32c"), 16)));
+            }
+            return new BackupManifest(Instant.parse(props.getProperty("createdAt")), entries);
+        } catch (RuntimeException e) {
+            throw new IOException("malformed " + FILE_NAME + " in " + backupDir, e);
+        }
+    }
+
+    public static class Entry {
+        private final String name;
+        private final long length;
+        private final long crc32c;
+
+        Entry(String name, long length, long crc32c) {
+            this.name = name;
+            this.length = length;
+            this.crc32c = crc32c;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getCrc32c() {
+            return crc32c;
+        }
+    }
+}
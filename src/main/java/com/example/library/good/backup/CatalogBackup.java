@@ -0,0 +1,131 @@
+package com.example.library.good.backup;
+
+import com.example.library.good.datastore.DataFileCut;
+import com.example.library.good.datastore.PersistentDataStore;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Hot backup and verified restore for {@link PersistentDataStore}s.
+ *
+ * Backups copy the store's data files up to a point-in-time cut with
+ * {@link FileChannel#transferTo}, so the bytes go file-to-file inside the
+ * kernel and circulation keeps writing while the copy runs.
+ */
+public class CatalogBackup {
+    private static final long CHECKSUM_WINDOW = 64L * 1024 * 1024;
+
+    private final Clock clock;
+
+    public CatalogBackup() {
+        this(Clock.systemUTC());
+    }
+
+    public CatalogBackup(Clock clock) {
+        this.clock = clock;
+    }
+
+    public BackupManifest backup(PersistentDataStore store, Path backupDir) throws IOException {
+        Files.createDirectories(backupDir);
+        List<BackupManifest.Entry> entries = new ArrayList<>();
+        try (DataFileCut cut = store.cutDataFiles()) {
+            for (DataFileCut.Segment segment : cut.getSegments()) {
+                Path target = backupDir.resolve(segment.getName());
+                try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    transfer(segment.getChannel(), segment.getLength(), out);
+                    out.force(true);
+                }
+                entries.add(new BackupManifest.Entry(segment.getName(), segment.getLength(), checksum(target)));
+            }
+        }
+
+        BackupManifest manifest = new BackupManifest(clock.instant(), entries);
+        Path tmp = backupDir.resolve(BackupManifest.FILE_NAME + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            manifest.write(writer);
+        }
+        Files.move(tmp, backupDir.resolve(BackupManifest.FILE_NAME),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return manifest;
+    }
+
+    /**
+     * Checks every file in the backup against the manifest.
+     *
+     * @throws IOException if the manifest is missing or a file is truncated or corrupt
+     */
+    public BackupManifest verify(Path backupDir) throws IOException {
+        BackupManifest manifest = BackupManifest.read(backupDir);
+        for (BackupManifest.Entry entry : manifest.getEntries()) {
+            Path file = backupDir.resolve(entry.getName());
+            if (!Files.exists(file) || Files.size(file) != entry.getLength()) {
+                throw new IOException("backup file " + file + " is missing or has the wrong length");
+            }
+            if (checksum(file) != entry.getCrc32c()) {
+                throw new IOException("checksum mismatch for backup file " + file);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Verifies the backup, then copies its files into {@code targetDir}. Each
+     * file is written under a temporary name and moved into place, so a failed
+     * restore never leaves a half-written data file. The store must not be
+     * open on {@code targetDir} while restoring.
+     */
+    public BackupManifest restore(Path backupDir, Path targetDir) throws IOException {
+        BackupManifest manifest = verify(backupDir);
+        Files.createDirectories(targetDir);
+        for (BackupManifest.Entry entry : manifest.getEntries()) {
+            Path tmp = targetDir.resolve(entry.getName() + ".restore");
+            try (FileChannel in = FileChannel.open(backupDir.resolve(entry.getName()), StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                transfer(in, entry.getLength(), out);
+                out.force(true);
+            }
+            Files.move(tmp, targetDir.resolve(entry.getName()),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return manifest;
+    }
+
+    // transferTo may move fewer bytes than asked for, so loop until the cut is copied.
+    private static void transfer(FileChannel source, long length, FileChannel target) throws IOException {
+        long position = 0;
+        while (position < length) {
+            long moved = source.transferTo(position, length - position, target);
+            if (moved <= 0) {
+                throw new IOException("source ended before the backup cut was copied");
+            }
+            position += moved;
+        }
+    }
+
+    static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += CHECKSUM_WINDOW) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(CHECKSUM_WINDOW, size - position));
+                crc.update(window);
+            }
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.library.good.codec;
+
+import com.example.library.good.datastore.UserStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Compact binary form of {@link Book}s for snapshots, replication and other
+ * streams, written straight into and read straight out of {@link ByteBuffer}s
+ * so a stream can be processed one buffer-full at a time.
+ *
+ * A stream starts with a header ({@link #writeHeader}) naming the format
+ * version, followed by records of [varint payload length][payload]. Version 1
+ * payloads hold a flags byte, then ISBN and title as varint-length UTF-8,
+ * total and available copies and the store version as varints, and, when the
+ * flags say so, the first loan's borrower id and due date as a zigzag varint
+ * epoch day. Further loans follow as a varint count and, for each, its own
+ * flags byte and the same two fields; readers that predate them skip them
+ * and see only the first loan. The borrower is only referenced by id; write
+ * patrons with {@link UserCodec}.
+ *
+ * Readers skip any bytes after the fields they know, so a later version may
+ * append fields to a record without a version bump; anything else needs a new
+ * {@link #VERSION}, and readers refuse versions newer than their own.
+ */
+public final class BookCodec {
+    public static final int VERSION = 1;
+    static final int MAGIC = 0x4C425331; // "LBS1"
+
+    private static final int HAS_BORROWER = 1;
+    private static final int HAS_DUE_DATE = 2;
+    private static final int HAS_MORE_LOANS = 4;
+
+    private final UserStore users;
+
+    /**
+     * @param users resolves borrower ids to their canonical patrons; an id it does
+     *              not know is registered with no name, so decode the users first.
+     *              If null, every borrower is a new nameless {@link User}.
+     */
+    public BookCodec(UserStore users) {
+        this.users = users;
+    }
+
+    /**
+     * @return false, writing nothing, if {@code out} has no room for the header
+     */
+    public static boolean writeHeader(ByteBuffer out) {
+        return Wire.writeHeader(out, MAGIC, VERSION);
+    }
+
+    /**
+     * Consumes and checks the stream header.
+     *
+     * @return the stream's format version, or -1 if {@code in} does not hold the whole header yet
+     * @throws IllegalArgumentException if this is not a book stream or its version is too new
+     */
+    public static int readHeader(ByteBuffer in) {
+        return Wire.readHeader(in, MAGIC, VERSION, "book");
+    }
+
+    /**
+     * Bytes {@link #encode} will write for {@code book}, length prefix included.
+     */
+    public static int encodedSize(Book book) {
+        int payload = payloadSize(Wire.utf8Length(book.getIsbn()), Wire.utf8Length(book.getTitle()),
+                book.getTotalCopies(), book.getAvailableCopies(), book.getVersion(), book.getLoans());
+        return Varint.size(payload) + payload;
+    }
+
+    /**
+     * Appends one record, or nothing if it does not fit in what is left of {@code out}.
+     *
+     * @return false if {@code out} was too full; flush it and try again
+     */
+    public static boolean encode(Book book, ByteBuffer out) {
+        // Each field is read once, so a book changing underneath cannot make the size disagree with the bytes.
+        int totalCopies = book.getTotalCopies();
+        int availableCopies = book.getAvailableCopies();
+        long version = book.getVersion();
+        List<Loan> loans = book.getLoans();
+        int isbnBytes = Wire.utf8Length(book.getIsbn());
+        int titleBytes = Wire.utf8Length(book.getTitle());
+        int payload = payloadSize(isbnBytes, titleBytes, totalCopies, availableCopies, version, loans);
+        if (out.remaining() < Varint.size(payload) + payload) {
+            return false;
+        }
+        Loan first = loans.isEmpty() ? null : loans.get(0);
+        Varint.write(out, payload);
+        out.put((byte) (loanFlags(first) | (loans.size() > 1 ? HAS_MORE_LOANS : 0)));
+        Wire.putString(out, book.getIsbn(), isbnBytes);
+        Wire.putString(out, book.getTitle(), titleBytes);
+        Varint.write(out, totalCopies);
+        Varint.write(out, availableCopies);
+        Varint.write(out, version);
+        putLoan(out, first);
+        if (loans.size() > 1) {
+            Varint.write(out, loans.size() - 1);
+            for (int i = 1; i < loans.size(); i++) {
+                out.put((byte) loanFlags(loans.get(i)));
+                putLoan(out, loans.get(i));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the book, or null, consuming nothing, if {@code in} does not hold the whole record yet
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    public Book decode(ByteBuffer in) {
+        int payload = Wire.peekLength(in);
+        if (payload < 0) {
+            return null;
+        }
+        int start = in.position();
+        Varint.read(in);
+        if (in.remaining() < payload) {
+            in.position(start);
+            return null;
+        }
+        int end = in.position() + payload;
+        int limit = in.limit();
+        in.limit(end);
+        try {
+            int flags = in.get();
+            Book book = new Book(Wire.getString(in), Wire.getString(in), Wire.getVarInt(in));
+            int availableCopies = Wire.getVarInt(in);
+            long version = Varint.read(in);
+            readLoan(in, flags, book);
+            if ((flags & HAS_MORE_LOANS) != 0) {
+                for (int more = Wire.getVarInt(in); more > 0; more--) {
+                    readLoan(in, in.get(), book);
+                }
+            }
+            book.setAvailableCopies(availableCopies);
+            book.setVersion(version);
+            return book;
+        } catch (BufferUnderflowException | DateTimeException e) {
+            throw new IllegalArgumentException("malformed book record", e);
+        } finally {
+            in.limit(limit);
+            in.position(end);
+        }
+    }
+
+    private void readLoan(ByteBuffer in, int flags, Book book) {
+        User borrower = (flags & HAS_BORROWER) != 0 ? borrower(Wire.getString(in)) : null;
+        LocalDate dueDate = (flags & HAS_DUE_DATE) != 0
+                ? LocalDate.ofEpochDay(Wire.unzigzag(Varint.read(in))) : null;
+        if (borrower != null || dueDate != null) {
+            book.borrowBy(borrower, dueDate);
+        }
+    }
+
+    private User borrower(String id) {
+        if (users == null) {
+            return new User(id, null, false);
+        }
+        return users.findUserById(id).orElseGet(() -> users.intern(new User(id, null, false)));
+    }
+
+    private static int loanFlags(Loan loan) {
+        if (loan == null) {
+            return 0;
+        }
+        return (loan.getBorrower() != null ? HAS_BORROWER : 0) | (loan.getDueDate() != null ? HAS_DUE_DATE : 0);
+    }
+
+    private static void putLoan(ByteBuffer out, Loan loan) {
+        if (loan == null) {
+            return;
+        }
+        if (loan.getBorrower() != null) {
+            String id = loan.getBorrower().getId();
+            Wire.putString(out, id, Wire.utf8Length(id));
+        }
+        if (loan.getDueDate() != null) {
+            Varint.write(out, Wire.zigzag(loan.getDueDate().toEpochDay()));
+        }
+    }
+
+    private static int payloadSize(int isbnBytes, int titleBytes, int totalCopies, int availableCopies,
+                                   long version, List<Loan> loans) {
+        int size = 1
+                + Varint.size(isbnBytes) + isbnBytes
+                + Varint.size(titleBytes) + titleBytes
+                + Varint.size(totalCopies)
+                + Varint.size(availableCopies)
+                + Varint.size(version);
+        for (int i = 0; i < loans.size(); i++) {
+            size += loanSize(loans.get(i));
+        }
+        if (loans.size() > 1) {
+            // A flags byte for each loan after the first, which shares the record's.
+            size += Varint.size(loans.size() - 1) + loans.size() - 1;
+        }
+        return size;
+    }
+
+    private static int loanSize(Loan loan) {
+        int size = 0;
+        if (loan.getBorrower() != null) {
+            int idBytes = Wire.utf8Length(loan.getBorrower().getId());
+            size += Varint.size(idBytes) + idBytes;
+        }
+        if (loan.getDueDate() != null) {
+            size += Varint.size(Wire.zigzag(loan.getDueDate().toEpochDay()));
+        }
+        return size;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.library.good.codec;
+
+import com.example.library.good.model.User;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary form of {@link User}s, the patron side of {@link BookCodec}
+ * and framed the same way: a header, then [varint payload length][payload]
+ * records. Version 1 payloads hold a flags byte (admin, has a name), the id
+ * and, if present, the name, both as varint-length UTF-8.
+ */
+public final class UserCodec {
+    public static final int VERSION = 1;
+    static final int MAGIC = 0x4C555331; // "LUS1"
+
+    private static final int ADMIN = 1;
+    private static final int HAS_NAME = 2;
+
+    private UserCodec() {
+    }
+
+    /**
+     * @return false, writing nothing, if {@code out} has no room for the header
+     */
+    public static boolean writeHeader(ByteBuffer out) {
+        return Wire.writeHeader(out, MAGIC, VERSION);
+    }
+
+    /**
+     * @return the stream's format version, or -1 if {@code in} does not hold the whole header yet
+     * @throws IllegalArgumentException if this is not a user stream or its version is too new
+     */
+    public static int readHeader(ByteBuffer in) {
+        return Wire.readHeader(in, MAGIC, VERSION, "user");
+    }
+
+    public static int encodedSize(User user) {
+        int payload = payloadSize(Wire.utf8Length(user.getId()),
+                user.getName() == null ? -1 : Wire.utf8Length(user.getName()));
+        return Varint.size(payload) + payload;
+    }
+
+    /**
+     * @return false, writing nothing, if the record does not fit in what is left of {@code out}
+     */
+    public static boolean encode(User user, ByteBuffer out) {
+        int idBytes = Wire.utf8Length(user.getId());
+        int nameBytes = user.getName() == null ? -1 : Wire.utf8Length(user.getName());
+        int payload = payloadSize(idBytes, nameBytes);
+        if (out.remaining() < Varint.size(payload) + payload) {
+            return false;
+        }
+        Varint.write(out, payload);
+        out.put((byte) ((user.isAdmin() ? ADMIN : 0) | (nameBytes >= 0 ? HAS_NAME : 0)));
+        Wire.putString(out, user.getId(), idBytes);
+        if (nameBytes >= 0) {
+            Wire.putString(out, user.getName(), nameBytes);
+        }
+        return true;
+    }
+
+    /**
+     * @return the user, or null, consuming nothing, if {@code in} does not hold the whole record yet
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    public static User decode(ByteBuffer in) {
+        int payload = Wire.peekLength(in);
+        if (payload < 0) {
+            return null;
+        }
+        int start = in.position();
+        Varint.read(in);
+        if (in.remaining() < payload) {
+            in.position(start);
+            return null;
+        }
+        int end = in.position() + payload;
+        int limit = in.limit();
+        in.limit(end);
+        try {
+            int flags = in.get();
+            String id = Wire.getString(in);
+            String name = (flags & HAS_NAME) != 0 ? Wire.getString(in) : null;
+            return new User(id, name, (flags & ADMIN) != 0);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("malformed user record", e);
+        } finally {
+            in.limit(limit);
+            in.position(end);
+        }
+    }
+
+    private static int payloadSize(int idBytes, int nameBytes) {
+        int size = 1 + Varint.size(idBytes) + idBytes;
+        if (nameBytes >= 0) {
+            size += Varint.size(nameBytes) + nameBytes;
+        }
+        return size;
+    }
+}
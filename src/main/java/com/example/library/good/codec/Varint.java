@@ -0,0 +1,76 @@
+package com.example.library.good.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unsigned LEB128 varints: seven bits per byte, lowest group first, the high
+ * bit set on every byte but the last. The codecs write them into buffers and
+ * the loan history packs them into byte arrays; both go through here so the
+ * encoding is defined once.
+ */
+public final class Varint {
+    public static final int MAX_BYTES = 10;
+
+    private Varint() {
+    }
+
+    public static int size(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * @return the position after the last byte written
+     */
+    public static int write(byte[] target, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    public static void write(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads a varint that {@link #write(byte[], int, long)} wrote at
+     * {@code position}; it takes {@link #size} of the result bytes.
+     */
+    public static long read(byte[] source, int position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = source[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no byte within {@value #MAX_BYTES} ends the varint
+     */
+    public static long read(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint longer than " + MAX_BYTES + " bytes");
+    }
+}
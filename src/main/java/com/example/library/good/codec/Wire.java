@@ -0,0 +1,147 @@
+package com.example.library.good.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Primitives shared by the codecs on top of {@link Varint}: zigzag for signed
+ * values, UTF-8 strings written straight into the buffer, and the stream header.
+ */
+final class Wire {
+    static final int HEADER_BYTES = 5;
+
+    private Wire() {
+    }
+
+    static int getVarInt(ByteBuffer in) {
+        long value = Varint.read(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("varint out of int range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a record's length prefix without consuming it.
+     *
+     * @return the payload length, or -1 if the prefix itself is not complete yet
+     */
+    static int peekLength(ByteBuffer in) {
+        long value = 0;
+        int position = in.position();
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position == in.limit()) {
+                return -1;
+            }
+            byte b = in.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value > Integer.MAX_VALUE) {
+                    break;
+                }
+                return (int) value;
+            }
+        }
+        throw new IllegalArgumentException("malformed record length at " + in.position());
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Unpaired surrogates become '?', exactly as String.getBytes(UTF_8) does.
+    static int utf8Length(String s) {
+        int length = s.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    static void putString(ByteBuffer out, String s, int utf8Length) {
+        Varint.write(out, utf8Length);
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                out.put((byte) (0xF0 | codePoint >> 18));
+                out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                out.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | c >> 12));
+                out.put((byte) (0x80 | c >> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = getVarInt(in);
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("string of " + length + " bytes overruns the record");
+        }
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return s;
+    }
+
+    static boolean writeHeader(ByteBuffer out, int magic, int version) {
+        if (out.remaining() < HEADER_BYTES) {
+            return false;
+        }
+        out.putInt(magic);
+        out.put((byte) version);
+        return true;
+    }
+
+    /**
+     * @return the stream's version, or -1 if the header is not complete yet
+     */
+    static int readHeader(ByteBuffer in, int magic, int maxVersion, String kind) {
+        if (in.remaining() < HEADER_BYTES) {
+            return -1;
+        }
+        int found = in.getInt(in.position());
+        if (found != magic) {
+            throw new IllegalArgumentException("not a " + kind + " stream: magic " + Integer.toHexString(found));
+        }
+        int version = in.get(in.position() + 4) & 0xFF;
+        if (version < 1 || version > maxVersion) {
+            throw new IllegalArgumentException(kind + " stream version " + version
+                    + " is not supported; this reader handles up to " + maxVersion);
+        }
+        in.position(in.position() + HEADER_BYTES);
+        return version;
+    }
+}
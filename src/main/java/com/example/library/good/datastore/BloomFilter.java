@@ -0,0 +1,78 @@
+package com.example.library.good.datastore;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Fixed-size Bloom filter over string keys. Probe positions come from one
+ * 64-bit hash split in two (Kirsch-Mitzenmacher double hashing), so a lookup
+ * walks the key once regardless of the number of hash functions.
+ */
+final class BloomFilter {
+    private final long[] words;
+    private final int hashes;
+
+    /**
+     * @param bitsPerKey 0 disables the filter: every key might be present
+     */
+    BloomFilter(int expectedKeys, int bitsPerKey) {
+        long bits = bitsPerKey == 0 ? 0 : Math.max(64L, (long) Math.max(expectedKeys, 1) * bitsPerKey);
+        this.words = new long[(int) ((bits + 63) >>> 6)];
+        // ln 2 * bits per key minimises the false positive rate.
+        this.hashes = bitsPerKey == 0 ? 0 : Math.max(1, Math.min(30, (int) Math.round(bitsPerKey * 0.69)));
+    }
+
+    private BloomFilter(long[] words, int hashes) {
+        this.words = words;
+        this.hashes = hashes;
+    }
+
+    void add(String key) {
+        if (words.length == 0) {
+            return;
+        }
+        long hash = KeyHash.hash64(key);
+        long bits = (long) words.length << 6;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String key) {
+        if (words.length == 0) {
+            return true;
+        }
+        long hash = KeyHash.hash64(key);
+        long bits = (long) words.length << 6;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(hashes);
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    static BloomFilter readFrom(DataInput in) throws IOException {
+        int hashes = in.readInt();
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        return new BloomFilter(words, hashes);
+    }
+}
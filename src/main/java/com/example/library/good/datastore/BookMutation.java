@@ -0,0 +1,16 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+/**
+ * A change applied to a stored book. Arguments are passed explicitly so a
+ * mutation can be a constant instead of a capturing lambda allocated per call.
+ */
+@FunctionalInterface
+public interface BookMutation<A, B> {
+
+    /**
+     * @return false to leave the book as it was
+     */
+    boolean apply(Book book, A first, B second);
+}
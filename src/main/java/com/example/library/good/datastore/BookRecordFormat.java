@@ -0,0 +1,156 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk record layout shared by the file-backed stores:
+ * [int payload length][int CRC32C of payload][payload].
+ *
+ * Payloads start with {@link #MARKER} and a format version byte. Version 2
+ * holds ISBN, title, total and available copies, then a count and that many
+ * loans. Version 1 held a single loan in place of the count and list.
+ * Payloads without the marker are the original single-copy layout (ISBN,
+ * title, an availability flag and the loan). Older layouts are still read,
+ * never written. A legacy payload starts with the high byte of the ISBN's
+ * length, so the marker cannot be mistaken for one.
+ */
+final class BookRecordFormat {
+    static final int HEADER_BYTES = 8;
+    static final int VERSION = 2;
+    static final int MARKER = 0xFF;
+    private static final long NO_DUE_DATE = Long.MIN_VALUE;
+
+    private BookRecordFormat() {
+    }
+
+    static ByteBuffer encode(Book book) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        bytes.write(new byte[HEADER_BYTES], 0, HEADER_BYTES);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MARKER);
+            out.writeByte(VERSION);
+            out.writeUTF(book.getIsbn());
+            out.writeUTF(book.getTitle());
+            out.writeInt(book.getTotalCopies());
+            out.writeInt(book.getAvailableCopies());
+            List<Loan> loans = book.getLoans();
+            out.writeInt(loans.size());
+            for (Loan loan : loans) {
+                writeLoan(out, loan.getBorrower(), loan.getDueDate());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int payloadLength = record.remaining() - HEADER_BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER_BYTES, payloadLength);
+        record.putInt(0, payloadLength);
+        record.putInt(4, (int) crc.getValue());
+        return record;
+    }
+
+    /**
+     * Returns true if {@code payload} matches the checksum from its header.
+     */
+    static boolean verify(ByteBuffer payload, int expectedCrc) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue() == expectedCrc;
+    }
+
+    /**
+     * Reads only the key of a record, for stores that search by ISBN without
+     * needing the whole book.
+     */
+    static String readIsbn(ByteBuffer payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                payload.array(), payload.arrayOffset() + payload.position(), payload.remaining()))) {
+            readVersion(in);
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param users if not null, borrowers are resolved to their canonical instance
+     */
+    static Book decode(ByteBuffer payload, UserStore users) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                payload.array(), payload.arrayOffset() + payload.position(), payload.remaining()))) {
+            int version = readVersion(in);
+            String isbn = in.readUTF();
+            String title = in.readUTF();
+            Book book;
+            int availableCopies;
+            if (version == 0) {
+                book = new Book(isbn, title);
+                availableCopies = in.readBoolean() ? 1 : 0;
+            } else {
+                book = new Book(isbn, title, in.readInt());
+                availableCopies = in.readInt();
+            }
+            int loans = version < 2 ? 1 : in.readInt();
+            for (int i = 0; i < loans; i++) {
+                readLoan(in, book, users);
+            }
+            book.setAvailableCopies(availableCopies);
+            return book;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeLoan(DataOutputStream out, User borrower, LocalDate dueDate) throws IOException {
+        out.writeBoolean(borrower != null);
+        if (borrower != null) {
+            out.writeUTF(borrower.getId());
+            out.writeUTF(borrower.getName() == null ? "" : borrower.getName());
+            out.writeBoolean(borrower.isAdmin());
+        }
+        out.writeLong(dueDate == null ? NO_DUE_DATE : dueDate.toEpochDay());
+    }
+
+    // A version 0 or 1 record with neither borrower nor due date had no loan.
+    private static void readLoan(DataInputStream in, Book book, UserStore users) throws IOException {
+        User borrower = null;
+        if (in.readBoolean()) {
+            borrower = new User(in.readUTF(), in.readUTF(), in.readBoolean());
+            if (users != null) {
+                borrower = users.intern(borrower);
+            }
+        }
+        long dueEpochDay = in.readLong();
+        if (borrower != null || dueEpochDay != NO_DUE_DATE) {
+            book.borrowBy(borrower, dueEpochDay == NO_DUE_DATE ? null : LocalDate.ofEpochDay(dueEpochDay));
+        }
+    }
+
+    // Consumes the marker and version; 0 for a legacy payload, which has neither.
+    private static int readVersion(DataInputStream in) throws IOException {
+        in.mark(1);
+        if (in.readUnsignedByte() != MARKER) {
+            in.reset();
+            return 0;
+        }
+        int version = in.readUnsignedByte();
+        if (version > VERSION) {
+            throw new DataStoreException("book record format " + version + " is newer than " + VERSION, null);
+        }
+        return version;
+    }
+}
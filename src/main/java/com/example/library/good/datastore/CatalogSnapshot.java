@@ -0,0 +1,48 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A consistent, point-in-time view of a {@link DatabaseStore}. Taking one is
+ * a single volatile read; later writes to the store are never visible through
+ * it, and holding it open does not block writers. Books are handed out as
+ * copies, so readers cannot change the snapshot either.
+ */
+public final class CatalogSnapshot {
+    private final PersistentBookMap books;
+
+    CatalogSnapshot(PersistentBookMap books) {
+        this.books = books;
+    }
+
+    public Optional<Book> findBookByIsbn(String isbn) {
+        Book book = books.get(isbn);
+        return book == null ? Optional.empty() : Optional.of(book.copy());
+    }
+
+    public int size() {
+        return books.size();
+    }
+
+    public void forEach(Consumer<? super Book> action) {
+        books.forEach(book -> action.accept(book.copy()));
+    }
+
+    public Spliterator<Book> spliterator() {
+        return new MappedSpliterator<>(books.spliterator(), Book::copy);
+    }
+
+    public Stream<Book> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<Book> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+}
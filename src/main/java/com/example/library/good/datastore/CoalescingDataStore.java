@@ -0,0 +1,186 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight lookups: while a {@link #findBookByIsbn} for an ISBN is in
+ * flight, further lookups of the same ISBN wait for it and share its result
+ * instead of calling the store again. Other ISBNs are not held up, and
+ * nothing is cached once the call returns.
+ *
+ * A write of a book detaches any lookup of it still in flight, so a lookup
+ * that starts after a write has returned never gets the value from before it.
+ *
+ * Versioned stores hand every caller its own copy, and callers mutate what
+ * they get before writing it back; here each waiter gets a copy of the shared
+ * result too. Other stores share live objects, and so do their waiters.
+ *
+ * Use {@link #wrap} so a versioned or mutable store keeps that capability.
+ */
+public class CoalescingDataStore implements DataStore {
+    final DataStore delegate;
+    private final boolean copyResults;
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<Book>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder backendCalls = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
+
+    CoalescingDataStore(DataStore delegate) {
+        this.delegate = delegate;
+        this.copyResults = delegate instanceof VersionedDataStore;
+    }
+
+    public static CoalescingDataStore wrap(DataStore delegate) {
+        if (delegate instanceof VersionedDataStore) {
+            return new Versioned((VersionedDataStore) delegate);
+        }
+        if (delegate instanceof MutableDataStore) {
+            return new Mutable((MutableDataStore) delegate);
+        }
+        return new CoalescingDataStore(delegate);
+    }
+
+    @Override
+    public Optional<Book> findBookByIsbn(String isbn) {
+        CompletableFuture<Optional<Book>> flight = new CompletableFuture<>();
+        CompletableFuture<Optional<Book>> leader = inFlight.putIfAbsent(isbn, flight);
+        if (leader != null) {
+            coalescedCalls.increment();
+            return share(await(leader));
+        }
+        backendCalls.increment();
+        try {
+            Optional<Book> result = delegate.findBookByIsbn(isbn);
+            flight.complete(result);
+            return share(result);
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(isbn, flight);
+        }
+    }
+
+    @Override
+    public void updateBook(Book book) {
+        delegate.updateBook(book);
+        inFlight.remove(book.getIsbn());
+    }
+
+    @Override
+    public void updateBooks(List<Book> books) {
+        delegate.updateBooks(books);
+        for (Book book : books) {
+            inFlight.remove(book.getIsbn());
+        }
+    }
+
+    @Override
+    public Spliterator<Book> spliterator() {
+        return delegate.spliterator();
+    }
+
+    /**
+     * Lookups that reached the backing store.
+     */
+    public long getBackendCalls() {
+        return backendCalls.sum();
+    }
+
+    /**
+     * Lookups answered by joining one already in flight.
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls.sum();
+    }
+
+    /**
+     * Share of lookups that were coalesced; 0 before the first lookup.
+     */
+    public double getCoalescedRate() {
+        long coalesced = coalescedCalls.sum();
+        long total = coalesced + backendCalls.sum();
+        return total == 0 ? 0 : (double) coalesced / total;
+    }
+
+    void detach(String isbn) {
+        inFlight.remove(isbn);
+    }
+
+    private Optional<Book> share(Optional<Book> result) {
+        return copyResults && result.isPresent() ? Optional.of(result.get().copy()) : result;
+    }
+
+    // The leader's own exception reaches every waiter unwrapped.
+    private static Optional<Book> await(CompletableFuture<Optional<Book>> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    static final class Versioned extends CoalescingDataStore implements VersionedDataStore {
+
+        Versioned(VersionedDataStore delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public boolean updateBookIfVersion(Book book, long expectedVersion) {
+            if (!((VersionedDataStore) delegate).updateBookIfVersion(book, expectedVersion)) {
+                return false;
+            }
+            detach(book.getIsbn());
+            return true;
+        }
+
+        @Override
+        public boolean updateBooksIfVersions(List<Book> books) {
+            if (!((VersionedDataStore) delegate).updateBooksIfVersions(books)) {
+                return false;
+            }
+            for (Book book : books) {
+                detach(book.getIsbn());
+            }
+            return true;
+        }
+    }
+
+    static final class Mutable extends CoalescingDataStore implements MutableDataStore {
+
+        Mutable(MutableDataStore delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public <A, B> Book updateInPlace(String isbn, BookMutation<A, B> mutation, A first, B second) {
+            Book book = ((MutableDataStore) delegate).updateInPlace(isbn, mutation, first, second);
+            detach(isbn);
+            return book;
+        }
+
+        @Override
+        public <A, B> List<Book> updateAllInPlace(List<String> isbns, BookMutation<A, B> mutation, A first, B second) {
+            List<Book> books = ((MutableDataStore) delegate).updateAllInPlace(isbns, mutation, first, second);
+            for (String isbn : isbns) {
+                detach(isbn);
+            }
+            return books;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.library.good.datastore;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed set of JDBC connections opened up front. Each connection keeps its
+ * own prepared statements, so a statement is parsed and planned once per
+ * connection rather than once per call.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 5_000;
+
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private final long acquireTimeoutMillis;
+
+    public ConnectionPool(String url, String user, String password, int size) throws SQLException {
+        this(url, user, password, size, DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    public ConnectionPool(String url, String user, String password, int size, long acquireTimeoutMillis)
+            throws SQLException {
+        if (size < 1) {
+            throw new IllegalArgumentException("a pool needs at least one connection");
+        }
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        try {
+            for (int i = 0; i < size; i++) {
+                Connection connection = DriverManager.getConnection(url, user, password);
+                connection.setAutoCommit(false);
+                PooledConnection pooled = new PooledConnection(connection);
+                all.add(pooled);
+                idle.add(pooled);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    PooledConnection acquire() throws SQLException {
+        try {
+            PooledConnection connection = idle.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (connection == null) {
+                throw new SQLTransientConnectionException("no connection free after " + acquireTimeoutMillis + " ms");
+            }
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("interrupted waiting for a connection", e);
+        }
+    }
+
+    void release(PooledConnection connection) {
+        idle.add(connection);
+    }
+
+    public int size() {
+        return all.size();
+    }
+
+    @Override
+    public void close() {
+        for (PooledConnection connection : all) {
+            connection.close();
+        }
+    }
+
+    static final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        Connection connection() {
+            return connection;
+        }
+
+        void close() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // closing anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.library.good.datastore;
+
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * The data files of a {@link PersistentDataStore} as of one instant: for each
+ * file, an open channel and the number of bytes that belong to the cut.
+ */
+public class DataFileCut implements AutoCloseable {
+    private final List<Segment> segments;
+    private final Runnable release;
+
+    public DataFileCut(List<Segment> segments, Runnable release) {
+        this.segments = List.copyOf(segments);
+        this.release = release;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    @Override
+    public void close() {
+        release.run();
+    }
+
+    public static class Segment {
+        private final String name;
+        private final FileChannel channel;
+        private final long length;
+
+        public Segment(String name, FileChannel channel, long length) {
+            this.name = name;
+            this.channel = channel;
+            this.length = length;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public FileChannel getChannel() {
+            return channel;
+        }
+
+        public long getLength() {
+            return length;
+        }
+    }
+}
@@ -2,9 +2,42 @@ package com.example.library.good.datastore;
 
 import com.example.library.good.model.Book;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface DataStore {
     Optional<Book> findBookByIsbn(String isbn);
     void updateBook(Book book);
+
+    /**
+     * Every book in the store, split so that parallel streams spread the
+     * work across cores. The scan is weakly consistent unless a store says
+     * otherwise; books come out as {@link #findBookByIsbn} would return them.
+     *
+     * A store that can only look books up by ISBN has nothing to enumerate,
+     * so by default scanning fails while lookups and writes keep working.
+     *
+     * @throws UnsupportedOperationException if the store cannot list its books
+     */
+    default Spliterator<Book> spliterator() {
+        throw new UnsupportedOperationException(getClass().getName() + " cannot scan its books");
+    }
+
+    default Stream<Book> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    default Stream<Book> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    // Stores with a cheaper bulk write path should override this.
+    default void updateBooks(List<Book> books) {
+        for (Book book : books) {
+            updateBook(book);
+        }
+    }
 }
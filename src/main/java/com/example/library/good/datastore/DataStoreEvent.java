@@ -0,0 +1,66 @@
+package com.example.library.good.datastore;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one call into a store wrapped by
+ * {@link TracingDataStore}. Off unless a recording enables {@value #NAME},
+ * and then recorded from 1 ms so that only slow calls show up unless the
+ * recording lowers the threshold.
+ */
+@Name(DataStoreEvent.NAME)
+@Label("DataStore Call")
+@Category({"Library", "DataStore"})
+@Description("One call into a DataStore")
+@Enabled(false)
+@StackTrace(false)
+@Threshold("1 ms")
+final class DataStoreEvent extends jdk.jfr.Event {
+    static final String NAME = "com.example.library.DataStoreCall";
+
+    private static final DataStoreEvent DISABLED = new DataStoreEvent();
+    private static final EventType TYPE = EventType.getEventType(DataStoreEvent.class);
+
+    @Label("Store")
+    String store;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("ISBN")
+    @Description("Empty for bulk writes")
+    String isbn;
+
+    @Label("Books")
+    int books;
+
+    static DataStoreEvent begin(String operation) {
+        if (!TYPE.isEnabled()) {
+            return DISABLED;
+        }
+        DataStoreEvent event = new DataStoreEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    void finish(String store, String isbn, int books) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.store = store;
+            this.isbn = isbn;
+            this.books = books;
+            commit();
+        }
+    }
+}
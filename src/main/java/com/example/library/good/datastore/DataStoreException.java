@@ -0,0 +1,12 @@
+package com.example.library.good.datastore;
+
+/**
+ * A store's backing system failed in a way {@link DataStore} callers cannot
+ * fix, e.g. a database error.
+ */
+public class DataStoreException extends RuntimeException {
+
+    public DataStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
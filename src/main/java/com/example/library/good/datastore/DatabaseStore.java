@@ -2,26 +2,130 @@ package com.example.library.good.datastore;
 
 import com.example.library.good.model.Book;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class DatabaseStore implements DataStore {
-    private final Map<String, Book> database = new HashMap<>();
+/**
+ * In-memory store kept as an immutable map that writers replace with a
+ * compare-and-set. Readers never lock, and {@link #snapshot()} is free.
+ */
+public class DatabaseStore implements VersionedDataStore {
+    private final AtomicReference<PersistentBookMap> database = new AtomicReference<>(PersistentBookMap.EMPTY);
 
     public DatabaseStore() {
         // sample data
-        database.put("111", new Book("111", "Clean Code"));
-        database.put("222", new Book("222", "Effective Java"));
+        updateBook(new Book("111", "Clean Code"));
+        updateBook(new Book("222", "Effective Java"));
     }
 
+    // Callers get a copy, so an uncommitted change is never visible to other readers.
     @Override
     public Optional<Book> findBookByIsbn(String isbn) {
-        return Optional.ofNullable(database.get(isbn));
+        Book book = database.get().get(isbn);
+        return book == null ? Optional.empty() : Optional.of(book.copy());
     }
 
     @Override
     public void updateBook(Book book) {
-        database.put(book.getIsbn(), book);
+        while (!tryUpdate(database.get(), book)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public boolean updateBookIfVersion(Book book, long expectedVersion) {
+        while (true) {
+            PersistentBookMap current = database.get();
+            if (versionOf(current, book.getIsbn()) != expectedVersion) {
+                return false;
+            }
+            if (tryUpdate(current, book)) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // The whole batch becomes visible at once.
+    @Override
+    public void updateBooks(List<Book> books) {
+        long[] versions = new long[books.size()];
+        while (true) {
+            PersistentBookMap current = database.get();
+            PersistentBookMap next = current;
+            for (int i = 0; i < versions.length; i++) {
+                Book book = books.get(i);
+                versions[i] = versionOf(next, book.getIsbn()) + 1;
+                next = next.put(stored(book, versions[i]));
+            }
+            if (database.compareAndSet(current, next)) {
+                break;
+            }
+            Thread.onSpinWait();
+        }
+        for (int i = 0; i < versions.length; i++) {
+            books.get(i).setVersion(versions[i]);
+        }
+    }
+
+    // One compare-and-set publishes the whole batch, so either every version matched or nothing changed.
+    @Override
+    public boolean updateBooksIfVersions(List<Book> books) {
+        while (true) {
+            PersistentBookMap current = database.get();
+            PersistentBookMap next = current;
+            for (Book book : books) {
+                if (versionOf(current, book.getIsbn()) != book.getVersion()) {
+                    return false;
+                }
+                next = next.put(stored(book, book.getVersion() + 1));
+            }
+            if (database.compareAndSet(current, next)) {
+                break;
+            }
+            Thread.onSpinWait();
+        }
+        for (Book book : books) {
+            book.setVersion(book.getVersion() + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Unlike most stores, the scan is a consistent snapshot of the moment it
+     * was started.
+     */
+    @Override
+    public Spliterator<Book> spliterator() {
+        return snapshot().spliterator();
+    }
+
+    /**
+     * A consistent view of the whole catalog as of now.
+     */
+    public CatalogSnapshot snapshot() {
+        return new CatalogSnapshot(database.get());
+    }
+
+    private boolean tryUpdate(PersistentBookMap current, Book book) {
+        long version = versionOf(current, book.getIsbn()) + 1;
+        if (!database.compareAndSet(current, current.put(stored(book, version)))) {
+            return false;
+        }
+        book.setVersion(version);
+        return true;
+    }
+
+    private static long versionOf(PersistentBookMap map, String isbn) {
+        Book stored = map.get(isbn);
+        return stored == null ? 0 : stored.getVersion();
+    }
+
+    private static Book stored(Book book, long version) {
+        Book copy = book.copy();
+        copy.setVersion(version);
+        return copy;
     }
 }
@@ -0,0 +1,202 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * File-backed store: every {@link #updateBook} is appended to a log file and
+ * the latest version of each book is kept in memory. The log is replayed on
+ * open; a torn record at the tail (crash mid-write) is truncated away.
+ *
+ * Because the log is append-only, a consistent cut is just its current
+ * length, which is what makes hot backups cheap.
+ */
+public class FileDataStore implements PersistentDataStore, AutoCloseable {
+    static final String LOG_FILE = "catalog.log";
+
+    private final Path directory;
+    private final UserStore users;
+    private final Map<String, Book> books = new ConcurrentHashMap<>();
+    private final Object appendLock = new Object();
+    // Open cuts hold a read stamp so compaction cannot swap the file underneath a backup.
+    private final StampedLock fileSwapLock = new StampedLock();
+    private FileChannel log;
+
+    public FileDataStore(Path directory) throws IOException {
+        this(directory, null);
+    }
+
+    // Borrowers read back from the log are interned into users instead of duplicated per record.
+    public FileDataStore(Path directory, UserStore users) throws IOException {
+        this.directory = directory;
+        this.users = users;
+        Files.createDirectories(directory);
+        this.log = openLog(directory.resolve(LOG_FILE));
+        replay();
+    }
+
+    @Override
+    public Optional<Book> findBookByIsbn(String isbn) {
+        return Optional.ofNullable(books.get(isbn));
+    }
+
+    @Override
+    public void updateBook(Book book) {
+        ByteBuffer record = BookRecordFormat.encode(book);
+        synchronized (appendLock) {
+            writeFully(record);
+            books.put(book.getIsbn(), book);
+        }
+    }
+
+    @Override
+    public void updateBooks(List<Book> batch) {
+        ByteBuffer[] records = new ByteBuffer[batch.size()];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = BookRecordFormat.encode(batch.get(i));
+        }
+        synchronized (appendLock) {
+            writeFully(records);
+            for (Book book : batch) {
+                books.put(book.getIsbn(), book);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<Book> spliterator() {
+        return books.values().spliterator();
+    }
+
+    @Override
+    public DataFileCut cutDataFiles() throws IOException {
+        long stamp = fileSwapLock.readLock();
+        try {
+            FileChannel channel;
+            long length;
+            synchronized (appendLock) {
+                channel = log;
+                channel.force(false);
+                length = channel.size();
+            }
+            return new DataFileCut(List.of(new DataFileCut.Segment(LOG_FILE, channel, length)),
+                    () -> fileSwapLock.unlockRead(stamp));
+        } catch (IOException | RuntimeException e) {
+            fileSwapLock.unlockRead(stamp);
+            throw e;
+        }
+    }
+
+    /**
+     * Rewrites the log with only the latest record per book. Waits for open
+     * cuts to be released and blocks writers while the new log is written.
+     */
+    public void compact() throws IOException {
+        long stamp = fileSwapLock.writeLock();
+        try {
+            synchronized (appendLock) {
+                Path compacted = directory.resolve(LOG_FILE + ".compact");
+                try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    for (Book book : books.values()) {
+                        ByteBuffer record = BookRecordFormat.encode(book);
+                        while (record.hasRemaining()) {
+                            out.write(record);
+                        }
+                    }
+                    out.force(true);
+                }
+                log.close();
+                Files.move(compacted, directory.resolve(LOG_FILE),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                log = openLog(directory.resolve(LOG_FILE));
+                log.position(log.size());
+            }
+        } finally {
+            fileSwapLock.unlockWrite(stamp);
+        }
+    }
+
+    public long getLogSize() throws IOException {
+        synchronized (appendLock) {
+            return log.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            log.force(true);
+            log.close();
+        }
+    }
+
+    private void replay() throws IOException {
+        long size = log.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(BookRecordFormat.HEADER_BYTES);
+        while (position + BookRecordFormat.HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            int crc = header.getInt(4);
+            long end = position + BookRecordFormat.HEADER_BYTES + length;
+            if (length <= 0 || end > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + BookRecordFormat.HEADER_BYTES);
+            payload.flip();
+            if (!BookRecordFormat.verify(payload, crc)) {
+                break;
+            }
+            Book book = BookRecordFormat.decode(payload, users);
+            books.put(book.getIsbn(), book);
+            position = end;
+        }
+        if (position < size) {
+            log.truncate(position);
+        }
+        log.position(position);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of " + LOG_FILE);
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer... records) {
+        try {
+            long remaining = 0;
+            for (ByteBuffer record : records) {
+                remaining += record.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= log.write(records);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static FileChannel openLog(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
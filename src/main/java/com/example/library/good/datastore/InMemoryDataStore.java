@@ -0,0 +1,98 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Heap store built for the circulation hot path: lookups and in-place updates
+ * allocate nothing once a book is stored. Each book is kept together with the
+ * {@code Optional} that {@link #findBookByIsbn} hands out, and
+ * {@link #updateInPlace} locks only the book it changes.
+ * {@link #updateAllInPlace} locks its books in ISBN order and puts back the
+ * ones it already changed if the mutation refuses a later one.
+ *
+ * Unlike {@link DatabaseStore}, readers share the live objects, so a report
+ * that needs a consistent view should use a store with snapshots.
+ */
+public class InMemoryDataStore implements MutableDataStore {
+    private final Map<String, Optional<Book>> books = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Book> findBookByIsbn(String isbn) {
+        return books.getOrDefault(isbn, Optional.empty());
+    }
+
+    @Override
+    public void updateBook(Book book) {
+        Optional<Book> current = books.get(book.getIsbn());
+        if (current == null || current.get() != book) {
+            books.put(book.getIsbn(), Optional.of(book));
+        }
+    }
+
+    @Override
+    public <A, B> Book updateInPlace(String isbn, BookMutation<A, B> mutation, A first, B second) {
+        Optional<Book> current = books.get(isbn);
+        if (current == null) {
+            return null;
+        }
+        Book book = current.get();
+        synchronized (book) {
+            return mutation.apply(book, first, second) ? book : null;
+        }
+    }
+
+    @Override
+    public <A, B> List<Book> updateAllInPlace(List<String> isbns, BookMutation<A, B> mutation, A first, B second) {
+        List<Book> targets = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            Optional<Book> current = books.get(isbn);
+            if (current == null) {
+                return null;
+            }
+            targets.add(current.get());
+        }
+        Book[] lockOrder = targets.toArray(new Book[0]);
+        Arrays.sort(lockOrder, Comparator.comparing(Book::getIsbn));
+        return applyLocked(lockOrder, 0, targets, mutation, first, second);
+    }
+
+    @Override
+    public Spliterator<Book> spliterator() {
+        return new MappedSpliterator<>(books.values().spliterator(), Optional::get);
+    }
+
+    public int size() {
+        return books.size();
+    }
+
+    // Holds the monitors of lockOrder[0..held) and takes the rest before changing anything.
+    private static <A, B> List<Book> applyLocked(Book[] lockOrder, int held, List<Book> targets,
+                                                 BookMutation<A, B> mutation, A first, B second) {
+        if (held < lockOrder.length) {
+            synchronized (lockOrder[held]) {
+                return applyLocked(lockOrder, held + 1, targets, mutation, first, second);
+            }
+        }
+        List<Book> before = new ArrayList<>(targets.size());
+        for (Book book : targets) {
+            Book snapshot = book.copy();
+            if (!mutation.apply(book, first, second)) {
+                for (int i = 0; i < before.size(); i++) {
+                    targets.get(i).restore(before.get(i));
+                }
+                return null;
+            }
+            before.add(snapshot);
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.User;
+
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * {@link UserStore} backed by an open-addressing hash table: two parallel
+ * arrays (cached hashes and users) with linear probing, so each patron costs
+ * one array slot instead of a HashMap node. Lookups are optimistic and take
+ * no lock unless they race with an insert.
+ */
+public class InternedUserStore implements UserStore {
+    private static final int MIN_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private int size;
+
+    public InternedUserStore() {
+        this(MIN_CAPACITY);
+    }
+
+    public InternedUserStore(int expectedUsers) {
+        this.table = new Table(capacityFor(expectedUsers));
+    }
+
+    @Override
+    public User intern(User user) {
+        User existing = find(user.getId());
+        if (existing != null) {
+            return existing;
+        }
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int hash = hash(user.getId());
+            int slot = t.probe(user.getId(), hash);
+            if (t.users[slot] != null) {
+                return t.users[slot]; // another thread registered it first
+            }
+            if ((size + 1) * 4L > t.users.length * 3L) {
+                t = resize(t);
+                slot = t.probe(user.getId(), hash);
+            }
+            t.hashes[slot] = hash;
+            t.users[slot] = user;
+            size++;
+            return user;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Optional<User> findUserById(String id) {
+        return Optional.ofNullable(find(id));
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // The optimistic probe may see a slot mid-insert; User's fields are final, so
+    // comparing against a racily published user is safe, and validate() discards the result.
+    private User find(String id) {
+        int hash = hash(id);
+        long stamp = lock.tryOptimisticRead();
+        Table t = table;
+        User user = t.users[t.probe(id, hash)];
+        if (lock.validate(stamp)) {
+            return user;
+        }
+        stamp = lock.readLock();
+        try {
+            t = table;
+            return t.users[t.probe(id, hash)];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Table resize(Table old) {
+        Table bigger = new Table(old.users.length * 2);
+        for (int i = 0; i < old.users.length; i++) {
+            User user = old.users[i];
+            if (user != null) {
+                int slot = bigger.probe(user.getId(), old.hashes[i]);
+                bigger.hashes[slot] = old.hashes[i];
+                bigger.users[slot] = user;
+            }
+        }
+        table = bigger;
+        return bigger;
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int capacityFor(int expectedUsers) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L < expectedUsers * 4L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static final class Table {
+        final int[] hashes;
+        final User[] users;
+
+        Table(int capacity) {
+            this.hashes = new int[capacity];
+            this.users = new User[capacity];
+        }
+
+        // Slot holding id, or the empty slot where it would go.
+        int probe(String id, int hash) {
+            int mask = users.length - 1;
+            int slot = hash & mask;
+            while (true) {
+                User user = users[slot];
+                if (user == null || (hashes[slot] == hash && user.getId().equals(id))) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.library.good.datastore;
+
+/**
+ * The 64-bit string hash shared by {@link BloomFilter} and the popularity
+ * count-min sketch: FNV-1a over the chars, then the murmur3 finaliser so both 32-bit halves are well
+ * mixed and can serve as the two hashes of Kirsch-Mitzenmacher double hashing.
+ */
+public final class KeyHash {
+
+    private KeyHash() {
+    }
+
+    public static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,774 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Log-structured merge store for write-heavy circulation traffic. A write is
+ * appended to a write-ahead log and put into a sorted in-memory memtable;
+ * nothing on disk is updated in place. Once the memtable reaches its size
+ * budget it is frozen and a background thread flushes it into an immutable
+ * {@link SortedSegment}. Segments are grouped in levels: when a level holds
+ * {@code fanout} segments they are merged into one segment on the next level.
+ *
+ * The tuning knobs trade write amplification against read amplification. A
+ * larger fanout rewrites each record fewer times but leaves more segments to
+ * probe; a larger index interval shrinks the in-memory sparse index but reads
+ * bigger blocks; more Bloom filter bits per key skip more segments that do
+ * not hold the key.
+ *
+ * Books found in a memtable are the instances that were written, as with
+ * {@link FileDataStore}; books read from segments are fresh copies. Because
+ * two readers can get two copies of one book, read-modify-write must go
+ * through {@link #updateInPlace}, which holds a per-ISBN lock stripe across
+ * the read, the change and the write, and publishes the change as a new
+ * instance. Books are never deleted, so there are
+ * no tombstones.
+ */
+public class LsmDataStore implements MutableDataStore, AutoCloseable {
+    public static final long DEFAULT_MEMTABLE_BYTES = 4L << 20;
+    public static final int DEFAULT_FANOUT = 4;
+    public static final int DEFAULT_INDEX_INTERVAL = 16;
+    public static final int DEFAULT_BLOOM_BITS_PER_KEY = 10;
+
+    // Writers stall rather than let frozen memtables pile up faster than they flush.
+    private static final int MAX_FROZEN_MEMTABLES = 2;
+    private static final int MUTATION_STRIPES = 64;
+    private static final String WAL_PREFIX = "wal-";
+    private static final String WAL_SUFFIX = ".log";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".sst";
+    // Within a level newer segments come first; lower levels are always newer than higher ones.
+    private static final Comparator<SortedSegment> NEWEST_FIRST = Comparator
+            .comparingInt(SortedSegment::level)
+            .thenComparing(Comparator.comparingLong(SortedSegment::sequence).reversed());
+
+    private final Path directory;
+    private final UserStore users;
+    private final long memtableBytes;
+    private final int fanout;
+    private final int indexInterval;
+    private final int bloomBitsPerKey;
+    private final ExecutorService background;
+    // Guards appends and every replacement of tree.
+    private final Object writeLock = new Object();
+    // Lookups hold a read stamp so compaction cannot close a segment they are reading.
+    private final StampedLock segmentLock = new StampedLock();
+    private final StripedLocks mutationStripes = new StripedLocks(MUTATION_STRIPES);
+    private final AtomicLong nextSequence = new AtomicLong(1);
+    private final LongAdder bytesAccepted = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder blockReads = new LongAdder();
+    private volatile Tree tree;
+    private volatile Throwable backgroundFailure;
+    private boolean closed;
+
+    public LsmDataStore(Path directory) throws IOException {
+        this(directory, null, DEFAULT_MEMTABLE_BYTES, DEFAULT_FANOUT, DEFAULT_INDEX_INTERVAL,
+                DEFAULT_BLOOM_BITS_PER_KEY);
+    }
+
+    /**
+     * @param users           if not null, borrowers read from disk are interned into it
+     * @param memtableBytes   encoded bytes a memtable takes before it is flushed
+     * @param fanout          segments per level before they are merged into the next level
+     * @param indexInterval   records per sparse index entry
+     * @param bloomBitsPerKey Bloom filter size; 0 disables the filters
+     */
+    public LsmDataStore(Path directory, UserStore users, long memtableBytes, int fanout, int indexInterval,
+                        int bloomBitsPerKey) throws IOException {
+        if (memtableBytes < 1 || fanout < 2 || indexInterval < 1 || bloomBitsPerKey < 0) {
+            throw new IllegalArgumentException("invalid LSM tuning: memtableBytes=" + memtableBytes
+                    + ", fanout=" + fanout + ", indexInterval=" + indexInterval
+                    + ", bloomBitsPerKey=" + bloomBitsPerKey);
+        }
+        this.directory = directory;
+        this.users = users;
+        this.memtableBytes = memtableBytes;
+        this.fanout = fanout;
+        this.indexInterval = indexInterval;
+        this.bloomBitsPerKey = bloomBitsPerKey;
+        Files.createDirectories(directory);
+        recover();
+        this.background = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lsm-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        background.execute(this::compactWhileNeeded);
+    }
+
+    @Override
+    public Optional<Book> findBookByIsbn(String isbn) {
+        Tree current = tree;
+        Entry entry = current.active.entries.get(isbn);
+        if (entry != null) {
+            return Optional.of(entry.book);
+        }
+        for (Memtable frozen : current.frozen) {
+            entry = frozen.entries.get(isbn);
+            if (entry != null) {
+                return Optional.of(entry.book);
+            }
+        }
+        return Optional.ofNullable(findInSegments(isbn));
+    }
+
+    @Override
+    public void updateBook(Book book) {
+        ByteBuffer record = BookRecordFormat.encode(book);
+        synchronized (writeLock) {
+            Memtable memtable = writableMemtable();
+            append(memtable, record);
+            memtable.entries.put(book.getIsbn(), new Entry(book, record));
+            rotateIfFull(memtable);
+        }
+    }
+
+    @Override
+    public void updateBooks(List<Book> batch) {
+        ByteBuffer[] records = new ByteBuffer[batch.size()];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = BookRecordFormat.encode(batch.get(i));
+        }
+        synchronized (writeLock) {
+            Memtable memtable = writableMemtable();
+            append(memtable, records);
+            for (int i = 0; i < records.length; i++) {
+                Book book = batch.get(i);
+                memtable.entries.put(book.getIsbn(), new Entry(book, records[i]));
+            }
+            rotateIfFull(memtable);
+        }
+    }
+
+    @Override
+    public <A, B> Book updateInPlace(String isbn, BookMutation<A, B> mutation, A first, B second) {
+        mutationStripes.lock(isbn);
+        try {
+            Optional<Book> current = findBookByIsbn(isbn);
+            if (current.isEmpty()) {
+                return null;
+            }
+            // Change a copy: a memtable instance may be mid-flush, and readers must not see
+            // a state that is newer than its log record.
+            Book book = current.get().copy();
+            if (!mutation.apply(book, first, second)) {
+                return null;
+            }
+            updateBook(book);
+            return book;
+        } finally {
+            mutationStripes.unlock(isbn);
+        }
+    }
+
+    /**
+     * Holds the stripes of every ISBN, taken in index order, while the changed
+     * copies go out as one {@link #updateBooks} batch.
+     */
+    @Override
+    public <A, B> List<Book> updateAllInPlace(List<String> isbns, BookMutation<A, B> mutation, A first, B second) {
+        int[] stripes = mutationStripes.stripesFor(isbns);
+        mutationStripes.lock(stripes);
+        try {
+            return applyLocked(isbns, mutation, first, second);
+        } finally {
+            mutationStripes.unlock(stripes);
+        }
+    }
+
+    /**
+     * Merges memtables and segments by key under the segment read lock, like
+     * a compaction, keeping the newest version of each book and skipping the
+     * shadowed ones undecoded. Books from segments stay encoded until the
+     * spliterator reaches them, so a parallel stream decodes them in its
+     * splits rather than on the calling thread.
+     */
+    @Override
+    public Spliterator<Book> spliterator() {
+        List<Entry> latest = new ArrayList<>();
+        List<SortedSegment.Cursor> cursors = new ArrayList<>();
+        long stamp = segmentLock.readLock();
+        try {
+            Tree current = tree;
+            PriorityQueue<ScanSource> queue = new PriorityQueue<>();
+            int rank = 0;
+            addIfAny(queue, new ScanSource(rank++, current.active.entries.entrySet().iterator(), null));
+            for (Memtable frozen : current.frozen) {
+                addIfAny(queue, new ScanSource(rank++, frozen.entries.entrySet().iterator(), null));
+            }
+            for (SortedSegment segment : current.segments) {
+                SortedSegment.Cursor cursor = segment.cursor();
+                cursors.add(cursor);
+                addIfAny(queue, new ScanSource(rank++, null, cursor));
+            }
+            String last = null;
+            while (!queue.isEmpty()) {
+                ScanSource source = queue.poll();
+                if (!source.key.equals(last)) {
+                    latest.add(source.entry());
+                    last = source.key;
+                }
+                addIfAny(queue, source);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            segmentLock.unlockRead(stamp);
+            closeAll(cursors);
+        }
+        return new MappedSpliterator<>(latest.spliterator(), this::bookOf);
+    }
+
+    /**
+     * Freezes the current memtable and waits until it, and any compaction it
+     * triggers, is on disk.
+     */
+    public void flush() throws IOException {
+        Future<?> done;
+        synchronized (writeLock) {
+            Memtable memtable = writableMemtable();
+            if (!memtable.entries.isEmpty()) {
+                rotate();
+            }
+            done = background.submit(() -> { });
+        }
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while flushing");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        Throwable failure = backgroundFailure;
+        if (failure != null) {
+            throw new IOException("background flush or compaction failed", failure);
+        }
+    }
+
+    public int getSegmentCount() {
+        return tree.segments.size();
+    }
+
+    /**
+     * Bytes written to disk (log, flushes and merges) per byte of book
+     * records accepted; 0 before the first write.
+     */
+    public double getWriteAmplification() {
+        long accepted = bytesAccepted.sum();
+        return accepted == 0 ? 0 : (double) bytesWritten.sum() / accepted;
+    }
+
+    /**
+     * Segment blocks read by lookups; probes answered by a Bloom filter are
+     * not counted.
+     */
+    public long getBlockReads() {
+        return blockReads.sum();
+    }
+
+    /**
+     * Waits for in-flight background work, then closes the files. The active
+     * memtable is left in its log and replayed on the next open.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        background.shutdown();
+        try {
+            while (!background.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting: abandoning a merge would leave it to be redone on open
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for compaction");
+        }
+        Tree current = tree;
+        current.active.wal.force(true);
+        current.active.wal.close();
+        if (current.active.entries.isEmpty()) {
+            Files.deleteIfExists(current.active.walFile);
+        }
+        for (Memtable frozen : current.frozen) {
+            frozen.wal.close();
+        }
+        for (SortedSegment segment : current.segments) {
+            segment.close();
+        }
+    }
+
+    private static void addIfAny(PriorityQueue<ScanSource> queue, ScanSource source) throws IOException {
+        if (source.advance()) {
+            queue.add(source);
+        }
+    }
+
+    private static void closeAll(List<SortedSegment.Cursor> cursors) {
+        for (SortedSegment.Cursor cursor : cursors) {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                // the scan already has what it read
+            }
+        }
+    }
+
+    // A memtable entry is the written instance; a segment entry is decoded here.
+    private Book bookOf(Entry entry) {
+        if (entry.book != null) {
+            return entry.book;
+        }
+        ByteBuffer record = entry.record;
+        return BookRecordFormat.decode(record.slice(BookRecordFormat.HEADER_BYTES,
+                record.capacity() - BookRecordFormat.HEADER_BYTES), users);
+    }
+
+    private Book findInSegments(String isbn) {
+        long stamp = segmentLock.readLock();
+        try {
+            for (SortedSegment segment : tree.segments) {
+                if (!segment.mightContain(isbn)) {
+                    continue;
+                }
+                blockReads.increment();
+                Book book = segment.find(isbn, users);
+                if (book != null) {
+                    return book;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            segmentLock.unlockRead(stamp);
+        }
+    }
+
+    // Caller holds the stripes of every ISBN.
+    private <A, B> List<Book> applyLocked(List<String> isbns, BookMutation<A, B> mutation, A first, B second) {
+        List<Book> changed = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            Optional<Book> current = findBookByIsbn(isbn);
+            if (current.isEmpty()) {
+                return null;
+            }
+            Book book = current.get().copy();
+            if (!mutation.apply(book, first, second)) {
+                return null;
+            }
+            changed.add(book);
+        }
+        updateBooks(changed);
+        return changed;
+    }
+
+    private Memtable writableMemtable() {
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("store is closed");
+            }
+            Throwable failure = backgroundFailure;
+            if (failure != null) {
+                throw new DataStoreException("background flush or compaction failed", failure);
+            }
+            if (tree.frozen.size() < MAX_FROZEN_MEMTABLES) {
+                return tree.active;
+            }
+            try {
+                writeLock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataStoreException("interrupted while waiting for a memtable flush", e);
+            }
+        }
+    }
+
+    private void append(Memtable memtable, ByteBuffer... records) {
+        ByteBuffer[] views = new ByteBuffer[records.length];
+        long length = 0;
+        for (int i = 0; i < records.length; i++) {
+            views[i] = records[i].duplicate();
+            length += views[i].remaining();
+        }
+        try {
+            long remaining = length;
+            while (remaining > 0) {
+                remaining -= memtable.wal.write(views);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        memtable.bytes += length;
+        bytesAccepted.add(length);
+        bytesWritten.add(length);
+    }
+
+    private void rotateIfFull(Memtable memtable) {
+        if (memtable.bytes >= memtableBytes) {
+            rotate();
+        }
+    }
+
+    private void rotate() {
+        Memtable fresh;
+        try {
+            fresh = openMemtable();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Tree current = tree;
+        Memtable full = current.active;
+        List<Memtable> frozen = new ArrayList<>(current.frozen.size() + 1);
+        frozen.add(full);
+        frozen.addAll(current.frozen);
+        tree = new Tree(fresh, frozen, current.segments);
+        background.execute(() -> flushFrozen(full));
+    }
+
+    private void flushFrozen(Memtable memtable) {
+        try {
+            SortedSegment segment = writeSegment(memtable.entries, 0);
+            synchronized (writeLock) {
+                Tree current = tree;
+                List<Memtable> frozen = new ArrayList<>(current.frozen);
+                frozen.remove(memtable);
+                List<SortedSegment> segments = new ArrayList<>(current.segments.size() + 1);
+                segments.add(segment);
+                segments.addAll(current.segments);
+                tree = new Tree(current.active, frozen, segments);
+                writeLock.notifyAll();
+            }
+            memtable.wal.close();
+            Files.deleteIfExists(memtable.walFile);
+            compactWhileNeeded();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Runs on the background thread only, which is also the only place
+     * segments are added, so the victims cannot change underneath a merge.
+     */
+    private void compactWhileNeeded() {
+        try {
+            List<SortedSegment> victims;
+            while (!(victims = fullestLevel(tree.segments)).isEmpty()) {
+                merge(victims);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private List<SortedSegment> fullestLevel(List<SortedSegment> segments) {
+        int start = 0;
+        while (start < segments.size()) {
+            int level = segments.get(start).level();
+            int end = start;
+            while (end < segments.size() && segments.get(end).level() == level) {
+                end++;
+            }
+            if (end - start >= fanout) {
+                return segments.subList(start, end);
+            }
+            start = end;
+        }
+        return List.of();
+    }
+
+    // Victims are one whole level, newest first; the newest version of a key wins.
+    private void merge(List<SortedSegment> victims) throws IOException {
+        victims = List.copyOf(victims);
+        int expected = 0;
+        for (SortedSegment victim : victims) {
+            expected += victim.recordCount();
+        }
+        int level = victims.get(0).level() + 1;
+        SortedSegment.Writer writer = new SortedSegment.Writer(directory, level, nextSequence.getAndIncrement(),
+                expected, indexInterval, bloomBitsPerKey);
+        PriorityQueue<MergeSource> queue = new PriorityQueue<>();
+        List<SortedSegment.Cursor> cursors = new ArrayList<>(victims.size());
+        SortedSegment merged;
+        try {
+            for (int rank = 0; rank < victims.size(); rank++) {
+                SortedSegment.Cursor cursor = victims.get(rank).cursor();
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    queue.add(new MergeSource(cursor, rank));
+                }
+            }
+            String last = null;
+            while (!queue.isEmpty()) {
+                MergeSource source = queue.poll();
+                String key = source.cursor.key();
+                if (!key.equals(last)) {
+                    writer.add(key, source.cursor.record());
+                    last = key;
+                }
+                if (source.cursor.advance()) {
+                    queue.add(source);
+                }
+            }
+            merged = writer.finish();
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        } finally {
+            for (SortedSegment.Cursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+        bytesWritten.add(merged.sizeBytes());
+
+        long stamp = segmentLock.writeLock();
+        try {
+            synchronized (writeLock) {
+                Tree current = tree;
+                List<SortedSegment> segments = new ArrayList<>(current.segments);
+                segments.removeAll(victims);
+                segments.add(merged);
+                segments.sort(NEWEST_FIRST);
+                tree = new Tree(current.active, current.frozen, segments);
+            }
+        } finally {
+            segmentLock.unlockWrite(stamp);
+        }
+        // Oldest first: if we crash part way, the victims left over are the newest ones, and for
+        // their keys they hold the same versions as the merged segment they now shadow.
+        for (int i = victims.size() - 1; i >= 0; i--) {
+            victims.get(i).delete();
+        }
+    }
+
+    private SortedSegment writeSegment(SortedMap<String, Entry> entries, int level) throws IOException {
+        SortedSegment.Writer writer = new SortedSegment.Writer(directory, level, nextSequence.getAndIncrement(),
+                entries.size(), indexInterval, bloomBitsPerKey);
+        SortedSegment segment;
+        try {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.add(entry.getKey(), entry.getValue().record.duplicate());
+            }
+            segment = writer.finish();
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        bytesWritten.add(segment.sizeBytes());
+        return segment;
+    }
+
+    private void fail(Throwable failure) {
+        backgroundFailure = failure;
+        synchronized (writeLock) {
+            writeLock.notifyAll();
+        }
+    }
+
+    /**
+     * Opens existing segments, then turns every leftover log (a memtable that
+     * was not flushed before shutdown or a crash) into a level-0 segment.
+     */
+    private void recover() throws IOException {
+        List<SortedSegment> segments = new ArrayList<>();
+        List<Long> logs = new ArrayList<>();
+        long maxSequence = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    String[] parts = name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length()).split("-");
+                    long sequence = Long.parseLong(parts[1]);
+                    segments.add(SortedSegment.open(file, Integer.parseInt(parts[0]), sequence));
+                    maxSequence = Math.max(maxSequence, sequence);
+                } else if (name.startsWith(WAL_PREFIX) && name.endsWith(WAL_SUFFIX)) {
+                    long sequence = Long.parseLong(name.substring(WAL_PREFIX.length(),
+                            name.length() - WAL_SUFFIX.length()));
+                    logs.add(sequence);
+                    maxSequence = Math.max(maxSequence, sequence);
+                }
+            }
+        }
+        nextSequence.set(maxSequence + 1);
+        segments.sort(NEWEST_FIRST);
+        Collections.sort(logs);
+        for (long sequence : logs) {
+            Path walFile = directory.resolve(WAL_PREFIX + sequence + WAL_SUFFIX);
+            SortedMap<String, Entry> entries = replay(walFile);
+            if (!entries.isEmpty()) {
+                segments.add(0, writeSegment(entries, 0));
+            }
+            Files.delete(walFile);
+        }
+        tree = new Tree(openMemtable(), List.of(), segments);
+    }
+
+    // Stops at the first torn or corrupt record: everything after it was never acknowledged as durable.
+    private SortedMap<String, Entry> replay(Path walFile) throws IOException {
+        SortedMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(walFile));
+        while (log.remaining() >= BookRecordFormat.HEADER_BYTES) {
+            int start = log.position();
+            int length = log.getInt(start);
+            int crc = log.getInt(start + 4);
+            if (length <= 0 || length > log.remaining() - BookRecordFormat.HEADER_BYTES) {
+                break;
+            }
+            ByteBuffer payload = log.slice(start + BookRecordFormat.HEADER_BYTES, length);
+            if (!BookRecordFormat.verify(payload, crc)) {
+                break;
+            }
+            Book book = BookRecordFormat.decode(payload, users);
+            entries.put(book.getIsbn(), new Entry(book, log.slice(start, BookRecordFormat.HEADER_BYTES + length)));
+            log.position(start + BookRecordFormat.HEADER_BYTES + length);
+        }
+        return entries;
+    }
+
+    private Memtable openMemtable() throws IOException {
+        Path walFile = directory.resolve(WAL_PREFIX + nextSequence.getAndIncrement() + WAL_SUFFIX);
+        return new Memtable(walFile, FileChannel.open(walFile, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Everything a lookup needs, replaced as a whole so readers never see a
+     * memtable both frozen and flushed.
+     */
+    private static final class Tree {
+        final Memtable active;
+        // Newest first.
+        final List<Memtable> frozen;
+        final List<SortedSegment> segments;
+
+        Tree(Memtable active, List<Memtable> frozen, List<SortedSegment> segments) {
+            this.active = active;
+            this.frozen = List.copyOf(frozen);
+            this.segments = List.copyOf(segments);
+        }
+    }
+
+    private static final class Memtable {
+        final Path walFile;
+        final FileChannel wal;
+        final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+        // Guarded by writeLock.
+        long bytes;
+
+        Memtable(Path walFile, FileChannel wal) {
+            this.walFile = walFile;
+            this.wal = wal;
+        }
+    }
+
+    // The record is kept so a flush writes exactly the bytes that were logged; a scan
+    // leaves the book null for a record it has not decoded yet.
+    private static final class Entry {
+        final Book book;
+        final ByteBuffer record;
+
+        Entry(Book book, ByteBuffer record) {
+            this.book = book;
+            this.record = record;
+        }
+    }
+
+    private static final class MergeSource implements Comparable<MergeSource> {
+        final SortedSegment.Cursor cursor;
+        final int rank;
+
+        MergeSource(SortedSegment.Cursor cursor, int rank) {
+            this.cursor = cursor;
+            this.rank = rank;
+        }
+
+        @Override
+        public int compareTo(MergeSource other) {
+            int order = cursor.key().compareTo(other.cursor.key());
+            return order != 0 ? order : Integer.compare(rank, other.rank);
+        }
+    }
+
+    /**
+     * One memtable or segment in a scan; lower ranks are newer, so on equal
+     * keys the newest version comes out of the queue first.
+     */
+    private static final class ScanSource implements Comparable<ScanSource> {
+        final int rank;
+        final Iterator<Map.Entry<String, Entry>> memtable;
+        final SortedSegment.Cursor cursor;
+        String key;
+        Entry entry;
+
+        ScanSource(int rank, Iterator<Map.Entry<String, Entry>> memtable, SortedSegment.Cursor cursor) {
+            this.rank = rank;
+            this.memtable = memtable;
+            this.cursor = cursor;
+        }
+
+        boolean advance() throws IOException {
+            if (memtable != null) {
+                if (!memtable.hasNext()) {
+                    return false;
+                }
+                Map.Entry<String, Entry> next = memtable.next();
+                key = next.getKey();
+                entry = next.getValue();
+                return true;
+            }
+            if (!cursor.advance()) {
+                return false;
+            }
+            key = cursor.key();
+            return true;
+        }
+
+        Entry entry() {
+            return memtable != null ? entry : new Entry(null, cursor.record());
+        }
+
+        @Override
+        public int compareTo(ScanSource other) {
+            int order = key.compareTo(other.key);
+            return order != 0 ? order : Integer.compare(rank, other.rank);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.library.good.datastore;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Applies a function to each element of another spliterator, keeping its splits.
+ */
+final class MappedSpliterator<T, R> implements Spliterator<R> {
+    private final Spliterator<T> source;
+    private final Function<? super T, ? extends R> mapper;
+
+    MappedSpliterator(Spliterator<T> source, Function<? super T, ? extends R> mapper) {
+        this.source = source;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+        return source.tryAdvance(element -> action.accept(mapper.apply(element)));
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super R> action) {
+        source.forEachRemaining(element -> action.accept(mapper.apply(element)));
+    }
+
+    @Override
+    public Spliterator<R> trySplit() {
+        Spliterator<T> prefix = source.trySplit();
+        return prefix == null ? null : new MappedSpliterator<>(prefix, mapper);
+    }
+
+    @Override
+    public long estimateSize() {
+        return source.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        return source.characteristics() & ~(SORTED | DISTINCT);
+    }
+}
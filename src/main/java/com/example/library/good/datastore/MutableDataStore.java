@@ -0,0 +1,31 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.util.List;
+
+/**
+ * A store that keeps live {@link Book} objects and can change one in place,
+ * without the {@code Optional}, copy or write-back of the
+ * find-then-{@link #updateBook} round trip.
+ */
+public interface MutableDataStore extends DataStore {
+
+    /**
+     * Applies {@code mutation} to the stored book, atomically with respect to
+     * other in-place updates of the same book.
+     *
+     * @return the stored book, or null if there is none or the mutation refused
+     */
+    <A, B> Book updateInPlace(String isbn, BookMutation<A, B> mutation, A first, B second);
+
+    /**
+     * Applies {@code mutation} to every listed book or to none, atomically
+     * with respect to other in-place updates of those books. ISBNs must be
+     * distinct.
+     *
+     * @return the stored books in {@code isbns} order, or null, with nothing
+     *         changed, if one is missing or the mutation refused one
+     */
+    <A, B> List<Book> updateAllInPlace(List<String> isbns, BookMutation<A, B> mutation, A first, B second);
+}
@@ -0,0 +1,519 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the catalog outside the Java heap: each book is a fixed-size record
+ * in direct memory, found through an off-heap open-addressing index on ISBN.
+ * The GC sees a handful of buffer objects no matter how large the catalog
+ * grows; {@link #findBookByIsbn} decodes a fresh {@link Book} on every call,
+ * so callers must write changes back with {@link #updateBook}.
+ *
+ * Record layout (bytes):
+ * <pre>
+ *   0  isbn length      1  isbn (UTF-8, max 30)
+ *  32  title length (2) 34 title (UTF-8, max 222)
+ * 256  total copies (4) 260 available copies (4)
+ * 264  first loan's due epoch day (8, Long.MIN_VALUE = none)
+ * 272  first loan's borrower id length (1) 273 borrower id (UTF-8, max 39)
+ * 312  version (8)
+ * 320  loan count (4)
+ * 324  first overflow block + 1 (4, 0 = none)
+ * </pre>
+ * A title with more than one loan keeps the others in overflow blocks carved
+ * from direct slabs like the records: [next block + 1 (4)] then up to
+ * {@value #LOANS_PER_BLOCK} loans of [borrower id length (1)][borrower id
+ * (max 39)][due epoch day (8)]. A write hands the book's old chain to a free
+ * list and takes its new one from there, so rewriting busy multi-copy titles
+ * allocates nothing once the slabs exist. Borrowers are stored by id and
+ * resolved through a {@link UserStore}.
+ */
+public class OffHeapDataStore implements VersionedDataStore {
+    static final int RECORD_BYTES = 328;
+    static final int MAX_ISBN_BYTES = 30;
+    static final int MAX_TITLE_BYTES = 222;
+    static final int MAX_BORROWER_BYTES = 39;
+
+    private static final int ISBN_LEN = 0;
+    private static final int ISBN = 1;
+    private static final int TITLE_LEN = 32;
+    private static final int TITLE = 34;
+    private static final int TOTAL_COPIES = 256;
+    private static final int AVAILABLE_COPIES = 260;
+    private static final int DUE_EPOCH_DAY = 264;
+    private static final int BORROWER_LEN = 272;
+    private static final int BORROWER = 273;
+    private static final int VERSION = 312;
+    private static final int LOAN_COUNT = 320;
+    private static final int MORE_LOANS = 324;
+    private static final long NO_DUE_DATE = Long.MIN_VALUE;
+    private static final byte[] NO_BYTES = new byte[0];
+
+    static final int LOANS_PER_BLOCK = 7;
+    private static final int NEXT_BLOCK = 0;
+    private static final int LOAN_BYTES = 1 + MAX_BORROWER_BYTES + Long.BYTES;
+    private static final int BLOCK_BYTES = Integer.BYTES + LOANS_PER_BLOCK * LOAN_BYTES;
+    private static final int BLOCKS_PER_SLAB = 1 << 10;
+
+    private static final int DEFAULT_RECORDS_PER_CHUNK = 1 << 16;
+    private static final int INITIAL_INDEX_CAPACITY = 1 << 10;
+
+    private final UserStore users;
+    private final int recordsPerChunk;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final StampedLock lock = new StampedLock();
+    // Overflow blocks for loans after the first; freed blocks are chained from freeBlock (block + 1, 0 = none).
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int blocks;
+    private int freeBlock;
+    // Slots hold (hash << 32 | ordinal + 1); 0 marks an empty slot.
+    private ByteBuffer index;
+    private int indexCapacity;
+    private int count;
+
+    public OffHeapDataStore() {
+        this(new InternedUserStore());
+    }
+
+    public OffHeapDataStore(UserStore users) {
+        this(users, DEFAULT_RECORDS_PER_CHUNK);
+    }
+
+    OffHeapDataStore(UserStore users, int recordsPerChunk) {
+        this.users = users;
+        this.recordsPerChunk = recordsPerChunk;
+        this.indexCapacity = INITIAL_INDEX_CAPACITY;
+        this.index = ByteBuffer.allocateDirect(indexCapacity * Long.BYTES);
+    }
+
+    @Override
+    public Optional<Book> findBookByIsbn(String isbn) {
+        long stamp = lock.readLock();
+        try {
+            int ordinal = ordinalOf(isbn, hash(isbn));
+            return ordinal < 0 ? Optional.empty() : Optional.of(decode(ordinal));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void updateBook(Book book) {
+        EncodedBook fields = encode(book);
+        long stamp = lock.writeLock();
+        try {
+            write(book, fields, -1);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean updateBookIfVersion(Book book, long expectedVersion) {
+        EncodedBook fields = encode(book);
+        long stamp = lock.writeLock();
+        try {
+            return write(book, fields, expectedVersion);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void updateBooks(List<Book> books) {
+        List<EncodedBook> encoded = new ArrayList<>(books.size());
+        for (Book book : books) {
+            encoded.add(encode(book));
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < books.size(); i++) {
+                write(books.get(i), encoded.get(i), -1);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Every version is checked before anything is written, all under one write lock.
+    @Override
+    public boolean updateBooksIfVersions(List<Book> books) {
+        List<EncodedBook> encoded = new ArrayList<>(books.size());
+        for (Book book : books) {
+            encoded.add(encode(book));
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (Book book : books) {
+                if (storedVersion(book.getIsbn()) != book.getVersion()) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < books.size(); i++) {
+                write(books.get(i), encoded.get(i), -1);
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Splits by record ordinal. Books added after the scan starts are not
+     * seen; each book is decoded under the read lock as it is reached.
+     */
+    @Override
+    public Spliterator<Book> spliterator() {
+        return new RecordSpliterator(0, size());
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Direct memory reserved for records, index and loans after the first.
+     */
+    public long offHeapBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) chunks.size() * recordsPerChunk * RECORD_BYTES + (long) indexCapacity * Long.BYTES
+                    + (long) slabs.size() * BLOCKS_PER_SLAB * BLOCK_BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long storedVersion(String isbn) {
+        int ordinal = ordinalOf(isbn, hash(isbn));
+        return ordinal < 0 ? 0 : chunk(ordinal).getLong(offset(ordinal) + VERSION);
+    }
+
+    // expectedVersion < 0 writes unconditionally.
+    private boolean write(Book book, EncodedBook fields, long expectedVersion) {
+        int hash = hash(book.getIsbn());
+        int ordinal = ordinalOf(book.getIsbn(), hash);
+        long version = ordinal < 0 ? 0 : chunk(ordinal).getLong(offset(ordinal) + VERSION);
+        if (expectedVersion >= 0 && version != expectedVersion) {
+            return false;
+        }
+        if (ordinal < 0) {
+            ordinal = append(hash);
+        }
+        ByteBuffer chunk = chunk(ordinal);
+        int base = offset(ordinal);
+        chunk.putLong(base + VERSION, version + 1);
+        book.setVersion(version + 1);
+        putString(chunk, base + ISBN_LEN, base + ISBN, fields.isbn, false);
+        putString(chunk, base + TITLE_LEN, base + TITLE, fields.title, true);
+        chunk.putInt(base + TOTAL_COPIES, book.getTotalCopies());
+        chunk.putInt(base + AVAILABLE_COPIES, book.getAvailableCopies());
+        List<Loan> loans = fields.loans;
+        chunk.putInt(base + LOAN_COUNT, loans.size());
+        chunk.putLong(base + DUE_EPOCH_DAY, loans.isEmpty() ? NO_DUE_DATE : epochDay(loans.get(0).getDueDate()));
+        putString(chunk, base + BORROWER_LEN, base + BORROWER, loans.isEmpty() ? NO_BYTES : fields.borrowers[0], false);
+        freeBlocks(chunk.getInt(base + MORE_LOANS));
+        chunk.putInt(base + MORE_LOANS, loans.size() > 1 ? writeMoreLoans(fields) : 0);
+        for (Loan loan : loans) {
+            if (loan.getBorrower() != null) {
+                users.intern(loan.getBorrower());
+            }
+        }
+        return true;
+    }
+
+    // Returns the first block of the new chain, + 1.
+    private int writeMoreLoans(EncodedBook fields) {
+        int head = 0;
+        int block = -1;
+        for (int i = 1; i < fields.borrowers.length; i++) {
+            int slot = (i - 1) % LOANS_PER_BLOCK;
+            if (slot == 0) {
+                int next = allocateBlock();
+                if (block < 0) {
+                    head = next + 1;
+                } else {
+                    slab(block).putInt(blockOffset(block) + NEXT_BLOCK, next + 1);
+                }
+                block = next;
+                slab(block).putInt(blockOffset(block) + NEXT_BLOCK, 0);
+            }
+            int entry = loanOffset(block, slot);
+            putString(slab(block), entry, entry + 1, fields.borrowers[i], false);
+            slab(block).putLong(entry + 1 + MAX_BORROWER_BYTES, epochDay(fields.loans.get(i).getDueDate()));
+        }
+        return head;
+    }
+
+    private int allocateBlock() {
+        if (freeBlock != 0) {
+            int block = freeBlock - 1;
+            freeBlock = slab(block).getInt(blockOffset(block) + NEXT_BLOCK);
+            return block;
+        }
+        int block = blocks++;
+        if (block / BLOCKS_PER_SLAB == slabs.size()) {
+            slabs.add(ByteBuffer.allocateDirect(BLOCKS_PER_SLAB * BLOCK_BYTES));
+        }
+        return block;
+    }
+
+    // head is a chain's first block + 1, as stored in a record.
+    private void freeBlocks(int head) {
+        while (head != 0) {
+            int block = head - 1;
+            head = slab(block).getInt(blockOffset(block) + NEXT_BLOCK);
+            slab(block).putInt(blockOffset(block) + NEXT_BLOCK, freeBlock);
+            freeBlock = block + 1;
+        }
+    }
+
+    private ByteBuffer slab(int block) {
+        return slabs.get(block / BLOCKS_PER_SLAB);
+    }
+
+    private static int blockOffset(int block) {
+        return (block % BLOCKS_PER_SLAB) * BLOCK_BYTES;
+    }
+
+    private static int loanOffset(int block, int slot) {
+        return blockOffset(block) + Integer.BYTES + slot * LOAN_BYTES;
+    }
+
+    private Book decode(int ordinal) {
+        ByteBuffer chunk = chunk(ordinal);
+        int base = offset(ordinal);
+        Book book = new Book(getString(chunk, base + ISBN, chunk.get(base + ISBN_LEN) & 0xFF),
+                getString(chunk, base + TITLE, chunk.getShort(base + TITLE_LEN) & 0xFFFF),
+                chunk.getInt(base + TOTAL_COPIES));
+        int loanCount = chunk.getInt(base + LOAN_COUNT);
+        if (loanCount > 0) {
+            addLoan(book, chunk, base + BORROWER_LEN, base + DUE_EPOCH_DAY);
+        }
+        int block = chunk.getInt(base + MORE_LOANS) - 1;
+        for (int i = 1; i < loanCount; i++) {
+            int slot = (i - 1) % LOANS_PER_BLOCK;
+            if (slot == 0 && i > 1) {
+                block = slab(block).getInt(blockOffset(block) + NEXT_BLOCK) - 1;
+            }
+            int entry = loanOffset(block, slot);
+            addLoan(book, slab(block), entry, entry + 1 + MAX_BORROWER_BYTES);
+        }
+        book.setAvailableCopies(chunk.getInt(base + AVAILABLE_COPIES));
+        book.setVersion(chunk.getLong(base + VERSION));
+        return book;
+    }
+
+    // The borrower id is stored as a length byte followed by the bytes.
+    private void addLoan(Book book, ByteBuffer buffer, int borrowerAt, int dueAt) {
+        int idLength = buffer.get(borrowerAt) & 0xFF;
+        User borrower = null;
+        if (idLength > 0) {
+            String id = getString(buffer, borrowerAt + 1, idLength);
+            borrower = users.findUserById(id).orElseGet(() -> new User(id, null, false));
+        }
+        long dueEpochDay = buffer.getLong(dueAt);
+        book.borrowBy(borrower, dueEpochDay == NO_DUE_DATE ? null : LocalDate.ofEpochDay(dueEpochDay));
+    }
+
+    private static long epochDay(LocalDate date) {
+        return date == null ? NO_DUE_DATE : date.toEpochDay();
+    }
+
+    private int append(int hash) {
+        if ((count + 1) * 2L > indexCapacity) {
+            growIndex();
+        }
+        int ordinal = count++;
+        if (ordinal / recordsPerChunk == chunks.size()) {
+            chunks.add(ByteBuffer.allocateDirect(recordsPerChunk * RECORD_BYTES));
+        }
+        insertIntoIndex(index, indexCapacity, hash, ordinal);
+        return ordinal;
+    }
+
+    private int ordinalOf(String isbn, int hash) {
+        int mask = indexCapacity - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long entry = index.getLong(slot * Long.BYTES);
+            if (entry == 0) {
+                return -1;
+            }
+            int ordinal = (int) entry - 1;
+            if ((int) (entry >>> 32) == hash && isbnEquals(ordinal, isbn)) {
+                return ordinal;
+            }
+        }
+    }
+
+    private void growIndex() {
+        int capacity = indexCapacity * 2;
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity * Long.BYTES);
+        for (int slot = 0; slot < indexCapacity; slot++) {
+            long entry = index.getLong(slot * Long.BYTES);
+            if (entry != 0) {
+                insertIntoIndex(grown, capacity, (int) (entry >>> 32), (int) entry - 1);
+            }
+        }
+        index = grown;
+        indexCapacity = capacity;
+    }
+
+    private static void insertIntoIndex(ByteBuffer target, int capacity, int hash, int ordinal) {
+        int mask = capacity - 1;
+        int slot = hash & mask;
+        while (target.getLong(slot * Long.BYTES) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        target.putLong(slot * Long.BYTES, ((long) hash << 32) | (ordinal + 1L));
+    }
+
+    // Compares without decoding the stored ISBN into a String.
+    private boolean isbnEquals(int ordinal, String isbn) {
+        ByteBuffer chunk = chunk(ordinal);
+        int base = offset(ordinal);
+        int length = chunk.get(base + ISBN_LEN) & 0xFF;
+        if (length != isbn.length()) {
+            return isbn.getBytes(StandardCharsets.UTF_8).length == length
+                    && getString(chunk, base + ISBN, length).equals(isbn);
+        }
+        for (int i = 0; i < length; i++) {
+            if (chunk.get(base + ISBN + i) != (byte) isbn.charAt(i) || isbn.charAt(i) >= 0x80) {
+                return getString(chunk, base + ISBN, length).equals(isbn);
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer chunk(int ordinal) {
+        return chunks.get(ordinal / recordsPerChunk);
+    }
+
+    private int offset(int ordinal) {
+        return (ordinal % recordsPerChunk) * RECORD_BYTES;
+    }
+
+    private static EncodedBook encode(Book book) {
+        byte[] isbn = book.getIsbn().getBytes(StandardCharsets.UTF_8);
+        byte[] title = book.getTitle() == null ? NO_BYTES : book.getTitle().getBytes(StandardCharsets.UTF_8);
+        if (isbn.length == 0 || isbn.length > MAX_ISBN_BYTES) {
+            throw new IllegalArgumentException("ISBN must be 1-" + MAX_ISBN_BYTES + " UTF-8 bytes: " + book.getIsbn());
+        }
+        if (title.length > MAX_TITLE_BYTES) {
+            throw new IllegalArgumentException("title longer than " + MAX_TITLE_BYTES + " UTF-8 bytes: " + book.getTitle());
+        }
+        List<Loan> loans = book.getLoans();
+        byte[][] borrowers = new byte[loans.size()][];
+        for (int i = 0; i < borrowers.length; i++) {
+            User borrower = loans.get(i).getBorrower();
+            borrowers[i] = borrower == null ? NO_BYTES : borrower.getId().getBytes(StandardCharsets.UTF_8);
+            if (borrowers[i].length > MAX_BORROWER_BYTES) {
+                throw new IllegalArgumentException("borrower id longer than " + MAX_BORROWER_BYTES + " UTF-8 bytes");
+            }
+        }
+        return new EncodedBook(isbn, title, loans, borrowers);
+    }
+
+    private static void putString(ByteBuffer chunk, int lengthOffset, int dataOffset, byte[] bytes, boolean shortLength) {
+        if (shortLength) {
+            chunk.putShort(lengthOffset, (short) bytes.length);
+        } else {
+            chunk.put(lengthOffset, (byte) bytes.length);
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            chunk.put(dataOffset + i, bytes[i]);
+        }
+    }
+
+    private static String getString(ByteBuffer chunk, int offset, int length) {
+        byte[] bytes = new byte[length];
+        chunk.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String isbn) {
+        int h = isbn.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // A book's strings as UTF-8 and its loans, taken outside the lock.
+    private static final class EncodedBook {
+        final byte[] isbn;
+        final byte[] title;
+        final List<Loan> loans;
+        final byte[][] borrowers;
+
+        EncodedBook(byte[] isbn, byte[] title, List<Loan> loans, byte[][] borrowers) {
+            this.isbn = isbn;
+            this.title = title;
+            this.loans = loans;
+            this.borrowers = borrowers;
+        }
+    }
+
+    private final class RecordSpliterator implements Spliterator<Book> {
+        private int ordinal;
+        private final int fence;
+
+        RecordSpliterator(int ordinal, int fence) {
+            this.ordinal = ordinal;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Book> action) {
+            if (ordinal >= fence) {
+                return false;
+            }
+            action.accept(read(ordinal++));
+            return true;
+        }
+
+        @Override
+        public Spliterator<Book> trySplit() {
+            int middle = (ordinal + fence) >>> 1;
+            if (middle <= ordinal) {
+                return null;
+            }
+            RecordSpliterator prefix = new RecordSpliterator(ordinal, middle);
+            ordinal = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - ordinal;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | DISTINCT | SIZED | SUBSIZED;
+        }
+
+        private Book read(int ordinal) {
+            long stamp = lock.readLock();
+            try {
+                return decode(ordinal);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Immutable hash array mapped trie from ISBN to book. {@link #put} copies only
+ * the path from the root to the changed entry and shares everything else, so
+ * every published version stays valid for as long as a reader holds it.
+ * Stored books must not be mutated.
+ */
+final class PersistentBookMap {
+    static final PersistentBookMap EMPTY = new PersistentBookMap(BitmapNode.EMPTY, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentBookMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    Book get(String isbn) {
+        return root.get(isbn, hash(isbn), 0);
+    }
+
+    /**
+     * Returns a map that also holds {@code book}, replacing any book with the same ISBN.
+     */
+    PersistentBookMap put(Book book) {
+        boolean[] added = new boolean[1];
+        Node updated = root.put(book, hash(book.getIsbn()), 0, added);
+        return new PersistentBookMap(updated, added[0] ? size + 1 : size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Consumer<? super Book> action) {
+        root.forEach(action);
+    }
+
+    /**
+     * Splits by ranges of trie slots, descending a level when a range is a
+     * single subtree, so parallel scans divide the map evenly.
+     */
+    Spliterator<Book> spliterator() {
+        return new TrieSpliterator(root.slots(), 0, root.slots().length, size);
+    }
+
+    private static int hash(String isbn) {
+        int h = isbn.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private abstract static class Node {
+        abstract Book get(String isbn, int hash, int shift);
+
+        abstract Node put(Book book, int hash, int shift, boolean[] added);
+
+        abstract void forEach(Consumer<? super Book> action);
+
+        // Children in trie order; each is a Book or a Node.
+        abstract Object[] slots();
+    }
+
+    // Each slot holds either a Book or a child Node; the bitmap says which of the 32 slots exist.
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        Book get(String isbn, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[Integer.bitCount(bitmap & (bit - 1))];
+            if (slot instanceof Node) {
+                return ((Node) slot).get(isbn, hash, shift + BITS);
+            }
+            Book book = (Book) slot;
+            return book.getIsbn().equals(isbn) ? book : null;
+        }
+
+        @Override
+        Node put(Book book, int hash, int shift, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] grown = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, grown, 0, index);
+                grown[index] = book;
+                System.arraycopy(slots, index, grown, index + 1, slots.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, grown);
+            }
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Node) {
+                replacement = ((Node) slot).put(book, hash, shift + BITS, added);
+            } else {
+                Book existing = (Book) slot;
+                if (existing.getIsbn().equals(book.getIsbn())) {
+                    replacement = book;
+                } else {
+                    replacement = merge(existing, PersistentBookMap.hash(existing.getIsbn()), book, hash, shift + BITS);
+                    added[0] = true;
+                }
+            }
+            Object[] copy = slots.clone();
+            copy[index] = replacement;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        Object[] slots() {
+            return slots;
+        }
+
+        @Override
+        void forEach(Consumer<? super Book> action) {
+            for (Object slot : slots) {
+                if (slot instanceof Node) {
+                    ((Node) slot).forEach(action);
+                } else {
+                    action.accept((Book) slot);
+                }
+            }
+        }
+
+        private static Node merge(Book a, int hashA, Book b, int hashB, int shift) {
+            if (shift >= Integer.SIZE) {
+                return new CollisionNode(new Book[]{a, b});
+            }
+            int indexA = (hashA >>> shift) & MASK;
+            int indexB = (hashB >>> shift) & MASK;
+            if (indexA == indexB) {
+                return new BitmapNode(1 << indexA, new Object[]{merge(a, hashA, b, hashB, shift + BITS)});
+            }
+            Object[] slots = indexA < indexB ? new Object[]{a, b} : new Object[]{b, a};
+            return new BitmapNode((1 << indexA) | (1 << indexB), slots);
+        }
+    }
+
+    // Books whose ISBNs share all 32 hash bits.
+    private static final class CollisionNode extends Node {
+        private final Book[] books;
+
+        CollisionNode(Book[] books) {
+            this.books = books;
+        }
+
+        @Override
+        Book get(String isbn, int hash, int shift) {
+            for (Book book : books) {
+                if (book.getIsbn().equals(isbn)) {
+                    return book;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Book book, int hash, int shift, boolean[] added) {
+            for (int i = 0; i < books.length; i++) {
+                if (books[i].getIsbn().equals(book.getIsbn())) {
+                    Book[] copy = books.clone();
+                    copy[i] = book;
+                    return new CollisionNode(copy);
+                }
+            }
+            Book[] grown = new Book[books.length + 1];
+            System.arraycopy(books, 0, grown, 0, books.length);
+            grown[books.length] = book;
+            added[0] = true;
+            return new CollisionNode(grown);
+        }
+
+        @Override
+        Object[] slots() {
+            return books;
+        }
+
+        @Override
+        void forEach(Consumer<? super Book> action) {
+            for (Book book : books) {
+                action.accept(book);
+            }
+        }
+    }
+
+    private static final class TrieSpliterator implements Spliterator<Book> {
+        private Object[] slots;
+        private int index;
+        private int fence;
+        private long estimate;
+        private Spliterator<Book> current;
+
+        TrieSpliterator(Object[] slots, int index, int fence, long estimate) {
+            this.slots = slots;
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Book> action) {
+            while (true) {
+                if (current != null) {
+                    if (current.tryAdvance(action)) {
+                        return true;
+                    }
+                    current = null;
+                }
+                if (index >= fence) {
+                    return false;
+                }
+                Object slot = slots[index++];
+                if (slot instanceof Node) {
+                    Object[] children = ((Node) slot).slots();
+                    current = new TrieSpliterator(children, 0, children.length, 0);
+                } else {
+                    action.accept((Book) slot);
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Book> action) {
+            if (current != null) {
+                current.forEachRemaining(action);
+                current = null;
+            }
+            for (; index < fence; index++) {
+                Object slot = slots[index];
+                if (slot instanceof Node) {
+                    ((Node) slot).forEach(action);
+                } else {
+                    action.accept((Book) slot);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<Book> trySplit() {
+            if (current != null) {
+                return null;
+            }
+            if (fence - index == 1 && slots[index] instanceof Node) {
+                // A single subtree: open it up and split its children instead.
+                slots = ((Node) slots[index]).slots();
+                index = 0;
+                fence = slots.length;
+            }
+            int length = fence - index;
+            if (length < 2) {
+                return null;
+            }
+            int middle = index + (length >>> 1);
+            estimate >>>= 1;
+            TrieSpliterator prefix = new TrieSpliterator(slots, index, middle, estimate);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | IMMUTABLE | DISTINCT;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.library.good.datastore;
+
+import java.io.IOException;
+
+/**
+ * A {@link DataStore} whose state lives in data files on disk and can
+ * therefore be backed up by copying those files.
+ */
+public interface PersistentDataStore extends DataStore {
+    /**
+     * Captures a consistent point-in-time view of the data files. Writes keep
+     * going while the cut is open; they simply land beyond the captured
+     * lengths. The cut must be closed once the files have been copied.
+     */
+    DataFileCut cutDataFiles() throws IOException;
+}
@@ -0,0 +1,324 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One immutable, key-sorted data file of an {@link LsmDataStore}:
+ * [records][sparse index][Bloom filter][footer]. Records use
+ * {@link BookRecordFormat}; the sparse index holds the key and offset of
+ * every n-th record, so a lookup reads at most one block of n records.
+ */
+final class SortedSegment implements AutoCloseable {
+    private static final int MAGIC = 0x4c534d31;
+    private static final int FOOTER_BYTES = 8 + 8 + 4 + 4;
+
+    private final Path file;
+    private final int level;
+    private final long sequence;
+    private final FileChannel channel;
+    private final String[] indexKeys;
+    private final long[] indexOffsets;
+    private final long dataEnd;
+    private final int recordCount;
+    private final BloomFilter bloom;
+
+    private SortedSegment(Path file, int level, long sequence, FileChannel channel, String[] indexKeys,
+                          long[] indexOffsets, long dataEnd, int recordCount, BloomFilter bloom) {
+        this.file = file;
+        this.level = level;
+        this.sequence = sequence;
+        this.channel = channel;
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+        this.dataEnd = dataEnd;
+        this.recordCount = recordCount;
+        this.bloom = bloom;
+    }
+
+    static String fileName(int level, long sequence) {
+        return "segment-" + level + "-" + sequence + ".sst";
+    }
+
+    static SortedSegment open(Path file, int level, long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_BYTES) {
+                throw new IOException("truncated segment " + file);
+            }
+            ByteBuffer footer = readFully(channel, size - FOOTER_BYTES, FOOTER_BYTES);
+            long indexOffset = footer.getLong();
+            long bloomOffset = footer.getLong();
+            int recordCount = footer.getInt();
+            if (footer.getInt() != MAGIC || indexOffset > bloomOffset || bloomOffset > size - FOOTER_BYTES) {
+                throw new IOException("corrupt segment footer in " + file);
+            }
+            ByteBuffer meta = readFully(channel, indexOffset, (int) (size - FOOTER_BYTES - indexOffset));
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(meta.array()));
+            int entries = in.readInt();
+            String[] keys = new String[entries];
+            long[] offsets = new long[entries];
+            for (int i = 0; i < entries; i++) {
+                keys[i] = in.readUTF();
+                offsets[i] = in.readLong();
+            }
+            BloomFilter bloom = BloomFilter.readFrom(in);
+            return new SortedSegment(file, level, sequence, channel, keys, offsets, indexOffset, recordCount, bloom);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int level() {
+        return level;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    int recordCount() {
+        return recordCount;
+    }
+
+    long sizeBytes() throws IOException {
+        return channel.size();
+    }
+
+    Path file() {
+        return file;
+    }
+
+    boolean mightContain(String isbn) {
+        return bloom.mightContain(isbn);
+    }
+
+    /**
+     * Reads the one block that could hold {@code isbn}. Callers check
+     * {@link #mightContain} first; this method does not.
+     */
+    Book find(String isbn, UserStore users) throws IOException {
+        int block = floorBlock(isbn);
+        if (block < 0) {
+            return null;
+        }
+        long start = indexOffsets[block];
+        long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+        ByteBuffer data = readFully(channel, start, (int) (end - start));
+        while (data.remaining() >= BookRecordFormat.HEADER_BYTES) {
+            int length = data.getInt();
+            int crc = data.getInt();
+            ByteBuffer payload = data.slice(data.position(), length);
+            data.position(data.position() + length);
+            int order = BookRecordFormat.readIsbn(payload).compareTo(isbn);
+            if (order == 0) {
+                if (!BookRecordFormat.verify(payload, crc)) {
+                    throw new IOException("checksum mismatch in " + file + " for " + isbn);
+                }
+                return BookRecordFormat.decode(payload, users);
+            }
+            if (order > 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sequential reader over every record in key order. It opens its own
+     * stream, so it does not disturb concurrent point lookups.
+     */
+    Cursor cursor() throws IOException {
+        return new Cursor(new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file), 64 * 1024)), dataEnd);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    private int floorBlock(String isbn) {
+        int low = 0;
+        int high = indexKeys.length - 1;
+        int floor = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indexKeys[mid].compareTo(isbn) <= 0) {
+                floor = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return floor;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("unexpected end of segment");
+            }
+        }
+        return buffer.flip();
+    }
+
+    static final class Cursor implements AutoCloseable {
+        private final DataInputStream in;
+        private final long end;
+        private long position;
+        private String key;
+        private ByteBuffer record;
+
+        private Cursor(DataInputStream in, long end) {
+            this.in = in;
+            this.end = end;
+        }
+
+        /**
+         * Moves to the next record; false once the data section is exhausted.
+         */
+        boolean advance() throws IOException {
+            if (position >= end) {
+                key = null;
+                record = null;
+                return false;
+            }
+            int length = in.readInt();
+            record = ByteBuffer.allocate(BookRecordFormat.HEADER_BYTES + length);
+            record.putInt(length);
+            record.putInt(in.readInt());
+            in.readFully(record.array(), BookRecordFormat.HEADER_BYTES, length);
+            position += record.capacity();
+            ByteBuffer payload = record.slice(BookRecordFormat.HEADER_BYTES, length);
+            // Merges copy records verbatim, so corruption is caught here rather than propagated.
+            if (!BookRecordFormat.verify(payload, record.getInt(4))) {
+                throw new IOException("checksum mismatch in segment at offset " + (position - record.capacity()));
+            }
+            key = BookRecordFormat.readIsbn(payload);
+            record.clear();
+            return true;
+        }
+
+        String key() {
+            return key;
+        }
+
+        // The whole record, header included, positioned at zero.
+        ByteBuffer record() {
+            return record.duplicate();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Builds a segment from records added in strictly increasing key order.
+     * The file is written under a temporary name and renamed into place once
+     * synced, so a crash never leaves a half-written segment behind.
+     */
+    static final class Writer {
+        private final Path directory;
+        private final int level;
+        private final long sequence;
+        private final int indexInterval;
+        private final Path temp;
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final BloomFilter bloom;
+        private final List<String> indexKeys = new ArrayList<>();
+        private final List<Long> indexOffsets = new ArrayList<>();
+        private long position;
+        private int count;
+
+        Writer(Path directory, int level, long sequence, int expectedRecords, int indexInterval,
+               int bloomBitsPerKey) throws IOException {
+            this.directory = directory;
+            this.level = level;
+            this.sequence = sequence;
+            this.indexInterval = indexInterval;
+            this.temp = directory.resolve(fileName(level, sequence) + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            this.bloom = new BloomFilter(expectedRecords, bloomBitsPerKey);
+        }
+
+        void add(String key, ByteBuffer record) throws IOException {
+            if (count % indexInterval == 0) {
+                indexKeys.add(key);
+                indexOffsets.add(position);
+            }
+            bloom.add(key);
+            int length = record.remaining();
+            out.write(record.array(), record.arrayOffset() + record.position(), length);
+            position += length;
+            count++;
+        }
+
+        SortedSegment finish() throws IOException {
+            ByteArrayOutputStream index = new ByteArrayOutputStream(indexKeys.size() * 24 + 8);
+            DataOutputStream indexOut = new DataOutputStream(index);
+            indexOut.writeInt(indexKeys.size());
+            for (int i = 0; i < indexKeys.size(); i++) {
+                indexOut.writeUTF(indexKeys.get(i));
+                indexOut.writeLong(indexOffsets.get(i));
+            }
+            long indexOffset = position;
+            long bloomOffset = indexOffset + index.size();
+            index.writeTo(out);
+            bloom.writeTo(out);
+            out.writeLong(indexOffset);
+            out.writeLong(bloomOffset);
+            out.writeInt(count);
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+            out.close();
+            Path file = directory.resolve(fileName(level, sequence));
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            return open(file, level, sequence);
+        }
+
+        void abort() {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // the temporary file is removed below either way
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // a stale .tmp is ignored and overwritten on the next attempt
+            }
+        }
+    }
+}
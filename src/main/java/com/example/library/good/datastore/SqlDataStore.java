@@ -0,0 +1,425 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+
+/**
+ * Stores the catalog in an embedded SQL database (H2 by default) through a
+ * {@link ConnectionPool}. Statements are prepared once per connection,
+ * {@link #updateBooks} goes out as JDBC batches in one transaction, and rows
+ * carry a version column for {@link #updateBookIfVersion} and
+ * {@link #updateBooksIfVersions}. A book's row holds its first loan; any
+ * others are rows of {@code more_loans}, rewritten in the same transaction
+ * as the book, so tables created before titles kept several loans need no
+ * migration.
+ */
+public class SqlDataStore implements VersionedDataStore, AutoCloseable {
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final String DUPLICATE_KEY_STATE = "23505";
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS books ("
+            + "isbn VARCHAR(64) PRIMARY KEY, title VARCHAR(1024), total_copies INT NOT NULL, "
+            + "available_copies INT NOT NULL, borrower_id VARCHAR(255), borrower_name VARCHAR(255), "
+            + "borrower_admin BOOLEAN, due_epoch_day BIGINT, version BIGINT NOT NULL)";
+    private static final String CREATE_MORE_LOANS = "CREATE TABLE IF NOT EXISTS more_loans ("
+            + "isbn VARCHAR(64) NOT NULL, position INT NOT NULL, borrower_id VARCHAR(255), "
+            + "borrower_name VARCHAR(255), borrower_admin BOOLEAN, due_epoch_day BIGINT, PRIMARY KEY (isbn, position))";
+    // H2 may answer a re-run prepared query from its last result even after another connection's commit.
+    private static final String NO_RESULT_REUSE = "SET OPTIMIZE_REUSE_RESULTS 0";
+    private static final String LOAN_COLUMNS = "borrower_id, borrower_name, borrower_admin, due_epoch_day";
+    private static final String DELETE_MORE_LOANS = "DELETE FROM more_loans WHERE isbn = ?";
+    private static final String INSERT_MORE_LOAN = "INSERT INTO more_loans (isbn, position, " + LOAN_COLUMNS
+            + ") VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String COLUMNS = "isbn, title, total_copies, available_copies, "
+            + "borrower_id, borrower_name, borrower_admin, due_epoch_day, version";
+    // A book's row and its more_loans rows come back from one statement, and so from one commit.
+    private static final String SELECT_WITH_LOANS = "SELECT b.isbn, b.title, b.total_copies, b.available_copies, "
+            + "b.borrower_id, b.borrower_name, b.borrower_admin, b.due_epoch_day, b.version, "
+            + "m.borrower_id, m.borrower_name, m.borrower_admin, m.due_epoch_day "
+            + "FROM books b LEFT JOIN more_loans m ON m.isbn = b.isbn";
+    private static final String SELECT_ONE = SELECT_WITH_LOANS + " WHERE b.isbn = ? ORDER BY m.position";
+    private static final String SELECT_ALL = SELECT_WITH_LOANS + " ORDER BY b.isbn, m.position";
+    private static final String SELECT_VERSION = "SELECT version FROM books WHERE isbn = ?";
+    private static final String INSERT = "INSERT INTO books (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE books SET title = ?, total_copies = ?, available_copies = ?, "
+            + "borrower_id = ?, borrower_name = ?, borrower_admin = ?, due_epoch_day = ?, "
+            + "version = version + 1 WHERE isbn = ?";
+    private static final String UPDATE_IF_VERSION = "UPDATE books SET title = ?, total_copies = ?, "
+            + "available_copies = ?, borrower_id = ?, borrower_name = ?, borrower_admin = ?, due_epoch_day = ?, "
+            + "version = ? WHERE isbn = ? AND version = ?";
+
+    private final ConnectionPool pool;
+    private final UserStore users;
+
+    /**
+     * @param jdbcUrl e.g. {@code jdbc:h2:./catalog} or {@code jdbc:h2:mem:catalog;DB_CLOSE_DELAY=-1}
+     */
+    public SqlDataStore(String jdbcUrl) throws SQLException {
+        this(new ConnectionPool(jdbcUrl, "sa", "", DEFAULT_POOL_SIZE), null);
+    }
+
+    // Borrowers read back from the table are interned into users instead of duplicated per row.
+    public SqlDataStore(ConnectionPool pool, UserStore users) throws SQLException {
+        this.pool = pool;
+        this.users = users;
+        ConnectionPool.PooledConnection connection = pool.acquire();
+        try (Statement statement = connection.connection().createStatement()) {
+            if ("H2".equals(connection.connection().getMetaData().getDatabaseProductName())) {
+                statement.execute(NO_RESULT_REUSE);
+            }
+            statement.execute(CREATE_TABLE);
+            statement.execute(CREATE_MORE_LOANS);
+            connection.connection().commit();
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    @Override
+    public Optional<Book> findBookByIsbn(String isbn) {
+        return inTransaction(connection -> {
+            PreparedStatement select = connection.prepare(SELECT_ONE);
+            select.setString(1, isbn);
+            try (ResultSet rows = select.executeQuery()) {
+                if (!rows.next()) {
+                    return Optional.empty();
+                }
+                Book book = read(rows);
+                do {
+                    readLoan(rows, 10, book);
+                } while (rows.next());
+                return Optional.of(book);
+            }
+        });
+    }
+
+    @Override
+    public void updateBook(Book book) {
+        List<Loan> loans = book.getLoans();
+        inTransaction(connection -> {
+            while (true) {
+                PreparedStatement update = connection.prepare(UPDATE);
+                bindUpdate(update, book, loans);
+                if (update.executeUpdate() == 1) {
+                    book.setVersion(currentVersion(connection, book.getIsbn()));
+                    break;
+                }
+                if (insert(connection, book, loans)) {
+                    book.setVersion(1);
+                    break;
+                }
+                // Another writer inserted it first; update that row instead.
+            }
+            replaceMoreLoans(connection, List.of(book), List.of(loans));
+            return null;
+        });
+    }
+
+    @Override
+    public boolean updateBookIfVersion(Book book, long expectedVersion) {
+        List<Loan> loans = book.getLoans();
+        return inTransaction(connection -> {
+            if (expectedVersion == 0) {
+                if (!insert(connection, book, loans)) {
+                    return false;
+                }
+            } else {
+                PreparedStatement update = connection.prepare(UPDATE_IF_VERSION);
+                int next = bindFields(update, book, loans, 1);
+                update.setLong(next, expectedVersion + 1);
+                update.setString(next + 1, book.getIsbn());
+                update.setLong(next + 2, expectedVersion);
+                if (update.executeUpdate() != 1) {
+                    return false;
+                }
+            }
+            replaceMoreLoans(connection, List.of(book), List.of(loans));
+            book.setVersion(expectedVersion + 1);
+            return true;
+        });
+    }
+
+    /**
+     * One transaction: a batch of updates, then a batch of inserts for the
+     * books that were not there yet. Versions in {@code books} are not
+     * refreshed; re-read before a conditional update.
+     */
+    @Override
+    public void updateBooks(List<Book> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        List<List<Loan>> loans = loansOf(books);
+        inTransaction(connection -> {
+            PreparedStatement update = connection.prepare(UPDATE);
+            for (int i = 0; i < books.size(); i++) {
+                bindUpdate(update, books.get(i), loans.get(i));
+                update.addBatch();
+            }
+            int[] counts = update.executeBatch();
+            Map<String, Integer> missing = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    missing.put(books.get(i).getIsbn(), i);
+                }
+            }
+            if (!missing.isEmpty()) {
+                PreparedStatement insert = connection.prepare(INSERT);
+                for (int i : missing.values()) {
+                    bindInsert(insert, books.get(i), loans.get(i));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            replaceMoreLoans(connection, books, loans);
+            return null;
+        });
+    }
+
+    /**
+     * One transaction: a batch of conditional updates, then inserts for the
+     * books at version 0. If any row had moved on, the transaction is rolled
+     * back.
+     */
+    @Override
+    public boolean updateBooksIfVersions(List<Book> books) {
+        if (books.isEmpty()) {
+            return true;
+        }
+        List<List<Loan>> loans = loansOf(books);
+        boolean stored = inTransaction(connection -> {
+            PreparedStatement update = connection.prepare(UPDATE_IF_VERSION);
+            List<Integer> inserts = new ArrayList<>();
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                if (book.getVersion() == 0) {
+                    inserts.add(i);
+                    continue;
+                }
+                int next = bindFields(update, book, loans.get(i), 1);
+                update.setLong(next, book.getVersion() + 1);
+                update.setString(next + 1, book.getIsbn());
+                update.setLong(next + 2, book.getVersion());
+                update.addBatch();
+            }
+            if (inserts.size() < books.size()) {
+                for (int count : update.executeBatch()) {
+                    if (count != 1) {
+                        connection.connection().rollback();
+                        return false;
+                    }
+                }
+            }
+            for (int i : inserts) {
+                if (!insert(connection, books.get(i), loans.get(i))) {
+                    connection.connection().rollback();
+                    return false;
+                }
+            }
+            replaceMoreLoans(connection, books, loans);
+            return true;
+        });
+        if (stored) {
+            for (Book book : books) {
+                book.setVersion(book.getVersion() + 1);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Reads the table, extra loans included, in one query; the resulting list
+     * is what splits.
+     */
+    @Override
+    public Spliterator<Book> spliterator() {
+        return inTransaction(connection -> {
+            List<Book> books = new ArrayList<>();
+            Book book = null;
+            try (ResultSet rows = connection.prepare(SELECT_ALL).executeQuery()) {
+                while (rows.next()) {
+                    if (book == null || !book.getIsbn().equals(rows.getString(1))) {
+                        book = read(rows);
+                        books.add(book);
+                    }
+                    readLoan(rows, 10, book);
+                }
+            }
+            return books.spliterator();
+        });
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private <T> T inTransaction(SqlWork<T> work) {
+        ConnectionPool.PooledConnection connection;
+        try {
+            connection = pool.acquire();
+        } catch (SQLException e) {
+            throw new DataStoreException("no database connection", e);
+        }
+        try {
+            T result = work.run(connection);
+            connection.connection().commit();
+            return result;
+        } catch (SQLException e) {
+            try {
+                connection.connection().rollback();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new DataStoreException("database error: " + e.getMessage(), e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    // false if the ISBN is already there; the failed insert is rolled back to a savepoint.
+    private static boolean insert(ConnectionPool.PooledConnection connection, Book book, List<Loan> loans)
+            throws SQLException {
+        Savepoint savepoint = connection.connection().setSavepoint();
+        try {
+            PreparedStatement insert = connection.prepare(INSERT);
+            bindInsert(insert, book, loans);
+            insert.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (!DUPLICATE_KEY_STATE.equals(e.getSQLState())) {
+                throw e;
+            }
+            connection.connection().rollback(savepoint);
+            return false;
+        }
+    }
+
+    private static long currentVersion(ConnectionPool.PooledConnection connection, String isbn) throws SQLException {
+        PreparedStatement select = connection.prepare(SELECT_VERSION);
+        select.setString(1, isbn);
+        try (ResultSet rows = select.executeQuery()) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    // Loans after the first: the old rows go, the current ones are batched in.
+    private static void replaceMoreLoans(ConnectionPool.PooledConnection connection, List<Book> books,
+                                         List<List<Loan>> loans) throws SQLException {
+        PreparedStatement delete = connection.prepare(DELETE_MORE_LOANS);
+        PreparedStatement insert = connection.prepare(INSERT_MORE_LOAN);
+        boolean inserting = false;
+        for (int i = 0; i < books.size(); i++) {
+            String isbn = books.get(i).getIsbn();
+            delete.setString(1, isbn);
+            delete.addBatch();
+            List<Loan> bookLoans = loans.get(i);
+            for (int position = 1; position < bookLoans.size(); position++) {
+                insert.setString(1, isbn);
+                insert.setInt(2, position);
+                bindLoan(insert, bookLoans.get(position), 3);
+                insert.addBatch();
+                inserting = true;
+            }
+        }
+        delete.executeBatch();
+        if (inserting) {
+            insert.executeBatch();
+        }
+    }
+
+    // Each book's loans are read once, so its row and its more_loans rows agree.
+    private static List<List<Loan>> loansOf(List<Book> books) {
+        List<List<Loan>> loans = new ArrayList<>(books.size());
+        for (Book book : books) {
+            loans.add(book.getLoans());
+        }
+        return loans;
+    }
+
+    private static void bindInsert(PreparedStatement insert, Book book, List<Loan> loans) throws SQLException {
+        insert.setString(1, book.getIsbn());
+        int next = bindFields(insert, book, loans, 2);
+        insert.setLong(next, 1);
+    }
+
+    private static void bindUpdate(PreparedStatement update, Book book, List<Loan> loans) throws SQLException {
+        int next = bindFields(update, book, loans, 1);
+        update.setString(next, book.getIsbn());
+    }
+
+    // Binds title through the first loan's due date starting at index; returns the next free index.
+    private static int bindFields(PreparedStatement statement, Book book, List<Loan> loans, int index)
+            throws SQLException {
+        statement.setString(index, book.getTitle());
+        statement.setInt(index + 1, book.getTotalCopies());
+        statement.setInt(index + 2, book.getAvailableCopies());
+        return bindLoan(statement, loans.isEmpty() ? null : loans.get(0), index + 3);
+    }
+
+    // Binds borrower id, name, admin flag and due date; returns the next free index.
+    private static int bindLoan(PreparedStatement statement, Loan loan, int index) throws SQLException {
+        User borrower = loan == null ? null : loan.getBorrower();
+        if (borrower == null) {
+            statement.setNull(index, Types.VARCHAR);
+            statement.setNull(index + 1, Types.VARCHAR);
+            statement.setNull(index + 2, Types.BOOLEAN);
+        } else {
+            statement.setString(index, borrower.getId());
+            statement.setString(index + 1, borrower.getName());
+            statement.setBoolean(index + 2, borrower.isAdmin());
+        }
+        if (loan == null || loan.getDueDate() == null) {
+            statement.setNull(index + 3, Types.BIGINT);
+        } else {
+            statement.setLong(index + 3, loan.getDueDate().toEpochDay());
+        }
+        return index + 4;
+    }
+
+    private Book read(ResultSet row) throws SQLException {
+        Book book = new Book(row.getString(1), row.getString(2), row.getInt(3));
+        readLoan(row, 5, book);
+        book.setAvailableCopies(row.getInt(4));
+        book.setVersion(row.getLong(9));
+        return book;
+    }
+
+    // Reads borrower id, name, admin flag and due date starting at column; a row with neither is no loan.
+    private void readLoan(ResultSet row, int column, Book book) throws SQLException {
+        String borrowerId = row.getString(column);
+        long dueEpochDay = row.getLong(column + 3);
+        boolean hasDueDate = !row.wasNull();
+        if (borrowerId != null || hasDueDate) {
+            User borrower = null;
+            if (borrowerId != null) {
+                borrower = new User(borrowerId, row.getString(column + 1), row.getBoolean(column + 2));
+                if (users != null) {
+                    borrower = users.intern(borrower);
+                }
+            }
+            book.borrowBy(borrower, hasDueDate ? LocalDate.ofEpochDay(dueEpochDay) : null);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(ConnectionPool.PooledConnection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.library.good.datastore;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks keyed by ISBN hash. Callers that need several keys
+ * lock their stripes in ascending index order, so two multi-key holders can
+ * never wait on each other in a cycle.
+ */
+public final class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    public StripedLocks(int stripes) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a power of two");
+        }
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Distinct stripe indexes for the keys, in locking order.
+     */
+    public int[] stripesFor(Collection<String> keys) {
+        int[] stripes = keys.stream().mapToInt(this::stripe).distinct().toArray();
+        Arrays.sort(stripes);
+        return stripes;
+    }
+
+    public void lock(String key) {
+        locks[stripe(key)].lock();
+    }
+
+    public void unlock(String key) {
+        locks[stripe(key)].unlock();
+    }
+
+    public void lock(int[] stripes) {
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+    }
+
+    public void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    private int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (locks.length - 1);
+    }
+}
@@ -5,6 +5,7 @@ import com.example.library.good.model.Book;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
 
 public class StubDataStore implements DataStore {
     private final Map<String, Book> stubStorage = new HashMap<>();
@@ -19,6 +20,11 @@ public class StubDataStore implements DataStore {
         stubStorage.put(book.getIsbn(), book);
     }
 
+    @Override
+    public Spliterator<Book> spliterator() {
+        return stubStorage.values().spliterator();
+    }
+
     public void addBook(Book book) {
         stubStorage.put(book.getIsbn(), book);
     }
@@ -0,0 +1,125 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+
+/**
+ * Records a {@link DataStoreEvent} for every lookup and write that goes
+ * through to the wrapped store, so a Flight Recorder recording shows store
+ * time nested inside the {@link com.example.library.good.service.LibraryService}
+ * call that caused it. Scans are not traced; their cost lands in the caller.
+ *
+ * Use {@link #wrap} so a versioned or mutable store keeps that capability.
+ */
+public class TracingDataStore implements DataStore {
+    final DataStore delegate;
+    final String name;
+
+    TracingDataStore(DataStore delegate) {
+        this.delegate = delegate;
+        String className = delegate.getClass().getName();
+        this.name = className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    public static TracingDataStore wrap(DataStore delegate) {
+        if (delegate instanceof VersionedDataStore) {
+            return new Versioned((VersionedDataStore) delegate);
+        }
+        if (delegate instanceof MutableDataStore) {
+            return new Mutable((MutableDataStore) delegate);
+        }
+        return new TracingDataStore(delegate);
+    }
+
+    @Override
+    public Optional<Book> findBookByIsbn(String isbn) {
+        DataStoreEvent event = DataStoreEvent.begin("findBookByIsbn");
+        try {
+            return delegate.findBookByIsbn(isbn);
+        } finally {
+            event.finish(name, isbn, 1);
+        }
+    }
+
+    @Override
+    public void updateBook(Book book) {
+        DataStoreEvent event = DataStoreEvent.begin("updateBook");
+        try {
+            delegate.updateBook(book);
+        } finally {
+            event.finish(name, book.getIsbn(), 1);
+        }
+    }
+
+    @Override
+    public void updateBooks(List<Book> books) {
+        DataStoreEvent event = DataStoreEvent.begin("updateBooks");
+        try {
+            delegate.updateBooks(books);
+        } finally {
+            event.finish(name, "", books.size());
+        }
+    }
+
+    @Override
+    public Spliterator<Book> spliterator() {
+        return delegate.spliterator();
+    }
+
+    static final class Versioned extends TracingDataStore implements VersionedDataStore {
+
+        Versioned(VersionedDataStore delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public boolean updateBookIfVersion(Book book, long expectedVersion) {
+            DataStoreEvent event = DataStoreEvent.begin("updateBookIfVersion");
+            try {
+                return ((VersionedDataStore) delegate).updateBookIfVersion(book, expectedVersion);
+            } finally {
+                event.finish(name, book.getIsbn(), 1);
+            }
+        }
+
+        @Override
+        public boolean updateBooksIfVersions(List<Book> books) {
+            DataStoreEvent event = DataStoreEvent.begin("updateBooksIfVersions");
+            try {
+                return ((VersionedDataStore) delegate).updateBooksIfVersions(books);
+            } finally {
+                event.finish(name, "", books.size());
+            }
+        }
+    }
+
+    static final class Mutable extends TracingDataStore implements MutableDataStore {
+
+        Mutable(MutableDataStore delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public <A, B> Book updateInPlace(String isbn, BookMutation<A, B> mutation, A first, B second) {
+            DataStoreEvent event = DataStoreEvent.begin("updateInPlace");
+            try {
+                return ((MutableDataStore) delegate).updateInPlace(isbn, mutation, first, second);
+            } finally {
+                event.finish(name, isbn, 1);
+            }
+        }
+
+        @Override
+        public <A, B> List<Book> updateAllInPlace(List<String> isbns, BookMutation<A, B> mutation, A first, B second) {
+            DataStoreEvent event = DataStoreEvent.begin("updateAllInPlace");
+            try {
+                return ((MutableDataStore) delegate).updateAllInPlace(isbns, mutation, first, second);
+            } finally {
+                event.finish(name, "", isbns.size());
+            }
+        }
+    }
+}
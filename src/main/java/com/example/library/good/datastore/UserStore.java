@@ -0,0 +1,20 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.User;
+
+import java.util.Optional;
+
+/**
+ * Registry of patrons holding exactly one canonical {@link User} per id.
+ */
+public interface UserStore {
+    /**
+     * Returns the canonical instance for {@code user.getId()}, registering
+     * {@code user} as that instance if the id is new.
+     */
+    User intern(User user);
+
+    Optional<User> findUserById(String id);
+
+    int size();
+}
@@ -0,0 +1,32 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.util.List;
+
+/**
+ * A store that versions each book so writers can detect each other instead of
+ * locking. {@link #findBookByIsbn} returns a private copy carrying the stored
+ * version; mutate it and hand it back to {@link #updateBookIfVersion}.
+ */
+public interface VersionedDataStore extends DataStore {
+
+    /**
+     * Stores the book only if the stored version still equals
+     * {@code expectedVersion} (0 meaning "not stored yet"). On success the
+     * book's version is set to the new stored version.
+     *
+     * @return false if another writer got there first
+     */
+    boolean updateBookIfVersion(Book book, long expectedVersion);
+
+    /**
+     * Stores every book or none: each only if its stored version still equals
+     * its {@link Book#getVersion()} (0 meaning "not stored yet"), all in one
+     * atomic step. On success each book's version is set to its new stored
+     * version; on failure nothing is stored and no version changes.
+     *
+     * @return false if another writer got to any of them first
+     */
+    boolean updateBooksIfVersions(List<Book> books);
+}
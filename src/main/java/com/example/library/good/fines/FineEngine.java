@@ -0,0 +1,60 @@
+package com.example.library.good.fines;
+
+import java.time.LocalDate;
+
+/**
+ * Computes accrued fines for every outstanding loan in one pass over flat
+ * arrays. A loan accrues its category's daily rate for each day after its due
+ * date, up to the category's cap. The inner loop is branch-free arithmetic on
+ * primitive arrays, which the JIT can auto-vectorize.
+ */
+public class FineEngine {
+    // With rates below 2^31 cents a day, days * rate stays far below Long.MAX_VALUE.
+    static final long MAX_DAYS_LATE = 1 << 20;
+
+    private final FineRateTable rates;
+
+    public FineEngine(FineRateTable rates) {
+        this.rates = rates;
+    }
+
+    public FineReport assess(LoanLedger ledger, LocalDate today) {
+        LoanLedger.Columns loans = ledger.columns();
+        int n = loans.dueEpochDays.length;
+        long[] rateTable = rates.centsPerDay();
+        long[] capTable = rates.capCents();
+
+        // Gather the per-loan rate and cap first so the accrual loop has no indirection.
+        long[] centsPerDay = new long[n];
+        long[] capCents = new long[n];
+        for (int i = 0; i < n; i++) {
+            centsPerDay[i] = rateTable[loans.categories[i]];
+            capCents[i] = capTable[loans.categories[i]];
+        }
+        long[] fines = new long[n];
+        accrue(loans.dueEpochDays, centsPerDay, capCents, today.toEpochDay(), fines);
+
+        long[] totals = new long[loans.borrowerIds.length];
+        int overdue = 0;
+        for (int i = 0; i < n; i++) {
+            totals[loans.borrowers[i]] += fines[i];
+            overdue += loans.dueEpochDays[i] < today.toEpochDay() ? 1 : 0;
+        }
+        return new FineReport(loans.borrowerIds, totals, overdue);
+    }
+
+    /**
+     * {@code fines[i] = min(max(today - due[i], 0) * centsPerDay[i], capCents[i])}.
+     * Rates must be between 0 and {@link Integer#MAX_VALUE} cents a day.
+     */
+    public static void accrue(long[] dueEpochDays, long[] centsPerDay, long[] capCents, long todayEpochDay, long[] fines) {
+        int n = dueEpochDays.length;
+        if (centsPerDay.length < n || capCents.length < n || fines.length < n) {
+            throw new IllegalArgumentException("all arrays must hold at least " + n + " loans");
+        }
+        for (int i = 0; i < n; i++) {
+            long daysLate = Math.min(Math.max(todayEpochDay - dueEpochDays[i], 0), MAX_DAYS_LATE);
+            fines[i] = Math.min(daysLate * centsPerDay[i], capCents[i]);
+        }
+    }
+}
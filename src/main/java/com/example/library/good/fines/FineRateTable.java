@@ -0,0 +1,65 @@
+package com.example.library.good.fines;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Daily fine and cap per loan category, in cents. Category 0 is the default
+ * for anything not defined; redefining a category replaces its rates.
+ */
+public class FineRateTable {
+    public static final long NO_CAP = Long.MAX_VALUE;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private volatile long[] centsPerDay;
+    private volatile long[] capCents;
+
+    public FineRateTable(long defaultCentsPerDay, long defaultCapCents) {
+        check(defaultCentsPerDay, defaultCapCents);
+        this.centsPerDay = new long[]{defaultCentsPerDay};
+        this.capCents = new long[]{defaultCapCents};
+    }
+
+    public synchronized void define(String category, long centsPerDay, long capCents) {
+        check(centsPerDay, capCents);
+        Integer index = indexes.get(category);
+        long[] rates = this.centsPerDay;
+        long[] caps = this.capCents;
+        if (index == null) {
+            index = rates.length;
+            indexes.put(category, index);
+            rates = Arrays.copyOf(rates, index + 1);
+            caps = Arrays.copyOf(caps, index + 1);
+        } else {
+            rates = rates.clone();
+            caps = caps.clone();
+        }
+        rates[index] = centsPerDay;
+        caps[index] = capCents;
+        this.capCents = caps;
+        this.centsPerDay = rates;
+    }
+
+    /**
+     * Index of the category's rates; 0 (the default) for undefined or null categories.
+     */
+    public synchronized int categoryIndex(String category) {
+        return category == null ? 0 : indexes.getOrDefault(category, 0);
+    }
+
+    // Readers take rates before caps; define() publishes caps first, so the caps are never shorter.
+    long[] centsPerDay() {
+        return centsPerDay;
+    }
+
+    long[] capCents() {
+        return capCents;
+    }
+
+    private static void check(long centsPerDay, long capCents) {
+        if (centsPerDay < 0 || centsPerDay > Integer.MAX_VALUE || capCents < 0) {
+            throw new IllegalArgumentException("rates must be 0-" + Integer.MAX_VALUE + " cents and caps not negative");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.library.good.fines;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fines accrued as of one day, totalled per borrower. All amounts are in cents.
+ */
+public class FineReport {
+    private final Map<String, Long> totalsByUser;
+    private final long totalCents;
+    private final int overdueLoans;
+
+    FineReport(String[] borrowerIds, long[] totals, int overdueLoans) {
+        Map<String, Long> byUser = new HashMap<>();
+        long sum = 0;
+        for (int i = 0; i < totals.length; i++) {
+            if (totals[i] > 0) {
+                byUser.put(borrowerIds[i], totals[i]);
+                sum += totals[i];
+            }
+        }
+        this.totalsByUser = Collections.unmodifiableMap(byUser);
+        this.totalCents = sum;
+        this.overdueLoans = overdueLoans;
+    }
+
+    public long getFineCents(String userId) {
+        return totalsByUser.getOrDefault(userId, 0L);
+    }
+
+    /**
+     * Users who owe something, with what they owe.
+     */
+    public Map<String, Long> getTotalsByUser() {
+        return totalsByUser;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public int getOverdueLoans() {
+        return overdueLoans;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.library.good.fines;
+
+import com.example.library.good.datastore.DataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+import com.example.library.good.service.CirculationListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Outstanding loans with a due date, kept column by column (due epoch day,
+ * rate category, borrower) so {@link FineEngine} can sweep them as flat
+ * arrays. Register it with
+ * {@link com.example.library.good.service.LibraryService#addCirculationListener};
+ * pass the store to start from the loans already in it.
+ */
+public class LoanLedger implements CirculationListener {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final FineRateTable rates;
+    private final Function<Book, String> categoryOf;
+    private final Map<String, List<Integer>> slotsByIsbn = new HashMap<>();
+    private final Map<String, Integer> borrowerIndexes = new HashMap<>();
+    private final List<String> borrowerIds = new ArrayList<>();
+    private long[] dueEpochDays = new long[INITIAL_CAPACITY];
+    private int[] categories = new int[INITIAL_CAPACITY];
+    private int[] borrowers = new int[INITIAL_CAPACITY];
+    private String[] isbns = new String[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Every loan is charged at the table's default rate.
+     */
+    public LoanLedger(FineRateTable rates) {
+        this(rates, book -> null);
+    }
+
+    /**
+     * @param categoryOf the rate category of a book, looked up once when it is issued
+     */
+    public LoanLedger(FineRateTable rates, Function<Book, String> categoryOf) {
+        this.rates = rates;
+        this.categoryOf = categoryOf;
+    }
+
+    /**
+     * Starts from every dated loan already in {@code store}, so books issued
+     * before the ledger was registered still accrue fines. Create it before
+     * the service takes traffic: a loan issued during the scan may be missed.
+     */
+    public LoanLedger(FineRateTable rates, Function<Book, String> categoryOf, DataStore store) {
+        this(rates, categoryOf);
+        store.stream().forEach(book -> {
+            for (Loan loan : book.getLoans()) {
+                onBookIssued(loan.getBorrower(), book, loan.getDueDate());
+            }
+        });
+    }
+
+    @Override
+    public void onBookIssued(User user, Book book, LocalDate dueDate) {
+        if (dueDate == null || user == null) {
+            return;
+        }
+        int category = rates.categoryIndex(categoryOf.apply(book));
+        synchronized (this) {
+            if (size == dueEpochDays.length) {
+                grow();
+            }
+            dueEpochDays[size] = dueDate.toEpochDay();
+            categories[size] = category;
+            borrowers[size] = borrowerIndex(user.getId());
+            isbns[size] = book.getIsbn();
+            slotsByIsbn.computeIfAbsent(book.getIsbn(), isbn -> new ArrayList<>(1)).add(size);
+            size++;
+        }
+    }
+
+    // Slots for an ISBN stay in issue order, so the oldest loan is the first one.
+    @Override
+    public synchronized void onBookReturned(User user, Book book) {
+        List<Integer> slots = slotsByIsbn.get(book.getIsbn());
+        if (slots == null) {
+            return;
+        }
+        Integer borrower = user == null ? null : borrowerIndexes.get(user.getId());
+        int match = CirculationListener.endedLoan(book, slots.size(),
+                i -> borrower != null && borrowers[slots.get(i)] == borrower,
+                i -> LocalDate.ofEpochDay(dueEpochDays[slots.get(i)]));
+        if (match >= 0) {
+            remove(slots.remove(match));
+            if (slots.isEmpty()) {
+                slotsByIsbn.remove(book.getIsbn());
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * A consistent copy of the columns, trimmed to the loans outstanding now.
+     */
+    synchronized Columns columns() {
+        return new Columns(Arrays.copyOf(dueEpochDays, size), Arrays.copyOf(categories, size),
+                Arrays.copyOf(borrowers, size), borrowerIds.toArray(new String[0]));
+    }
+
+    // Swap-remove: the last loan moves into the freed slot.
+    private void remove(int slot) {
+        int last = --size;
+        if (slot != last) {
+            dueEpochDays[slot] = dueEpochDays[last];
+            categories[slot] = categories[last];
+            borrowers[slot] = borrowers[last];
+            isbns[slot] = isbns[last];
+            List<Integer> moved = slotsByIsbn.get(isbns[slot]);
+            moved.set(moved.indexOf(last), slot);
+        }
+        isbns[last] = null;
+    }
+
+    private int borrowerIndex(String userId) {
+        Integer index = borrowerIndexes.get(userId);
+        if (index == null) {
+            index = borrowerIds.size();
+            borrowerIds.add(userId);
+            borrowerIndexes.put(userId, index);
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = dueEpochDays.length * 2;
+        dueEpochDays = Arrays.copyOf(dueEpochDays, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        borrowers = Arrays.copyOf(borrowers, capacity);
+        isbns = Arrays.copyOf(isbns, capacity);
+    }
+
+    static final class Columns {
+        final long[] dueEpochDays;
+        final int[] categories;
+        final int[] borrowers;
+        final String[] borrowerIds;
+
+        Columns(long[] dueEpochDays, int[] categories, int[] borrowers, String[] borrowerIds) {
+            this.dueEpochDays = dueEpochDays;
+            this.categories = categories;
+            this.borrowers = borrowers;
+            this.borrowerIds = borrowerIds;
+        }
+    }
+}
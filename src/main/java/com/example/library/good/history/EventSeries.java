@@ -0,0 +1,125 @@
+package com.example.library.good.history;
+
+import com.example.library.good.codec.Varint;
+
+import java.util.Arrays;
+
+/**
+ * Time-ordered events of one title or one user, packed into blocks. A block
+ * stores its first timestamp in the clear and each event as two varints: the
+ * milliseconds since the previous event and {@code (counterpart + 1) << 1 | issued}.
+ * Full blocks are sealed and never change; the first and last timestamp of
+ * every block stay in flat arrays so range queries binary-search to the first
+ * block that can match and decode only what they need.
+ *
+ * Not thread-safe; {@link LoanHistory} serializes access.
+ */
+final class EventSeries {
+    static final int EVENTS_PER_BLOCK = 128;
+
+    interface Visitor {
+        void visit(long millis, int counterpart, boolean issued);
+    }
+
+    private byte[][] blocks = new byte[1][];
+    private long[] firstMillis = new long[1];
+    private long[] lastMillis = new long[1];
+    private int[] counts = new int[1];
+    // Blocks [0, sealed) are immutable; block `sealed` is the open one, if it has any events.
+    private int sealed;
+    private int openLength;
+    private long size;
+
+    /**
+     * @param millis must not be earlier than the last appended event
+     */
+    void append(long millis, int counterpart, boolean issued) {
+        if (counts[sealed] == EVENTS_PER_BLOCK) {
+            seal();
+        }
+        byte[] block = blocks[sealed];
+        if (block == null) {
+            block = blocks[sealed] = new byte[16];
+            firstMillis[sealed] = millis;
+            lastMillis[sealed] = millis;
+        }
+        if (block.length - openLength < 2 * Varint.MAX_BYTES) {
+            block = blocks[sealed] = Arrays.copyOf(block, block.length * 2);
+        }
+        openLength = Varint.write(block, openLength, millis - lastMillis[sealed]);
+        openLength = Varint.write(block, openLength, ((long) counterpart + 1) << 1 | (issued ? 1 : 0));
+        lastMillis[sealed] = millis;
+        counts[sealed]++;
+        size++;
+    }
+
+    /**
+     * Visits the events with {@code fromMillis <= time < toMillis}, oldest first.
+     */
+    void scan(long fromMillis, long toMillis, Visitor visitor) {
+        int blockCount = counts[sealed] == 0 ? sealed : sealed + 1;
+        for (int b = firstBlockEndingAtOrAfter(fromMillis, blockCount); b < blockCount; b++) {
+            if (firstMillis[b] >= toMillis) {
+                return;
+            }
+            byte[] block = blocks[b];
+            long millis = firstMillis[b];
+            int position = 0;
+            for (int i = 0; i < counts[b]; i++) {
+                long delta = Varint.read(block, position);
+                position += Varint.size(delta);
+                long tag = Varint.read(block, position);
+                position += Varint.size(tag);
+                millis += delta;
+                if (millis >= toMillis) {
+                    return;
+                }
+                if (millis >= fromMillis) {
+                    visitor.visit(millis, (int) (tag >>> 1) - 1, (tag & 1) != 0);
+                }
+            }
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Bytes of encoded events, excluding the per-block timestamps and counts.
+     */
+    long encodedBytes() {
+        long bytes = openLength;
+        for (int b = 0; b < sealed; b++) {
+            bytes += blocks[b].length;
+        }
+        return bytes;
+    }
+
+    private int firstBlockEndingAtOrAfter(long millis, int blockCount) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lastMillis[mid] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void seal() {
+        blocks[sealed] = Arrays.copyOf(blocks[sealed], openLength);
+        sealed++;
+        openLength = 0;
+        if (sealed == blocks.length) {
+            int capacity = blocks.length * 2;
+            blocks = Arrays.copyOf(blocks, capacity);
+            firstMillis = Arrays.copyOf(firstMillis, capacity);
+            lastMillis = Arrays.copyOf(lastMillis, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.library.good.history;
+
+import java.time.Instant;
+
+/**
+ * One issue or return as recorded by {@link LoanHistory}.
+ */
+public final class LoanEvent {
+    public enum Type {
+        ISSUED,
+        RETURNED
+    }
+
+    private final Type type;
+    private final String isbn;
+    private final String userId;
+    private final Instant time;
+
+    public LoanEvent(Type type, String isbn, String userId, Instant time) {
+        this.type = type;
+        this.isbn = isbn;
+        this.userId = userId;
+        this.time = time;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Null when the event was recorded without a user.
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    public Instant getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + isbn + " " + userId + " @" + time;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.library.good.history;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.CirculationListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only record of every issue and return, kept after
+ * {@link com.example.library.good.service.LibraryService#returnBookEnhanced}
+ * has cleared the loan from the book. Register it with
+ * {@link com.example.library.good.service.LibraryService#addCirculationListener}.
+ *
+ * Each event is stored twice, in the series of its title and in the series of
+ * its user, as delta/varint-encoded blocks (see {@link EventSeries}); ISBNs and
+ * user ids are replaced by dictionary numbers. A typical event costs three or
+ * four bytes per series.
+ *
+ * Events are stamped with the history's clock, never earlier than the
+ * previous event, so a clock stepping backwards cannot reorder the log.
+ */
+public class LoanHistory implements CirculationListener {
+    private final Clock clock;
+    private final Map<String, EventSeries> byIsbn = new HashMap<>();
+    private final Map<String, EventSeries> byUser = new HashMap<>();
+    private final Map<String, Integer> idNumbers = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private long lastMillis = Long.MIN_VALUE;
+
+    public LoanHistory(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void onBookIssued(User user, Book book, LocalDate dueDate) {
+        record(user, book.getIsbn(), true);
+    }
+
+    @Override
+    public void onBookReturned(User user, Book book) {
+        record(user, book.getIsbn(), false);
+    }
+
+    /**
+     * Issues and returns of a title with {@code from <= time < to}, oldest first.
+     */
+    public synchronized List<LoanEvent> titleHistory(String isbn, Instant from, Instant to) {
+        List<LoanEvent> events = new ArrayList<>();
+        EventSeries series = byIsbn.get(isbn);
+        if (series != null) {
+            series.scan(from.toEpochMilli(), to.toEpochMilli(), (millis, user, issued) ->
+                    events.add(event(issued, isbn, user < 0 ? null : ids.get(user), millis)));
+        }
+        return events;
+    }
+
+    /**
+     * Issues and returns by a user with {@code from <= time < to}, oldest first.
+     */
+    public synchronized List<LoanEvent> userHistory(String userId, Instant from, Instant to) {
+        List<LoanEvent> events = new ArrayList<>();
+        EventSeries series = byUser.get(userId);
+        if (series != null) {
+            series.scan(from.toEpochMilli(), to.toEpochMilli(), (millis, isbn, issued) ->
+                    events.add(event(issued, ids.get(isbn), userId, millis)));
+        }
+        return events;
+    }
+
+    /**
+     * Times a title was issued with {@code from <= time < to}, without
+     * materializing the events.
+     */
+    public synchronized int countLoans(String isbn, Instant from, Instant to) {
+        EventSeries series = byIsbn.get(isbn);
+        if (series == null) {
+            return 0;
+        }
+        int[] loans = new int[1];
+        series.scan(from.toEpochMilli(), to.toEpochMilli(), (millis, user, issued) -> {
+            if (issued) {
+                loans[0]++;
+            }
+        });
+        return loans[0];
+    }
+
+    /**
+     * Times a title was issued in {@code (now - window, now]}, e.g. the last 90 days.
+     */
+    public int countLoansInLast(String isbn, Duration window) {
+        Instant end = clock.instant().plusMillis(1);
+        return countLoans(isbn, end.minus(window), end);
+    }
+
+    public synchronized long size() {
+        long events = 0;
+        for (EventSeries series : byIsbn.values()) {
+            events += series.size();
+        }
+        return events;
+    }
+
+    /**
+     * Bytes of encoded events across both the title and the user series.
+     */
+    public synchronized long encodedBytes() {
+        long bytes = 0;
+        for (EventSeries series : byIsbn.values()) {
+            bytes += series.encodedBytes();
+        }
+        for (EventSeries series : byUser.values()) {
+            bytes += series.encodedBytes();
+        }
+        return bytes;
+    }
+
+    private synchronized void record(User user, String isbn, boolean issued) {
+        long millis = Math.max(lastMillis, clock.millis());
+        lastMillis = millis;
+        int isbnNumber = idNumber(isbn);
+        int userNumber = user == null ? -1 : idNumber(user.getId());
+        byIsbn.computeIfAbsent(isbn, key -> new EventSeries()).append(millis, userNumber, issued);
+        if (user != null) {
+            byUser.computeIfAbsent(user.getId(), key -> new EventSeries()).append(millis, isbnNumber, issued);
+        }
+    }
+
+    private int idNumber(String id) {
+        Integer number = idNumbers.get(id);
+        if (number == null) {
+            number = ids.size();
+            ids.add(id);
+            idNumbers.put(id, number);
+        }
+        return number;
+    }
+
+    private static LoanEvent event(boolean issued, String isbn, String userId, long millis) {
+        return new LoanEvent(issued ? LoanEvent.Type.ISSUED : LoanEvent.Type.RETURNED, isbn, userId,
+                Instant.ofEpochMilli(millis));
+    }
+}
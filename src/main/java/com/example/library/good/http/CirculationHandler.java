@@ -0,0 +1,245 @@
+package com.example.library.good.http;
+
+import com.example.library.good.datastore.DataStoreException;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import com.example.library.good.service.ServiceOverloadedException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Routes:
+ * GET  /books/{isbn}              - lookup
+ * POST /books/{isbn}/issue        - userId, name, optional dueDate (ISO)
+ * POST /books/{isbn}/return       - userId
+ * POST /books/{isbn}/reservation  - userId, name
+ * Parameters come from the query string.
+ */
+class CirculationHandler implements HttpHandler {
+    static final String BOOKS_PATH = "/books/";
+
+    private static final byte[] OK = json("{\"ok\":true}");
+    private static final byte[] CONFLICT = json("{\"ok\":false}");
+    private static final byte[] NOT_FOUND = json("{\"error\":\"not found\"}");
+    private static final byte[] METHOD_NOT_ALLOWED = json("{\"error\":\"method not allowed\"}");
+    private static final byte[] ACCEPTED = json("{\"accepted\":true}");
+    private static final byte[] OVERLOADED = json("{\"error\":\"overloaded\"}");
+    private static final byte[] CONTENDED = json("{\"error\":\"concurrent update, retry\"}");
+    private static final byte[] STORE_FAILED = json("{\"error\":\"storage failure\"}");
+    private static final byte[] INTERNAL_ERROR = json("{\"error\":\"internal error\"}");
+
+    private final LibraryService libraryService;
+
+    CirculationHandler(LibraryService libraryService) {
+        this.libraryService = libraryService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            drain(exchange.getRequestBody());
+            route(exchange);
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, json("{\"error\":\"" + escape(e.getMessage()) + "\"}"));
+        } catch (ServiceOverloadedException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, OVERLOADED);
+        } catch (ConcurrentModificationException e) {
+            // The service gave up retrying a contended book; nothing was changed.
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 409, CONTENDED);
+        } catch (DataStoreException e) {
+            send(exchange, 500, STORE_FAILED);
+        } catch (RuntimeException e) {
+            // Anything else would close the exchange without a response.
+            send(exchange, 500, INTERNAL_ERROR);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath().substring(BOOKS_PATH.length());
+        String method = exchange.getRequestMethod();
+        int slash = path.indexOf('/');
+        String isbn = slash < 0 ? path : path.substring(0, slash);
+        String action = slash < 0 ? "" : path.substring(slash + 1);
+        if (isbn.isEmpty()) {
+            send(exchange, 404, NOT_FOUND);
+            return;
+        }
+
+        if (action.isEmpty()) {
+            if (!method.equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                send(exchange, 405, METHOD_NOT_ALLOWED);
+                return;
+            }
+            lookup(exchange, isbn);
+            return;
+        }
+        if (!method.equals("POST")) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            send(exchange, 405, METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        switch (action) {
+            case "issue":
+                issue(exchange, isbn, params);
+                break;
+            case "return":
+                boolean returned = libraryService.returnBookEnhanced(user(params), isbn);
+                // Refused like an issue: every copy is already in, or there is no such book.
+                send(exchange, returned ? 200 : 409, returned ? OK : CONFLICT);
+                break;
+            case "reservation":
+                libraryService.notifyReservation(user(params), isbn);
+                send(exchange, 202, ACCEPTED);
+                break;
+            default:
+                send(exchange, 404, NOT_FOUND);
+        }
+    }
+
+    private void lookup(HttpExchange exchange, String isbn) throws IOException {
+        Optional<Book> bookOpt = libraryService.findBook(isbn);
+        if (bookOpt.isEmpty()) {
+            send(exchange, 404, NOT_FOUND);
+            return;
+        }
+        send(exchange, 200, json(toJson(bookOpt.get())));
+    }
+
+    private void issue(HttpExchange exchange, String isbn, Map<String, String> params) throws IOException {
+        User user = user(params);
+        String due = params.get("dueDate");
+        boolean issued;
+        if (due == null) {
+            issued = libraryService.issueBook(user, isbn);
+        } else {
+            try {
+                issued = libraryService.issueBookWithDueDate(user, isbn, LocalDate.parse(due));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("invalid dueDate: " + due);
+            }
+        }
+        send(exchange, issued ? 200 : 409, issued ? OK : CONFLICT);
+    }
+
+    private static User user(Map<String, String> params) {
+        String id = params.get("userId");
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        return new User(id, params.getOrDefault("name", id), false);
+    }
+
+    static String toJson(Book book) {
+        StringBuilder sb = new StringBuilder(96)
+                .append("{\"isbn\":\"").append(escape(book.getIsbn()))
+                .append("\",\"title\":\"").append(escape(book.getTitle()))
+                .append("\",\"available\":").append(book.isAvailable())
+                .append(",\"copies\":").append(book.getTotalCopies())
+                .append(",\"availableCopies\":").append(book.getAvailableCopies());
+        if (book.getDueDate() != null) {
+            sb.append(",\"dueDate\":\"").append(book.getDueDate()).append('"');
+        }
+        if (book.getBorrowedBy() != null) {
+            sb.append(",\"borrowedBy\":\"").append(escape(book.getBorrowedBy().getId())).append('"');
+        }
+        // dueDate and borrowedBy describe the latest loan; a shared title lists all of them.
+        List<Loan> loans = book.getLoans();
+        if (loans.size() > 1) {
+            sb.append(",\"loans\":[");
+            for (int i = 0; i < loans.size(); i++) {
+                Loan loan = loans.get(i);
+                sb.append(i == 0 ? "{" : ",{");
+                if (loan.getBorrower() != null) {
+                    sb.append("\"borrowedBy\":\"").append(escape(loan.getBorrower().getId())).append('"');
+                }
+                if (loan.getDueDate() != null) {
+                    sb.append(loan.getBorrower() != null ? "," : "")
+                            .append("\"dueDate\":\"").append(loan.getDueDate()).append('"');
+                }
+                sb.append('}');
+            }
+            sb.append(']');
+        }
+        return sb.append('}').toString();
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String escape(String s) {
+        if (s == null) {
+            return "";
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                if (sb == null) {
+                    sb = new StringBuilder(s.length() + 8).append(s, 0, i);
+                }
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else {
+                    sb.append(String.format("\\u%04x", (int) c));
+                }
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    private static byte[] json(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Unread request bytes would be parsed as the start of the next pipelined request.
+    private static void drain(InputStream body) throws IOException {
+        byte[] scratch = new byte[256];
+        while (body.read(scratch) >= 0) {
+            // discard
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        // A fixed length (never chunked, never -1 for empty) keeps the connection reusable.
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
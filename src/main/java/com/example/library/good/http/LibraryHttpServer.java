@@ -0,0 +1,65 @@
+package com.example.library.good.http;
+
+import com.example.library.good.service.LibraryService;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP front end for {@link LibraryService}, built on the JDK's own
+ * {@code HttpServer} so kiosks can issue, return, look up and reserve books
+ * without the service being embedded in another application.
+ *
+ * Connections are HTTP/1.1 keep-alive: every response carries a fixed
+ * Content-Length, so the server keeps reading pipelined requests off the same
+ * socket. Exchanges run on virtual threads when the runtime provides them.
+ */
+public class LibraryHttpServer implements AutoCloseable {
+    private static final int DEFAULT_BACKLOG = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public LibraryHttpServer(LibraryService libraryService, int port) throws IOException {
+        this(libraryService, new InetSocketAddress(port), defaultExecutor());
+    }
+
+    public LibraryHttpServer(LibraryService libraryService, InetSocketAddress address,
+                             ExecutorService executor) throws IOException {
+        this.executor = executor;
+        this.server = HttpServer.create(address, DEFAULT_BACKLOG);
+        this.server.createContext(CirculationHandler.BOOKS_PATH, new CirculationHandler(libraryService));
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * One virtual thread per exchange on Java 21+, falling back to a cached
+     * platform thread pool on older runtimes (the build still targets 17).
+     */
+    public static ExecutorService defaultExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
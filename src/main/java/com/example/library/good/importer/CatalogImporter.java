@@ -0,0 +1,340 @@
+package com.example.library.good.importer;
+
+import com.example.library.good.datastore.DataStore;
+import com.example.library.good.model.Book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Streams a CSV or TSV catalog feed ({@code isbn,title[,copies]} per line,
+ * optional header) into a {@link DataStore}.
+ *
+ * The feed goes through three stages: one reader cuts the input into chunks
+ * of lines, a pool of parser threads parses and validates chunks in parallel,
+ * and the calling thread writes them back in feed order with
+ * {@link DataStore#updateBooks}. A fixed number of chunks may be in flight at
+ * once, so a slow store stalls the reader instead of filling the heap.
+ *
+ * Quoted CSV fields are supported, but a record may not span lines.
+ */
+public class CatalogImporter {
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final DataStore store;
+    private final int parserThreads;
+    private final int chunkSize;
+    private final int batchSize;
+    private final int maxChunksInFlight;
+    private final DuplicatePolicy duplicatePolicy;
+
+    public CatalogImporter(DataStore store) {
+        this(store, Runtime.getRuntime().availableProcessors(), 1024, 512, 64, DuplicatePolicy.KEEP_FIRST);
+    }
+
+    public CatalogImporter(DataStore store, int parserThreads, int chunkSize, int batchSize,
+                           int maxChunksInFlight, DuplicatePolicy duplicatePolicy) {
+        if (parserThreads < 1 || chunkSize < 1 || batchSize < 1 || maxChunksInFlight < 1) {
+            throw new IllegalArgumentException("thread, chunk, batch and in-flight sizes must be positive");
+        }
+        this.store = store;
+        this.parserThreads = parserThreads;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    public ImportResult importFile(Path file) throws IOException {
+        return importFile(file, (linesRead, booksWritten) -> { });
+    }
+
+    public ImportResult importFile(Path file, ImportProgressListener listener) throws IOException {
+        char delimiter = file.getFileName().toString().toLowerCase().endsWith(".tsv") ? '\t' : ',';
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, delimiter, listener);
+        }
+    }
+
+    public ImportResult importFrom(Reader source, char delimiter, ImportProgressListener listener) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        BlockingQueue<ParsedChunk> parsed = new LinkedBlockingQueue<>();
+        Semaphore inFlight = new Semaphore(maxChunksInFlight);
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, daemon("catalog-parser"));
+        Thread readerThread = new Thread(() -> readChunks(reader, delimiter, parsers, parsed, inFlight), "catalog-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        try {
+            return writeInOrder(parsed, inFlight, listener);
+        } finally {
+            readerThread.interrupt();
+            parsers.shutdownNow();
+        }
+    }
+
+    private void readChunks(BufferedReader reader, char delimiter, ExecutorService parsers,
+                            BlockingQueue<ParsedChunk> parsed, Semaphore inFlight) {
+        long seq = 0;
+        long lineNumber = 1;
+        try {
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstLine = lineNumber;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+                lineNumber++;
+                if (lines.size() == chunkSize) {
+                    submit(parsers, parsed, inFlight, seq++, firstLine, lines, delimiter);
+                    lines = new ArrayList<>(chunkSize);
+                    firstLine = lineNumber;
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(parsers, parsed, inFlight, seq++, firstLine, lines, delimiter);
+            }
+            parsed.add(ParsedChunk.end(seq));
+        } catch (IOException e) {
+            parsed.add(ParsedChunk.failed(new UncheckedIOException(e)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(ExecutorService parsers, BlockingQueue<ParsedChunk> parsed, Semaphore inFlight,
+                        long seq, long firstLine, List<String> lines, char delimiter) throws InterruptedException {
+        inFlight.acquire(); // backpressure: released once the writer has consumed the chunk
+        parsers.execute(() -> {
+            try {
+                parsed.add(parse(seq, firstLine, lines, delimiter));
+            } catch (RuntimeException e) {
+                parsed.add(ParsedChunk.failed(e));
+            }
+        });
+    }
+
+    private ImportResult writeInOrder(BlockingQueue<ParsedChunk> parsed, Semaphore inFlight,
+                                      ImportProgressListener listener) {
+        Map<Long, ParsedChunk> outOfOrder = new HashMap<>();
+        Map<String, Integer> batchPositions = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        List<Book> batch = new ArrayList<>(batchSize);
+        List<String> errors = new ArrayList<>();
+        long nextSeq = 0;
+        long totalChunks = Long.MAX_VALUE;
+        long linesRead = 0;
+        long imported = 0;
+        long duplicates = 0;
+        long invalid = 0;
+
+        while (nextSeq < totalChunks) {
+            ParsedChunk chunk = outOfOrder.remove(nextSeq);
+            if (chunk == null) {
+                chunk = take(parsed);
+                if (chunk.failure != null) {
+                    throw chunk.failure;
+                }
+                if (chunk.isEnd()) {
+                    totalChunks = chunk.seq;
+                    continue;
+                }
+                if (chunk.seq != nextSeq) {
+                    outOfOrder.put(chunk.seq, chunk);
+                    continue;
+                }
+            }
+
+            for (Book book : chunk.books) {
+                if (!seen.add(book.getIsbn())) {
+                    duplicates++;
+                    if (duplicatePolicy == DuplicatePolicy.KEEP_FIRST) {
+                        continue;
+                    }
+                    Integer pos = batchPositions.get(book.getIsbn());
+                    if (pos != null) {
+                        batch.set(pos, book); // the earlier copy has not been written yet
+                        continue;
+                    }
+                    imported--; // overwrites a book already counted in an earlier batch
+                }
+                batchPositions.put(book.getIsbn(), batch.size());
+                batch.add(book);
+                imported++;
+                if (batch.size() == batchSize) {
+                    store.updateBooks(batch);
+                    batch = new ArrayList<>(batchSize);
+                    batchPositions.clear();
+                }
+            }
+            invalid += chunk.errors.size();
+            for (int i = 0; i < chunk.errors.size() && errors.size() < MAX_REPORTED_ERRORS; i++) {
+                errors.add(chunk.errors.get(i));
+            }
+            linesRead += chunk.lineCount;
+            nextSeq++;
+            inFlight.release();
+            listener.onProgress(linesRead, imported - batch.size());
+        }
+        if (!batch.isEmpty()) {
+            store.updateBooks(batch);
+            listener.onProgress(linesRead, imported);
+        }
+        return new ImportResult(linesRead, imported, duplicates, invalid, errors);
+    }
+
+    private static ParsedChunk take(BlockingQueue<ParsedChunk> parsed) {
+        try {
+            return parsed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("catalog import interrupted", e);
+        }
+    }
+
+    static ParsedChunk parse(long seq, long firstLine, List<String> lines, char delimiter) {
+        ParsedChunk chunk = new ParsedChunk(seq, lines.size());
+        List<String> fields = new ArrayList<>(4);
+        for (int i = 0; i < lines.size(); i++) {
+            long lineNumber = firstLine + i;
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            fields.clear();
+            if (!split(line, delimiter, fields)) {
+                chunk.errors.add("line " + lineNumber + ": unterminated quote");
+                continue;
+            }
+            if (lineNumber == 1 && fields.get(0).equalsIgnoreCase("isbn")) {
+                continue; // header
+            }
+            String error = validate(fields);
+            if (error != null) {
+                chunk.errors.add("line " + lineNumber + ": " + error);
+                continue;
+            }
+            int copies = fields.size() > 2 ? Integer.parseInt(fields.get(2).trim()) : 1;
+            chunk.books.add(new Book(fields.get(0).trim(), fields.get(1).trim(), copies));
+        }
+        return chunk;
+    }
+
+    private static String validate(List<String> fields) {
+        if (fields.size() < 2) {
+            return "expected isbn and title";
+        }
+        String isbn = fields.get(0).trim();
+        if (isbn.isEmpty()) {
+            return "missing isbn";
+        }
+        for (int i = 0; i < isbn.length(); i++) {
+            if (Character.isWhitespace(isbn.charAt(i))) {
+                return "isbn contains whitespace";
+            }
+        }
+        if (fields.get(1).isBlank()) {
+            return "missing title";
+        }
+        if (fields.size() > 2 && !isPositiveInt(fields.get(2).trim())) {
+            return "copies must be a positive number";
+        }
+        return null;
+    }
+
+    private static boolean isPositiveInt(String s) {
+        if (s.isEmpty() || s.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return Integer.parseInt(s) > 0;
+    }
+
+    // RFC 4180 style: fields may be quoted, "" inside quotes is a literal quote.
+    static boolean split(String line, char delimiter, List<String> out) {
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                out.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        out.add(field.toString());
+        return !quoted;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    static final class ParsedChunk {
+        final long seq;
+        final int lineCount;
+        final List<Book> books = new ArrayList<>();
+        final List<String> errors = new ArrayList<>(0);
+        final RuntimeException failure;
+        private final boolean end;
+
+        ParsedChunk(long seq, int lineCount) {
+            this(seq, lineCount, null, false);
+        }
+
+        private ParsedChunk(long seq, int lineCount, RuntimeException failure, boolean end) {
+            this.seq = seq;
+            this.lineCount = lineCount;
+            this.failure = failure;
+            this.end = end;
+        }
+
+        static ParsedChunk end(long chunkCount) {
+            return new ParsedChunk(chunkCount, 0, null, true);
+        }
+
+        static ParsedChunk failed(RuntimeException failure) {
+            return new ParsedChunk(-1, 0, failure, false);
+        }
+
+        boolean isEnd() {
+            return end;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.library.good.importer;
+
+/**
+ * What to do when an ISBN appears more than once in the same catalog feed.
+ */
+public enum DuplicatePolicy {
+    KEEP_FIRST,
+    KEEP_LAST
+}
@@ -0,0 +1,6 @@
+package com.example.library.good.importer;
+
+@FunctionalInterface
+public interface ImportProgressListener {
+    void onProgress(long linesRead, long booksWritten);
+}
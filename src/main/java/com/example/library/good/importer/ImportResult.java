@@ -0,0 +1,42 @@
+package com.example.library.good.importer;
+
+import java.util.List;
+
+public class ImportResult {
+    private final long linesRead;
+    private final long imported;
+    private final long duplicates;
+    private final long invalid;
+    private final List<String> errors;
+
+    ImportResult(long linesRead, long imported, long duplicates, long invalid, List<String> errors) {
+        this.linesRead = linesRead;
+        this.imported = imported;
+        this.duplicates = duplicates;
+        this.invalid = invalid;
+        this.errors = List.copyOf(errors);
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * The first few validation errors, as "line N: reason".
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
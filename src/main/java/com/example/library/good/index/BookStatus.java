@@ -0,0 +1,21 @@
+package com.example.library.good.index;
+
+import com.example.library.good.model.Book;
+
+/**
+ * Statuses tracked by {@link BookStatusIndex}. A multi-copy title can be both
+ * {@link #AVAILABLE} and {@link #ON_LOAN}. Overdue titles depend on the date asked about, so they
+ * are selected with {@link BookStatusIndex#selectOverdue} instead.
+ */
+public enum BookStatus {
+    /** At least one copy is on the shelf. */
+    AVAILABLE,
+    /** At least one copy is out. */
+    ON_LOAN;
+
+    boolean test(Book book) {
+        return this == AVAILABLE
+                ? book.getAvailableCopies() > 0
+                : book.getAvailableCopies() < book.getTotalCopies();
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.library.good.index;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One compressed bitmap per {@link BookStatus}, over dense ids handed out to
+ * ISBNs in the order they are first seen. Questions like "titles with a copy
+ * out but none on the shelf" become bitmap operations instead of scans:
+ * <pre>
+ *   RoaringBitmap waitlisted = RoaringBitmap.andNot(index.select(ON_LOAN), index.select(AVAILABLE));
+ *   List&lt;String&gt; isbns = index.isbnsOf(waitlisted);
+ * </pre>
+ * Titles on loan are also bucketed by the epoch day of their earliest due
+ * date, so {@link #selectOverdue} ORs the buckets before a date instead of
+ * reading every loan.
+ * Keep it current by writing through an {@link IndexedDataStore}.
+ */
+public class BookStatusIndex {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> isbns = new ArrayList<>();
+    private final Map<BookStatus, RoaringBitmap> bitmaps = new EnumMap<>(BookStatus.class);
+    private final TreeMap<Long, RoaringBitmap> dueDays = new TreeMap<>();
+    private final Map<Integer, Long> dueDayOf = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public BookStatusIndex() {
+        for (BookStatus status : BookStatus.values()) {
+            bitmaps.put(status, new RoaringBitmap());
+        }
+    }
+
+    public void update(Book book) {
+        Long dueDay = earliestDueDay(book);
+        lock.writeLock().lock();
+        try {
+            int id = ids.computeIfAbsent(book.getIsbn(), isbn -> {
+                isbns.add(isbn);
+                return isbns.size() - 1;
+            });
+            for (Map.Entry<BookStatus, RoaringBitmap> entry : bitmaps.entrySet()) {
+                if (entry.getKey().test(book)) {
+                    entry.getValue().add(id);
+                } else {
+                    entry.getValue().remove(id);
+                }
+            }
+            moveDueDay(id, dueDay);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A copy of the ids currently in {@code status}, free to combine or modify.
+     */
+    public RoaringBitmap select(BookStatus status) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.get(status).copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Titles on loan with a copy due before {@code today}, i.e. the ones
+     * {@link Book#isOverdue} would report.
+     */
+    public RoaringBitmap selectOverdue(LocalDate today) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap due = new RoaringBitmap();
+            for (RoaringBitmap bucket : dueDays.headMap(today.toEpochDay(), false).values()) {
+                due = RoaringBitmap.or(due, bucket);
+            }
+            return RoaringBitmap.and(due, bitmaps.get(BookStatus.ON_LOAN));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long cardinality(BookStatus status) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.get(status).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean has(String isbn, BookStatus status) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(isbn);
+            return id != null && bitmaps.get(status).contains(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every indexed title, for complements such as "never on loan".
+     */
+    public RoaringBitmap all() {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap all = new RoaringBitmap();
+            for (int id = 0; id < isbns.size(); id++) {
+                all.add(id);
+            }
+            return all;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> isbnsOf(RoaringBitmap selection) {
+        lock.readLock().lock();
+        try {
+            List<String> result = new ArrayList<>((int) Math.min(selection.cardinality(), isbns.size()));
+            selection.forEach(id -> {
+                if (id < isbns.size()) {
+                    result.add(isbns.get(id));
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return isbns.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void moveDueDay(int id, Long dueDay) {
+        Long previous = dueDay == null ? dueDayOf.remove(id) : dueDayOf.put(id, dueDay);
+        if (dueDay != null && dueDay.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            RoaringBitmap bucket = dueDays.get(previous);
+            bucket.remove(id);
+            if (bucket.isEmpty()) {
+                dueDays.remove(previous);
+            }
+        }
+        if (dueDay != null) {
+            dueDays.computeIfAbsent(dueDay, day -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    // Null when no copy is out or no loan has a due date.
+    private static Long earliestDueDay(Book book) {
+        if (!BookStatus.ON_LOAN.test(book)) {
+            return null;
+        }
+        Long earliest = null;
+        for (Loan loan : book.getLoans()) {
+            if (loan.getDueDate() != null && (earliest == null || loan.getDueDate().toEpochDay() < earliest)) {
+                earliest = loan.getDueDate().toEpochDay();
+            }
+        }
+        return earliest;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.library.good.index;
+
+import com.example.library.good.datastore.BookMutation;
+import com.example.library.good.datastore.DataStore;
+import com.example.library.good.datastore.MutableDataStore;
+import com.example.library.good.datastore.StripedLocks;
+import com.example.library.good.datastore.VersionedDataStore;
+import com.example.library.good.model.Book;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+
+/**
+ * Keeps a {@link BookStatusIndex} in step with a store: every write goes to
+ * the store and then to the index, under a per-ISBN stripe lock so two
+ * writers of the same book cannot leave the index describing the older one.
+ * Existing books are indexed when the decorator is created.
+ *
+ * Use {@link #wrap} so a versioned or mutable store keeps that capability
+ * behind the decorator.
+ */
+public class IndexedDataStore implements DataStore {
+    private static final int STRIPES = 64;
+
+    final DataStore delegate;
+    final BookStatusIndex index;
+    final StripedLocks stripes = new StripedLocks(STRIPES);
+
+    IndexedDataStore(DataStore delegate, BookStatusIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+        delegate.stream().forEach(index::update);
+    }
+
+    public static IndexedDataStore wrap(DataStore delegate, BookStatusIndex index) {
+        if (delegate instanceof VersionedDataStore) {
+            return new Versioned((VersionedDataStore) delegate, index);
+        }
+        if (delegate instanceof MutableDataStore) {
+            return new Mutable((MutableDataStore) delegate, index);
+        }
+        return new IndexedDataStore(delegate, index);
+    }
+
+    public BookStatusIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public Optional<Book> findBookByIsbn(String isbn) {
+        return delegate.findBookByIsbn(isbn);
+    }
+
+    @Override
+    public void updateBook(Book book) {
+        stripes.lock(book.getIsbn());
+        try {
+            delegate.updateBook(book);
+            index.update(book);
+        } finally {
+            stripes.unlock(book.getIsbn());
+        }
+    }
+
+    @Override
+    public void updateBooks(List<Book> books) {
+        // Batches keep the delegate's bulk path; the index catches up per book.
+        delegate.updateBooks(books);
+        reindex(books);
+    }
+
+    @Override
+    public Spliterator<Book> spliterator() {
+        return delegate.spliterator();
+    }
+
+    // Re-reads each book under its stripe, since another writer may have moved it on since the batch.
+    void reindex(List<Book> books) {
+        for (Book book : books) {
+            stripes.lock(book.getIsbn());
+            try {
+                delegate.findBookByIsbn(book.getIsbn()).ifPresent(index::update);
+            } finally {
+                stripes.unlock(book.getIsbn());
+            }
+        }
+    }
+
+    static final class Versioned extends IndexedDataStore implements VersionedDataStore {
+
+        Versioned(VersionedDataStore delegate, BookStatusIndex index) {
+            super(delegate, index);
+        }
+
+        @Override
+        public boolean updateBookIfVersion(Book book, long expectedVersion) {
+            stripes.lock(book.getIsbn());
+            try {
+                if (!((VersionedDataStore) delegate).updateBookIfVersion(book, expectedVersion)) {
+                    return false;
+                }
+                index.update(book);
+                return true;
+            } finally {
+                stripes.unlock(book.getIsbn());
+            }
+        }
+
+        @Override
+        public boolean updateBooksIfVersions(List<Book> books) {
+            if (!((VersionedDataStore) delegate).updateBooksIfVersions(books)) {
+                return false;
+            }
+            reindex(books);
+            return true;
+        }
+    }
+
+    static final class Mutable extends IndexedDataStore implements MutableDataStore {
+
+        Mutable(MutableDataStore delegate, BookStatusIndex index) {
+            super(delegate, index);
+        }
+
+        @Override
+        public <A, B> Book updateInPlace(String isbn, BookMutation<A, B> mutation, A first, B second) {
+            stripes.lock(isbn);
+            try {
+                Book result = ((MutableDataStore) delegate).updateInPlace(isbn, mutation, first, second);
+                if (result != null) {
+                    index.update(result);
+                }
+                return result;
+            } finally {
+                stripes.unlock(isbn);
+            }
+        }
+
+        @Override
+        public <A, B> List<Book> updateAllInPlace(List<String> isbns, BookMutation<A, B> mutation, A first, B second) {
+            // The stripes stay held across the delegate call, so its results are still the latest state.
+            int[] held = stripes.stripesFor(isbns);
+            stripes.lock(held);
+            try {
+                List<Book> results = ((MutableDataStore) delegate).updateAllInPlace(isbns, mutation, first, second);
+                if (results != null) {
+                    results.forEach(index::update);
+                }
+                return results;
+            } finally {
+                stripes.unlock(held);
+            }
+        }
+    }
+}
@@ -1,20 +1,53 @@
 package com.example.library.good.model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * A title with one or more copies. Loans are recorded per borrower, oldest
+ * first, in parallel arrays that are reused once allocated, so recording one
+ * on the circulation hot path allocates nothing. A title never records more
+ * loans than it has copies.
+ */
 public class Book {
+    private static final VarHandle AVAILABLE_COPIES;
+
+    static {
+        try {
+            AVAILABLE_COPIES = MethodHandles.lookup().findVarHandle(Book.class, "availableCopies", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private String isbn;
     private String title;
-    private boolean available;
-    private User borrowedBy;
-    private LocalDate dueDate;
+    private final int totalCopies;
+    // Updated with CAS so concurrent checkouts of a multi-copy title never need a lock.
+    private volatile int availableCopies;
+    // Guarded by this; slots [0, loanCount) hold the loans, oldest first.
+    private User[] loanBorrowers;
+    private LocalDate[] loanDueDates;
+    private int loanCount;
+    private long version;
 
     public Book(String isbn, String title) {
+        this(isbn, title, 1);
+    }
+
+    public Book(String isbn, String title, int totalCopies) {
+        if (totalCopies < 1) {
+            throw new IllegalArgumentException("a title needs at least one copy");
+        }
         this.isbn = isbn;
         this.title = title;
-        this.available = true;
-        this.borrowedBy = null;
-        this.dueDate = null;
+        this.totalCopies = totalCopies;
+        this.availableCopies = totalCopies;
     }
 
     public String getIsbn() {
@@ -26,34 +59,248 @@ public class Book {
     }
 
     public boolean isAvailable() {
-        return available;
+        return availableCopies > 0;
     }
 
+    /**
+     * Marks every copy as on the shelf ({@code true}) or out ({@code false}).
+     */
     public void setAvailable(boolean available) {
-        this.available = available;
+        this.availableCopies = available ? totalCopies : 0;
+    }
+
+    public int getTotalCopies() {
+        return totalCopies;
+    }
+
+    public int getAvailableCopies() {
+        return availableCopies;
+    }
+
+    public void setAvailableCopies(int availableCopies) {
+        if (availableCopies < 0 || availableCopies > totalCopies) {
+            throw new IllegalArgumentException("available copies must be between 0 and " + totalCopies);
+        }
+        this.availableCopies = availableCopies;
+    }
+
+    /**
+     * Atomically takes one copy off the shelf.
+     *
+     * @return false if no copy was available
+     */
+    public boolean checkoutCopy() {
+        int current;
+        do {
+            current = availableCopies;
+            if (current == 0) {
+                return false;
+            }
+        } while (!AVAILABLE_COPIES.compareAndSet(this, current, current - 1));
+        return true;
+    }
+
+    /**
+     * Atomically puts one copy back on the shelf.
+     *
+     * @return false if every copy was already on the shelf
+     */
+    public boolean returnCopy() {
+        int current;
+        do {
+            current = availableCopies;
+            if (current == totalCopies) {
+                return false;
+            }
+        } while (!AVAILABLE_COPIES.compareAndSet(this, current, current + 1));
+        return true;
+    }
+
+    /**
+     * Borrower of the most recent loan; see {@link #getLoans()} for the others.
+     */
+    public synchronized User getBorrowedBy() {
+        return loanCount == 0 ? null : loanBorrowers[loanCount - 1];
+    }
+
+    /**
+     * Due date of the most recent loan; see {@link #getLoans()} for the others.
+     */
+    public synchronized LocalDate getDueDate() {
+        return loanCount == 0 ? null : loanDueDates[loanCount - 1];
+    }
+
+    /**
+     * Due date of {@code user}'s earliest loan of this title, or null if they hold none.
+     */
+    public synchronized LocalDate getDueDate(User user) {
+        int loan = loanOf(user);
+        return loan < 0 ? null : loanDueDates[loan];
+    }
+
+    /**
+     * The recorded loans, oldest first.
+     */
+    public synchronized List<Loan> getLoans() {
+        if (loanCount == 0) {
+            return Collections.emptyList();
+        }
+        List<Loan> loans = new ArrayList<>(loanCount);
+        for (int i = 0; i < loanCount; i++) {
+            loans.add(new Loan(loanBorrowers[i], loanDueDates[i]));
+        }
+        return Collections.unmodifiableList(loans);
+    }
+
+    public synchronized int getLoanCount() {
+        return loanCount;
+    }
+
+    /**
+     * Records a loan. A single-copy book becomes unavailable; for
+     * multi-copy titles the copy itself is taken with {@link #checkoutCopy()}.
+     * If every copy already has a loan recorded, the oldest one gives way.
+     */
+    public synchronized void borrowBy(User user, LocalDate dueDate) {
+        if (loanCount == totalCopies) {
+            removeLoan(0);
+        }
+        if (loanBorrowers == null || loanCount == loanBorrowers.length) {
+            int capacity = Math.min(totalCopies, Math.max(1, loanCount * 2));
+            loanBorrowers = loanBorrowers == null ? new User[capacity] : Arrays.copyOf(loanBorrowers, capacity);
+            loanDueDates = loanDueDates == null ? new LocalDate[capacity] : Arrays.copyOf(loanDueDates, capacity);
+        }
+        loanBorrowers[loanCount] = user;
+        loanDueDates[loanCount] = dueDate;
+        loanCount++;
+        if (totalCopies == 1) {
+            this.availableCopies = 0;
+        }
+    }
+
+    /**
+     * Replaces every recorded loan with this one, or with none if both are
+     * null, without moving any copy.
+     */
+    public synchronized void setLoan(User user, LocalDate dueDate) {
+        clearLoans();
+        if (user != null || dueDate != null) {
+            int available = availableCopies;
+            borrowBy(user, dueDate);
+            this.availableCopies = available;
+        }
+    }
+
+    /**
+     * Puts one copy back and ends {@code returner}'s loan of it. If the
+     * returner holds no recorded loan (or is null), the oldest loan ends
+     * instead, but only once there are more loans than copies still out.
+     * Every loan ends once every copy is in.
+     *
+     * @return false, changing nothing, if every copy was already on the shelf
+     */
+    public synchronized boolean returnBook(User returner) {
+        if (!returnCopy()) {
+            return false;
+        }
+        int loan = loanOf(returner);
+        if (loan >= 0) {
+            removeLoan(loan);
+        } else if (loanCount > totalCopies - availableCopies) {
+            removeLoan(0);
+        }
+        if (availableCopies == totalCopies) {
+            clearLoans();
+        }
+        return true;
+    }
+
+    /**
+     * {@link #returnBook(User)} by a patron who is not known.
+     */
+    public boolean returnBook() {
+        return returnBook(null);
+    }
+
+    /**
+     * Puts the shelf count and loans back to those of {@code snapshot}, a
+     * {@link #copy()} of this book, e.g. to roll back a change made in place.
+     */
+    public synchronized void restore(Book snapshot) {
+        this.availableCopies = snapshot.availableCopies;
+        this.loanBorrowers = snapshot.loanCount == 0 ? null : snapshot.loanBorrowers.clone();
+        this.loanDueDates = snapshot.loanCount == 0 ? null : snapshot.loanDueDates.clone();
+        this.loanCount = snapshot.loanCount;
+    }
+
+    /**
+     * Version assigned by a {@link com.example.library.good.datastore.VersionedDataStore};
+     * 0 for a book that has never been stored there.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
     }
 
-    public User getBorrowedBy() {
-        return borrowedBy;
+    /**
+     * Returns an independent copy, including loans and version.
+     */
+    public synchronized Book copy() {
+        Book copy = new Book(isbn, title, totalCopies);
+        copy.availableCopies = availableCopies;
+        if (loanCount > 0) {
+            copy.loanBorrowers = Arrays.copyOf(loanBorrowers, loanBorrowers.length);
+            copy.loanDueDates = Arrays.copyOf(loanDueDates, loanDueDates.length);
+            copy.loanCount = loanCount;
+        }
+        copy.version = version;
+        return copy;
     }
 
-    public LocalDate getDueDate() {
-        return dueDate;
+    /**
+     * True if any copy is out on a loan that is past due.
+     */
+    public synchronized boolean isOverdue(LocalDate currentDate) {
+        if (availableCopies == totalCopies) {
+            return false;
+        }
+        for (int i = 0; i < loanCount; i++) {
+            if (loanDueDates[i] != null && currentDate.isAfter(loanDueDates[i])) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    public void borrowBy(User user, LocalDate dueDate) {
-        this.borrowedBy = user;
-        this.dueDate = dueDate;
-        this.available = false;
+    // Earliest-due loan held by user, or -1.
+    private int loanOf(User user) {
+        int found = -1;
+        if (user == null) {
+            return found;
+        }
+        for (int i = 0; i < loanCount; i++) {
+            if (Loan.isSameUser(loanBorrowers[i], user)
+                    && (found < 0 || Loan.isDueBefore(loanDueDates[i], loanDueDates[found]))) {
+                found = i;
+            }
+        }
+        return found;
     }
 
-    public void returnBook() {
-        this.borrowedBy = null;
-        this.dueDate = null;
-        this.available = true;
+    private void removeLoan(int loan) {
+        loanCount--;
+        System.arraycopy(loanBorrowers, loan + 1, loanBorrowers, loan, loanCount - loan);
+        System.arraycopy(loanDueDates, loan + 1, loanDueDates, loan, loanCount - loan);
+        loanBorrowers[loanCount] = null;
+        loanDueDates[loanCount] = null;
     }
 
-    public boolean isOverdue(LocalDate currentDate) {
-        return dueDate != null && currentDate.isAfter(dueDate) && !available;
+    private void clearLoans() {
+        while (loanCount > 0) {
+            removeLoan(loanCount - 1);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.example.library.good.model;
+
+import java.time.LocalDate;
+
+/**
+ * One copy of a {@link Book} out with one borrower. Either side may be
+ * unknown: a copy issued without a due date, or a record that only kept the
+ * date.
+ */
+public final class Loan {
+    private final User borrower;
+    private final LocalDate dueDate;
+
+    public Loan(User borrower, LocalDate dueDate) {
+        this.borrower = borrower;
+        this.dueDate = dueDate;
+    }
+
+    public User getBorrower() {
+        return borrower;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public boolean isOverdue(LocalDate currentDate) {
+        return dueDate != null && currentDate.isAfter(dueDate);
+    }
+
+    /**
+     * Patrons are matched by id, so a loan recorded against one copy of a
+     * {@link User} belongs to any other copy of the same patron.
+     */
+    public boolean isBorrowedBy(User user) {
+        return isSameUser(borrower, user);
+    }
+
+    /**
+     * Whether a loan due on {@code a} falls due before one due on {@code b};
+     * a loan without a due date is never the earlier one.
+     */
+    public static boolean isDueBefore(LocalDate a, LocalDate b) {
+        return a != null && (b == null || a.isBefore(b));
+    }
+
+    static boolean isSameUser(User a, User b) {
+        return a == b || (a != null && b != null && a.getId().equals(b.getId()));
+    }
+}
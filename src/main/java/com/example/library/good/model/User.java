@@ -1,9 +1,10 @@
 package com.example.library.good.model;
 
 public class User {
-    private String id;
-    private String name;
-    private boolean admin;
+    // Final, so a User read through a data race (e.g. an optimistic lookup) is always fully built.
+    private final String id;
+    private final String name;
+    private final boolean admin;
 
     public User(String id, String name, boolean admin) {
         this.id = id;
@@ -0,0 +1,74 @@
+package com.example.library.good.popularity;
+
+import com.example.library.good.datastore.KeyHash;
+
+/**
+ * Approximate counts for an unbounded set of keys in {@code depth * width}
+ * counters. An estimate never undercounts; with conservative update it
+ * overcounts by at most about {@code e / width} of the total weight, with
+ * probability {@code 1 - e^-depth}.
+ *
+ * Keys are passed as their {@link KeyHash#hash64}, which the caller has
+ * usually computed already.
+ *
+ * Not thread-safe; each {@link PopularityTracker} stripe serializes access.
+ */
+final class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private final int[] scratch;
+
+    CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("width and depth must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[width * depth];
+        this.scratch = new int[depth];
+    }
+
+    /**
+     * Adds {@code weight} to the key and returns its new estimate. Only the
+     * counters at the current minimum are raised (conservative update), which
+     * keeps collisions from inflating other keys more than necessary.
+     */
+    long add(long hash, long weight) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int slot = row * width + Integer.remainderUnsigned(h1 + row * h2, width);
+            scratch[row] = slot;
+            estimate = Math.min(estimate, counters[slot]);
+        }
+        long updated = estimate + weight;
+        for (int row = 0; row < depth; row++) {
+            if (counters[scratch[row]] < updated) {
+                counters[scratch[row]] = updated;
+            }
+        }
+        return updated;
+    }
+
+    long estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + Integer.remainderUnsigned(h1 + row * h2, width)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Divides every counter by {@code 2^halvings}, rounding down.
+     */
+    void halve(int halvings) {
+        int shift = Math.min(halvings, 63);
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= shift;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.library.good.popularity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code capacity} keys with the highest sketch estimates seen so far. A
+ * new key displaces the current minimum only if its estimate is higher, so a
+ * burst of one-off keys cannot flush out steadily popular ones.
+ *
+ * The minimum slot is cached: estimates of tracked keys only grow between
+ * decays, so it stays valid until the minimum itself changes.
+ *
+ * Not thread-safe; each {@link PopularityTracker} stripe serializes access.
+ */
+final class HeavyHitters {
+    private final String[] keys;
+    private final long[] counts;
+    private final Map<String, Integer> slots;
+    private int size;
+    private int minSlot = -1;
+
+    HeavyHitters(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.slots = new HashMap<>(capacity * 2);
+    }
+
+    void offer(String key, long estimate) {
+        Integer slot = slots.get(key);
+        if (slot != null) {
+            counts[slot] = estimate;
+            if (slot == minSlot) {
+                minSlot = -1;
+            }
+            return;
+        }
+        if (size < keys.length) {
+            keys[size] = key;
+            counts[size] = estimate;
+            slots.put(key, size);
+            size++;
+            minSlot = -1;
+            return;
+        }
+        int min = minSlot();
+        if (estimate <= counts[min]) {
+            return;
+        }
+        slots.remove(keys[min]);
+        keys[min] = key;
+        counts[min] = estimate;
+        slots.put(key, min);
+        minSlot = -1;
+    }
+
+    // Halving every count keeps their order, so the cached minimum stays put.
+    void halve(int halvings) {
+        int shift = Math.min(halvings, 63);
+        for (int i = 0; i < size; i++) {
+            counts[i] >>>= shift;
+        }
+    }
+
+    /**
+     * Tracked keys, highest count first, skipping those decayed to zero.
+     */
+    List<PopularTitle> sorted() {
+        List<PopularTitle> titles = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (counts[i] > 0) {
+                titles.add(new PopularTitle(keys[i], counts[i]));
+            }
+        }
+        titles.sort((a, b) -> Long.compare(b.getScore(), a.getScore()));
+        return titles;
+    }
+
+    private int minSlot() {
+        if (minSlot < 0) {
+            int min = 0;
+            for (int i = 1; i < size; i++) {
+                if (counts[i] < counts[min]) {
+                    min = i;
+                }
+            }
+            minSlot = min;
+        }
+        return minSlot;
+    }
+}
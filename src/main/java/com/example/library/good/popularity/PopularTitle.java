@@ -0,0 +1,27 @@
+package com.example.library.good.popularity;
+
+/**
+ * A title and its decayed popularity score, as estimated by {@link PopularityTracker}.
+ */
+public final class PopularTitle {
+    private final String isbn;
+    private final long score;
+
+    public PopularTitle(String isbn, long score) {
+        this.isbn = isbn;
+        this.score = score;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public long getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return isbn + "=" + score;
+    }
+}
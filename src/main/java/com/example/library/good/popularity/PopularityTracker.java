@@ -0,0 +1,154 @@
+package com.example.library.good.popularity;
+
+import com.example.library.good.datastore.KeyHash;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.CirculationListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Which titles are hot right now, in constant memory however many ISBNs pass
+ * through. Register it with
+ * {@link com.example.library.good.service.LibraryService#addCirculationListener};
+ * every lookup adds 1 to a title's score and every checkout adds
+ * {@code checkoutWeight}.
+ *
+ * Scores live in a count-min sketch, so they may overcount but never
+ * undercount, and the highest ones are tracked by a fixed-size heavy-hitters
+ * table. Both halve once per half-life, so activity from a week ago counts
+ * for little against activity from today.
+ *
+ * Titles are split by hash across {@value #STRIPES} stripes, each with its own
+ * lock, its own share of the sketch width and its own heavy-hitters table, so
+ * lookups of different titles do not queue behind one monitor.
+ * {@link #topTitles} merges the stripes' tables.
+ */
+public class PopularityTracker implements CirculationListener {
+    public static final int DEFAULT_WIDTH = 2048;
+    public static final int DEFAULT_DEPTH = 4;
+    public static final Duration DEFAULT_HALF_LIFE = Duration.ofDays(1);
+    public static final int DEFAULT_CHECKOUT_WEIGHT = 5;
+    static final int STRIPES = 8;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final int capacity;
+    private final long halfLifeMillis;
+    private final long checkoutWeight;
+    private final Clock clock;
+
+    /**
+     * @param capacity how many of the most popular titles {@link #topTitles} can report
+     */
+    public PopularityTracker(int capacity, Clock clock) {
+        this(DEFAULT_WIDTH, DEFAULT_DEPTH, capacity, DEFAULT_HALF_LIFE, DEFAULT_CHECKOUT_WEIGHT, clock);
+    }
+
+    /**
+     * @param width  sketch counters per row, shared out between the stripes; the overcount is at most about
+     *               {@code e / width} of all activity
+     * @param depth  sketch rows; each one lowers the chance of exceeding that bound
+     */
+    public PopularityTracker(int width, int depth, int capacity, Duration halfLife, int checkoutWeight,
+                             Clock clock) {
+        if (halfLife.toMillis() < 1 || checkoutWeight < 1) {
+            throw new IllegalArgumentException("halfLife and checkoutWeight must be positive");
+        }
+        if (width < 1 || depth < 1 || capacity < 1) {
+            throw new IllegalArgumentException("width, depth and capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.halfLifeMillis = halfLife.toMillis();
+        this.checkoutWeight = checkoutWeight;
+        this.clock = clock;
+        int stripeWidth = Math.max(1, (width + STRIPES - 1) / STRIPES);
+        long firstDecayMillis = clock.millis() + halfLifeMillis;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeWidth, depth, capacity, firstDecayMillis);
+        }
+    }
+
+    @Override
+    public void onBookLookedUp(String isbn) {
+        record(isbn, 1);
+    }
+
+    @Override
+    public void onBookIssued(User user, Book book, LocalDate dueDate) {
+        record(book.getIsbn(), checkoutWeight);
+    }
+
+    /**
+     * The current decayed score of a title; 0 if it has never been seen.
+     */
+    public long estimate(String isbn) {
+        long hash = KeyHash.hash64(isbn);
+        Stripe stripe = stripeOf(hash);
+        synchronized (stripe) {
+            stripe.decayIfDue(clock.millis());
+            return stripe.sketch.estimate(hash);
+        }
+    }
+
+    /**
+     * The tracked titles, most popular first; at most {@code capacity} of them.
+     */
+    public List<PopularTitle> topTitles() {
+        long now = clock.millis();
+        List<PopularTitle> titles = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.decayIfDue(now);
+                titles.addAll(stripe.heavyHitters.sorted());
+            }
+        }
+        titles.sort((a, b) -> Long.compare(b.getScore(), a.getScore()));
+        return titles.size() <= capacity ? titles : new ArrayList<>(titles.subList(0, capacity));
+    }
+
+    public List<PopularTitle> topTitles(int limit) {
+        List<PopularTitle> titles = topTitles();
+        return titles.size() <= limit ? titles : titles.subList(0, limit);
+    }
+
+    private void record(String isbn, long weight) {
+        long hash = KeyHash.hash64(isbn);
+        Stripe stripe = stripeOf(hash);
+        synchronized (stripe) {
+            stripe.decayIfDue(clock.millis());
+            stripe.heavyHitters.offer(isbn, stripe.sketch.add(hash, weight));
+        }
+    }
+
+    // The top bits pick the stripe; within a stripe they are the same for every title, so they add no collisions.
+    private Stripe stripeOf(long hash) {
+        return stripes[(int) (hash >>> (Long.SIZE - Integer.numberOfTrailingZeros(STRIPES)))];
+    }
+
+    // A sketch and heavy-hitters table for the titles hashed here, guarded by the stripe's monitor.
+    private final class Stripe {
+        final CountMinSketch sketch;
+        final HeavyHitters heavyHitters;
+        long nextDecayMillis;
+
+        Stripe(int width, int depth, int capacity, long firstDecayMillis) {
+            this.sketch = new CountMinSketch(width, depth);
+            this.heavyHitters = new HeavyHitters(capacity);
+            this.nextDecayMillis = firstDecayMillis;
+        }
+
+        void decayIfDue(long now) {
+            if (now < nextDecayMillis) {
+                return;
+            }
+            long halvings = 1 + (now - nextDecayMillis) / halfLifeMillis;
+            sketch.halve((int) Math.min(halvings, 63));
+            heavyHitters.halve((int) Math.min(halvings, 63));
+            nextDecayMillis += halvings * halfLifeMillis;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.library.good.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: {@code LEVELS} wheels of 64 slots each, where a
+ * slot at level L spans 64^L ticks. A timer goes into the coarsest level that
+ * can still tell it apart from "now" and is cascaded into finer levels as its
+ * deadline approaches, so schedule and cancel are O(1) regardless of how many
+ * timers are pending.
+ *
+ * Time only moves when {@link #advanceTo} is called, which keeps the wheel
+ * independent of any real clock.
+ */
+public class HierarchicalTimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 8;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Timer<T>[][] slots; // per-bucket sentinel of a circular doubly-linked list
+    private final long[] levelCounts = new long[LEVELS];
+    private long currentTick;
+    private long size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.slots = new Timer[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timer<T> sentinel = new Timer<>(this, 0, null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                slots[level][slot] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * Schedules {@code payload} to expire at {@code deadlineMillis}. A deadline
+     * that has already passed expires on the next {@link #advanceTo}.
+     */
+    public synchronized Timer<T> schedule(long deadlineMillis, T payload) {
+        // Round up so a timer never fires before its deadline.
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        Timer<T> timer = new Timer<>(this, deadlineTick, payload);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * Moves time forward to {@code nowMillis} and hands every timer whose
+     * deadline has been reached to {@code onExpiry}, in deadline order.
+     */
+    public void advanceTo(long nowMillis, Consumer<T> onExpiry) {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = Math.floorDiv(nowMillis, tickMillis);
+            collect(slots[0][(int) (currentTick & SLOT_MASK)], expired); // overdue at schedule time
+            while (currentTick < targetTick) {
+                int emptyLevels = 0;
+                while (emptyLevels < LEVELS && levelCounts[emptyLevels] == 0) {
+                    emptyLevels++;
+                }
+                if (emptyLevels == LEVELS) {
+                    currentTick = targetTick;
+                    break;
+                }
+                // Nothing can fire or cascade before the next boundary of the first non-empty level.
+                long next = currentTick + 1;
+                if (emptyLevels > 0) {
+                    long span = 1L << (SLOT_BITS * emptyLevels);
+                    next = Math.min(targetTick, (currentTick | (span - 1)) + 1);
+                }
+                currentTick = next;
+                cascade();
+                collect(slots[0][(int) (currentTick & SLOT_MASK)], expired);
+            }
+        }
+        for (T payload : expired) {
+            onExpiry.accept(payload);
+        }
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private void cascade() {
+        int top = 0;
+        while (top + 1 < LEVELS && ((currentTick >>> (SLOT_BITS * (top + 1))) << (SLOT_BITS * (top + 1))) == currentTick) {
+            top++;
+        }
+        for (int level = top; level >= 1; level--) {
+            Timer<T> sentinel = slots[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            Timer<T> timer = sentinel.next;
+            sentinel.next = sentinel;
+            sentinel.prev = sentinel;
+            while (timer != sentinel) {
+                Timer<T> next = timer.next;
+                levelCounts[level]--;
+                place(timer);
+                timer = next;
+            }
+        }
+    }
+
+    private void collect(Timer<T> sentinel, List<T> expired) {
+        Timer<T> timer = sentinel.next;
+        while (timer != sentinel) {
+            Timer<T> next = timer.next;
+            if (timer.deadlineTick <= currentTick) {
+                unlink(timer);
+                timer.done = true;
+                size--;
+                expired.add(timer.payload);
+            }
+            timer = next;
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        long tick = timer.deadlineTick;
+        if (delta >= MAX_SPAN) {
+            tick = currentTick + MAX_SPAN - 1; // re-placed with its real deadline when cascaded
+            delta = MAX_SPAN - 1;
+        }
+        int level = 0;
+        if (delta > 0) {
+            level = (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+        } else {
+            tick = currentTick; // already due: collected on the next advance
+        }
+        Timer<T> sentinel = slots[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        timer.level = level;
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+        levelCounts[level]++;
+    }
+
+    private void unlink(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+        levelCounts[timer.level]--;
+    }
+
+    private synchronized boolean cancel(Timer<T> timer) {
+        if (timer.done) {
+            return false;
+        }
+        unlink(timer);
+        timer.done = true;
+        size--;
+        return true;
+    }
+
+    public static final class Timer<T> {
+        private final HierarchicalTimingWheel<T> wheel;
+        private final long deadlineTick;
+        private final T payload;
+        private Timer<T> prev;
+        private Timer<T> next;
+        private int level;
+        private boolean done;
+
+        private Timer(HierarchicalTimingWheel<T> wheel, long deadlineTick, T payload) {
+            this.wheel = wheel;
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        /**
+         * Returns false if the timer had already expired or been cancelled.
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.library.good.scheduler;
+
+import com.example.library.good.datastore.DataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.CirculationListener;
+import com.example.library.good.service.NotificationService;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires due-date reminders the moment a loan becomes overdue instead of in a
+ * nightly batch. Register it with
+ * {@link com.example.library.good.service.LibraryService#addCirculationListener}:
+ * a timer is armed when a book is issued with a due date and cancelled when it
+ * comes back. Pass the store to start from the loans already in it.
+ *
+ * A loan is overdue from the start of the day after its due date, in the
+ * clock's zone. With {@code daysBeforeDue > 0}, a "due soon" reminder is also
+ * sent at the start of the day that many days before the due date.
+ */
+public class ReminderScheduler implements CirculationListener, AutoCloseable {
+    private static final long DEFAULT_TICK_MILLIS = 1_000;
+
+    private final NotificationService notificationService;
+    private final Clock clock;
+    private final int daysBeforeDue;
+    private final HierarchicalTimingWheel<Reminder> wheel;
+    private final Map<String, List<Loan>> loansByIsbn = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;
+
+    public ReminderScheduler(NotificationService notificationService, Clock clock, int daysBeforeDue) {
+        this(notificationService, clock, daysBeforeDue, DEFAULT_TICK_MILLIS);
+    }
+
+    public ReminderScheduler(NotificationService notificationService, Clock clock, int daysBeforeDue, long tickMillis) {
+        if (daysBeforeDue < 0) {
+            throw new IllegalArgumentException("daysBeforeDue must not be negative");
+        }
+        this.notificationService = notificationService;
+        this.clock = clock;
+        this.daysBeforeDue = daysBeforeDue;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, clock.millis());
+    }
+
+    /**
+     * Arms reminders for every dated loan already in {@code store}, so books
+     * issued before the scheduler was registered are still chased; those
+     * already overdue are reminded on the first tick. Create it before the
+     * service takes traffic: a loan issued during the scan may be missed.
+     */
+    public ReminderScheduler(NotificationService notificationService, Clock clock, int daysBeforeDue,
+                             DataStore store) {
+        this(notificationService, clock, daysBeforeDue);
+        store.stream().forEach(book -> book.getLoans()
+                .forEach(loan -> onBookIssued(loan.getBorrower(), book, loan.getDueDate())));
+    }
+
+    @Override
+    public void onBookIssued(User user, Book book, LocalDate dueDate) {
+        // A loan without a known borrower has nobody to remind.
+        if (dueDate == null || user == null) {
+            return;
+        }
+        Loan loan = new Loan(user, book, dueDate);
+        long overdueAt = startOfDay(dueDate.plusDays(1));
+        loan.overdue = wheel.schedule(overdueAt, new Reminder(loan, true));
+        if (daysBeforeDue > 0 && clock.millis() < overdueAt) {
+            loan.dueSoon = wheel.schedule(startOfDay(dueDate.minusDays(daysBeforeDue)), new Reminder(loan, false));
+        }
+        loansByIsbn.compute(book.getIsbn(), (isbn, loans) -> {
+            List<Loan> updated = loans == null ? new ArrayList<>(1) : loans;
+            updated.add(loan);
+            return updated;
+        });
+    }
+
+    @Override
+    public void onBookReturned(User user, Book book) {
+        loansByIsbn.computeIfPresent(book.getIsbn(), (isbn, loans) -> {
+            int ended = CirculationListener.endedLoan(book, loans.size(),
+                    i -> user != null && loans.get(i).user.getId().equals(user.getId()),
+                    i -> loans.get(i).dueDate);
+            if (ended >= 0) {
+                loans.remove(ended).cancel();
+            }
+            return loans.isEmpty() ? null : loans;
+        });
+    }
+
+    /**
+     * Advances to the clock's current time and sends every reminder that has
+     * come due. Called by the background ticker, or directly from tests.
+     */
+    public void tick() {
+        wheel.advanceTo(clock.millis(), this::fire);
+    }
+
+    /**
+     * Ticks on a daemon thread at the wheel's resolution until {@link #close()}.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "due-date-reminders");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = wheel.getTickMillis();
+        ticker.scheduleAtFixedRate(this::tick, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    public long pendingReminders() {
+        return wheel.size();
+    }
+
+    private void fire(Reminder reminder) {
+        Loan loan = reminder.loan;
+        if (reminder.overdue) {
+            loansByIsbn.computeIfPresent(loan.book.getIsbn(), (isbn, loans) -> {
+                loans.remove(loan);
+                return loans.isEmpty() ? null : loans;
+            });
+            notificationService.notifyOverdue(loan.user, loan.book);
+        } else {
+            notificationService.notifyDueSoon(loan.user, loan.book);
+        }
+    }
+
+    private long startOfDay(LocalDate date) {
+        return date.atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private static final class Loan {
+        final User user;
+        final Book book;
+        final LocalDate dueDate;
+        HierarchicalTimingWheel.Timer<Reminder> overdue;
+        HierarchicalTimingWheel.Timer<Reminder> dueSoon;
+
+        Loan(User user, Book book, LocalDate dueDate) {
+            this.user = user;
+            this.book = book;
+            this.dueDate = dueDate;
+        }
+
+        void cancel() {
+            overdue.cancel();
+            if (dueSoon != null) {
+                dueSoon.cancel();
+            }
+        }
+    }
+
+    private static final class Reminder {
+        final Loan loan;
+        final boolean overdue;
+
+        Reminder(Loan loan, boolean overdue) {
+            this.loan = loan;
+            this.overdue = overdue;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.library.good.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Adaptive concurrency limit for {@link LibraryService}. At most
+ * {@link #getLimit()} calls run at once; the rest wait in a bounded queue for
+ * at most {@code maxWait} and are then shed with a
+ * {@link ServiceOverloadedException}.
+ *
+ * The limit is AIMD on call latency: a call slower than
+ * {@code latencyThreshold} cuts it by a tenth, and a fast call made while the
+ * limit was fully used raises it by {@code 1 / limit}, i.e. by one per limit's
+ * worth of calls. So when the store slows down, callers queue or are shed at
+ * the door instead of piling up inside it.
+ *
+ * Waiters are admitted by {@link Priority}, and when the queue is full a
+ * newcomer displaces the newest waiter of a lower priority, so returns get
+ * through even while lookups are being shed.
+ */
+public class AdmissionController {
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_MAX_LIMIT = 200;
+    public static final Duration DEFAULT_LATENCY_THRESHOLD = Duration.ofMillis(50);
+    public static final int DEFAULT_MAX_QUEUED = 100;
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofMillis(100);
+    static final double BACKOFF = 0.9;
+
+    /**
+     * Admission order, most urgent first.
+     */
+    public enum Priority {
+        RETURN, ISSUE, LOOKUP
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final LongSupplier ticker;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Waiter>[] waiters;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder[] rejected = new LongAdder[PRIORITIES.length];
+    private double limit;
+    private int inFlight;
+    private int queued;
+
+    public AdmissionController() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_LATENCY_THRESHOLD,
+                DEFAULT_MAX_QUEUED, DEFAULT_MAX_WAIT);
+    }
+
+    /**
+     * @param maxQueued calls that may wait for room; 0 sheds as soon as the limit is reached
+     * @param maxWait   how long a queued call waits before it is shed
+     */
+    public AdmissionController(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                               int maxQueued, Duration maxWait) {
+        this(initialLimit, minLimit, maxLimit, latencyThreshold, maxQueued, maxWait, System::nanoTime);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    AdmissionController(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                        int maxQueued, Duration maxWait, LongSupplier ticker) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (latencyThreshold.isNegative() || latencyThreshold.isZero() || maxQueued < 0 || maxWait.isNegative()) {
+            throw new IllegalArgumentException("latencyThreshold must be positive, maxQueued and maxWait not negative");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.ticker = ticker;
+        this.waiters = new ArrayDeque[PRIORITIES.length];
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            waiters[i] = new ArrayDeque<>();
+            rejected[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Waits for room to run a call. Every successful acquire must be paired
+     * with a {@link #release} in a finally block.
+     *
+     * @return the admission time, to pass to {@link #release}
+     * @throws ServiceOverloadedException if the call was shed
+     */
+    public long acquire(Priority priority) {
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (queued == 0 && inFlight < (int) limit) {
+                inFlight++;
+                admitted.increment();
+                return ticker.getAsLong();
+            }
+            if (maxWaitNanos == 0 || !makeRoomInQueue(priority)) {
+                throw reject(priority);
+            }
+            waiter = new Waiter(priority, lock.newCondition());
+            waiters[priority.ordinal()].addLast(waiter);
+            queued++;
+            awaitTurn(waiter);
+        } finally {
+            lock.unlock();
+        }
+        return ticker.getAsLong();
+    }
+
+    /**
+     * Ends a call admitted at {@code admittedAt}, feeds its latency into the
+     * limit and lets queued calls in if there is now room.
+     */
+    public void release(long admittedAt) {
+        long latency = ticker.getAsLong() - admittedAt;
+        lock.lock();
+        try {
+            if (latency > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+            } else if (inFlight >= (int) limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inFlight--;
+            admitWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calls that may run at once right now.
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * Calls shed, whether at the door, displaced from the queue or timed out in it.
+     */
+    public long getRejected() {
+        long total = 0;
+        for (LongAdder count : rejected) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    public long getRejected(Priority priority) {
+        return rejected[priority.ordinal()].sum();
+    }
+
+    /**
+     * Share of calls shed, 0 before the first call.
+     */
+    public double getRejectionRate() {
+        long shed = getRejected();
+        long total = shed + admitted.sum();
+        return total == 0 ? 0 : (double) shed / total;
+    }
+
+    // Called with the lock held; returns with it held, admitted or having thrown.
+    private void awaitTurn(Waiter waiter) {
+        long remaining = maxWaitNanos;
+        boolean interrupted = false;
+        while (waiter.state == Waiter.WAITING && remaining > 0) {
+            try {
+                remaining = waiter.ready.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                break;
+            }
+        }
+        if (waiter.state == Waiter.ADMITTED) {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        if (waiter.state == Waiter.WAITING) {
+            waiters[waiter.priority.ordinal()].remove(waiter);
+            queued--;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        throw reject(waiter.priority);
+    }
+
+    // A full queue gives up its newest waiter of the lowest priority below the newcomer's.
+    private boolean makeRoomInQueue(Priority priority) {
+        if (queued < maxQueued) {
+            return true;
+        }
+        for (int i = PRIORITIES.length - 1; i > priority.ordinal(); i--) {
+            Waiter displaced = waiters[i].pollLast();
+            if (displaced != null) {
+                queued--;
+                displaced.state = Waiter.SHED;
+                displaced.ready.signal();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void admitWaiters() {
+        for (int i = 0; i < PRIORITIES.length && inFlight < (int) limit; ) {
+            Waiter next = waiters[i].pollFirst();
+            if (next == null) {
+                i++;
+                continue;
+            }
+            queued--;
+            inFlight++;
+            admitted.increment();
+            next.state = Waiter.ADMITTED;
+            next.ready.signal();
+        }
+    }
+
+    private ServiceOverloadedException reject(Priority priority) {
+        rejected[priority.ordinal()].increment();
+        return new ServiceOverloadedException("shed " + priority + " call at concurrency limit " + (int) limit);
+    }
+
+    private static final class Waiter {
+        static final int WAITING = 0;
+        static final int ADMITTED = 1;
+        static final int SHED = 2;
+
+        final Priority priority;
+        final Condition ready;
+        int state = WAITING;
+
+        Waiter(Priority priority, Condition ready) {
+            this.priority = priority;
+            this.ready = ready;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.library.good.service;
+
+import com.example.library.good.model.User;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.Collection;
+
+/**
+ * Flight Recorder event spanning one {@link LibraryService} call, admission
+ * wait included. DataStore and notification events recorded by the tracing
+ * decorators on the same thread fall inside it.
+ *
+ * Off unless a recording enables {@value #NAME}, e.g. with
+ * {@code Recording.enable(NAME)} or an {@code enabled} setting in a .jfc
+ * file; thresholds are set the same way. While it is off no event object is
+ * created: every call shares one inert instance, so the hot path stays
+ * allocation-free.
+ */
+@Name(CirculationEvent.NAME)
+@Label("Circulation Call")
+@Category({"Library", "Service"})
+@Description("One LibraryService operation")
+@Enabled(false)
+@StackTrace(false)
+@Threshold("0 ms")
+final class CirculationEvent extends jdk.jfr.Event {
+    static final String NAME = "com.example.library.Circulation";
+
+    static final String LOOKUP = "lookup";
+    static final String ISSUE = "issue";
+    static final String ISSUE_WITH_DUE_DATE = "issueWithDueDate";
+    static final String RETURN = "return";
+    static final String RETURN_ENHANCED = "returnEnhanced";
+    static final String ISSUE_BATCH = "issueBatch";
+    static final String RETURN_BATCH = "returnBatch";
+    static final String RESERVATION = "reservation";
+
+    // No recording can see this one; it is never begun or committed.
+    private static final CirculationEvent DISABLED = new CirculationEvent();
+    private static final EventType TYPE = EventType.getEventType(CirculationEvent.class);
+
+    @Label("Operation")
+    String operation;
+
+    @Label("ISBN")
+    @Description("Comma-separated for batch operations")
+    String isbn;
+
+    @Label("User Id")
+    String userId;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    @Label("Shed")
+    @Description("Turned away by admission control without running")
+    boolean shed;
+
+    static CirculationEvent begin(String operation) {
+        if (!TYPE.isEnabled()) {
+            return DISABLED;
+        }
+        CirculationEvent event = new CirculationEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    boolean result(boolean succeeded) {
+        if (this != DISABLED) {
+            this.succeeded = succeeded;
+        }
+        return succeeded;
+    }
+
+    void shed() {
+        if (this != DISABLED) {
+            this.shed = true;
+        }
+    }
+
+    void finish(String isbn, User user) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.isbn = isbn;
+            this.userId = user == null ? null : user.getId();
+            commit();
+        }
+    }
+
+    void finish(Collection<String> isbns, User user) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.isbn = String.join(",", isbns);
+            this.userId = user == null ? null : user.getId();
+            commit();
+        }
+    }
+}
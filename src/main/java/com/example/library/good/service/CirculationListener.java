@@ -0,0 +1,60 @@
+package com.example.library.good.service;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+
+import java.time.LocalDate;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Observes circulation events in {@link LibraryService}. Issues and returns
+ * are reported once they succeed, after the book has been written back to the
+ * store.
+ */
+public interface CirculationListener {
+    /**
+     * @param dueDate null when the book was issued without a due date
+     */
+    default void onBookIssued(User user, Book book, LocalDate dueDate) {
+    }
+
+    default void onBookReturned(User user, Book book) {
+    }
+
+    /**
+     * For listeners that track loans of their own: which of them a return
+     * ended, by the rule {@link Book#returnBook(User)} applies to the book's
+     * loans. That is the returner's earliest-due loan if they hold one, the
+     * oldest of those on a tie; otherwise the oldest loan, but only once more
+     * loans are tracked than the returned book still has copies out.
+     *
+     * @param book           the book as reported to {@link #onBookReturned}
+     * @param trackedLoans   loans tracked for the book, oldest first
+     * @param heldByReturner whether the tracked loan at an index belongs to the returner
+     * @param dueDateOf      due date of the tracked loan at an index
+     * @return index of the loan that ended, or -1 if none did
+     */
+    static int endedLoan(Book book, int trackedLoans, IntPredicate heldByReturner,
+                         IntFunction<LocalDate> dueDateOf) {
+        int found = -1;
+        for (int i = 0; i < trackedLoans; i++) {
+            if (heldByReturner.test(i) && (found < 0 || Loan.isDueBefore(dueDateOf.apply(i), dueDateOf.apply(found)))) {
+                found = i;
+            }
+        }
+        if (found >= 0) {
+            return found;
+        }
+        int copiesOut = book.getTotalCopies() - book.getAvailableCopies();
+        return trackedLoans > copiesOut ? 0 : -1;
+    }
+
+    /**
+     * Called for every {@link LibraryService#findBook}, whether or not the
+     * book exists, before the store is queried.
+     */
+    default void onBookLookedUp(String isbn) {
+    }
+}
@@ -2,24 +2,115 @@ package com.example.library.good.service;
 
 import com.example.library.good.model.Book;
 import com.example.library.good.model.User;
+import com.example.library.good.service.template.BatchedMessageWriter;
+import com.example.library.good.service.template.BufferPool;
+import com.example.library.good.service.template.MessageTemplate;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 
 public class EmailNotificationService implements NotificationService {
+    private static final String EOL = System.lineSeparator();
+    private static final MessageTemplate OVERDUE = MessageTemplate.compile(
+            "EMAIL: Dear {name}, your book '{title}' is overdue!" + EOL);
+    private static final MessageTemplate RESERVATION_AVAILABLE = MessageTemplate.compile(
+            "EMAIL: Dear {name}, your reserved book '{title}' is now available!" + EOL);
+    private static final MessageTemplate BORROWED = MessageTemplate.compile(
+            "EMAIL: Dear {name}, you have successfully borrowed '{title}'." + EOL);
+    private static final MessageTemplate DUE_SOON = MessageTemplate.compile(
+            "EMAIL: Dear {name}, your book '{title}' is due on {dueDate}." + EOL);
+
+    private final BatchedMessageWriter writer;
+
+    // Writes each message to stdout as soon as it is sent, from heap buffers System.out can take as they are.
+    public EmailNotificationService() {
+        this(new BatchedMessageWriter(new StandardOutChannel(), 1, new BufferPool(16 * 1024, 16, false)));
+    }
+
+    // For high-volume runs: pass a writer with a larger batch and flush it when done.
+    public EmailNotificationService(BatchedMessageWriter writer) {
+        this.writer = writer;
+    }
 
     @Override
     public void notifyOverdue(User user, Book book) {
-        System.out.println("EMAIL: Dear " + user.getName() +
-                ", your book '" + book.getTitle() + "' is overdue!");
+        writer.write(OVERDUE, user, book);
     }
 
     @Override
     public void notifyReservationAvailable(User user, Book book) {
-        System.out.println("EMAIL: Dear " + user.getName() +
-                ", your reserved book '" + book.getTitle() + "' is now available!");
+        writer.write(RESERVATION_AVAILABLE, user, book);
     }
 
     @Override
     public void notifyBookBorrowed(User user, Book book) {
-        System.out.println("EMAIL: Dear " + user.getName() +
-                ", you have successfully borrowed '" + book.getTitle() + "'.");
+        writer.write(BORROWED, user, book);
+    }
+
+    @Override
+    public void notifyDueSoon(User user, Book book) {
+        writer.write(DUE_SOON, user, book);
+    }
+
+    /**
+     * Looks up {@code System.out} on every write, so a later
+     * {@link System#setOut} is honoured, and never closes it. A batch is one
+     * gathering write and one flush; direct buffers are copied out through a
+     * reused scratch array.
+     */
+    private static final class StandardOutChannel implements GatheringByteChannel {
+        private static final int SCRATCH_BYTES = 8 * 1024;
+
+        private byte[] scratch;
+
+        @Override
+        public int write(ByteBuffer src) {
+            return (int) write(new ByteBuffer[]{src}, 0, 1);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public synchronized long write(ByteBuffer[] srcs, int offset, int length) {
+            PrintStream out = System.out;
+            long written = 0;
+            for (int i = offset; i < offset + length; i++) {
+                written += copy(srcs[i], out);
+            }
+            out.flush();
+            return written;
+        }
+
+        private int copy(ByteBuffer src, PrintStream out) {
+            int length = src.remaining();
+            if (src.hasArray()) {
+                out.write(src.array(), src.arrayOffset() + src.position(), length);
+                src.position(src.limit());
+                return length;
+            }
+            if (scratch == null) {
+                scratch = new byte[SCRATCH_BYTES];
+            }
+            while (src.hasRemaining()) {
+                int chunk = Math.min(scratch.length, src.remaining());
+                src.get(scratch, 0, chunk);
+                out.write(scratch, 0, chunk);
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            System.out.flush();
+        }
     }
-}
\ No newline at end of file
+}
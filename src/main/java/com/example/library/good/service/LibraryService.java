@@ -1,98 +1,472 @@
 package com.example.library.good.service;
 
+import com.example.library.good.datastore.BookMutation;
 import com.example.library.good.datastore.DataStore;
+import com.example.library.good.datastore.MutableDataStore;
+import com.example.library.good.datastore.StripedLocks;
+import com.example.library.good.datastore.UserStore;
+import com.example.library.good.datastore.VersionedDataStore;
 import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
 import com.example.library.good.model.User;
+import com.example.library.good.service.AdmissionController.Priority;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 public class LibraryService {
+    static final int MAX_UPDATE_ATTEMPTS = 64;
+    private static final int WRITE_LOCK_STRIPES = 256;
+
+    // Constants rather than capturing lambdas, so the single-book operations allocate nothing of their own.
+    private static final BookMutation<User, LocalDate> CHECKOUT = (book, user, dueDate) -> book.checkoutCopy();
+    private static final BookMutation<User, LocalDate> CHECKOUT_AND_BORROW = (book, user, dueDate) -> {
+        if (!book.checkoutCopy()) {
+            return false; // already issued
+        }
+        book.borrowBy(user, dueDate);
+        return true;
+    };
+    // Returns refuse when every copy is already in, so nothing is written and no listener hears of it.
+    private static final BookMutation<User, LocalDate> RETURN_COPY = (book, user, dueDate) -> book.returnCopy();
+    private static final BookMutation<User, LocalDate> RETURN_AND_CLEAR_LOAN = (book, user, dueDate) -> book.returnBook(user);
+    // Batch members refuse instead of writing a no-op, so one missing copy aborts the whole batch.
+    private static final BookMutation<User, LocalDate> ISSUE_IN_BATCH = (book, user, dueDate) -> {
+        if (!book.checkoutCopy()) {
+            return false;
+        }
+        if (dueDate != null) {
+            book.borrowBy(user, dueDate);
+        }
+        return true;
+    };
+    private static final BookMutation<User, LocalDate> RETURN_IN_BATCH = (book, user, dueDate) -> book.returnBook(user);
+
     private final DataStore store;
     private final NotificationService notificationService;
+    private final UserStore userStore;
+    private final AdmissionController admission;
+    // Copy-on-write array: iterating it, unlike a CopyOnWriteArrayList, needs no iterator.
+    private volatile CirculationListener[] listeners = new CirculationListener[0];
+    private final OptimisticUpdateStats updateStats = new OptimisticUpdateStats();
+    // Only used for stores that can neither version nor update in place.
+    private final StripedLocks writeLocks = new StripedLocks(WRITE_LOCK_STRIPES);
 
     public LibraryService(DataStore store) {
         this.store = store;
         this.notificationService = null; // No notifications
+        this.userStore = null;
+        this.admission = null;
     }
 
     public LibraryService(DataStore store, NotificationService notificationService) {
         this.store = store;
         this.notificationService = notificationService;
+        this.userStore = null;
+        this.admission = null;
     }
 
-    public boolean issueBook(User user, String isbn) {
-        Optional<Book> bookOpt = store.findBookByIsbn(isbn);
-        if (bookOpt.isPresent()) {
-            Book book = bookOpt.get();
-            if (!book.isAvailable()) {
-                return false;
+    // Loans record the canonical User from userStore, so one patron is one object however many loans they hold.
+    public LibraryService(DataStore store, NotificationService notificationService, UserStore userStore) {
+        this.store = store;
+        this.notificationService = notificationService;
+        this.userStore = userStore;
+        this.admission = null;
+    }
+
+    /**
+     * Circulation calls, lookups and reservation checks run under
+     * {@code admission}, which may shed them with a
+     * {@link ServiceOverloadedException}; the overdue scan is not limited.
+     */
+    public LibraryService(DataStore store, NotificationService notificationService, UserStore userStore,
+                          AdmissionController admission) {
+        this.store = store;
+        this.notificationService = notificationService;
+        this.userStore = userStore;
+        this.admission = admission;
+    }
+
+    public synchronized void addCirculationListener(CirculationListener listener) {
+        CirculationListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    public Optional<Book> findBook(String isbn) {
+        CirculationEvent event = CirculationEvent.begin(CirculationEvent.LOOKUP);
+        try {
+            long admittedAt = admit(Priority.LOOKUP, event);
+            try {
+                for (CirculationListener listener : listeners) {
+                    listener.onBookLookedUp(isbn);
+                }
+                Optional<Book> book = store.findBookByIsbn(isbn);
+                event.result(book.isPresent());
+                return book;
+            } finally {
+                leave(admittedAt);
             }
-            book.setAvailable(false);
-            store.updateBook(book);
-            return true;
+        } finally {
+            event.finish(isbn, null);
         }
-        return false;
     }
 
-    public boolean issueBookWithDueDate(User user, String isbn, LocalDate dueDate) {
-        Optional<Book> bookOpt = store.findBookByIsbn(isbn);
-        if (bookOpt.isPresent()) {
-            Book book = bookOpt.get();
-            if (!book.isAvailable()) {
-                return false; // already issued
+    /**
+     * Conflict counters for stores that support conditional updates.
+     */
+    public OptimisticUpdateStats getUpdateStats() {
+        return updateStats;
+    }
+
+    public boolean issueBook(User user, String isbn) {
+        CirculationEvent event = CirculationEvent.begin(CirculationEvent.ISSUE);
+        try {
+            long admittedAt = admit(Priority.ISSUE, event);
+            try {
+                User borrower = canonical(user);
+                Book book = update(isbn, CHECKOUT, borrower, null);
+                if (book == null) {
+                    return event.result(false);
+                }
+                fireIssued(borrower, book, null);
+                return event.result(true);
+            } finally {
+                leave(admittedAt);
             }
-            book.borrowBy(user, dueDate);
-            store.updateBook(book);
+        } finally {
+            event.finish(isbn, user);
+        }
+    }
 
-            if (notificationService != null) {
-                notificationService.notifyBookBorrowed(user, book);
+    public boolean issueBookWithDueDate(User user, String isbn, LocalDate dueDate) {
+        CirculationEvent event = CirculationEvent.begin(CirculationEvent.ISSUE_WITH_DUE_DATE);
+        try {
+            long admittedAt = admit(Priority.ISSUE, event);
+            try {
+                User borrower = canonical(user);
+                Book book = update(isbn, CHECKOUT_AND_BORROW, borrower, dueDate);
+                if (book == null) {
+                    return event.result(false);
+                }
+                if (notificationService != null) {
+                    notificationService.notifyBookBorrowed(borrower, book);
+                }
+                fireIssued(borrower, book, dueDate);
+                return event.result(true);
+            } finally {
+                leave(admittedAt);
             }
-            return true;
+        } finally {
+            event.finish(isbn, user);
         }
-        return false;
     }
 
     public boolean returnBook(User user, String isbn) {
-        Optional<Book> bookOpt = store.findBookByIsbn(isbn);
-        if (bookOpt.isPresent()) {
-            Book book = bookOpt.get();
-            book.setAvailable(true);
-            store.updateBook(book);
-            return true;
+        CirculationEvent event = CirculationEvent.begin(CirculationEvent.RETURN);
+        try {
+            long admittedAt = admit(Priority.RETURN, event);
+            try {
+                user = canonical(user);
+                Book book = update(isbn, RETURN_COPY, user, null);
+                if (book == null) {
+                    return event.result(false);
+                }
+                fireReturned(user, book);
+                return event.result(true);
+            } finally {
+                leave(admittedAt);
+            }
+        } finally {
+            event.finish(isbn, user);
         }
-        return false;
     }
 
     public boolean returnBookEnhanced(User user, String isbn) {
-        Optional<Book> bookOpt = store.findBookByIsbn(isbn);
-        if (bookOpt.isPresent()) {
-            Book book = bookOpt.get();
-            book.returnBook();
-            store.updateBook(book);
-            return true;
+        CirculationEvent event = CirculationEvent.begin(CirculationEvent.RETURN_ENHANCED);
+        try {
+            long admittedAt = admit(Priority.RETURN, event);
+            try {
+                user = canonical(user);
+                Book book = update(isbn, RETURN_AND_CLEAR_LOAN, user, null);
+                if (book == null) {
+                    return event.result(false);
+                }
+                fireReturned(user, book);
+                return event.result(true);
+            } finally {
+                leave(admittedAt);
+            }
+        } finally {
+            event.finish(isbn, user);
+        }
+    }
+
+    /**
+     * Issues every listed book to the user, or none of them. Duplicate ISBNs
+     * count once; a null {@code dueDate} behaves like {@link #issueBook}.
+     *
+     * @return false, with nothing issued, if any book is missing or has no copy on the shelf
+     */
+    public boolean issueBooks(User user, Collection<String> isbns, LocalDate dueDate) {
+        CirculationEvent event = CirculationEvent.begin(CirculationEvent.ISSUE_BATCH);
+        try {
+            long admittedAt = admit(Priority.ISSUE, event);
+            try {
+                User borrower = canonical(user);
+                List<Book> books = transact(isbns, ISSUE_IN_BATCH, borrower, dueDate);
+                if (books == null) {
+                    return event.result(false);
+                }
+                for (Book book : books) {
+                    if (dueDate != null && notificationService != null) {
+                        notificationService.notifyBookBorrowed(borrower, book);
+                    }
+                    fireIssued(borrower, book, dueDate);
+                }
+                return event.result(true);
+            } finally {
+                leave(admittedAt);
+            }
+        } finally {
+            event.finish(isbns, user);
+        }
+    }
+
+    /**
+     * Returns every listed book, or none of them. Duplicate ISBNs count once.
+     *
+     * @return false, with nothing returned, if any book is missing or has no copy out
+     */
+    public boolean returnBooks(User user, Collection<String> isbns) {
+        CirculationEvent event = CirculationEvent.begin(CirculationEvent.RETURN_BATCH);
+        try {
+            long admittedAt = admit(Priority.RETURN, event);
+            try {
+                User returner = canonical(user);
+                List<Book> books = transact(isbns, RETURN_IN_BATCH, returner, null);
+                if (books == null) {
+                    return event.result(false);
+                }
+                for (Book book : books) {
+                    fireReturned(returner, book);
+                }
+                return event.result(true);
+            } finally {
+                leave(admittedAt);
+            }
+        } finally {
+            event.finish(isbns, user);
         }
-        return false;
     }
 
+    /**
+     * Sends an overdue notice to the borrower of every overdue loan in the
+     * catalog, so each patron holding a copy of a title past its due date
+     * hears about it. The scan runs as a parallel stream; notices go out from
+     * the calling thread.
+     */
     public void processOverdueBooks(LocalDate currentDate) {
         if (notificationService == null) {
             return;
         }
 
-        // In a real implementation, we'd query all borrowed books
-        // For this demo, we just show the pattern
-        // This method demonstrates behavior that's perfect for mocking
+        List<Book> overdue = store.parallelStream()
+                .filter(book -> book.isOverdue(currentDate))
+                .collect(Collectors.toList());
+        for (Book book : overdue) {
+            for (Loan loan : book.getLoans()) {
+                if (loan.getBorrower() != null && loan.isOverdue(currentDate)) {
+                    notificationService.notifyOverdue(loan.getBorrower(), book);
+                }
+            }
+        }
     }
 
     public void notifyReservation(User user, String isbn) {
-        if (notificationService == null) {
-            return;
+        CirculationEvent event = CirculationEvent.begin(CirculationEvent.RESERVATION);
+        try {
+            long admittedAt = admit(Priority.LOOKUP, event);
+            try {
+                if (notificationService == null) {
+                    return;
+                }
+
+                Optional<Book> bookOpt = store.findBookByIsbn(isbn);
+                if (bookOpt.isPresent() && bookOpt.get().isAvailable()) {
+                    notificationService.notifyReservationAvailable(canonical(user), bookOpt.get());
+                    event.result(true);
+                }
+            } finally {
+                leave(admittedAt);
+            }
+        } finally {
+            event.finish(isbn, user);
+        }
+    }
+
+    /**
+     * Applies {@code change} to the stored book and writes it back. A
+     * {@link MutableDataStore} changes the book in place. Against a
+     * {@link VersionedDataStore} the write is conditional and the change is
+     * re-applied to a fresh read on conflict. Other stores are written blindly
+     * under the ISBN's stripe of {@link #writeLocks}.
+     *
+     * @return the updated book, or null if it does not exist or {@code change} refused
+     */
+    private <A, B> Book update(String isbn, BookMutation<A, B> change, A first, B second) {
+        if (store instanceof MutableDataStore) {
+            return ((MutableDataStore) store).updateInPlace(isbn, change, first, second);
+        }
+        if (store instanceof VersionedDataStore) {
+            return updateOptimistically((VersionedDataStore) store, isbn, change, first, second);
+        }
+        writeLocks.lock(isbn);
+        try {
+            Optional<Book> bookOpt = store.findBookByIsbn(isbn);
+            if (bookOpt.isEmpty() || !change.apply(bookOpt.get(), first, second)) {
+                return null;
+            }
+            store.updateBook(bookOpt.get());
+            return bookOpt.get();
+        } finally {
+            writeLocks.unlock(isbn);
+        }
+    }
+
+    private <A, B> Book updateOptimistically(VersionedDataStore versioned, String isbn,
+                                             BookMutation<A, B> change, A first, B second) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Optional<Book> bookOpt = versioned.findBookByIsbn(isbn);
+            if (bookOpt.isEmpty()) {
+                return null;
+            }
+            Book book = bookOpt.get();
+            if (!change.apply(book, first, second)) {
+                return null;
+            }
+            if (versioned.updateBookIfVersion(book, book.getVersion())) {
+                updateStats.recordCommit();
+                return book;
+            }
+            updateStats.recordConflict();
+            Thread.onSpinWait();
+        }
+        updateStats.recordExhausted();
+        throw new ConcurrentModificationException("gave up updating " + isbn + " after "
+                + MAX_UPDATE_ATTEMPTS + " conflicting writes");
+    }
+
+    /**
+     * Applies {@code change} to every book or to none, committed in one step:
+     * {@link MutableDataStore#updateAllInPlace} or
+     * {@link VersionedDataStore#updateBooksIfVersions}, which is retried on a
+     * fresh read like a single-book update. Other stores have the change
+     * applied to copies under the books' stripes of {@link #writeLocks}, taken
+     * in a fixed order, and written with one {@link DataStore#updateBooks}.
+     *
+     * @return the updated books in ISBN order, or null if nothing was changed
+     */
+    private <A, B> List<Book> transact(Collection<String> isbns, BookMutation<A, B> change, A first, B second) {
+        List<String> ordered = new ArrayList<>(new TreeSet<>(isbns));
+        if (ordered.isEmpty()) {
+            throw new IllegalArgumentException("a transaction needs at least one ISBN");
+        }
+        if (store instanceof MutableDataStore) {
+            return ((MutableDataStore) store).updateAllInPlace(ordered, change, first, second);
+        }
+        if (store instanceof VersionedDataStore) {
+            return transactOptimistically((VersionedDataStore) store, ordered, change, first, second);
+        }
+        int[] stripes = writeLocks.stripesFor(ordered);
+        writeLocks.lock(stripes);
+        try {
+            List<Book> books = readAndApply(store, ordered, change, first, second);
+            if (books != null) {
+                store.updateBooks(books);
+            }
+            return books;
+        } finally {
+            writeLocks.unlock(stripes);
+        }
+    }
+
+    private <A, B> List<Book> transactOptimistically(VersionedDataStore versioned, List<String> ordered,
+                                                     BookMutation<A, B> change, A first, B second) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            List<Book> books = readAndApply(versioned, ordered, change, first, second);
+            if (books == null) {
+                return null;
+            }
+            if (versioned.updateBooksIfVersions(books)) {
+                updateStats.recordCommit();
+                return books;
+            }
+            updateStats.recordConflict();
+            Thread.onSpinWait();
+        }
+        updateStats.recordExhausted();
+        throw new ConcurrentModificationException("gave up updating " + ordered + " after "
+                + MAX_UPDATE_ATTEMPTS + " conflicting writes");
+    }
+
+    // Changes private copies, so a refusal leaves nothing to undo.
+    private static <A, B> List<Book> readAndApply(DataStore source, List<String> ordered,
+                                                  BookMutation<A, B> change, A first, B second) {
+        List<Book> books = new ArrayList<>(ordered.size());
+        for (String isbn : ordered) {
+            Optional<Book> bookOpt = source.findBookByIsbn(isbn);
+            if (bookOpt.isEmpty()) {
+                return null;
+            }
+            Book book = bookOpt.get().copy();
+            if (!change.apply(book, first, second)) {
+                return null;
+            }
+            books.add(book);
+        }
+        return books;
+    }
+
+    // A shed call still ends its event, marked as shed, through the caller's finally.
+    private long admit(Priority priority, CirculationEvent event) {
+        if (admission == null) {
+            return 0;
+        }
+        try {
+            return admission.acquire(priority);
+        } catch (ServiceOverloadedException e) {
+            event.shed();
+            throw e;
+        }
+    }
+
+    private void leave(long admittedAt) {
+        if (admission != null) {
+            admission.release(admittedAt);
         }
+    }
+
+    private User canonical(User user) {
+        return userStore == null || user == null ? user : userStore.intern(user);
+    }
+
+    private void fireIssued(User user, Book book, LocalDate dueDate) {
+        for (CirculationListener listener : listeners) {
+            listener.onBookIssued(user, book, dueDate);
+        }
+    }
 
-        Optional<Book> bookOpt = store.findBookByIsbn(isbn);
-        if (bookOpt.isPresent() && bookOpt.get().isAvailable()) {
-            notificationService.notifyReservationAvailable(user, bookOpt.get());
+    private void fireReturned(User user, Book book) {
+        for (CirculationListener listener : listeners) {
+            listener.onBookReturned(user, book);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package com.example.library.good.service;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one notice sent through a
+ * {@link TracingNotificationService}. Off unless a recording enables
+ * {@value #NAME}, and then recorded from 1 ms like store calls.
+ */
+@Name(NotificationEvent.NAME)
+@Label("Notification Dispatch")
+@Category({"Library", "Notification"})
+@Description("One NotificationService call")
+@Enabled(false)
+@StackTrace(false)
+@Threshold("1 ms")
+final class NotificationEvent extends jdk.jfr.Event {
+    static final String NAME = "com.example.library.Notification";
+
+    private static final NotificationEvent DISABLED = new NotificationEvent();
+    private static final EventType TYPE = EventType.getEventType(NotificationEvent.class);
+
+    @Label("Kind")
+    String kind;
+
+    @Label("ISBN")
+    String isbn;
+
+    @Label("User Id")
+    String userId;
+
+    static NotificationEvent begin(String kind) {
+        if (!TYPE.isEnabled()) {
+            return DISABLED;
+        }
+        NotificationEvent event = new NotificationEvent();
+        event.kind = kind;
+        event.begin();
+        return event;
+    }
+
+    void finish(User user, Book book) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.isbn = book == null ? null : book.getIsbn();
+            this.userId = user == null ? null : user.getId();
+            commit();
+        }
+    }
+}
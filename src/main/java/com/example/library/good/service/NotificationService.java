@@ -9,4 +9,12 @@ public interface NotificationService {
     void notifyReservationAvailable(User user, Book book);
 
     void notifyBookBorrowed(User user, Book book);
+
+    /**
+     * Reminds the borrower that a loan is due shortly. Only sent by a
+     * {@link com.example.library.good.scheduler.ReminderScheduler} configured
+     * with days before due; ignored unless overridden.
+     */
+    default void notifyDueSoon(User user, Book book) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.library.good.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for conditional updates made by {@link LibraryService} against a
+ * {@link com.example.library.good.datastore.VersionedDataStore}.
+ */
+public class OptimisticUpdateStats {
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    void recordCommit() {
+        commits.increment();
+    }
+
+    void recordConflict() {
+        conflicts.increment();
+    }
+
+    void recordExhausted() {
+        exhausted.increment();
+    }
+
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * Conditional updates that lost to another writer and were retried.
+     */
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    /**
+     * Operations that gave up after too many conflicts.
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    /**
+     * Conflicts per conditional update attempt, 0 when nothing was attempted.
+     */
+    public double getConflictRate() {
+        long conflicted = conflicts.sum();
+        long attempts = commits.sum() + conflicted;
+        return attempts == 0 ? 0 : (double) conflicted / attempts;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.library.good.service;
+
+/**
+ * {@link LibraryService} shed the call because its {@link AdmissionController}
+ * had no room for it; nothing was changed and the caller may retry later.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
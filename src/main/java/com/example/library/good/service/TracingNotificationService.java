@@ -0,0 +1,57 @@
+package com.example.library.good.service;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+
+/**
+ * Records a {@link NotificationEvent} around every notice the wrapped
+ * service sends, so slow dispatches show up inside the circulation call
+ * that triggered them.
+ */
+public class TracingNotificationService implements NotificationService {
+    private final NotificationService delegate;
+
+    public TracingNotificationService(NotificationService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void notifyOverdue(User user, Book book) {
+        NotificationEvent event = NotificationEvent.begin("overdue");
+        try {
+            delegate.notifyOverdue(user, book);
+        } finally {
+            event.finish(user, book);
+        }
+    }
+
+    @Override
+    public void notifyReservationAvailable(User user, Book book) {
+        NotificationEvent event = NotificationEvent.begin("reservationAvailable");
+        try {
+            delegate.notifyReservationAvailable(user, book);
+        } finally {
+            event.finish(user, book);
+        }
+    }
+
+    @Override
+    public void notifyBookBorrowed(User user, Book book) {
+        NotificationEvent event = NotificationEvent.begin("bookBorrowed");
+        try {
+            delegate.notifyBookBorrowed(user, book);
+        } finally {
+            event.finish(user, book);
+        }
+    }
+
+    @Override
+    public void notifyDueSoon(User user, Book book) {
+        NotificationEvent event = NotificationEvent.begin("dueSoon");
+        try {
+            delegate.notifyDueSoon(user, book);
+        } finally {
+            event.finish(user, book);
+        }
+    }
+}
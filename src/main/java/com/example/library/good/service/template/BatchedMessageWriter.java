@@ -0,0 +1,116 @@
+package com.example.library.good.service.template;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders templated messages into pooled buffers and writes them to a channel
+ * in batches: one (gathering) write per {@code messagesPerBatch} messages
+ * instead of one locked print per message. Call {@link #flush()} or
+ * {@link #close()} to push out a partial batch.
+ */
+public class BatchedMessageWriter implements AutoCloseable {
+    private final WritableByteChannel channel;
+    private final BufferPool pool;
+    private final int messagesPerBatch;
+    private final List<ByteBuffer> filled = new ArrayList<>();
+    private ByteBuffer current;
+    private int messagesInBatch;
+
+    public BatchedMessageWriter(WritableByteChannel channel, int messagesPerBatch) {
+        this(channel, messagesPerBatch, new BufferPool(16 * 1024, 16));
+    }
+
+    public BatchedMessageWriter(WritableByteChannel channel, int messagesPerBatch, BufferPool pool) {
+        if (messagesPerBatch < 1) {
+            throw new IllegalArgumentException("messagesPerBatch must be positive");
+        }
+        this.channel = channel;
+        this.messagesPerBatch = messagesPerBatch;
+        this.pool = pool;
+    }
+
+    public synchronized void write(MessageTemplate template, User user, Book book) {
+        if (current == null) {
+            current = pool.acquire();
+        }
+        int mark = current.position();
+        try {
+            template.render(user, book, current);
+        } catch (BufferOverflowException e) {
+            current.position(mark);
+            renderIntoFreshBuffer(template, user, book);
+        }
+        if (++messagesInBatch >= messagesPerBatch) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+        seal();
+        try {
+            if (channel instanceof GatheringByteChannel) {
+                ByteBuffer[] buffers = filled.toArray(new ByteBuffer[0]);
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= ((GatheringByteChannel) channel).write(buffers);
+                }
+            } else {
+                for (ByteBuffer buffer : filled) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (ByteBuffer buffer : filled) {
+                pool.release(buffer);
+            }
+            filled.clear();
+            messagesInBatch = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private void renderIntoFreshBuffer(MessageTemplate template, User user, Book book) {
+        seal();
+        current = pool.acquire();
+        for (int size = pool.getBufferSize() * 2; ; size *= 2) {
+            try {
+                template.render(user, book, current);
+                return;
+            } catch (BufferOverflowException e) {
+                // Oversized message: render into a one-off buffer that the pool will not keep.
+                pool.release(current);
+                current = ByteBuffer.allocate(size);
+            }
+        }
+    }
+
+    private void seal() {
+        if (current != null && current.position() > 0) {
+            current.flip();
+            filled.add(current);
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.library.good.service.template;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed-size buffers recycled between renders, direct unless asked for heap
+ * ones. When the pool is empty a fresh buffer is allocated; when it is full a
+ * released buffer is dropped.
+ */
+public class BufferPool {
+    private final int bufferSize;
+    private final boolean direct;
+    private final BlockingQueue<ByteBuffer> free;
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        this(bufferSize, maxPooled, true);
+    }
+
+    /**
+     * @param direct false for heap buffers, for channels that end in a byte array anyway
+     */
+    public BufferPool(int bufferSize, int maxPooled, boolean direct) {
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize) {
+            buffer.clear();
+            free.offer(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int pooled() {
+        return free.size();
+    }
+}
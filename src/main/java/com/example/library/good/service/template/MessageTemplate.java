@@ -0,0 +1,169 @@
+package com.example.library.good.service.template;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A notification message compiled once from a pattern such as
+ * {@code "Dear {name}, '{title}' is due on {dueDate}."} and rendered straight
+ * into a {@link ByteBuffer} as UTF-8. Literal text is pre-encoded at compile
+ * time and fields are encoded character by character, so rendering allocates
+ * nothing.
+ *
+ * Fields: {name}, {userId}, {title}, {isbn}, {dueDate}. A missing value
+ * renders as "null", matching string concatenation.
+ */
+public final class MessageTemplate {
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private enum Field {
+        NAME, USER_ID, TITLE, ISBN, DUE_DATE
+    }
+
+    private final String pattern;
+    private final byte[][] literals; // literals[i] precedes fields[i]; one extra trailing literal
+    private final Field[] fields;
+
+    private MessageTemplate(String pattern, byte[][] literals, Field[] fields) {
+        this.pattern = pattern;
+        this.literals = literals;
+        this.fields = fields;
+    }
+
+    public static MessageTemplate compile(String pattern) {
+        List<byte[]> literals = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            int close = c == '{' ? pattern.indexOf('}', i) : -1;
+            if (close < 0) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            literals.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+            literal.setLength(0);
+            fields.add(field(pattern.substring(i + 1, close)));
+            i = close + 1;
+        }
+        literals.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+        return new MessageTemplate(pattern, literals.toArray(new byte[0][]), fields.toArray(new Field[0]));
+    }
+
+    /**
+     * @throws BufferOverflowException if the message does not fit in {@code out}
+     */
+    public void render(User user, Book book, ByteBuffer out) {
+        for (int i = 0; i < fields.length; i++) {
+            out.put(literals[i]);
+            switch (fields[i]) {
+                case NAME:
+                    putUtf8(user.getName(), out);
+                    break;
+                case USER_ID:
+                    putUtf8(user.getId(), out);
+                    break;
+                case TITLE:
+                    putUtf8(book.getTitle(), out);
+                    break;
+                case ISBN:
+                    putUtf8(book.getIsbn(), out);
+                    break;
+                case DUE_DATE:
+                    // The recipient's own loan when they hold one; a shared title has several.
+                    LocalDate dueDate = book.getDueDate(user);
+                    putDate(dueDate != null ? dueDate : book.getDueDate(), out);
+                    break;
+            }
+        }
+        out.put(literals[fields.length]);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    private static Field field(String name) {
+        switch (name) {
+            case "name":
+                return Field.NAME;
+            case "userId":
+                return Field.USER_ID;
+            case "title":
+                return Field.TITLE;
+            case "isbn":
+                return Field.ISBN;
+            case "dueDate":
+                return Field.DUE_DATE;
+            default:
+                throw new IllegalArgumentException("unknown template field {" + name + "}");
+        }
+    }
+
+    static void putUtf8(String s, ByteBuffer out) {
+        if (s == null) {
+            out.put(NULL);
+            return;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out.put((byte) (0xF0 | (cp >> 18)));
+                out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?'); // unpaired surrogate, as String.getBytes does
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    // ISO-8601 yyyy-MM-dd for four-digit years, same as LocalDate.toString().
+    static void putDate(LocalDate date, ByteBuffer out) {
+        if (date == null) {
+            out.put(NULL);
+            return;
+        }
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            putUtf8(date.toString(), out);
+            return;
+        }
+        putDigits(year, 4, out);
+        out.put((byte) '-');
+        putDigits(date.getMonthValue(), 2, out);
+        out.put((byte) '-');
+        putDigits(date.getDayOfMonth(), 2, out);
+    }
+
+    private static void putDigits(int value, int width, ByteBuffer out) {
+        if (out.remaining() < width) {
+            throw new BufferOverflowException();
+        }
+        int start = out.position();
+        for (int i = width - 1; i >= 0; i--) {
+            out.put(start + i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        out.position(start + width);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.library.bad;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+
+/**
+ * Commands per second through {@link LibraryApp}'s batch mode, output discarded.
+ * Run with: gradle benchmark -Pbench=com.example.library.bad.LibraryAppBatchBenchmark [-PbenchArgs="books commands"]
+ */
+public class LibraryAppBatchBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int commands = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        StringBuilder script = new StringBuilder(commands * 24);
+        for (int i = 0; i < books; i++) {
+            script.append("add\tBook ").append(i).append('\n');
+        }
+        for (int i = 0; i < commands; i++) {
+            int book = (i * 7919) % books;
+            if (i % 2 == 0) {
+                script.append("borrow\tBook ").append(book).append("\tReader ").append(i % 97).append('\n');
+            } else {
+                script.append("return\tBook ").append(book).append('\n');
+            }
+        }
+        String text = script.toString();
+
+        for (int round = 0; round < 3; round++) {
+            LibraryApp.books.clear();
+            LibraryApp.availability.clear();
+            LibraryApp.borrowers.clear();
+            long start = System.nanoTime();
+            long executed = LibraryApp.runBatch(new BufferedReader(new StringReader(text), 1 << 16), Writer.nullWriter());
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%,d commands in %.1f ms: %,.0f commands/s%n",
+                    executed, elapsed / 1e6, executed / (elapsed / 1e9));
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.library.bad;
 
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
 import org.junit.jupiter.api.*;
 
 import java.io.*;
@@ -228,6 +230,59 @@ public class LibraryAppTest {
         assertFalse(LibraryApp.availability.get("Book A"));
     }
 
+    @Test
+    void testBatchRunsCommandsAgainstStaticCollections() throws IOException {
+        String commands = "# nightly load\n"
+                + "add\tBook C\n"
+                + "borrow\tBook A\tAlice\n"
+                + "borrow\tBook A\tBob\n"
+                + "return\tBook B\n"
+                + "return\tNonexistent\n"
+                + "\n"
+                + "view\n"
+                + "report\n";
+        StringWriter out = new StringWriter();
+
+        long executed = LibraryApp.runBatch(new BufferedReader(new StringReader(commands)), out);
+
+        assertEquals(7, executed);
+        assertEquals("Alice", LibraryApp.borrowers.get("Book A"));
+        assertTrue(LibraryApp.availability.get("Book C"));
+        String output = out.toString();
+        assertTrue(output.startsWith("Book added!\nBook borrowed!\nBook not available!\nBook returned!\nInvalid book!\n"));
+        assertTrue(output.contains("Book A - Borrowed by Alice\n"));
+        assertTrue(output.contains("Total books: 3\n"));
+        assertTrue(output.contains("Borrowed: 1\n"));
+        assertTrue(Files.notExists(Paths.get("library_report.txt")));
+    }
+
+    @Test
+    void testBatchRunsAgainstAnInjectedStore() throws IOException {
+        StubDataStore store = new StubDataStore();
+        String commands = "add\tClean Code\nborrow\tClean Code\tAlice\nview\nreturn\tClean Code\nreport\n";
+        StringWriter out = new StringWriter();
+
+        LibraryApp.runBatch(new BufferedReader(new StringReader(commands)), out, store);
+
+        Book book = store.findBookByIsbn("Clean Code").orElseThrow();
+        assertTrue(book.isAvailable());
+        assertTrue(out.toString().contains("Clean Code - Borrowed by Alice\n"));
+        assertTrue(out.toString().contains("Available: 1\n"));
+        // The static collections are untouched.
+        assertEquals(2, LibraryApp.books.size());
+    }
+
+    @Test
+    void testBatchReportsBadLinesAndKeepsGoing() throws IOException {
+        StringWriter out = new StringWriter();
+
+        long executed = LibraryApp.runBatch(new BufferedReader(new StringReader(
+                "lend\tBook A\nborrow\tBook A\nadd\tBook C\n")), out);
+
+        assertEquals(1, executed);
+        assertEquals("Unknown command at line 1: lend\nMissing borrower at line 2\nBook added!\n", out.toString());
+    }
+
     /**
      * This test documents WHY the bad design is hard to test.
      */
@@ -0,0 +1,83 @@
+package com.example.library.good;
+
+import com.example.library.good.datastore.InMemoryDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.CirculationListener;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the circulation hot path against allocation regressions: once warm,
+ * issue and return against an {@link InMemoryDataStore} must not allocate.
+ */
+public class LibraryServiceAllocationTest {
+    private static final int WARMUP = 50_000;
+    private static final int MEASURED = 10_000;
+
+    private final User user = new User("u1", "Alice", false);
+    private final LocalDate dueDate = LocalDate.of(2030, 1, 15);
+
+    @Test
+    void testLookupDoesNotAllocate() {
+        LibraryService service = service();
+
+        long bytes = allocatedBytes(() -> {
+            if (service.findBook("111").isEmpty()) {
+                throw new AssertionError("book vanished");
+            }
+        });
+
+        assertEquals(0, bytes, "findBook allocated " + bytes + " bytes in " + MEASURED + " calls");
+    }
+
+    @Test
+    void testIssueAndReturnDoNotAllocate() {
+        LibraryService service = service();
+        service.addCirculationListener(new CirculationListener() { });
+
+        long bytes = allocatedBytes(() -> {
+            if (!service.issueBookWithDueDate(user, "111", dueDate) || !service.returnBookEnhanced(user, "111")) {
+                throw new AssertionError("circulation failed");
+            }
+            if (!service.issueBook(user, "111") || !service.returnBook(user, "111")) {
+                throw new AssertionError("circulation failed");
+            }
+        });
+
+        assertEquals(0, bytes, "issue/return allocated " + bytes + " bytes in " + MEASURED + " rounds");
+    }
+
+    private static LibraryService service() {
+        InMemoryDataStore store = new InMemoryDataStore();
+        store.updateBook(new Book("111", "Clean Code"));
+        return new LibraryService(store);
+    }
+
+    private static long allocatedBytes(Runnable operation) {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "per-thread allocation counters unavailable");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "per-thread allocation counters unavailable");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        // The counter read itself may allocate; measure it and subtract.
+        long calibrationStart = threads.getThreadAllocatedBytes(threadId);
+        long calibration = threads.getThreadAllocatedBytes(threadId) - calibrationStart;
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED; i++) {
+            operation.run();
+        }
+        return Math.max(0, threads.getThreadAllocatedBytes(threadId) - start - calibration);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.library.good;
+
+import com.example.library.good.datastore.InMemoryDataStore;
+import com.example.library.good.datastore.MutableDataStore;
+import com.example.library.good.datastore.TracingDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.AdmissionController;
+import com.example.library.good.service.LibraryService;
+import com.example.library.good.service.NotificationService;
+import com.example.library.good.service.ServiceOverloadedException;
+import com.example.library.good.service.TracingNotificationService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LibraryServiceFlightRecorderTest {
+    private static final String CIRCULATION = "com.example.library.Circulation";
+    private static final String DATA_STORE = "com.example.library.DataStoreCall";
+    private static final String NOTIFICATION = "com.example.library.Notification";
+
+    @TempDir
+    Path dir;
+
+    private TracingDataStore store;
+    private LibraryService service;
+    private final User alice = new User("u1", "Alice", false);
+
+    @BeforeEach
+    void setUp() {
+        InMemoryDataStore backing = new InMemoryDataStore();
+        backing.updateBook(new Book("111", "Clean Code"));
+        store = TracingDataStore.wrap(backing);
+        NotificationService notifier = new TracingNotificationService(mock(NotificationService.class));
+        service = new LibraryService(store, notifier);
+    }
+
+    @Test
+    void testCheckoutIsTracedWithNestedStoreAndNotificationEvents() throws Exception {
+        List<RecordedEvent> events = record(Duration.ZERO, () -> {
+            assertTrue(service.issueBookWithDueDate(alice, "111", LocalDate.of(2030, 1, 15)));
+            assertFalse(service.issueBook(alice, "111"));
+        });
+
+        List<RecordedEvent> calls = named(events, CIRCULATION);
+        assertEquals(2, calls.size());
+        RecordedEvent checkout = calls.stream()
+                .filter(e -> e.getString("operation").equals("issueWithDueDate")).findFirst().orElseThrow();
+        assertEquals("111", checkout.getString("isbn"));
+        assertEquals("u1", checkout.getString("userId"));
+        assertTrue(checkout.getBoolean("succeeded"));
+        assertTrue(calls.stream().anyMatch(e -> e.getString("operation").equals("issue") && !e.getBoolean("succeeded")));
+
+        RecordedEvent storeCall = named(events, DATA_STORE).get(0);
+        assertEquals("updateInPlace", storeCall.getString("operation"));
+        assertEquals("InMemoryDataStore", storeCall.getString("store"));
+        assertEquals("111", storeCall.getString("isbn"));
+        assertNested(checkout, storeCall);
+
+        RecordedEvent notice = named(events, NOTIFICATION).get(0);
+        assertEquals("bookBorrowed", notice.getString("kind"));
+        assertEquals("u1", notice.getString("userId"));
+        assertNested(checkout, notice);
+    }
+
+    @Test
+    void testShedCallIsRecordedAsShed() throws Exception {
+        AdmissionController admission = new AdmissionController(1, 1, 1, Duration.ofSeconds(1), 0, Duration.ZERO);
+        LibraryService guarded = new LibraryService(store, null, null, admission);
+        long held = admission.acquire(AdmissionController.Priority.ISSUE);
+
+        List<RecordedEvent> events;
+        try {
+            events = record(Duration.ZERO,
+                    () -> assertThrows(ServiceOverloadedException.class, () -> guarded.findBook("111")));
+        } finally {
+            admission.release(held);
+        }
+
+        List<RecordedEvent> calls = named(events, CIRCULATION);
+        assertEquals(1, calls.size());
+        assertEquals("lookup", calls.get(0).getString("operation"));
+        assertTrue(calls.get(0).getBoolean("shed"));
+        assertFalse(calls.get(0).getBoolean("succeeded"));
+        assertTrue(named(events, DATA_STORE).isEmpty());
+    }
+
+    @Test
+    void testNothingIsRecordedWhileDisabled() throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable(DATA_STORE).withThreshold(Duration.ZERO);
+            recording.start();
+            assertTrue(service.findBook("111").isPresent());
+            recording.stop();
+            Path file = dir.resolve("disabled.jfr");
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertTrue(named(events, CIRCULATION).isEmpty());
+            assertEquals(1, named(events, DATA_STORE).size());
+        }
+    }
+
+    @Test
+    void testThresholdDropsFastCalls() throws Exception {
+        List<RecordedEvent> events = record(Duration.ofSeconds(10), () -> service.findBook("111"));
+
+        assertTrue(named(events, CIRCULATION).isEmpty());
+        assertTrue(named(events, DATA_STORE).isEmpty());
+    }
+
+    @Test
+    void testWrapKeepsTheDelegatesCapabilities() {
+        assertTrue(store instanceof MutableDataStore);
+    }
+
+    private List<RecordedEvent> record(Duration threshold, Runnable work) throws Exception {
+        try (Recording recording = new Recording()) {
+            for (String name : List.of(CIRCULATION, DATA_STORE, NOTIFICATION)) {
+                recording.enable(name).withThreshold(threshold);
+            }
+            recording.start();
+            work.run();
+            recording.stop();
+            Path file = dir.resolve("recording.jfr");
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+
+    private static void assertNested(RecordedEvent outer, RecordedEvent inner) {
+        assertEquals(outer.getThread().getJavaThreadId(), inner.getThread().getJavaThreadId());
+        assertFalse(inner.getStartTime().isBefore(outer.getStartTime()));
+        assertFalse(inner.getEndTime().isAfter(outer.getEndTime()));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.library.good;
+
+import com.example.library.good.datastore.CoalescingDataStore;
+import com.example.library.good.datastore.DataStore;
+import com.example.library.good.datastore.DatabaseStore;
+import com.example.library.good.datastore.FileDataStore;
+import com.example.library.good.datastore.InMemoryDataStore;
+import com.example.library.good.datastore.LsmDataStore;
+import com.example.library.good.datastore.OffHeapDataStore;
+import com.example.library.good.datastore.SqlDataStore;
+import com.example.library.good.index.BookStatusIndex;
+import com.example.library.good.index.IndexedDataStore;
+import com.example.library.good.stress.StressHarness;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many threads issue, return and look up a few hot books; every store must
+ * yield a history that some sequential order of the same calls explains, i.e.
+ * no double issues and no lost updates.
+ */
+public class LibraryServiceLinearizabilityTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+    private static final int BOOKS = 3;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testInMemoryDataStore() throws Exception {
+        assertLinearizable(new InMemoryDataStore());
+    }
+
+    @Test
+    void testDatabaseStore() throws Exception {
+        assertLinearizable(new DatabaseStore());
+    }
+
+    @Test
+    void testOffHeapDataStore() throws Exception {
+        assertLinearizable(new OffHeapDataStore());
+    }
+
+    @Test
+    void testFileDataStore() throws Exception {
+        try (FileDataStore store = new FileDataStore(dir)) {
+            assertLinearizable(store);
+        }
+    }
+
+    @Test
+    void testLsmDataStoreServingFromSegments() throws Exception {
+        // A tiny memtable, so most reads come back from flushed segments as fresh copies.
+        try (LsmDataStore store = new LsmDataStore(dir, null, 256, 4, 4, 10)) {
+            assertLinearizable(store);
+        }
+    }
+
+    @Test
+    void testSqlDataStore() throws Exception {
+        try (SqlDataStore store = new SqlDataStore("jdbc:h2:mem:linearizability;DB_CLOSE_DELAY=-1")) {
+            assertEquals(List.of(), new StressHarness(4, 300, BOOKS, 42).runAndCheck(store));
+        }
+    }
+
+    @Test
+    void testIndexedDataStore() throws Exception {
+        assertLinearizable(IndexedDataStore.wrap(new DatabaseStore(), new BookStatusIndex()));
+        assertLinearizable(IndexedDataStore.wrap(new InMemoryDataStore(), new BookStatusIndex()));
+        try (LsmDataStore lsm = new LsmDataStore(dir, null, 256, 4, 4, 10)) {
+            assertLinearizable(IndexedDataStore.wrap(lsm, new BookStatusIndex()));
+        }
+    }
+
+    @Test
+    void testCoalescingDataStore() throws Exception {
+        assertLinearizable(CoalescingDataStore.wrap(new DatabaseStore()));
+        assertLinearizable(CoalescingDataStore.wrap(new InMemoryDataStore()));
+    }
+
+    private static void assertLinearizable(DataStore store) throws InterruptedException {
+        List<String> violations = new StressHarness(THREADS, OPERATIONS_PER_THREAD, BOOKS, 42).runAndCheck(store);
+        assertEquals(List.of(), violations, "non-linearizable histories for " + store.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.library.good;
+
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A title with several copies is one record: issue and return move its copy
+ * counter instead of needing a fake ISBN per copy.
+ */
+public class LibraryServiceMultiCopyTest {
+
+    @Test
+    void testIssueAndReturnAdjustCopyCounter() {
+        StubDataStore stub = new StubDataStore();
+        Book book = new Book("mc001", "Course Reserve", 2);
+        stub.addBook(book);
+        LibraryService service = new LibraryService(stub);
+        User alice = new User("u1", "Alice", false);
+        User bob = new User("u2", "Bob", false);
+
+        assertTrue(service.issueBookWithDueDate(alice, "mc001", LocalDate.now().plusDays(7)));
+        assertTrue(book.isAvailable(), "One copy is still on the shelf");
+        assertTrue(service.issueBook(bob, "mc001"));
+        assertFalse(service.issueBook(new User("u3", "Carol", false), "mc001"));
+
+        assertTrue(service.returnBookEnhanced(alice, "mc001"));
+        assertEquals(1, book.getAvailableCopies());
+        assertTrue(service.returnBook(bob, "mc001"));
+        assertEquals(2, book.getAvailableCopies());
+    }
+
+    @Test
+    void testReturnEndsTheReturnersOwnLoan() {
+        StubDataStore stub = new StubDataStore();
+        Book book = new Book("mc003", "Course Reserve", 3);
+        stub.addBook(book);
+        LibraryService service = new LibraryService(stub);
+        User alice = new User("u1", "Alice", false);
+        User bob = new User("u2", "Bob", false);
+        LocalDate aliceDue = LocalDate.of(2030, 3, 1);
+        LocalDate bobDue = LocalDate.of(2030, 3, 8);
+
+        assertTrue(service.issueBookWithDueDate(alice, "mc003", aliceDue));
+        assertTrue(service.issueBookWithDueDate(bob, "mc003", bobDue));
+        assertTrue(service.returnBookEnhanced(new User("u2", "Bob", false), "mc003"));
+
+        assertEquals(1, book.getLoanCount());
+        assertEquals(aliceDue, book.getDueDate(alice));
+        assertNull(book.getDueDate(bob), "Bob's loan ended, not Alice's");
+        assertTrue(book.isOverdue(aliceDue.plusDays(1)));
+    }
+
+    @Test
+    void testConcurrentIssuesOfHotTitle() throws InterruptedException {
+        StubDataStore stub = new StubDataStore() {
+            @Override
+            public synchronized void updateBook(Book book) {
+                super.updateBook(book);
+            }
+        };
+        Book book = new Book("mc002", "Bestseller", 40);
+        stub.addBook(book);
+        LibraryService service = new LibraryService(stub);
+        AtomicInteger issued = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] patrons = new Thread[100];
+        for (int i = 0; i < patrons.length; i++) {
+            User user = new User("u" + i, "Patron " + i, false);
+            patrons[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (service.issueBook(user, "mc002")) {
+                    issued.incrementAndGet();
+                }
+            });
+            patrons[i].start();
+        }
+        start.countDown();
+        for (Thread patron : patrons) {
+            patron.join();
+        }
+
+        assertEquals(40, issued.get());
+        assertEquals(0, book.getAvailableCopies());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.library.good;
+
+import com.example.library.good.datastore.DatabaseStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Against a versioned store, LibraryService re-reads and retries when another
+ * writer commits between its read and its conditional update.
+ */
+public class LibraryServiceOptimisticConcurrencyTest {
+
+    @Test
+    void testConflictIsRetriedAgainstFreshRead() {
+        AtomicInteger interfere = new AtomicInteger(1);
+        DatabaseStore store = new DatabaseStore() {
+            @Override
+            public boolean updateBookIfVersion(Book book, long expectedVersion) {
+                if (interfere.getAndDecrement() > 0) {
+                    Book other = findBookByIsbn(book.getIsbn()).orElseThrow();
+                    other.checkoutCopy();
+                    updateBook(other);
+                }
+                return super.updateBookIfVersion(book, expectedVersion);
+            }
+        };
+        store.updateBook(new Book("mc001", "Course Reserve", 3));
+        LibraryService service = new LibraryService(store);
+
+        assertTrue(service.issueBookWithDueDate(new User("u1", "Alice", false), "mc001", LocalDate.of(2030, 1, 1)));
+
+        Book stored = store.findBookByIsbn("mc001").orElseThrow();
+        assertEquals(1, stored.getAvailableCopies(), "Both checkouts must be kept");
+        assertEquals("u1", stored.getBorrowedBy().getId());
+        assertEquals(1, service.getUpdateStats().getConflicts());
+        assertEquals(1, service.getUpdateStats().getCommits());
+        assertEquals(0.5, service.getUpdateStats().getConflictRate());
+    }
+
+    @Test
+    void testConcurrentIssueAndReturnLoseNoUpdates() throws InterruptedException {
+        DatabaseStore store = new DatabaseStore();
+        store.updateBook(new Book("mc002", "Bestseller", 50));
+        LibraryService service = new LibraryService(store);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger issued = new AtomicInteger();
+        AtomicInteger returned = new AtomicInteger();
+        Thread[] patrons = new Thread[16];
+        for (int i = 0; i < patrons.length; i++) {
+            User user = new User("u" + i, "Patron " + i, false);
+            patrons[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int round = 0; round < 500; round++) {
+                    if (service.issueBookWithDueDate(user, "mc002", LocalDate.of(2030, 1, 1))) {
+                        issued.incrementAndGet();
+                        if (round % 2 == 0) {
+                            service.returnBookEnhanced(user, "mc002");
+                            returned.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            patrons[i].start();
+        }
+        start.countDown();
+        for (Thread patron : patrons) {
+            patron.join();
+        }
+
+        int onLoan = issued.get() - returned.get();
+        assertEquals(50 - onLoan, store.findBookByIsbn("mc002").orElseThrow().getAvailableCopies());
+        assertEquals(issued.get() + returned.get(), service.getUpdateStats().getCommits());
+    }
+
+    @Test
+    void testGivesUpAfterPersistentConflicts() {
+        DatabaseStore store = new DatabaseStore() {
+            @Override
+            public boolean updateBookIfVersion(Book book, long expectedVersion) {
+                return false;
+            }
+        };
+        LibraryService service = new LibraryService(store);
+
+        assertThrows(ConcurrentModificationException.class,
+                () -> service.issueBook(new User("u1", "Alice", false), "111"));
+        assertEquals(1, service.getUpdateStats().getExhausted());
+        assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.library.good;
+
+import com.example.library.good.datastore.DataStore;
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import com.example.library.good.service.NotificationService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * processOverdueBooks sweeps the whole catalog through the store's scan.
+ */
+public class LibraryServiceOverdueTest {
+
+    @Test
+    void testProcessOverdueBooks_notifiesEachOverdueBorrower() {
+        LocalDate today = LocalDate.of(2030, 3, 10);
+        StubDataStore stub = new StubDataStore();
+        User alice = new User("u1", "Alice", false);
+        User bob = new User("u2", "Bob", false);
+        Book late = new Book("od001", "Late Book");
+        late.borrowBy(alice, today.minusDays(2));
+        Book onTime = new Book("od002", "On Time Book");
+        onTime.borrowBy(bob, today.plusDays(2));
+        stub.addBook(late);
+        stub.addBook(onTime);
+        stub.addBook(new Book("od003", "On The Shelf"));
+        NotificationService mockNotifier = mock(NotificationService.class);
+        LibraryService service = new LibraryService(stub, mockNotifier);
+
+        service.processOverdueBooks(today);
+
+        verify(mockNotifier).notifyOverdue(alice, late);
+        verifyNoMoreInteractions(mockNotifier);
+    }
+
+    @Test
+    void testProcessOverdueBooks_notifiesEveryLateBorrowerOfASharedTitle() {
+        LocalDate today = LocalDate.of(2030, 3, 10);
+        StubDataStore stub = new StubDataStore();
+        User alice = new User("u1", "Alice", false);
+        User bob = new User("u2", "Bob", false);
+        User carol = new User("u3", "Carol", false);
+        Book shared = new Book("od004", "Course Reader", 3);
+        stub.addBook(shared);
+        LibraryService service = new LibraryService(stub, mock(NotificationService.class));
+        service.issueBookWithDueDate(alice, "od004", today.minusDays(3));
+        service.issueBookWithDueDate(bob, "od004", today.minusDays(1));
+        service.issueBookWithDueDate(carol, "od004", today.plusDays(4));
+        NotificationService mockNotifier = mock(NotificationService.class);
+        service = new LibraryService(stub, mockNotifier);
+
+        service.processOverdueBooks(today);
+
+        verify(mockNotifier).notifyOverdue(alice, shared);
+        verify(mockNotifier).notifyOverdue(bob, shared);
+        verifyNoMoreInteractions(mockNotifier);
+    }
+
+    @Test
+    void testStoreWithoutScanStillCirculatesButCannotSweep() {
+        Map<String, Book> books = new HashMap<>();
+        // Written against DataStore before scans existed: lookups and writes only.
+        DataStore lookupOnly = new DataStore() {
+            @Override
+            public Optional<Book> findBookByIsbn(String isbn) {
+                return Optional.ofNullable(books.get(isbn));
+            }
+
+            @Override
+            public void updateBook(Book book) {
+                books.put(book.getIsbn(), book);
+            }
+        };
+        lookupOnly.updateBook(new Book("od005", "Lookup Only"));
+        LibraryService service = new LibraryService(lookupOnly, mock(NotificationService.class));
+
+        assertTrue(service.issueBook(new User("u1", "Alice", false), "od005"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> service.processOverdueBooks(LocalDate.of(2030, 3, 10)));
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.library.good;
+
+import com.example.library.good.datastore.DatabaseStore;
+import com.example.library.good.datastore.InMemoryDataStore;
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.CirculationListener;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A course reserve set is borrowed or returned as a whole.
+ */
+public class LibraryServiceTransactionTest {
+    private static final LocalDate DUE = LocalDate.of(2030, 1, 15);
+
+    private final User alice = new User("u1", "Alice", false);
+
+    @Test
+    void testIssueBooksIssuesWholeSet() {
+        DatabaseStore store = reserveSet();
+        LibraryService service = new LibraryService(store);
+        List<String> issued = new ArrayList<>();
+        service.addCirculationListener(new CirculationListener() {
+            @Override
+            public void onBookIssued(User user, Book book, LocalDate dueDate) {
+                issued.add(book.getIsbn());
+            }
+        });
+
+        assertTrue(service.issueBooks(alice, List.of("r3", "r1", "r2"), DUE));
+
+        for (String isbn : List.of("r1", "r2", "r3")) {
+            Book book = store.findBookByIsbn(isbn).orElseThrow();
+            assertFalse(book.isAvailable());
+            assertEquals(DUE, book.getDueDate());
+        }
+        assertEquals(List.of("r1", "r2", "r3"), issued);
+    }
+
+    @Test
+    void testIssueBooksIssuesNothingIfOneIsOut() {
+        DatabaseStore store = reserveSet();
+        LibraryService service = new LibraryService(store);
+        assertTrue(service.issueBook(new User("u2", "Bob", false), "r2"));
+
+        assertFalse(service.issueBooks(alice, List.of("r1", "r2", "r3"), DUE));
+
+        assertTrue(store.findBookByIsbn("r1").orElseThrow().isAvailable());
+        assertTrue(store.findBookByIsbn("r3").orElseThrow().isAvailable());
+        assertNull(store.findBookByIsbn("r1").orElseThrow().getBorrowedBy());
+    }
+
+    @Test
+    void testIssueBooksRevertsSharedInstancesOnUnversionedStore() {
+        StubDataStore stub = new StubDataStore();
+        Book r1 = new Book("r1", "Reader 1");
+        Book r2 = new Book("r2", "Reader 2");
+        stub.addBook(r1);
+        stub.addBook(r2);
+        LibraryService service = new LibraryService(stub);
+
+        assertFalse(service.issueBooks(alice, List.of("r1", "r2", "missing"), DUE));
+
+        assertTrue(r1.isAvailable());
+        assertTrue(r2.isAvailable());
+        assertNull(r1.getBorrowedBy());
+        assertNull(r1.getDueDate());
+    }
+
+    @Test
+    void testReturnBooksRequiresEveryBookOnLoan() {
+        DatabaseStore store = reserveSet();
+        LibraryService service = new LibraryService(store);
+        assertTrue(service.issueBooks(alice, List.of("r1", "r2"), DUE));
+
+        assertFalse(service.returnBooks(alice, List.of("r1", "r2", "r3")));
+        assertFalse(store.findBookByIsbn("r1").orElseThrow().isAvailable());
+
+        assertTrue(service.returnBooks(alice, List.of("r1", "r2")));
+        assertTrue(store.findBookByIsbn("r1").orElseThrow().isAvailable());
+        assertNull(store.findBookByIsbn("r2").orElseThrow().getBorrowedBy());
+    }
+
+    @Test
+    void testRacingSingleIssueAbortsTheWholeSet() {
+        AtomicBoolean raced = new AtomicBoolean();
+        AtomicInteger commits = new AtomicInteger();
+        DatabaseStore store = new DatabaseStore() {
+            @Override
+            public boolean updateBooksIfVersions(List<Book> books) {
+                // Another patron takes r2's only copy between the transaction's read and write.
+                if (raced.compareAndSet(false, true)) {
+                    Book other = findBookByIsbn("r2").orElseThrow();
+                    other.checkoutCopy();
+                    updateBook(other);
+                }
+                commits.incrementAndGet();
+                return super.updateBooksIfVersions(books);
+            }
+        };
+        store.updateBook(new Book("r1", "Reader 1"));
+        store.updateBook(new Book("r2", "Reader 2"));
+        LibraryService service = new LibraryService(store);
+
+        assertFalse(service.issueBooks(alice, List.of("r1", "r2"), DUE));
+
+        Book r1 = store.findBookByIsbn("r1").orElseThrow();
+        assertTrue(r1.isAvailable(), "r1 must stay on the shelf when r2 cannot be had");
+        assertNull(r1.getBorrowedBy());
+        assertEquals(1, r1.getVersion(), "r1 must never have been written");
+        assertFalse(store.findBookByIsbn("r2").orElseThrow().isAvailable());
+        assertEquals(1, commits.get(), "the retry must see r2 gone and give up before writing");
+    }
+
+    @Test
+    void testIssueBooksLeavesLiveBooksUntouchedOnMutableStore() {
+        InMemoryDataStore store = new InMemoryDataStore();
+        Book r1 = new Book("r1", "Reader 1");
+        Book r2 = new Book("r2", "Reader 2");
+        store.updateBook(r1);
+        store.updateBook(r2);
+        LibraryService service = new LibraryService(store);
+        assertTrue(service.issueBook(new User("u2", "Bob", false), "r2"));
+
+        assertFalse(service.issueBooks(alice, List.of("r1", "r2"), DUE));
+
+        assertTrue(r1.isAvailable());
+        assertNull(r1.getBorrowedBy());
+        assertNull(r1.getDueDate());
+    }
+
+    @Test
+    void testSingleBookCallsRacingTransactionsNeverLoseACopy() throws InterruptedException {
+        InMemoryDataStore store = new InMemoryDataStore();
+        List<String> isbns = List.of("s1", "s2", "s3");
+        for (String isbn : isbns) {
+            store.updateBook(new Book(isbn, "Title " + isbn, 2));
+        }
+        LibraryService service = new LibraryService(store);
+        Thread[] workers = new Thread[8];
+        for (int w = 0; w < workers.length; w++) {
+            boolean batches = w % 2 == 0;
+            User user = new User("w" + w, "Worker " + w, false);
+            String single = isbns.get(w % isbns.size());
+            workers[w] = new Thread(() -> {
+                for (int round = 0; round < 500; round++) {
+                    if (batches) {
+                        if (service.issueBooks(user, isbns, DUE)) {
+                            assertTrue(service.returnBooks(user, isbns));
+                        }
+                    } else if (service.issueBook(user, single)) {
+                        assertTrue(service.returnBook(user, single));
+                    }
+                }
+            });
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            worker.join(30_000);
+            assertFalse(worker.isAlive(), "transactions deadlocked");
+        }
+
+        for (String isbn : isbns) {
+            assertEquals(2, store.findBookByIsbn(isbn).orElseThrow().getAvailableCopies());
+        }
+    }
+
+    @Test
+    void testOverlappingTransactionsInOppositeOrderDoNotDeadlock() throws InterruptedException {
+        DatabaseStore store = new DatabaseStore();
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            isbns.add("t" + i);
+            store.updateBook(new Book("t" + i, "Title " + i, 4));
+        }
+        List<String> reversed = new ArrayList<>(isbns);
+        Collections.reverse(reversed);
+        LibraryService service = new LibraryService(store);
+        AtomicInteger completed = new AtomicInteger();
+        Thread[] workers = new Thread[8];
+        for (int w = 0; w < workers.length; w++) {
+            List<String> order = w % 2 == 0 ? isbns : reversed;
+            User user = new User("w" + w, "Worker " + w, false);
+            workers[w] = new Thread(() -> {
+                for (int round = 0; round < 200; round++) {
+                    if (service.issueBooks(user, order, DUE)) {
+                        assertTrue(service.returnBooks(user, order));
+                    }
+                    completed.incrementAndGet();
+                }
+            });
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            worker.join(30_000);
+            assertFalse(worker.isAlive(), "transactions deadlocked");
+        }
+
+        assertEquals(8 * 200, completed.get());
+        for (String isbn : isbns) {
+            assertEquals(4, store.findBookByIsbn(isbn).orElseThrow().getAvailableCopies());
+        }
+    }
+
+    @Test
+    void testEmptySetIsRejected() {
+        LibraryService service = new LibraryService(new DatabaseStore());
+
+        assertThrows(IllegalArgumentException.class, () -> service.issueBooks(alice, List.of(), DUE));
+    }
+
+    private static DatabaseStore reserveSet() {
+        DatabaseStore store = new DatabaseStore();
+        store.updateBook(new Book("r1", "Reader 1"));
+        store.updateBook(new Book("r2", "Reader 2"));
+        store.updateBook(new Book("r3", "Reader 3"));
+        return store;
+    }
+}
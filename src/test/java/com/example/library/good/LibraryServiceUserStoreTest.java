@@ -0,0 +1,54 @@
+package com.example.library.good;
+
+import com.example.library.good.datastore.InternedUserStore;
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import com.example.library.good.service.NotificationService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * With a UserStore, loans hold the canonical User even when callers (kiosks,
+ * HTTP requests) build a fresh User object for every request.
+ */
+public class LibraryServiceUserStoreTest {
+
+    @Test
+    void testLoansShareOneUserInstance() {
+        StubDataStore stub = new StubDataStore();
+        Book first = new Book("us001", "First");
+        Book second = new Book("us002", "Second");
+        stub.addBook(first);
+        stub.addBook(second);
+        InternedUserStore users = new InternedUserStore();
+        User registered = users.intern(new User("u1", "Alice", false));
+        LibraryService service = new LibraryService(stub, null, users);
+
+        service.issueBookWithDueDate(new User("u1", "Alice", false), "us001", LocalDate.now().plusDays(7));
+        service.issueBookWithDueDate(new User("u1", "Alice", false), "us002", LocalDate.now().plusDays(7));
+
+        assertSame(registered, first.getBorrowedBy());
+        assertSame(registered, second.getBorrowedBy());
+    }
+
+    @Test
+    void testNotificationsReceiveCanonicalUser() {
+        StubDataStore stub = new StubDataStore();
+        Book book = new Book("us003", "Notified");
+        stub.addBook(book);
+        NotificationService mockNotifier = mock(NotificationService.class);
+        InternedUserStore users = new InternedUserStore();
+        LibraryService service = new LibraryService(stub, mockNotifier, users);
+
+        service.issueBookWithDueDate(new User("u9", "Zed", false), "us003", LocalDate.now().plusDays(7));
+
+        User canonical = users.findUserById("u9").orElseThrow();
+        verify(mockNotifier).notifyBookBorrowed(same(canonical), eq(book));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.library.good.backup;
+
+import com.example.library.good.datastore.DataFileCut;
+import com.example.library.good.datastore.FileDataStore;
+import com.example.library.good.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogBackupTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBackupAndRestore_roundTrip() throws IOException {
+        Path live = tempDir.resolve("live");
+        Path backupDir = tempDir.resolve("backup");
+        Path restored = tempDir.resolve("restored");
+        CatalogBackup backup = new CatalogBackup();
+
+        try (FileDataStore store = new FileDataStore(live)) {
+            store.updateBook(new Book("111", "Clean Code"));
+            store.updateBook(new Book("222", "Effective Java"));
+            BackupManifest manifest = backup.backup(store, backupDir);
+            assertEquals(1, manifest.getEntries().size());
+        }
+
+        backup.restore(backupDir, restored);
+
+        try (FileDataStore store = new FileDataStore(restored)) {
+            assertEquals("Clean Code", store.findBookByIsbn("111").orElseThrow().getTitle());
+            assertEquals("Effective Java", store.findBookByIsbn("222").orElseThrow().getTitle());
+        }
+    }
+
+    @Test
+    void testCut_excludesWritesMadeAfterIt() throws IOException {
+        Path live = tempDir.resolve("live");
+        try (FileDataStore store = new FileDataStore(live)) {
+            store.updateBook(new Book("111", "Before Cut"));
+            try (DataFileCut cut = store.cutDataFiles()) {
+                store.updateBook(new Book("222", "After Cut"));
+                long cutLength = cut.getSegments().get(0).getLength();
+                assertTrue(store.getLogSize() > cutLength, "Writes continue while the cut is open");
+            }
+        }
+    }
+
+    @Test
+    void testBackupWhileWritersRun_restoresConsistentPrefix() throws Exception {
+        Path live = tempDir.resolve("live");
+        Path backupDir = tempDir.resolve("backup");
+        Path restored = tempDir.resolve("restored");
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger written = new AtomicInteger();
+
+        try (FileDataStore store = new FileDataStore(live)) {
+            Thread writer = new Thread(() -> {
+                while (running.get()) {
+                    int n = written.getAndIncrement();
+                    store.updateBook(new Book("isbn-" + n, "Title " + n));
+                }
+            });
+            writer.start();
+            while (written.get() < 1000) {
+                Thread.onSpinWait();
+            }
+            new CatalogBackup().backup(store, backupDir);
+            running.set(false);
+            writer.join();
+        }
+
+        new CatalogBackup().restore(backupDir, restored);
+        try (FileDataStore store = new FileDataStore(restored)) {
+            int present = 0;
+            while (store.findBookByIsbn("isbn-" + present).isPresent()) {
+                present++;
+            }
+            assertTrue(present >= 1000);
+            for (int i = present; i < written.get(); i++) {
+                assertTrue(store.findBookByIsbn("isbn-" + i).isEmpty(), "Backup must be a prefix of the log");
+            }
+        }
+    }
+
+    @Test
+    void testRestore_rejectsCorruptedBackup() throws IOException {
+        Path live = tempDir.resolve("live");
+        Path backupDir = tempDir.resolve("backup");
+        Path restored = tempDir.resolve("restored");
+        try (FileDataStore store = new FileDataStore(live)) {
+            store.updateBook(new Book("111", "Clean Code"));
+            new CatalogBackup().backup(store, backupDir);
+        }
+        Path copied = backupDir.resolve(new CatalogBackup().verify(backupDir).getEntries().get(0).getName());
+        try (FileChannel channel = FileChannel.open(copied, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 12);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> new CatalogBackup().restore(backupDir, restored));
+
+        assertTrue(e.getMessage().contains("checksum mismatch"));
+        assertFalse(Files.exists(restored));
+    }
+
+    @Test
+    void testVerify_requiresManifest() throws IOException {
+        Path backupDir = Files.createDirectories(tempDir.resolve("incomplete"));
+
+        assertThrows(IOException.class, () -> new CatalogBackup().verify(backupDir));
+    }
+}
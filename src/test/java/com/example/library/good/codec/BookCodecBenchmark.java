@@ -0,0 +1,126 @@
+package com.example.library.good.codec;
+
+import com.example.library.good.datastore.InternedUserStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Size and encode/decode throughput of {@link BookCodec} against the
+ * DataOutputStream layout the file-backed stores use, which embeds the whole
+ * borrower and writes fixed-width numbers.
+ * Run with: gradle benchmark -Pbench=com.example.library.good.codec.BookCodecBenchmark [-PbenchArgs="books rounds"]
+ */
+public class BookCodecBenchmark {
+    private static final int BUFFER_BYTES = 64 << 10;
+
+    public static void main(String[] args) throws IOException {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        InternedUserStore users = new InternedUserStore();
+        List<Book> catalog = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            Book book = new Book("978-0-" + (100_000 + i), "Title number " + i, 1 + i % 3);
+            if (i % 2 == 0) {
+                book.checkoutCopy();
+                User patron = users.intern(new User("patron-" + i % 5_000, "Patron " + i % 5_000, false));
+                book.borrowBy(patron, LocalDate.of(2030, 1, 1).plusDays(i % 365));
+            }
+            book.setVersion(i);
+            catalog.add(book);
+        }
+
+        BookCodec codec = new BookCodec(users);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        for (int round = 0; round < rounds; round++) {
+            // Streams through a fixed buffer: encode until full, then decode what was written.
+            long encodeNanos = 0;
+            long decodeNanos = 0;
+            long bytes = 0;
+            int decoded = 0;
+            for (int next = 0; next < catalog.size(); ) {
+                long start = System.nanoTime();
+                buffer.clear();
+                while (next < catalog.size() && BookCodec.encode(catalog.get(next), buffer)) {
+                    next++;
+                }
+                buffer.flip();
+                long encoded = System.nanoTime();
+                bytes += buffer.remaining();
+                while (codec.decode(buffer) != null) {
+                    decoded++;
+                }
+                decodeNanos += System.nanoTime() - encoded;
+                encodeNanos += encoded - start;
+            }
+            if (decoded != books) {
+                throw new AssertionError("decoded " + decoded + " of " + books);
+            }
+            report("BookCodec", round, books, bytes, encodeNanos, decodeNanos);
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_BYTES);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                for (Book book : catalog) {
+                    writeDataOutput(book, out);
+                }
+            }
+            long encoded = System.nanoTime();
+            byte[] data = bytes.toByteArray();
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+                for (int i = 0; i < books; i++) {
+                    readDataOutput(in, users);
+                }
+            }
+            report("DataOutputStream", round, books, data.length, encoded - start, System.nanoTime() - encoded);
+        }
+    }
+
+    private static void report(String name, int round, int books, long bytes, long encodeNanos, long decodeNanos) {
+        System.out.printf("%-17s round %d | %5.1f bytes/book | encode %6.0f ns/book %7.1f MB/s | decode %6.0f ns/book %7.1f MB/s%n",
+                name, round, (double) bytes / books,
+                (double) encodeNanos / books, bytes * 1e3 / encodeNanos,
+                (double) decodeNanos / books, bytes * 1e3 / decodeNanos);
+    }
+
+    private static void writeDataOutput(Book book, DataOutputStream out) throws IOException {
+        out.writeUTF(book.getIsbn());
+        out.writeUTF(book.getTitle());
+        out.writeInt(book.getTotalCopies());
+        out.writeInt(book.getAvailableCopies());
+        User borrower = book.getBorrowedBy();
+        out.writeBoolean(borrower != null);
+        if (borrower != null) {
+            out.writeUTF(borrower.getId());
+            out.writeUTF(borrower.getName());
+            out.writeBoolean(borrower.isAdmin());
+        }
+        out.writeLong(book.getDueDate() == null ? Long.MIN_VALUE : book.getDueDate().toEpochDay());
+        out.writeLong(book.getVersion());
+    }
+
+    private static Book readDataOutput(DataInputStream in, InternedUserStore users) throws IOException {
+        Book book = new Book(in.readUTF(), in.readUTF(), in.readInt());
+        int available = in.readInt();
+        User borrower = in.readBoolean() ? users.intern(new User(in.readUTF(), in.readUTF(), in.readBoolean())) : null;
+        long dueEpochDay = in.readLong();
+        if (borrower != null || dueEpochDay != Long.MIN_VALUE) {
+            book.borrowBy(borrower, dueEpochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(dueEpochDay));
+        }
+        book.setAvailableCopies(available);
+        book.setVersion(in.readLong());
+        return book;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.library.good.codec;
+
+import com.example.library.good.datastore.InternedUserStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookCodecTest {
+    private final User alice = new User("u1", "Alice", false);
+
+    @Test
+    void testRoundTripsEveryField() {
+        Book onShelf = new Book("111", "Clean Code");
+        Book lent = new Book("222", "Effective Java");
+        lent.checkoutCopy();
+        lent.borrowBy(alice, LocalDate.of(2030, 1, 15));
+        lent.setVersion(42);
+        Book multiCopy = new Book("333", "Refactoring", 300);
+        multiCopy.checkoutCopy();
+        multiCopy.borrowBy(alice, LocalDate.of(1969, 7, 20)); // before the epoch
+        Book dueOnly = new Book("444", "Unicode \u00e9\u4e2d\ud83d\udcda");
+        dueOnly.setLoan(null, LocalDate.of(2030, 2, 1));
+        Book sharedTitle = new Book("555", "Course Reader", 3);
+        for (int i = 0; i < 3; i++) {
+            sharedTitle.checkoutCopy();
+        }
+        sharedTitle.borrowBy(alice, LocalDate.of(2030, 3, 1));
+        sharedTitle.borrowBy(new User("u2", "Bob", false), null);
+        sharedTitle.borrowBy(null, LocalDate.of(2030, 3, 8));
+
+        for (Book book : List.of(onShelf, lent, multiCopy, dueOnly, sharedTitle)) {
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            assertTrue(BookCodec.encode(book, buffer));
+            assertEquals(BookCodec.encodedSize(book), buffer.position(), book.getIsbn());
+            buffer.flip();
+
+            Book decoded = new BookCodec(null).decode(buffer);
+            assertFalse(buffer.hasRemaining());
+            assertSameBook(book, decoded);
+        }
+    }
+
+    @Test
+    void testBorrowerIsWrittenAsItsIdAndResolvedThroughTheUserStore() {
+        InternedUserStore users = new InternedUserStore();
+        User canonical = users.intern(alice);
+        Book book = new Book("111", "Clean Code");
+        book.borrowBy(new User("u1", "a copy of Alice with a much longer name", true), LocalDate.of(2030, 1, 15));
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        BookCodec.encode(book, buffer);
+        buffer.flip();
+
+        assertFalse(new String(buffer.array(), StandardCharsets.ISO_8859_1).contains("longer name"));
+        assertSame(canonical, new BookCodec(users).decode(buffer).getBorrowedBy());
+
+        buffer.rewind();
+        Book unknown = new BookCodec(new InternedUserStore()).decode(buffer);
+        assertEquals("u1", unknown.getBorrowedBy().getId());
+        assertNull(unknown.getBorrowedBy().getName());
+    }
+
+    @Test
+    void testStreamsThroughABufferSmallerThanTheCatalog() {
+        List<Book> catalog = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Book book = new Book("978-" + i, "Title " + i, 1 + i % 4);
+            if (i % 3 == 0) {
+                book.checkoutCopy();
+                book.borrowBy(alice, LocalDate.of(2030, 1, 1).plusDays(i));
+            }
+            catalog.add(book);
+        }
+
+        // Encode through a 100-byte window, collecting each full window as a "flush".
+        ByteArrayStream stream = new ByteArrayStream();
+        ByteBuffer window = ByteBuffer.allocate(100);
+        assertTrue(BookCodec.writeHeader(window));
+        for (Book book : catalog) {
+            if (!BookCodec.encode(book, window)) {
+                stream.flush(window);
+                assertTrue(BookCodec.encode(book, window));
+            }
+        }
+        stream.flush(window);
+
+        // Decode by feeding 7 bytes at a time, so records and the header arrive split.
+        BookCodec codec = new BookCodec(null);
+        ByteBuffer in = ByteBuffer.allocate(128);
+        in.flip();
+        byte[] bytes = stream.toByteArray();
+        List<Book> decoded = new ArrayList<>();
+        boolean headerRead = false;
+        for (int offset = 0; offset < bytes.length || in.hasRemaining(); ) {
+            if (!headerRead) {
+                int version = BookCodec.readHeader(in);
+                headerRead = version == BookCodec.VERSION;
+            }
+            Book book = headerRead ? codec.decode(in) : null;
+            if (book != null) {
+                decoded.add(book);
+                continue;
+            }
+            assertTrue(offset < bytes.length, "trailing partial record");
+            in.compact();
+            int chunk = Math.min(7, bytes.length - offset);
+            in.put(bytes, offset, chunk);
+            offset += chunk;
+            in.flip();
+        }
+
+        assertEquals(catalog.size(), decoded.size());
+        for (int i = 0; i < catalog.size(); i++) {
+            assertSameBook(catalog.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    void testDirectBuffersWork() {
+        Book book = new Book("111", "Clean Code");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        BookCodec.encode(book, buffer);
+        buffer.flip();
+        assertSameBook(book, new BookCodec(null).decode(buffer));
+    }
+
+    @Test
+    void testFullBufferIsLeftUntouched() {
+        Book book = new Book("111", "Clean Code");
+        ByteBuffer buffer = ByteBuffer.allocate(BookCodec.encodedSize(book) - 1);
+
+        assertFalse(BookCodec.encode(book, buffer));
+        assertEquals(0, buffer.position());
+        assertFalse(BookCodec.writeHeader(ByteBuffer.allocate(4)));
+    }
+
+    @Test
+    void testIsSmallerThanTheRecordFormatWithEmbeddedUsers() {
+        Book book = new Book("9780132350884", "Clean Code");
+        book.borrowBy(new User("patron-000123", "Alice Example", false), LocalDate.of(2030, 1, 15));
+
+        // writeUTF ISBN, title, borrower id and name, two ints, a flag, a boolean and a long epoch day.
+        int dataOutputSize = (2 + 13) + (2 + 10) + 4 + 4 + 1 + (2 + 13) + (2 + 13) + 1 + 8;
+        assertTrue(BookCodec.encodedSize(book) < dataOutputSize * 0.7,
+                BookCodec.encodedSize(book) + " bytes vs " + dataOutputSize);
+    }
+
+    @Test
+    void testRejectsOtherStreamsAndNewerVersions() {
+        ByteBuffer users = ByteBuffer.allocate(8);
+        UserCodec.writeHeader(users);
+        users.flip();
+        assertThrows(IllegalArgumentException.class, () -> BookCodec.readHeader(users));
+
+        ByteBuffer newer = ByteBuffer.allocate(8);
+        newer.putInt(BookCodec.MAGIC).put((byte) (BookCodec.VERSION + 1)).flip();
+        assertThrows(IllegalArgumentException.class, () -> BookCodec.readHeader(newer));
+
+        ByteBuffer partial = ByteBuffer.allocate(8);
+        partial.putInt(BookCodec.MAGIC).flip();
+        assertEquals(-1, BookCodec.readHeader(partial));
+        assertEquals(0, partial.position());
+    }
+
+    @Test
+    void testSkipsFieldsAppendedByALaterWriter() {
+        Book book = new Book("111", "Clean Code");
+        ByteBuffer record = ByteBuffer.allocate(64);
+        BookCodec.encode(book, record);
+        record.flip();
+        int payload = record.get(0);
+
+        // Same record with three extra trailing bytes, then a second record.
+        ByteBuffer extended = ByteBuffer.allocate(128);
+        extended.put((byte) (payload + 3));
+        extended.put(record.array(), 1, payload).put(new byte[] {1, 2, 3});
+        BookCodec.encode(new Book("222", "Effective Java"), extended);
+        extended.flip();
+
+        BookCodec codec = new BookCodec(null);
+        assertEquals("111", codec.decode(extended).getIsbn());
+        assertEquals("222", codec.decode(extended).getIsbn());
+    }
+
+    @Test
+    void testMalformedRecordIsRejected() {
+        Book book = new Book("111", "Clean Code");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        BookCodec.encode(book, buffer);
+        buffer.flip();
+        buffer.put(0, (byte) 4); // claims a payload too short for its own fields
+
+        assertThrows(IllegalArgumentException.class, () -> new BookCodec(null).decode(buffer));
+    }
+
+    private static void assertSameBook(Book expected, Book actual) {
+        assertEquals(expected.getIsbn(), actual.getIsbn());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getTotalCopies(), actual.getTotalCopies());
+        assertEquals(expected.getAvailableCopies(), actual.getAvailableCopies());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getLoanCount(), actual.getLoanCount());
+        for (int i = 0; i < expected.getLoanCount(); i++) {
+            Loan expectedLoan = expected.getLoans().get(i);
+            Loan actualLoan = actual.getLoans().get(i);
+            assertEquals(expectedLoan.getDueDate(), actualLoan.getDueDate());
+            if (expectedLoan.getBorrower() == null) {
+                assertNull(actualLoan.getBorrower());
+            } else {
+                assertEquals(expectedLoan.getBorrower().getId(), actualLoan.getBorrower().getId());
+            }
+        }
+    }
+
+    private static final class ByteArrayStream extends ByteArrayOutputStream {
+        void flush(ByteBuffer window) {
+            window.flip();
+            write(window.array(), 0, window.limit());
+            window.clear();
+        }
+    }
+}
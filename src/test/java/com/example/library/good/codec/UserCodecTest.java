@@ -0,0 +1,58 @@
+package com.example.library.good.codec;
+
+import com.example.library.good.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserCodecTest {
+
+    @Test
+    void testRoundTripsAStream() {
+        List<User> users = List.of(
+                new User("u1", "Alice", false),
+                new User("admin", "Zo\u00eb \ud83d\udcda", true),
+                new User("u3", null, false));
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        assertTrue(UserCodec.writeHeader(buffer));
+        int size = 0;
+        for (User user : users) {
+            assertTrue(UserCodec.encode(user, buffer));
+            size += UserCodec.encodedSize(user);
+        }
+        assertEquals(size + 5, buffer.position());
+        buffer.flip();
+
+        assertEquals(UserCodec.VERSION, UserCodec.readHeader(buffer));
+        for (User expected : users) {
+            User actual = UserCodec.decode(buffer);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.isAdmin(), actual.isAdmin());
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testPartialRecordConsumesNothing() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        UserCodec.encode(new User("u1", "Alice", false), buffer);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+
+        assertNull(UserCodec.decode(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void testFullBufferIsLeftUntouched() {
+        User user = new User("u1", "Alice", false);
+        ByteBuffer buffer = ByteBuffer.allocate(UserCodec.encodedSize(user) - 1);
+
+        assertFalse(UserCodec.encode(user, buffer));
+        assertEquals(0, buffer.position());
+    }
+}
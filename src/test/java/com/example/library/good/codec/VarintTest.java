@@ -0,0 +1,58 @@
+package com.example.library.good.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VarintTest {
+    private static final long[] VALUES = {0, 1, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE, -1};
+
+    @Test
+    void testArrayAndBufferFormsWriteTheSameBytes() {
+        for (long value : VALUES) {
+            byte[] array = new byte[Varint.MAX_BYTES];
+            int end = Varint.write(array, 0, value);
+            ByteBuffer buffer = ByteBuffer.allocate(Varint.MAX_BYTES);
+            Varint.write(buffer, value);
+
+            assertEquals(Varint.size(value), end);
+            assertEquals(end, buffer.position());
+            assertArrayEquals(Arrays.copyOf(array, end), Arrays.copyOf(buffer.array(), end));
+            assertEquals(value, Varint.read(array, 0));
+            buffer.flip();
+            assertEquals(value, Varint.read(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test
+    void testConsecutiveValuesReadBackByTheirSize() {
+        byte[] array = new byte[VALUES.length * Varint.MAX_BYTES];
+        int end = 0;
+        for (long value : VALUES) {
+            end = Varint.write(array, end, value);
+        }
+
+        int position = 0;
+        for (long value : VALUES) {
+            long read = Varint.read(array, position);
+            assertEquals(value, read);
+            position += Varint.size(read);
+        }
+        assertEquals(end, position);
+    }
+
+    @Test
+    void testRejectsOverlongVarint() {
+        ByteBuffer buffer = ByteBuffer.allocate(Varint.MAX_BYTES + 1);
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) 0x80);
+        }
+        buffer.flip();
+
+        assertThrows(IllegalArgumentException.class, () -> Varint.read(buffer));
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingDataStoreTest {
+    private static final int CALLERS = 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testConcurrentLookupsShareOneBackendCall() throws Exception {
+        GatedStore backend = new GatedStore(new InMemoryDataStore());
+        backend.updateBook(new Book("111", "Clean Code"));
+        CoalescingDataStore store = CoalescingDataStore.wrap(backend);
+
+        List<Optional<Book>> results = lookUpWhileGated(store, backend, "111");
+
+        assertEquals(1, backend.lookups.get());
+        assertEquals(1, store.getBackendCalls());
+        assertEquals(CALLERS - 1, store.getCoalescedCalls());
+        assertEquals((double) (CALLERS - 1) / CALLERS, store.getCoalescedRate(), 1e-9);
+        // A store of live objects shares them with every waiter.
+        Book first = results.get(0).orElseThrow();
+        for (Optional<Book> result : results) {
+            assertSame(first, result.orElseThrow());
+        }
+    }
+
+    @Test
+    void testWaitersOnAVersionedStoreGetTheirOwnCopies() throws Exception {
+        GatedStore backend = new GatedVersionedStore(new DatabaseStore());
+        CoalescingDataStore store = CoalescingDataStore.wrap(backend);
+        assertTrue(store instanceof VersionedDataStore);
+
+        List<Optional<Book>> results = lookUpWhileGated(store, backend, "111");
+
+        assertEquals(1, backend.lookups.get());
+        for (int i = 0; i < results.size(); i++) {
+            Book book = results.get(i).orElseThrow();
+            assertEquals("Clean Code", book.getTitle());
+            for (int j = 0; j < i; j++) {
+                assertNotSame(results.get(j).orElseThrow(), book);
+            }
+        }
+    }
+
+    @Test
+    void testLookupsOfOtherIsbnsAreNotHeldUp() throws Exception {
+        GatedStore backend = new GatedVersionedStore(new DatabaseStore());
+        CoalescingDataStore store = CoalescingDataStore.wrap(backend);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<Book>> blocked = pool.submit(() -> store.findBookByIsbn("111"));
+            assertTrue(backend.entered.await(5, TimeUnit.SECONDS));
+
+            backend.gateOnly("111");
+            assertEquals("Effective Java", store.findBookByIsbn("222").orElseThrow().getTitle());
+            assertFalse(blocked.isDone());
+
+            backend.release.countDown();
+            assertTrue(blocked.get(5, TimeUnit.SECONDS).isPresent());
+            assertEquals(2, store.getBackendCalls());
+            assertEquals(0, store.getCoalescedCalls());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailureReachesEveryWaiterAndIsNotRemembered() throws Exception {
+        GatedStore backend = new GatedVersionedStore(new DatabaseStore());
+        backend.failure = new IllegalStateException("backend down");
+        CoalescingDataStore store = CoalescingDataStore.wrap(backend);
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Optional<Book>>> futures = submitLookups(pool, store, backend, "111");
+            for (Future<Optional<Book>> future : futures) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertSame(backend.failure, e.getCause());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        backend.failure = null;
+        assertTrue(store.findBookByIsbn("111").isPresent());
+        assertEquals(2, backend.lookups.get());
+    }
+
+    @Test
+    void testLookupAfterAWriteDoesNotJoinAnOlderFlight() throws Exception {
+        GatedStore backend = new GatedStore(new InMemoryDataStore());
+        backend.updateBook(new Book("111", "Clean Code"));
+        CoalescingDataStore store = CoalescingDataStore.wrap(backend);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<Book>> stale = pool.submit(() -> store.findBookByIsbn("111"));
+            assertTrue(backend.entered.await(5, TimeUnit.SECONDS));
+
+            store.updateBook(new Book("111", "Clean Code, 2nd Edition"));
+            backend.gateOnly("222");
+            assertEquals("Clean Code, 2nd Edition", store.findBookByIsbn("111").orElseThrow().getTitle());
+            assertEquals(0, store.getCoalescedCalls());
+
+            backend.release.countDown();
+            stale.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWrapKeepsTheDelegatesCapabilities() throws Exception {
+        assertTrue(CoalescingDataStore.wrap(new DatabaseStore()) instanceof VersionedDataStore);
+        assertFalse(CoalescingDataStore.wrap(new StubDataStore()) instanceof VersionedDataStore);
+        try (FileDataStore files = new FileDataStore(dir)) {
+            assertFalse(CoalescingDataStore.wrap(files) instanceof MutableDataStore);
+        }
+
+        CoalescingDataStore store = CoalescingDataStore.wrap(new InMemoryDataStore());
+        assertTrue(store instanceof MutableDataStore);
+        store.updateBook(new Book("111", "Clean Code"));
+        LibraryService service = new LibraryService(store);
+        User alice = new User("u1", "Alice", false);
+        assertTrue(service.issueBook(alice, "111"));
+        assertFalse(service.issueBook(alice, "111"));
+        assertTrue(service.returnBook(alice, "111"));
+        assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable());
+    }
+
+    private static List<Optional<Book>> lookUpWhileGated(CoalescingDataStore store, GatedStore backend, String isbn)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Optional<Book>> results = new ArrayList<>();
+            for (Future<Optional<Book>> future : submitLookups(pool, store, backend, isbn)) {
+                results.add(future.get(5, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Starts one lookup, holds it in the backend until every other caller has joined, then lets it finish.
+    private static List<Future<Optional<Book>>> submitLookups(ExecutorService pool, CoalescingDataStore store,
+                                                             GatedStore backend, String isbn) throws Exception {
+        List<Future<Optional<Book>>> futures = new ArrayList<>();
+        futures.add(pool.submit(() -> store.findBookByIsbn(isbn)));
+        assertTrue(backend.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            futures.add(pool.submit(() -> store.findBookByIsbn(isbn)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.getCoalescedCalls() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        backend.release.countDown();
+        return futures;
+    }
+
+    /**
+     * Counts lookups and holds them until released, for the ISBN given to
+     * {@link #gateOnly} or, before that is called, for every ISBN.
+     */
+    private static class GatedStore implements DataStore {
+        final DataStore delegate;
+        final AtomicInteger lookups = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile String gated;
+        volatile RuntimeException failure;
+
+        GatedStore(DataStore delegate) {
+            this.delegate = delegate;
+        }
+
+        void gateOnly(String isbn) {
+            gated = isbn;
+        }
+
+        @Override
+        public Optional<Book> findBookByIsbn(String isbn) {
+            lookups.incrementAndGet();
+            if (gated == null || gated.equals(isbn)) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return delegate.findBookByIsbn(isbn);
+        }
+
+        @Override
+        public void updateBook(Book book) {
+            delegate.updateBook(book);
+        }
+
+        @Override
+        public Spliterator<Book> spliterator() {
+            return delegate.spliterator();
+        }
+    }
+
+    private static final class GatedVersionedStore extends GatedStore implements VersionedDataStore {
+
+        GatedVersionedStore(VersionedDataStore delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public boolean updateBookIfVersion(Book book, long expectedVersion) {
+            return ((VersionedDataStore) delegate).updateBookIfVersion(book, expectedVersion);
+        }
+
+        @Override
+        public boolean updateBooksIfVersions(List<Book> books) {
+            return ((VersionedDataStore) delegate).updateBooksIfVersions(books);
+        }
+    }
+}
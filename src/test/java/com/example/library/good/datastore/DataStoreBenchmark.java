@@ -0,0 +1,65 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lookup and update throughput of the in-memory, off-heap, LSM and embedded SQL stores.
+ * Run with: gradle benchmark -Pbench=com.example.library.good.datastore.DataStoreBenchmark [-PbenchArgs="books operations"]
+ */
+public class DataStoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        run("InMemoryDataStore", new InMemoryDataStore(), books, operations);
+        run("DatabaseStore", new DatabaseStore(), books, operations);
+        run("OffHeapDataStore", new OffHeapDataStore(), books, operations);
+        Path lsmDirectory = Files.createTempDirectory("lsm-benchmark");
+        // A small memtable so the run exercises flushes, merges and segment lookups.
+        try (LsmDataStore lsm = new LsmDataStore(lsmDirectory, null, 256 << 10, LsmDataStore.DEFAULT_FANOUT,
+                LsmDataStore.DEFAULT_INDEX_INTERVAL, LsmDataStore.DEFAULT_BLOOM_BITS_PER_KEY)) {
+            run("LsmDataStore", lsm, books, operations);
+            System.out.printf("%-18s segments %d | write amplification %.1f%n",
+                    "LsmDataStore", lsm.getSegmentCount(), lsm.getWriteAmplification());
+        }
+        try (SqlDataStore sql = new SqlDataStore("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1")) {
+            run("SqlDataStore", sql, books, operations / 10);
+        }
+    }
+
+    private static void run(String name, DataStore store, int books, int operations) {
+        List<Book> catalog = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            catalog.add(new Book("978-" + i, "Title " + i));
+        }
+        long start = System.nanoTime();
+        store.updateBooks(catalog);
+        long load = System.nanoTime() - start;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                store.findBookByIsbn("978-" + random.nextInt(books));
+            }
+            long reads = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                Book book = store.findBookByIsbn("978-" + random.nextInt(books)).orElseThrow();
+                book.setAvailable(!book.isAvailable());
+                store.updateBook(book);
+            }
+            long writes = System.nanoTime() - start;
+            System.out.printf("%-18s load %6.1f ms | lookup %8.0f ns/op | read-modify-write %8.0f ns/op%n",
+                    name, load / 1e6, (double) reads / operations, (double) writes / operations);
+        }
+    }
+}
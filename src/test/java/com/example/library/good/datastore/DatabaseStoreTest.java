@@ -3,6 +3,7 @@ import com.example.library.good.model.Book;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -60,4 +61,102 @@ public class DatabaseStoreTest {
         Optional<Book> wrongCase = databaseStore.findBookByIsbn("111 ".trim());
         assertTrue(wrongCase.isPresent(), "Trimming input shouldn't affect lookup");
     }
+
+    @Test
+    void testFindReturnsIsolatedCopy() {
+        Book book = databaseStore.findBookByIsbn("111").get();
+        book.setAvailable(false);
+
+        assertTrue(databaseStore.findBookByIsbn("111").get().isAvailable(), "Uncommitted change must not leak");
+    }
+
+    @Test
+    void testUpdateBookIfVersion_conflictingWriterLoses() {
+        Book first = databaseStore.findBookByIsbn("111").get();
+        Book second = databaseStore.findBookByIsbn("111").get();
+        long version = first.getVersion();
+
+        first.setAvailable(false);
+        assertTrue(databaseStore.updateBookIfVersion(first, version));
+        assertEquals(version + 1, first.getVersion());
+
+        second.borrowBy(null, null);
+        assertFalse(databaseStore.updateBookIfVersion(second, version), "Stale version must be rejected");
+        assertEquals(version + 1, databaseStore.findBookByIsbn("111").get().getVersion());
+    }
+
+    @Test
+    void testUpdateBookIfVersion_insertExpectsVersionZero() {
+        assertFalse(databaseStore.updateBookIfVersion(new Book("444", "Refactoring"), 3));
+        assertTrue(databaseStore.updateBookIfVersion(new Book("444", "Refactoring"), 0));
+        assertEquals(1, databaseStore.findBookByIsbn("444").get().getVersion());
+    }
+
+    @Test
+    void testSnapshotIsUnaffectedByLaterWrites() {
+        CatalogSnapshot before = databaseStore.snapshot();
+        Book book = databaseStore.findBookByIsbn("111").get();
+        book.setAvailable(false);
+        databaseStore.updateBook(book);
+        databaseStore.updateBook(new Book("333", "Design Patterns"));
+
+        assertTrue(before.findBookByIsbn("111").get().isAvailable());
+        assertTrue(before.findBookByIsbn("333").isEmpty());
+        assertEquals(2, before.size());
+        assertEquals(3, databaseStore.snapshot().size());
+    }
+
+    @Test
+    void testSnapshotSeesWholeBatchOrNone() throws InterruptedException {
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                Book a = new Book("a" + i, "A");
+                Book b = new Book("b" + i, "B");
+                databaseStore.updateBooks(List.of(a, b));
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            CatalogSnapshot snapshot = databaseStore.snapshot();
+            int[] counts = new int[128];
+            snapshot.forEach(book -> counts[book.getIsbn().charAt(0)]++);
+            assertEquals(counts['a'], counts['b'], "Batches must not be torn");
+        }
+        writer.join();
+        assertEquals(4_002, databaseStore.snapshot().size());
+    }
+
+    @Test
+    void testConditionalBatchWritesAllOrNothing() {
+        Book first = databaseStore.findBookByIsbn("111").get();
+        Book second = databaseStore.findBookByIsbn("222").get();
+        Book stale = databaseStore.findBookByIsbn("222").get();
+        stale.setAvailable(false);
+        assertTrue(databaseStore.updateBookIfVersion(stale, stale.getVersion()));
+
+        first.setAvailable(false);
+        second.setAvailable(false);
+        assertFalse(databaseStore.updateBooksIfVersions(List.of(first, second)));
+        assertTrue(databaseStore.findBookByIsbn("111").get().isAvailable(), "No book of a failed batch is written");
+        assertEquals(1, first.getVersion());
+
+        first = databaseStore.findBookByIsbn("111").get();
+        second = databaseStore.findBookByIsbn("222").get();
+        second.setAvailable(true);
+        assertTrue(databaseStore.updateBooksIfVersions(List.of(first, second)));
+        assertEquals(2, first.getVersion());
+        assertEquals(3, databaseStore.findBookByIsbn("222").get().getVersion());
+    }
+
+    @Test
+    void testParallelScanSeesConsistentCopies() {
+        for (int i = 0; i < 1_000; i++) {
+            databaseStore.updateBook(new Book("s" + i, "Scan " + i));
+        }
+
+        assertEquals(1_002, databaseStore.parallelStream().count());
+        Book scanned = databaseStore.stream().filter(book -> book.getIsbn().equals("111")).findFirst().get();
+        scanned.setAvailable(false);
+        assertTrue(databaseStore.findBookByIsbn("111").get().isAvailable(), "Scanned books are copies");
+    }
 }
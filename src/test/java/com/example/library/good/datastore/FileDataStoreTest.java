@@ -0,0 +1,242 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileDataStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testBooksSurviveReopen() throws IOException {
+        LocalDate due = LocalDate.of(2030, 3, 1);
+        try (FileDataStore store = new FileDataStore(dir)) {
+            store.updateBook(new Book("111", "Clean Code"));
+            Book borrowed = new Book("222", "Effective Java");
+            borrowed.borrowBy(new User("u1", "Alice", true), due);
+            store.updateBook(borrowed);
+        }
+
+        try (FileDataStore reopened = new FileDataStore(dir)) {
+            assertTrue(reopened.findBookByIsbn("111").orElseThrow().isAvailable());
+            Book borrowed = reopened.findBookByIsbn("222").orElseThrow();
+            assertFalse(borrowed.isAvailable());
+            assertEquals(due, borrowed.getDueDate());
+            assertEquals("Alice", borrowed.getBorrowedBy().getName());
+            assertTrue(borrowed.getBorrowedBy().isAdmin());
+        }
+    }
+
+    @Test
+    void testLatestWriteWins() throws IOException {
+        try (FileDataStore store = new FileDataStore(dir)) {
+            Book book = new Book("111", "Clean Code");
+            store.updateBook(book);
+            book.setAvailable(false);
+            store.updateBook(book);
+        }
+
+        try (FileDataStore reopened = new FileDataStore(dir)) {
+            assertFalse(reopened.findBookByIsbn("111").orElseThrow().isAvailable());
+        }
+    }
+
+    @Test
+    void testTornTailIsTruncatedOnOpen() throws IOException {
+        long goodLength;
+        try (FileDataStore store = new FileDataStore(dir)) {
+            store.updateBook(new Book("111", "Clean Code"));
+            goodLength = store.getLogSize();
+            store.updateBook(new Book("222", "Half Written"));
+        }
+        try (FileChannel log = FileChannel.open(dir.resolve(FileDataStore.LOG_FILE), StandardOpenOption.WRITE)) {
+            log.truncate(goodLength + 5);
+        }
+
+        try (FileDataStore reopened = new FileDataStore(dir)) {
+            assertTrue(reopened.findBookByIsbn("111").isPresent());
+            assertTrue(reopened.findBookByIsbn("222").isEmpty());
+            assertEquals(goodLength, reopened.getLogSize());
+            reopened.updateBook(new Book("333", "After Recovery"));
+        }
+        try (FileDataStore again = new FileDataStore(dir)) {
+            assertTrue(again.findBookByIsbn("333").isPresent());
+        }
+    }
+
+    @Test
+    void testCompactKeepsLatestStateAndShrinksLog() throws IOException {
+        try (FileDataStore store = new FileDataStore(dir)) {
+            Book book = new Book("111", "Clean Code");
+            for (int i = 0; i < 50; i++) {
+                book.setAvailable(i % 2 == 0);
+                store.updateBook(book);
+            }
+            store.updateBooks(List.of(new Book("222", "Batch One"), new Book("333", "Batch Two")));
+            long before = store.getLogSize();
+
+            store.compact();
+
+            assertTrue(store.getLogSize() < before);
+            store.updateBook(new Book("444", "After Compaction"));
+        }
+
+        try (FileDataStore reopened = new FileDataStore(dir)) {
+            assertFalse(reopened.findBookByIsbn("111").orElseThrow().isAvailable());
+            assertEquals("Batch Two", reopened.findBookByIsbn("333").orElseThrow().getTitle());
+            assertTrue(reopened.findBookByIsbn("444").isPresent());
+        }
+    }
+
+    @Test
+    void testCopyCountersArePersisted() throws IOException {
+        try (FileDataStore store = new FileDataStore(dir)) {
+            Book book = new Book("555", "Forty Copies", 40);
+            book.checkoutCopy();
+            book.checkoutCopy();
+            store.updateBook(book);
+        }
+
+        try (FileDataStore reopened = new FileDataStore(dir)) {
+            Book book = reopened.findBookByIsbn("555").orElseThrow();
+            assertEquals(40, book.getTotalCopies());
+            assertEquals(38, book.getAvailableCopies());
+        }
+    }
+
+    @Test
+    void testScanAfterReopen() throws IOException {
+        try (FileDataStore store = new FileDataStore(dir)) {
+            for (int i = 0; i < 100; i++) {
+                store.updateBook(new Book("978-" + i, "Title " + i));
+            }
+        }
+
+        try (FileDataStore reopened = new FileDataStore(dir)) {
+            assertEquals(100, reopened.parallelStream().count());
+        }
+    }
+
+    @Test
+    void testReadsLogsWrittenBeforeRecordsWereVersioned() throws IOException {
+        // The original single-copy layout: ISBN, title, available flag, borrower flag and fields, due epoch day.
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        log.write(framed(out -> {
+            out.writeUTF("111");
+            out.writeUTF("Clean Code");
+            out.writeBoolean(true);
+            out.writeBoolean(false);
+            out.writeLong(Long.MIN_VALUE);
+        }));
+        log.write(framed(out -> {
+            out.writeUTF("222");
+            out.writeUTF("Effective Java");
+            out.writeBoolean(false);
+            out.writeBoolean(true);
+            out.writeUTF("u1");
+            out.writeUTF("Alice");
+            out.writeBoolean(false);
+            out.writeLong(LocalDate.of(2030, 3, 1).toEpochDay());
+        }));
+        Files.write(dir.resolve(FileDataStore.LOG_FILE), log.toByteArray());
+
+        try (FileDataStore store = new FileDataStore(dir)) {
+            Book onShelf = store.findBookByIsbn("111").orElseThrow();
+            assertEquals("Clean Code", onShelf.getTitle());
+            assertEquals(1, onShelf.getTotalCopies());
+            assertTrue(onShelf.isAvailable());
+            Book lent = store.findBookByIsbn("222").orElseThrow();
+            assertFalse(lent.isAvailable());
+            assertEquals("Alice", lent.getBorrowedBy().getName());
+            assertEquals(LocalDate.of(2030, 3, 1), lent.getDueDate());
+
+            // Rewritten records carry the current version and read back the same.
+            store.updateBook(lent);
+            store.compact();
+        }
+        try (FileDataStore reopened = new FileDataStore(dir)) {
+            assertEquals("u1", reopened.findBookByIsbn("222").orElseThrow().getBorrowedBy().getId());
+        }
+    }
+
+    @Test
+    void testReadsSingleLoanRecordsAndKeepsEveryLoanAfterward() throws IOException {
+        // Version 1: copies as ints, then one loan in place of the loan list.
+        Files.write(dir.resolve(FileDataStore.LOG_FILE), framed(out -> {
+            out.writeByte(BookRecordFormat.MARKER);
+            out.writeByte(1);
+            out.writeUTF("333");
+            out.writeUTF("Refactoring");
+            out.writeInt(3);
+            out.writeInt(2);
+            out.writeBoolean(true);
+            out.writeUTF("u1");
+            out.writeUTF("Alice");
+            out.writeBoolean(false);
+            out.writeLong(LocalDate.of(2030, 3, 1).toEpochDay());
+        }));
+
+        try (FileDataStore store = new FileDataStore(dir)) {
+            Book book = store.findBookByIsbn("333").orElseThrow();
+            assertEquals(2, book.getAvailableCopies());
+            assertEquals(1, book.getLoanCount());
+            assertEquals("Alice", book.getBorrowedBy().getName());
+
+            book.checkoutCopy();
+            book.borrowBy(new User("u2", "Bob", false), LocalDate.of(2030, 4, 1));
+            store.updateBook(book);
+        }
+        try (FileDataStore reopened = new FileDataStore(dir)) {
+            Book book = reopened.findBookByIsbn("333").orElseThrow();
+            assertEquals(2, book.getLoanCount());
+            assertEquals(LocalDate.of(2030, 3, 1), book.getDueDate(new User("u1", null, false)));
+            assertEquals(LocalDate.of(2030, 4, 1), book.getDueDate(new User("u2", null, false)));
+            assertEquals(1, book.getAvailableCopies());
+        }
+    }
+
+    @Test
+    void testRejectsRecordsFromANewerFormat() throws IOException {
+        Files.write(dir.resolve(FileDataStore.LOG_FILE), framed(out -> {
+            out.writeByte(BookRecordFormat.MARKER);
+            out.writeByte(BookRecordFormat.VERSION + 1);
+            out.writeUTF("111");
+        }));
+
+        assertThrows(DataStoreException.class, () -> new FileDataStore(dir).close());
+    }
+
+    private static byte[] framed(PayloadWriter writer) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            writer.write(out);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload.toByteArray());
+        ByteBuffer record = ByteBuffer.allocate(BookRecordFormat.HEADER_BYTES + payload.size());
+        record.putInt(payload.size()).putInt((int) crc.getValue()).put(payload.toByteArray());
+        return record.array();
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryDataStoreTest {
+
+    @Test
+    void testLookupReusesStoredOptional() {
+        InMemoryDataStore store = new InMemoryDataStore();
+        Book book = new Book("111", "Clean Code");
+        store.updateBook(book);
+
+        assertSame(store.findBookByIsbn("111"), store.findBookByIsbn("111"));
+        assertSame(book, store.findBookByIsbn("111").get());
+        assertTrue(store.findBookByIsbn("999").isEmpty());
+    }
+
+    @Test
+    void testUpdateInPlaceChangesLiveBook() {
+        InMemoryDataStore store = new InMemoryDataStore();
+        Book book = new Book("111", "Clean Code", 2);
+        store.updateBook(book);
+
+        assertSame(book, store.updateInPlace("111", (b, first, second) -> b.checkoutCopy(), null, null));
+        assertEquals(1, book.getAvailableCopies());
+        assertNull(store.updateInPlace("111", (b, first, second) -> false, null, null));
+        assertNull(store.updateInPlace("999", (b, first, second) -> true, null, null));
+    }
+
+    @Test
+    void testReplacingBookSwapsInstance() {
+        InMemoryDataStore store = new InMemoryDataStore();
+        store.updateBook(new Book("111", "Clean Code"));
+        Book replacement = new Book("111", "Clean Code 2nd Ed.");
+        store.updateBook(replacement);
+
+        assertSame(replacement, store.findBookByIsbn("111").get());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testScanReturnsLiveBooks() {
+        InMemoryDataStore store = new InMemoryDataStore();
+        Book book = new Book("111", "Clean Code");
+        store.updateBook(book);
+        store.updateBook(new Book("222", "Effective Java"));
+
+        assertEquals(2, store.parallelStream().count());
+        assertTrue(store.stream().anyMatch(scanned -> scanned == book));
+    }
+}
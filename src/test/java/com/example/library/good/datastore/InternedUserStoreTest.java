@@ -0,0 +1,76 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InternedUserStoreTest {
+
+    @Test
+    void testIntern_returnsFirstRegisteredInstance() {
+        InternedUserStore store = new InternedUserStore();
+        User original = new User("u1", "Alice", false);
+
+        assertSame(original, store.intern(original));
+        assertSame(original, store.intern(new User("u1", "Alice (kiosk copy)", false)));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testFindUserById() {
+        InternedUserStore store = new InternedUserStore();
+        User user = store.intern(new User("u2", "Bob", true));
+
+        assertSame(user, store.findUserById("u2").orElseThrow());
+        assertTrue(store.findUserById("missing").isEmpty());
+    }
+
+    @Test
+    void testGrowsBeyondInitialCapacity() {
+        InternedUserStore store = new InternedUserStore(4);
+        for (int i = 0; i < 100_000; i++) {
+            store.intern(new User("patron-" + i, "Patron " + i, false));
+        }
+
+        assertEquals(100_000, store.size());
+        for (int i = 0; i < 100_000; i += 997) {
+            assertEquals("Patron " + i, store.findUserById("patron-" + i).orElseThrow().getName());
+        }
+    }
+
+    @Test
+    void testConcurrentInterningYieldsOneCanonicalInstance() throws InterruptedException {
+        InternedUserStore store = new InternedUserStore();
+        Set<User> canonical = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 5_000; i++) {
+                    User user = store.intern(new User("u" + i, "User " + i, false));
+                    if (i == 42) {
+                        canonical.add(user);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(5_000, store.size());
+        assertEquals(1, canonical.size(), "Every thread must get the same instance back");
+    }
+}
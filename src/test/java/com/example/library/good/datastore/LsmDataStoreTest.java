@@ -0,0 +1,269 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LsmDataStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTripsEveryFieldThroughASegment() throws IOException {
+        UserStore users = new InternedUserStore();
+        LocalDate due = LocalDate.of(2030, 3, 1);
+        try (LsmDataStore store = small(users, 4, 16)) {
+            Book book = new Book("222", "Effective Java", 3);
+            book.checkoutCopy();
+            book.borrowBy(new User("u1", "Alice", true), due);
+            store.updateBook(book);
+            assertSame(book, store.findBookByIsbn("222").orElseThrow());
+
+            store.flush();
+
+            Book read = store.findBookByIsbn("222").orElseThrow();
+            assertNotSame(book, read);
+            assertEquals("Effective Java", read.getTitle());
+            assertEquals(2, read.getAvailableCopies());
+            assertEquals(due, read.getDueDate());
+            assertSame(users.findUserById("u1").orElseThrow(), read.getBorrowedBy());
+            assertTrue(read.getBorrowedBy().isAdmin());
+        }
+    }
+
+    @Test
+    void testNewestVersionWinsAcrossSegmentsAndMemtable() throws IOException {
+        try (LsmDataStore store = small(null, 10, 4)) {
+            Book book = new Book("111", "Clean Code");
+            store.updateBook(book);
+            store.flush();
+            book.borrowBy(new User("u1", "Alice", false), LocalDate.of(2030, 1, 1));
+            store.updateBook(book);
+            store.flush();
+            assertFalse(store.findBookByIsbn("111").orElseThrow().isAvailable());
+
+            book.returnBook();
+            store.updateBook(book);
+            assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable());
+            store.flush();
+            assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable());
+            assertNull(store.findBookByIsbn("111").orElseThrow().getBorrowedBy());
+        }
+    }
+
+    @Test
+    void testScanSplitsAndSeesOnlyTheNewestVersions() throws IOException {
+        try (LsmDataStore store = small(null, 10, 4)) {
+            for (int round = 0; round < 3; round++) {
+                List<Book> books = new ArrayList<>();
+                for (int i = round * 100; i < 300; i++) {
+                    books.add(new Book(String.format("978-%03d", i), "Round " + round));
+                }
+                store.updateBooks(books);
+                if (round < 2) {
+                    store.flush();
+                }
+            }
+
+            Spliterator<Book> all = store.spliterator();
+            Spliterator<Book> half = all.trySplit();
+            assertNotNull(half, "the scan should split");
+            Map<String, String> titles = new HashMap<>();
+            Stream.concat(StreamSupport.stream(half, false), StreamSupport.stream(all, false))
+                    .forEach(book -> assertNull(titles.put(book.getIsbn(), book.getTitle()), book.getIsbn()));
+
+            assertEquals(300, titles.size());
+            assertEquals("Round 0", titles.get("978-042"));
+            assertEquals("Round 1", titles.get("978-142"));
+            assertEquals("Round 2", titles.get("978-242"));
+            assertEquals(300, store.parallelStream().filter(book -> book.getTitle().startsWith("Round")).count());
+        }
+    }
+
+    @Test
+    void testCompactionMergesFullLevels() throws IOException {
+        try (LsmDataStore store = small(null, 2, 4)) {
+            for (int round = 0; round < 8; round++) {
+                for (int i = 0; i < 50; i++) {
+                    store.updateBook(new Book("978-" + i, "Title " + i + " v" + round));
+                }
+                store.flush();
+            }
+
+            // Eight flushes with fanout 2 collapse into a single level-3 segment.
+            assertEquals(1, store.getSegmentCount());
+            assertTrue(store.getWriteAmplification() > 2);
+            for (int i = 0; i < 50; i++) {
+                assertEquals("Title " + i + " v7", store.findBookByIsbn("978-" + i).orElseThrow().getTitle());
+            }
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".sst")).count());
+        }
+    }
+
+    @Test
+    void testFullMemtableIsFlushedInTheBackground() throws IOException {
+        try (LsmDataStore store = new LsmDataStore(dir, null, 1024, 4, 8, 10)) {
+            List<Book> books = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                books.add(new Book("978-" + i, "Title " + i));
+                if (books.size() == 100) {
+                    store.updateBooks(books);
+                    books.clear();
+                }
+            }
+            store.flush();
+
+            // Each level is merged away once it reaches the fanout, so few segments survive.
+            assertTrue(store.getSegmentCount() >= 1);
+            assertTrue(store.getSegmentCount() < 16, "segments: " + store.getSegmentCount());
+            assertEquals(2_000, store.parallelStream().count());
+            assertEquals("Title 1234", store.findBookByIsbn("978-1234").orElseThrow().getTitle());
+        }
+    }
+
+    @Test
+    void testUnflushedWritesAreReplayedFromTheLog() throws IOException {
+        try (LsmDataStore store = small(null, 4, 16)) {
+            store.updateBook(new Book("111", "Clean Code"));
+            store.updateBook(new Book("222", "Effective Java"));
+        }
+
+        try (LsmDataStore reopened = small(null, 4, 16)) {
+            assertEquals("Clean Code", reopened.findBookByIsbn("111").orElseThrow().getTitle());
+            assertEquals(1, reopened.getSegmentCount());
+            reopened.updateBook(new Book("333", "After Reopen"));
+            reopened.flush();
+        }
+        try (LsmDataStore again = small(null, 4, 16)) {
+            assertEquals(3, again.stream().count());
+        }
+    }
+
+    @Test
+    void testTornLogTailIsDroppedOnReplay() throws IOException {
+        try (LsmDataStore store = small(null, 4, 16)) {
+            store.updateBook(new Book("111", "Clean Code"));
+            store.updateBook(new Book("222", "Half Written"));
+        }
+        Path log;
+        try (Stream<Path> files = Files.list(dir)) {
+            log = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (LsmDataStore reopened = small(null, 4, 16)) {
+            assertTrue(reopened.findBookByIsbn("111").isPresent());
+            assertTrue(reopened.findBookByIsbn("222").isEmpty());
+        }
+    }
+
+    @Test
+    void testBloomFiltersSkipSegmentsWithoutTheKey() throws IOException {
+        long withFilters = blockReadsForMisses(10);
+        long withoutFilters = blockReadsForMisses(0);
+
+        assertEquals(400, withoutFilters);
+        assertTrue(withFilters < 40, "block reads with Bloom filters: " + withFilters);
+    }
+
+    @Test
+    void testLibraryServiceCirculatesThroughLsmStore() throws IOException {
+        try (LsmDataStore store = small(null, 4, 16)) {
+            store.updateBook(new Book("111", "Clean Code"));
+            store.flush();
+            LibraryService service = new LibraryService(store);
+            User alice = new User("u1", "Alice", false);
+
+            assertTrue(service.issueBookWithDueDate(alice, "111", LocalDate.of(2030, 1, 1)));
+            assertFalse(service.issueBook(new User("u2", "Bob", false), "111"));
+            store.flush();
+            assertEquals("u1", store.findBookByIsbn("111").orElseThrow().getBorrowedBy().getId());
+            assertTrue(service.returnBookEnhanced(alice, "111"));
+            assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable());
+        }
+    }
+
+    @Test
+    void testUpdateInPlaceSerializesReadModifyWriteOfSegmentBooks() throws Exception {
+        try (LsmDataStore store = small(null, 4, 16)) {
+            store.updateBook(new Book("333", "Refactoring", 3));
+            store.flush(); // every read now returns its own copy
+            LibraryService service = new LibraryService(store);
+            CountDownLatch changing = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            Thread slow = new Thread(() -> store.updateInPlace("333", (book, first, second) -> {
+                changing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return book.checkoutCopy();
+            }, null, null));
+            slow.start();
+            changing.await();
+            Thread issuer = new Thread(() -> service.issueBook(new User("u1", "Alice", false), "333"));
+            issuer.start();
+            issuer.join(100);
+            assertTrue(issuer.isAlive(), "a second read-modify-write ran while the first held the book");
+
+            release.countDown();
+            slow.join();
+            issuer.join();
+            assertEquals(1, store.findBookByIsbn("333").orElseThrow().getAvailableCopies());
+        }
+    }
+
+    @Test
+    void testRejectsInvalidTuning() {
+        assertThrows(IllegalArgumentException.class, () -> new LsmDataStore(dir, null, 1024, 1, 16, 10));
+        assertThrows(IllegalArgumentException.class, () -> new LsmDataStore(dir, null, 1024, 4, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new LsmDataStore(dir, null, 0, 4, 16, 10));
+    }
+
+    // Four segments of 100 books each, probed for 100 ISBNs none of them hold.
+    private long blockReadsForMisses(int bloomBitsPerKey) throws IOException {
+        Path storeDir = dir.resolve("bloom-" + bloomBitsPerKey);
+        try (LsmDataStore store = new LsmDataStore(storeDir, null, 1 << 20, 8, 16, bloomBitsPerKey)) {
+            for (int segment = 0; segment < 4; segment++) {
+                for (int i = 0; i < 100; i++) {
+                    store.updateBook(new Book("978-" + segment + "-" + i, "Title"));
+                }
+                store.flush();
+            }
+            for (int i = 0; i < 100; i++) {
+                assertTrue(store.findBookByIsbn("978-9-" + i).isEmpty());
+            }
+            return store.getBlockReads();
+        }
+    }
+
+    private LsmDataStore small(UserStore users, int fanout, int indexInterval) throws IOException {
+        return new LsmDataStore(dir, users, 1 << 20, fanout, indexInterval, 10);
+    }
+}
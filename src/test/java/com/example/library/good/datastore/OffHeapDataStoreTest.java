@@ -0,0 +1,202 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapDataStoreTest {
+
+    @Test
+    void testRoundTripsEveryField() {
+        UserStore users = new InternedUserStore();
+        OffHeapDataStore store = new OffHeapDataStore(users);
+        User alice = new User("u1", "Alice", true);
+        LocalDate due = LocalDate.of(2030, 3, 1);
+        Book book = new Book("222", "Effective Java", 3);
+        book.checkoutCopy();
+        book.borrowBy(alice, due);
+        store.updateBook(book);
+
+        Book read = store.findBookByIsbn("222").orElseThrow();
+        assertNotSame(book, read);
+        assertEquals("Effective Java", read.getTitle());
+        assertEquals(3, read.getTotalCopies());
+        assertEquals(2, read.getAvailableCopies());
+        assertEquals(due, read.getDueDate());
+        assertSame(users.findUserById("u1").orElseThrow(), read.getBorrowedBy());
+        assertEquals("Alice", read.getBorrowedBy().getName());
+    }
+
+    @Test
+    void testKeepsEveryLoanOfASharedTitle() {
+        OffHeapDataStore store = new OffHeapDataStore();
+        Book book = new Book("333", "Course Reader", 3);
+        for (int i = 1; i <= 3; i++) {
+            book.checkoutCopy();
+            book.borrowBy(new User("u" + i, "Patron " + i, false), LocalDate.of(2030, 3, i));
+        }
+        store.updateBook(book);
+
+        Book read = store.findBookByIsbn("333").orElseThrow();
+        assertEquals(3, read.getLoanCount());
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(LocalDate.of(2030, 3, i), read.getDueDate(new User("u" + i, null, false)));
+        }
+
+        read.returnBook(new User("u2", null, false));
+        store.updateBook(read);
+        read.returnBook(new User("u1", null, false));
+        store.updateBook(read);
+        Book last = store.findBookByIsbn("333").orElseThrow();
+        assertEquals(1, last.getLoanCount());
+        assertEquals("u3", last.getBorrowedBy().getId());
+    }
+
+    @Test
+    void testLoansSpanningSeveralOverflowBlocksAreReusedOnRewrite() {
+        OffHeapDataStore store = new OffHeapDataStore();
+        int copies = 3 * OffHeapDataStore.LOANS_PER_BLOCK;
+        Book book = new Book("444", "Set Text", copies);
+        for (int i = 1; i <= copies; i++) {
+            book.checkoutCopy();
+            book.borrowBy(new User("u" + i, null, false), LocalDate.of(2030, 1, 1).plusDays(i));
+        }
+        store.updateBook(book);
+        long reserved = store.offHeapBytes();
+
+        for (int round = 0; round < 1_000; round++) {
+            store.updateBook(store.findBookByIsbn("444").orElseThrow());
+        }
+
+        Book read = store.findBookByIsbn("444").orElseThrow();
+        assertEquals(reserved, store.offHeapBytes());
+        assertEquals(book.getLoans().size(), read.getLoanCount());
+        for (int i = 1; i <= copies; i++) {
+            assertEquals(LocalDate.of(2030, 1, 1).plusDays(i), read.getDueDate(new User("u" + i, null, false)));
+        }
+    }
+
+    @Test
+    void testUpdateOverwritesInPlace() {
+        OffHeapDataStore store = new OffHeapDataStore();
+        Book book = new Book("111", "Clean Code");
+        store.updateBook(book);
+        book.borrowBy(new User("u1", "Alice", false), LocalDate.of(2030, 1, 1));
+        store.updateBook(book);
+        book.returnBook();
+        store.updateBook(book);
+
+        Book read = store.findBookByIsbn("111").orElseThrow();
+        assertTrue(read.isAvailable());
+        assertNull(read.getBorrowedBy());
+        assertNull(read.getDueDate());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testIndexAndSlabsGrowPastInitialCapacity() {
+        OffHeapDataStore store = new OffHeapDataStore(new InternedUserStore(), 100);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            books.add(new Book("978-" + i, "Title " + i));
+        }
+        store.updateBooks(books);
+
+        assertEquals(5_000, store.size());
+        for (int i = 0; i < 5_000; i += 7) {
+            assertEquals("Title " + i, store.findBookByIsbn("978-" + i).orElseThrow().getTitle());
+        }
+        assertTrue(store.findBookByIsbn("978-5000").isEmpty());
+        assertTrue(store.offHeapBytes() >= 5_000L * OffHeapDataStore.RECORD_BYTES);
+    }
+
+    @Test
+    void testNonAsciiTitleAndIsbn() {
+        OffHeapDataStore store = new OffHeapDataStore();
+        store.updateBook(new Book("\u00e9-1", "Les Mis\u00e9rables"));
+
+        assertEquals("Les Mis\u00e9rables", store.findBookByIsbn("\u00e9-1").orElseThrow().getTitle());
+        assertTrue(store.findBookByIsbn("e-1").isEmpty());
+    }
+
+    @Test
+    void testOversizedFieldsAreRejected() {
+        OffHeapDataStore store = new OffHeapDataStore();
+        String longTitle = "x".repeat(OffHeapDataStore.MAX_TITLE_BYTES + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> store.updateBook(new Book("111", longTitle)));
+        assertThrows(IllegalArgumentException.class, () -> store.updateBook(new Book("", "Empty")));
+        assertTrue(store.findBookByIsbn("111").isEmpty());
+    }
+
+    @Test
+    void testLibraryServiceCirculatesThroughOffHeapStore() {
+        OffHeapDataStore store = new OffHeapDataStore();
+        store.updateBook(new Book("111", "Clean Code"));
+        LibraryService service = new LibraryService(store);
+        User user = new User("u1", "Alice", false);
+
+        assertTrue(service.issueBookWithDueDate(user, "111", LocalDate.of(2030, 1, 1)));
+        assertFalse(service.issueBook(user, "111"));
+        assertTrue(service.returnBookEnhanced(user, "111"));
+        assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable());
+    }
+
+    @Test
+    void testConditionalUpdateRejectsStaleVersion() {
+        OffHeapDataStore store = new OffHeapDataStore();
+        store.updateBook(new Book("111", "Clean Code"));
+        Book first = store.findBookByIsbn("111").orElseThrow();
+        Book second = store.findBookByIsbn("111").orElseThrow();
+
+        first.checkoutCopy();
+        assertTrue(store.updateBookIfVersion(first, first.getVersion()));
+        assertFalse(store.updateBookIfVersion(second, second.getVersion()));
+        assertEquals(2, store.findBookByIsbn("111").orElseThrow().getVersion());
+        assertFalse(store.findBookByIsbn("111").orElseThrow().isAvailable());
+    }
+
+    @Test
+    void testConditionalBatchWritesAllOrNothing() {
+        OffHeapDataStore store = new OffHeapDataStore();
+        store.updateBook(new Book("111", "Clean Code"));
+        store.updateBook(new Book("222", "Effective Java"));
+        Book first = store.findBookByIsbn("111").orElseThrow();
+        Book second = store.findBookByIsbn("222").orElseThrow();
+        assertTrue(store.updateBookIfVersion(store.findBookByIsbn("222").orElseThrow(), 1));
+
+        first.checkoutCopy();
+        second.checkoutCopy();
+        assertFalse(store.updateBooksIfVersions(List.of(first, second)));
+        assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable(), "No book of a failed batch is written");
+
+        second = store.findBookByIsbn("222").orElseThrow();
+        second.checkoutCopy();
+        assertTrue(store.updateBooksIfVersions(List.of(first, second, new Book("333", "Refactoring"))));
+        assertFalse(store.findBookByIsbn("111").orElseThrow().isAvailable());
+        assertEquals(3, store.findBookByIsbn("222").orElseThrow().getVersion());
+        assertEquals(1, store.findBookByIsbn("333").orElseThrow().getVersion());
+    }
+
+    @Test
+    void testScanSplitsByRecord() {
+        OffHeapDataStore store = new OffHeapDataStore(new InternedUserStore(), 64);
+        for (int i = 0; i < 1_000; i++) {
+            store.updateBook(new Book("978-" + i, "Title " + i));
+        }
+
+        Spliterator<Book> spliterator = store.spliterator();
+        assertEquals(1_000, spliterator.estimateSize());
+        assertNotNull(spliterator.trySplit());
+        assertEquals(500, spliterator.estimateSize());
+        assertEquals(1_000, store.parallelStream().map(Book::getIsbn).distinct().count());
+    }
+}
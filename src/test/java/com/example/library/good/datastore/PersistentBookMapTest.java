@@ -0,0 +1,81 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentBookMapTest {
+
+    @Test
+    void testPutDoesNotChangeEarlierVersions() {
+        PersistentBookMap empty = PersistentBookMap.EMPTY;
+        PersistentBookMap one = empty.put(new Book("111", "Clean Code"));
+        PersistentBookMap two = one.put(new Book("111", "Clean Code 2nd Ed."));
+
+        assertNull(empty.get("111"));
+        assertEquals("Clean Code", one.get("111").getTitle());
+        assertEquals("Clean Code 2nd Ed.", two.get("111").getTitle());
+        assertEquals(1, two.size());
+    }
+
+    @Test
+    void testManyKeys() {
+        PersistentBookMap map = PersistentBookMap.EMPTY;
+        for (int i = 0; i < 10_000; i++) {
+            map = map.put(new Book("978-" + i, "Title " + i));
+        }
+
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("Title " + i, map.get("978-" + i).getTitle());
+        }
+        assertNull(map.get("978-10000"));
+        Set<String> seen = new HashSet<>();
+        map.forEach(book -> seen.add(book.getIsbn()));
+        assertEquals(10_000, seen.size());
+    }
+
+    @Test
+    void testFullHashCollisions() {
+        // "Aa" and "BB" have the same String.hashCode, so these four collide on every bit.
+        String[] isbns = {"AaAa", "AaBB", "BBAa", "BBBB"};
+        PersistentBookMap map = PersistentBookMap.EMPTY;
+        for (String isbn : isbns) {
+            map = map.put(new Book(isbn, "Title " + isbn));
+        }
+        map = map.put(new Book("BBAa", "Replaced"));
+
+        assertEquals(4, map.size());
+        assertEquals("Title AaAa", map.get("AaAa").getTitle());
+        assertEquals("Replaced", map.get("BBAa").getTitle());
+        assertNull(map.get("AaAaAa"));
+    }
+
+    @Test
+    void testSpliteratorSplitsAndCoversEveryBook() {
+        PersistentBookMap map = PersistentBookMap.EMPTY;
+        for (int i = 0; i < 5_000; i++) {
+            map = map.put(new Book("978-" + i, "Title " + i));
+        }
+
+        Spliterator<Book> suffix = map.spliterator();
+        Spliterator<Book> prefix = suffix.trySplit();
+        assertNotNull(prefix, "a large map must split");
+        Set<String> seen = new HashSet<>();
+        prefix.forEachRemaining(book -> assertTrue(seen.add(book.getIsbn())));
+        int prefixCount = seen.size();
+        while (suffix.tryAdvance(book -> assertTrue(seen.add(book.getIsbn())))) {
+            // drain one at a time
+        }
+
+        assertTrue(prefixCount > 0 && prefixCount < 5_000);
+        assertEquals(5_000, seen.size());
+        assertEquals(5_000, StreamSupport.stream(map.spliterator(), true).count());
+    }
+}
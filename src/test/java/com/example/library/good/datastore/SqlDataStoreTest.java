@@ -0,0 +1,156 @@
+package com.example.library.good.datastore;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlDataStoreTest {
+    private SqlDataStore store;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        store = new SqlDataStore("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void testRoundTripsEveryField() {
+        Book book = new Book("222", "Effective Java", 3);
+        book.checkoutCopy();
+        book.borrowBy(new User("u1", "Alice", true), LocalDate.of(2030, 3, 1));
+        store.updateBook(book);
+
+        Book read = store.findBookByIsbn("222").orElseThrow();
+        assertEquals("Effective Java", read.getTitle());
+        assertEquals(3, read.getTotalCopies());
+        assertEquals(2, read.getAvailableCopies());
+        assertEquals(LocalDate.of(2030, 3, 1), read.getDueDate());
+        assertEquals("Alice", read.getBorrowedBy().getName());
+        assertTrue(read.getBorrowedBy().isAdmin());
+        assertEquals(1, read.getVersion());
+        assertTrue(store.findBookByIsbn("999").isEmpty());
+    }
+
+    @Test
+    void testKeepsEveryLoanOfASharedTitle() {
+        Book book = new Book("333", "Course Reader", 3);
+        for (int i = 1; i <= 3; i++) {
+            book.checkoutCopy();
+            book.borrowBy(new User("u" + i, "Patron " + i, false), LocalDate.of(2030, 3, i));
+        }
+        store.updateBook(book);
+
+        Book read = store.findBookByIsbn("333").orElseThrow();
+        assertEquals(3, read.getLoanCount());
+        assertEquals("Patron 2", read.getLoans().get(1).getBorrower().getName());
+        assertEquals(LocalDate.of(2030, 3, 3), read.getDueDate(new User("u3", null, false)));
+
+        read.returnBook(new User("u1", null, false));
+        assertTrue(store.updateBookIfVersion(read, read.getVersion()));
+        Book scanned = store.stream().filter(b -> b.getIsbn().equals("333")).findFirst().orElseThrow();
+        assertEquals(2, scanned.getLoanCount());
+        assertEquals("u2", scanned.getLoans().get(0).getBorrower().getId());
+        assertEquals("u3", scanned.getBorrowedBy().getId());
+    }
+
+    @Test
+    void testBlindUpdateBumpsVersion() {
+        Book book = new Book("111", "Clean Code");
+        store.updateBook(book);
+        book.setAvailable(false);
+        store.updateBook(book);
+
+        assertEquals(2, book.getVersion());
+        Book read = store.findBookByIsbn("111").orElseThrow();
+        assertFalse(read.isAvailable());
+        assertEquals(2, read.getVersion());
+    }
+
+    @Test
+    void testConditionalUpdateRejectsStaleVersion() {
+        assertTrue(store.updateBookIfVersion(new Book("111", "Clean Code"), 0));
+        assertFalse(store.updateBookIfVersion(new Book("111", "Clean Code"), 0), "insert must not overwrite");
+        Book first = store.findBookByIsbn("111").orElseThrow();
+        Book second = store.findBookByIsbn("111").orElseThrow();
+
+        first.checkoutCopy();
+        assertTrue(store.updateBookIfVersion(first, first.getVersion()));
+        assertFalse(store.updateBookIfVersion(second, second.getVersion()));
+        assertFalse(store.findBookByIsbn("111").orElseThrow().isAvailable());
+    }
+
+    @Test
+    void testConditionalBatchRollsBackOnStaleVersion() {
+        store.updateBook(new Book("111", "Clean Code"));
+        store.updateBook(new Book("222", "Effective Java"));
+        Book first = store.findBookByIsbn("111").orElseThrow();
+        Book second = store.findBookByIsbn("222").orElseThrow();
+        assertTrue(store.updateBookIfVersion(store.findBookByIsbn("222").orElseThrow(), 1));
+
+        first.checkoutCopy();
+        second.checkoutCopy();
+        assertFalse(store.updateBooksIfVersions(List.of(first, second, new Book("333", "Refactoring"))));
+        assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable(), "No book of a failed batch is written");
+        assertTrue(store.findBookByIsbn("333").isEmpty());
+        assertEquals(1, first.getVersion());
+
+        second = store.findBookByIsbn("222").orElseThrow();
+        second.checkoutCopy();
+        assertTrue(store.updateBooksIfVersions(List.of(first, second, new Book("333", "Refactoring"))));
+        assertFalse(store.findBookByIsbn("111").orElseThrow().isAvailable());
+        assertEquals(3, second.getVersion());
+        assertEquals(1, store.findBookByIsbn("333").orElseThrow().getVersion());
+    }
+
+    @Test
+    void testBatchWriteInsertsAndUpdates() {
+        store.updateBook(new Book("b0", "Existing"));
+        List<Book> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            batch.add(new Book("b" + i, "Title " + i));
+        }
+        store.updateBooks(batch);
+
+        assertEquals("Title 0", store.findBookByIsbn("b0").orElseThrow().getTitle());
+        assertEquals(2, store.findBookByIsbn("b0").orElseThrow().getVersion());
+        assertEquals(500, store.parallelStream().count());
+    }
+
+    @Test
+    void testLibraryServiceCirculatesThroughSqlStore() {
+        store.updateBook(new Book("111", "Clean Code"));
+        LibraryService service = new LibraryService(store);
+        User user = new User("u1", "Alice", false);
+
+        assertTrue(service.issueBookWithDueDate(user, "111", LocalDate.of(2030, 1, 1)));
+        assertFalse(service.issueBook(user, "111"));
+        assertTrue(service.returnBookEnhanced(user, "111"));
+        assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable());
+        assertEquals(2, service.getUpdateStats().getCommits());
+    }
+
+    @Test
+    void testPoolTimesOutWhenExhausted() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "", 1, 50)) {
+            ConnectionPool.PooledConnection held = pool.acquire();
+            assertThrows(SQLException.class, pool::acquire);
+            pool.release(held);
+            assertSame(held, pool.acquire());
+        }
+    }
+}
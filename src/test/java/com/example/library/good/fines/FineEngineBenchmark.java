@@ -0,0 +1,37 @@
+package com.example.library.good.fines;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Times the accrual sweep over a large loan book.
+ * Run with: gradle benchmark -Pbench=com.example.library.good.fines.FineEngineBenchmark [-PbenchArgs="loans rounds"]
+ */
+public class FineEngineBenchmark {
+
+    public static void main(String[] args) {
+        int loans = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long today = 20_000;
+        long[] due = new long[loans];
+        long[] rates = new long[loans];
+        long[] caps = new long[loans];
+        long[] fines = new long[loans];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < loans; i++) {
+            due[i] = today - 30 + random.nextInt(60);
+            rates[i] = 10 + random.nextInt(3) * 40;
+            caps[i] = 2_000;
+        }
+
+        long checksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            FineEngine.accrue(due, rates, caps, today + round, fines);
+            long elapsed = System.nanoTime() - start;
+            checksum += fines[round % loans];
+            System.out.printf("round %d: %d loans in %.2f ms (%.2f ns/loan)%n",
+                    round, loans, elapsed / 1e6, (double) elapsed / loans);
+        }
+        System.out.println("checksum " + checksum);
+    }
+}
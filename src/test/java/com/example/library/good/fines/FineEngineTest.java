@@ -0,0 +1,154 @@
+package com.example.library.good.fines;
+
+import com.example.library.good.datastore.InMemoryDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FineEngineTest {
+    private static final LocalDate TODAY = LocalDate.of(2030, 3, 10);
+
+    @Test
+    void testAccrueAppliesRateAndCap() {
+        long today = TODAY.toEpochDay();
+        long[] due = {today - 3, today, today + 5, today - 100};
+        long[] rates = {25, 25, 25, 25};
+        long[] caps = {1_000, 1_000, 1_000, 1_000};
+        long[] fines = new long[4];
+
+        FineEngine.accrue(due, rates, caps, today, fines);
+
+        assertArrayEquals(new long[]{75, 0, 0, 1_000}, fines);
+    }
+
+    @Test
+    void testAccrueRejectsShortArrays() {
+        assertThrows(IllegalArgumentException.class,
+                () -> FineEngine.accrue(new long[2], new long[2], new long[1], 0, new long[2]));
+    }
+
+    @Test
+    void testTotalsPerUserWithCategories() {
+        FineRateTable rates = new FineRateTable(10, 500);
+        rates.define("dvd", 100, 2_000);
+        InMemoryDataStore store = new InMemoryDataStore();
+        store.updateBook(new Book("b1", "Book One"));
+        store.updateBook(new Book("b2", "Book Two"));
+        store.updateBook(new Book("d1", "DVD One"));
+        LoanLedger ledger = new LoanLedger(rates, book -> book.getIsbn().startsWith("d") ? "dvd" : null);
+        LibraryService service = new LibraryService(store);
+        service.addCirculationListener(ledger);
+        User alice = new User("u1", "Alice", false);
+        User bob = new User("u2", "Bob", false);
+
+        service.issueBookWithDueDate(alice, "b1", TODAY.minusDays(4));
+        service.issueBookWithDueDate(alice, "d1", TODAY.minusDays(30));
+        service.issueBookWithDueDate(bob, "b2", TODAY.plusDays(1));
+
+        FineReport report = new FineEngine(rates).assess(ledger, TODAY);
+
+        assertEquals(40 + 2_000, report.getFineCents("u1"));
+        assertEquals(0, report.getFineCents("u2"));
+        assertEquals(Map.of("u1", 2_040L), report.getTotalsByUser());
+        assertEquals(2_040, report.getTotalCents());
+        assertEquals(2, report.getOverdueLoans());
+    }
+
+    @Test
+    void testReturnedLoansStopAccruing() {
+        FineRateTable rates = new FineRateTable(10, FineRateTable.NO_CAP);
+        InMemoryDataStore store = new InMemoryDataStore();
+        store.updateBook(new Book("mc", "Course Reserve", 3));
+        LoanLedger ledger = new LoanLedger(rates);
+        LibraryService service = new LibraryService(store);
+        service.addCirculationListener(ledger);
+        User alice = new User("u1", "Alice", false);
+        User bob = new User("u2", "Bob", false);
+        service.issueBookWithDueDate(alice, "mc", TODAY.minusDays(1));
+        service.issueBookWithDueDate(bob, "mc", TODAY.minusDays(2));
+
+        service.returnBookEnhanced(alice, "mc");
+        FineReport report = new FineEngine(rates).assess(ledger, TODAY);
+
+        assertEquals(1, ledger.size());
+        assertEquals(0, report.getFineCents("u1"));
+        assertEquals(20, report.getFineCents("u2"));
+    }
+
+    @Test
+    void testReturnEndsTheReturnersEarliestDueLoan() {
+        FineRateTable rates = new FineRateTable(10, FineRateTable.NO_CAP);
+        InMemoryDataStore store = new InMemoryDataStore();
+        store.updateBook(new Book("mc", "Course Reserve", 2));
+        LoanLedger ledger = new LoanLedger(rates);
+        LibraryService service = new LibraryService(store);
+        service.addCirculationListener(ledger);
+        User alice = new User("u1", "Alice", false);
+        service.issueBookWithDueDate(alice, "mc", TODAY.plusDays(2));
+        service.issueBookWithDueDate(alice, "mc", TODAY.minusDays(3));
+
+        service.returnBookEnhanced(alice, "mc");
+        FineReport report = new FineEngine(rates).assess(ledger, TODAY);
+
+        assertEquals(TODAY.plusDays(2), store.findBookByIsbn("mc").orElseThrow().getDueDate());
+        assertEquals(1, ledger.size());
+        assertEquals(0, report.getFineCents("u1"));
+    }
+
+    @Test
+    void testLedgerStartsFromLoansAlreadyInTheStore() {
+        FineRateTable rates = new FineRateTable(10, FineRateTable.NO_CAP);
+        InMemoryDataStore store = new InMemoryDataStore();
+        store.updateBook(new Book("mc", "Course Reserve", 3));
+        store.updateBook(new Book("b1", "Book One"));
+        LibraryService service = new LibraryService(store);
+        User alice = new User("u1", "Alice", false);
+        User bob = new User("u2", "Bob", false);
+        service.issueBookWithDueDate(alice, "mc", TODAY.minusDays(1));
+        service.issueBookWithDueDate(bob, "mc", TODAY.minusDays(2));
+        service.issueBook(bob, "b1");
+
+        LoanLedger ledger = new LoanLedger(rates, book -> null, store);
+        service.addCirculationListener(ledger);
+        service.returnBookEnhanced(alice, "mc");
+        FineReport report = new FineEngine(rates).assess(ledger, TODAY);
+
+        assertEquals(1, ledger.size());
+        assertEquals(0, report.getFineCents("u1"));
+        assertEquals(20, report.getFineCents("u2"));
+    }
+
+    @Test
+    void testLedgerGrowsAndSwapRemoves() {
+        FineRateTable rates = new FineRateTable(1, FineRateTable.NO_CAP);
+        LoanLedger ledger = new LoanLedger(rates);
+        User user = new User("u1", "Alice", false);
+        for (int i = 0; i < 1_000; i++) {
+            ledger.onBookIssued(user, new Book("i" + i, "Title"), TODAY.minusDays(1));
+        }
+        for (int i = 0; i < 1_000; i += 2) {
+            ledger.onBookReturned(user, new Book("i" + i, "Title"));
+        }
+
+        assertEquals(500, ledger.size());
+        assertEquals(500, new FineEngine(rates).assess(ledger, TODAY).getFineCents("u1"));
+    }
+
+    @Test
+    void testRateTableValidatesAndRedefines() {
+        FineRateTable rates = new FineRateTable(10, 100);
+        assertThrows(IllegalArgumentException.class, () -> rates.define("x", -1, 100));
+        rates.define("dvd", 50, 100);
+        rates.define("dvd", 75, 300);
+
+        assertEquals(1, rates.categoryIndex("dvd"));
+        assertEquals(0, rates.categoryIndex("unknown"));
+        assertEquals(75, rates.centsPerDay()[1]);
+    }
+}
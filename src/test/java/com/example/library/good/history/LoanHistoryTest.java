@@ -0,0 +1,155 @@
+package com.example.library.good.history;
+
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import com.example.library.good.testing.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoanHistoryTest {
+    private static final Instant START = Instant.parse("2030-01-01T10:00:00Z");
+
+    private MutableClock clock;
+    private LoanHistory history;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(START);
+        history = new LoanHistory(clock);
+    }
+
+    @Test
+    void testKeepsLoansAfterTheBookIsReturned() {
+        StubDataStore store = new StubDataStore();
+        store.addBook(new Book("111", "Clean Code"));
+        LibraryService service = new LibraryService(store);
+        service.addCirculationListener(history);
+        User alice = new User("u1", "Alice", false);
+
+        service.issueBookWithDueDate(alice, "111", START.atZone(ZoneOffset.UTC).toLocalDate().plusDays(14));
+        clock.advance(Duration.ofDays(3));
+        service.returnBookEnhanced(alice, "111");
+
+        List<LoanEvent> events = history.titleHistory("111", START, START.plus(Duration.ofDays(30)));
+        assertEquals(2, events.size());
+        assertEquals(LoanEvent.Type.ISSUED, events.get(0).getType());
+        assertEquals("u1", events.get(0).getUserId());
+        assertEquals(START, events.get(0).getTime());
+        assertEquals(LoanEvent.Type.RETURNED, events.get(1).getType());
+        assertEquals(START.plus(Duration.ofDays(3)), events.get(1).getTime());
+
+        List<LoanEvent> byUser = history.userHistory("u1", START, START.plus(Duration.ofDays(30)));
+        assertEquals(List.of("111", "111"), byUser.stream().map(LoanEvent::getIsbn).collect(Collectors.toList()));
+        assertTrue(history.userHistory("u2", START, START.plus(Duration.ofDays(30))).isEmpty());
+    }
+
+    @Test
+    void testReturnWithNoCopyOutIsNotRecorded() {
+        StubDataStore store = new StubDataStore();
+        store.addBook(new Book("111", "Clean Code"));
+        LibraryService service = new LibraryService(store);
+        service.addCirculationListener(history);
+        User alice = new User("u1", "Alice", false);
+
+        assertFalse(service.returnBook(alice, "111"));
+        assertFalse(service.returnBookEnhanced(alice, "111"));
+
+        assertTrue(history.titleHistory("111", START, START.plus(Duration.ofDays(1))).isEmpty());
+    }
+
+    @Test
+    void testCountsLoansInTheLastNinetyDays() {
+        Book book = new Book("111", "Clean Code");
+        User user = new User("u1", "Alice", false);
+        for (int day = 0; day < 200; day++) {
+            history.onBookIssued(user, book, null);
+            history.onBookReturned(user, book);
+            clock.advance(Duration.ofDays(1));
+        }
+        clock.advance(Duration.ofDays(-1));
+
+        assertEquals(90, history.countLoansInLast("111", Duration.ofDays(90)));
+        assertEquals(200, history.countLoans("111", START, clock.instant().plusSeconds(1)));
+        assertEquals(0, history.countLoansInLast("222", Duration.ofDays(90)));
+    }
+
+    @Test
+    void testRangeQueriesAcrossBlocksMatchAPlainList() {
+        Random random = new Random(42);
+        List<LoanEvent> expected = new ArrayList<>();
+        String[] isbns = {"111", "222", "333"};
+        for (int i = 0; i < 5_000; i++) {
+            clock.advance(Duration.ofMillis(random.nextInt(3) == 0 ? 0 : random.nextInt(5_000_000)));
+            String isbn = isbns[random.nextInt(isbns.length)];
+            User user = new User("u" + random.nextInt(20), "User", false);
+            boolean issued = random.nextBoolean();
+            if (issued) {
+                history.onBookIssued(user, new Book(isbn, "Title"), null);
+            } else {
+                history.onBookReturned(user, new Book(isbn, "Title"));
+            }
+            expected.add(new LoanEvent(issued ? LoanEvent.Type.ISSUED : LoanEvent.Type.RETURNED,
+                    isbn, user.getId(), clock.instant()));
+        }
+
+        long span = clock.instant().toEpochMilli() - START.toEpochMilli();
+        for (int query = 0; query < 200; query++) {
+            Instant from = START.plusMillis((long) (random.nextDouble() * span));
+            Instant to = from.plusMillis((long) (random.nextDouble() * span / 4));
+            String isbn = isbns[random.nextInt(isbns.length)];
+            assertEquals(describe(expected, e -> e.getIsbn().equals(isbn), from, to),
+                    describe(history.titleHistory(isbn, from, to), e -> true, from, to));
+            String userId = "u" + random.nextInt(20);
+            assertEquals(describe(expected, e -> e.getUserId().equals(userId), from, to),
+                    describe(history.userHistory(userId, from, to), e -> true, from, to));
+        }
+        assertEquals(5_000, history.size());
+        // Two series per event at a handful of bytes each.
+        assertTrue(history.encodedBytes() < 5_000 * 2 * 6, "bytes: " + history.encodedBytes());
+    }
+
+    @Test
+    void testClockSteppingBackwardsDoesNotReorderEvents() {
+        Book book = new Book("111", "Clean Code");
+        User user = new User("u1", "Alice", false);
+        history.onBookIssued(user, book, null);
+        clock.advance(Duration.ofMinutes(-5));
+        history.onBookReturned(user, book);
+
+        List<LoanEvent> events = history.titleHistory("111", START.minusSeconds(3600), START.plusSeconds(3600));
+        assertEquals(2, events.size());
+        assertEquals(START, events.get(1).getTime());
+        assertEquals(LoanEvent.Type.RETURNED, events.get(1).getType());
+    }
+
+    @Test
+    void testReturnWithoutUserIsKeptOnTheTitleOnly() {
+        history.onBookReturned(null, new Book("111", "Clean Code"));
+
+        List<LoanEvent> events = history.titleHistory("111", START, START.plusSeconds(1));
+        assertEquals(1, events.size());
+        assertNull(events.get(0).getUserId());
+    }
+
+    private static List<String> describe(List<LoanEvent> events, Predicate<LoanEvent> filter,
+                                         Instant from, Instant to) {
+        return events.stream()
+                .filter(filter)
+                .filter(e -> !e.getTime().isBefore(from) && e.getTime().isBefore(to))
+                .map(LoanEvent::toString)
+                .collect(Collectors.toList());
+    }
+}
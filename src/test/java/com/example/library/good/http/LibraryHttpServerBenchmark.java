@@ -0,0 +1,114 @@
+package com.example.library.good.http;
+
+import com.example.library.good.datastore.DatabaseStore;
+import com.example.library.good.service.LibraryService;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requests/sec of lookups against {@link LibraryHttpServer} over many
+ * keep-alive connections, each sending pipelined batches.
+ *
+ * Run with: gradle benchmark -Pbench=com.example.library.good.http.LibraryHttpServerBenchmark
+ * Args: [connections=1000] [pipelineDepth=8] [seconds=10]
+ */
+public class LibraryHttpServerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        LibraryService service = new LibraryService(new DatabaseStore());
+        try (LibraryHttpServer server = new LibraryHttpServer(service,
+                new InetSocketAddress("127.0.0.1", 0), LibraryHttpServer.defaultExecutor())) {
+            server.start();
+
+            byte[] batch = "GET /books/111 HTTP/1.1\r\nHost: bench\r\n\r\n".repeat(depth)
+                    .getBytes(StandardCharsets.US_ASCII);
+            LongAdder completed = new LongAdder();
+            AtomicBoolean running = new AtomicBoolean(true);
+            CountDownLatch done = new CountDownLatch(connections);
+            ExecutorService clients = LibraryHttpServer.defaultExecutor();
+            List<Socket> sockets = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                Socket socket = new Socket("127.0.0.1", server.getPort());
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                clients.execute(() -> {
+                    try {
+                        OutputStream out = socket.getOutputStream();
+                        InputStream in = new BufferedInputStream(socket.getInputStream());
+                        while (running.get()) {
+                            out.write(batch);
+                            out.flush();
+                            for (int r = 0; r < depth; r++) {
+                                readResponse(in);
+                            }
+                            completed.add(depth);
+                        }
+                    } catch (IOException e) {
+                        // connection closed at shutdown
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            Thread.sleep(2_000); // warm-up
+            long startCount = completed.sum();
+            long start = System.nanoTime();
+            Thread.sleep(seconds * 1_000L);
+            long requests = completed.sum() - startCount;
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            running.set(false);
+            done.await();
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            clients.shutdownNow();
+
+            System.out.printf("connections=%d pipelineDepth=%d requests=%d throughput=%.0f req/s%n",
+                    connections, depth, requests, requests / elapsed);
+        }
+    }
+
+    private static void readResponse(InputStream in) throws IOException {
+        int contentLength = 0;
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            int c = in.read();
+            if (c < 0) {
+                throw new IOException("connection closed");
+            }
+            if (c == '\n') {
+                if (line.length() == 0) {
+                    break;
+                }
+                String header = line.toString();
+                if (header.regionMatches(true, 0, "content-length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+                line.setLength(0);
+            } else if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        for (int i = 0; i < contentLength; i++) {
+            if (in.read() < 0) {
+                throw new IOException("connection closed");
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.library.good.http;
+
+import com.example.library.good.datastore.DataStore;
+import com.example.library.good.datastore.DataStoreException;
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.datastore.VersionedDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.AdmissionController;
+import com.example.library.good.service.LibraryService;
+import com.example.library.good.service.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LibraryHttpServerTest {
+    private StubDataStore store;
+    private NotificationService mockNotifier;
+    private LibraryHttpServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new StubDataStore();
+        store.addBook(new Book("http001", "Kiosk Book"));
+        mockNotifier = mock(NotificationService.class);
+        server = new LibraryHttpServer(new LibraryService(store, mockNotifier),
+                new InetSocketAddress("127.0.0.1", 0), LibraryHttpServer.defaultExecutor());
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testLookup_returnsBookAsJson() throws Exception {
+        HttpResponse<String> response = get("/books/http001");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"title\":\"Kiosk Book\""));
+        assertTrue(response.body().contains("\"available\":true"));
+    }
+
+    @Test
+    void testLookup_unknownIsbnIsNotFound() throws Exception {
+        assertEquals(404, get("/books/nope").statusCode());
+    }
+
+    @Test
+    void testIssueWithDueDate_thenSecondIssueConflicts() throws Exception {
+        HttpResponse<String> first = post("/books/http001/issue?userId=u1&name=Alice&dueDate=2030-01-15");
+        HttpResponse<String> second = post("/books/http001/issue?userId=u2&name=Bob");
+
+        assertEquals(200, first.statusCode());
+        assertEquals(409, second.statusCode());
+        Book book = store.findBookByIsbn("http001").orElseThrow();
+        assertFalse(book.isAvailable());
+        assertEquals(LocalDate.of(2030, 1, 15), book.getDueDate());
+        assertEquals("u1", book.getBorrowedBy().getId());
+        verify(mockNotifier).notifyBookBorrowed(any(User.class), eq(book));
+    }
+
+    @Test
+    void testReturn_makesBookAvailableAgain() throws Exception {
+        post("/books/http001/issue?userId=u1");
+
+        HttpResponse<String> response = post("/books/http001/return?userId=u1");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(store.findBookByIsbn("http001").orElseThrow().isAvailable());
+    }
+
+    @Test
+    void testReturn_withEveryCopyInConflicts() throws Exception {
+        HttpResponse<String> response = post("/books/http001/return?userId=u1");
+
+        assertEquals(409, response.statusCode());
+        assertEquals("{\"ok\":false}", response.body());
+    }
+
+    @Test
+    void testWrongMethod_isNotAllowedWithAllowHeader() throws Exception {
+        HttpResponse<String> postLookup = post("/books/http001");
+        HttpResponse<String> getIssue = get("/books/http001/issue?userId=u1");
+
+        assertEquals(405, postLookup.statusCode());
+        assertEquals("GET", postLookup.headers().firstValue("Allow").orElseThrow());
+        assertTrue(postLookup.body().contains("method not allowed"));
+        assertEquals(405, getIssue.statusCode());
+        assertEquals("POST", getIssue.headers().firstValue("Allow").orElseThrow());
+        assertTrue(store.findBookByIsbn("http001").orElseThrow().isAvailable());
+    }
+
+    @Test
+    void testReservation_notifiesWhenAvailable() throws Exception {
+        HttpResponse<String> response = post("/books/http001/reservation?userId=u3&name=Carol");
+
+        assertEquals(202, response.statusCode());
+        verify(mockNotifier).notifyReservationAvailable(any(User.class), any(Book.class));
+    }
+
+    @Test
+    void testIssue_missingUserIsBadRequest() throws Exception {
+        assertEquals(400, post("/books/http001/issue").statusCode());
+    }
+
+    @Test
+    void testOverload_isServiceUnavailable() throws Exception {
+        AdmissionController admission = new AdmissionController(1, 1, 1, Duration.ofSeconds(1), 0, Duration.ZERO);
+        restartWith(new LibraryService(store, mockNotifier, null, admission));
+
+        long admittedAt = admission.acquire(AdmissionController.Priority.RETURN);
+        HttpResponse<String> shed = get("/books/http001");
+        admission.release(admittedAt);
+
+        assertEquals(503, shed.statusCode());
+        assertTrue(shed.headers().firstValue("Retry-After").isPresent());
+        assertEquals(200, get("/books/http001").statusCode());
+    }
+
+    @Test
+    void testExhaustedRetries_areConflictWithJsonBody() throws Exception {
+        VersionedDataStore contended = mock(VersionedDataStore.class);
+        when(contended.findBookByIsbn("http001")).thenAnswer(call -> Optional.of(new Book("http001", "Kiosk Book")));
+        when(contended.updateBookIfVersion(any(Book.class), anyLong())).thenReturn(false);
+        restartWith(new LibraryService(contended));
+
+        HttpResponse<String> response = post("/books/http001/issue?userId=u1");
+
+        assertEquals(409, response.statusCode());
+        assertTrue(response.body().contains("\"error\""));
+        assertTrue(response.headers().firstValue("Retry-After").isPresent());
+    }
+
+    @Test
+    void testStoreFailure_isServerErrorWithJsonBody() throws Exception {
+        DataStore broken = mock(DataStore.class);
+        when(broken.findBookByIsbn(anyString())).thenThrow(new DataStoreException("disk gone", null));
+        restartWith(new LibraryService(broken));
+
+        HttpResponse<String> response = get("/books/http001");
+
+        assertEquals(500, response.statusCode());
+        assertEquals("{\"error\":\"storage failure\"}", response.body());
+    }
+
+    @Test
+    void testKeepAlive_pipelinedRequestsOnOneConnection() throws Exception {
+        String request = "GET /books/http001 HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write((request + request + request).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            for (int i = 0; i < 3; i++) {
+                assertEquals("HTTP/1.1 200 OK", in.readLine());
+                int contentLength = -1;
+                for (String line = in.readLine(); !line.isEmpty(); line = in.readLine()) {
+                    if (line.toLowerCase().startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+                assertTrue(contentLength > 0, "Responses must be length-delimited to keep the connection open");
+                assertEquals(contentLength, in.skip(contentLength));
+            }
+        }
+    }
+
+    private void restartWith(LibraryService service) throws IOException {
+        server.close();
+        server = new LibraryHttpServer(service, new InetSocketAddress("127.0.0.1", 0), LibraryHttpServer.defaultExecutor());
+        server.start();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.library.good.importer;
+
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testImportCsv_skipsHeaderAndHandlesQuotedTitles() throws Exception {
+        StubDataStore store = new StubDataStore();
+        String csv = "isbn,title\n"
+                + "111,Clean Code\n"
+                + "222,\"Refactoring, 2nd Edition\"\n"
+                + "333,\"The \"\"Pragmatic\"\" Programmer\"\n";
+
+        ImportResult result = new CatalogImporter(store).importFrom(new StringReader(csv), ',', (l, w) -> { });
+
+        assertEquals(3, result.getImported());
+        assertEquals(4, result.getLinesRead());
+        assertEquals("Refactoring, 2nd Edition", store.findBookByIsbn("222").orElseThrow().getTitle());
+        assertEquals("The \"Pragmatic\" Programmer", store.findBookByIsbn("333").orElseThrow().getTitle());
+        assertTrue(store.findBookByIsbn("111").orElseThrow().isAvailable());
+    }
+
+    @Test
+    void testImportFile_tsvDetectedFromExtension() throws Exception {
+        Path feed = tempDir.resolve("vendor.tsv");
+        Files.writeString(feed, "t1\tTabs, Commas and All\nt2\tSecond\n");
+        StubDataStore store = new StubDataStore();
+
+        ImportResult result = new CatalogImporter(store).importFile(feed);
+
+        assertEquals(2, result.getImported());
+        assertEquals("Tabs, Commas and All", store.findBookByIsbn("t1").orElseThrow().getTitle());
+    }
+
+    @Test
+    void testInvalidLines_areCountedAndReported() throws Exception {
+        StubDataStore store = new StubDataStore();
+        String csv = "111,Good\n,No Isbn\n222,\n33 3,Spaces\n444,\"Unterminated\n";
+
+        ImportResult result = new CatalogImporter(store).importFrom(new StringReader(csv), ',', (l, w) -> { });
+
+        assertEquals(1, result.getImported());
+        assertEquals(4, result.getInvalid());
+        assertEquals("line 2: missing isbn", result.getErrors().get(0));
+        assertTrue(result.getErrors().get(3).startsWith("line 5"));
+    }
+
+    @Test
+    void testDuplicates_keepFirstAcrossParallelChunks() throws Exception {
+        StubDataStore store = new StubDataStore();
+        CatalogImporter importer = new CatalogImporter(store, 4, 3, 5, 2, DuplicatePolicy.KEEP_FIRST);
+
+        ImportResult result = importer.importFrom(new StringReader(feedWithDuplicates()), ',', (l, w) -> { });
+
+        assertEquals(100, result.getImported());
+        assertEquals(100, result.getDuplicates());
+        assertEquals("first-7", store.findBookByIsbn("isbn-7").orElseThrow().getTitle());
+    }
+
+    @Test
+    void testDuplicates_keepLastAcrossParallelChunks() throws Exception {
+        StubDataStore store = new StubDataStore();
+        CatalogImporter importer = new CatalogImporter(store, 4, 3, 5, 2, DuplicatePolicy.KEEP_LAST);
+
+        ImportResult result = importer.importFrom(new StringReader(feedWithDuplicates()), ',', (l, w) -> { });
+
+        assertEquals(100, result.getImported());
+        assertEquals(100, result.getDuplicates());
+        assertEquals("last-7", store.findBookByIsbn("isbn-7").orElseThrow().getTitle());
+        assertEquals("last-99", store.findBookByIsbn("isbn-99").orElseThrow().getTitle());
+    }
+
+    @Test
+    void testBatchesAndProgress() throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        StubDataStore store = new StubDataStore() {
+            @Override
+            public void updateBooks(List<Book> books) {
+                batchSizes.add(books.size());
+                super.updateBooks(books);
+            }
+        };
+        AtomicLong lastWritten = new AtomicLong();
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            csv.append("b").append(i).append(",Title ").append(i).append('\n');
+        }
+
+        ImportResult result = new CatalogImporter(store, 3, 64, 256, 4, DuplicatePolicy.KEEP_FIRST)
+                .importFrom(new StringReader(csv.toString()), ',', (lines, written) -> lastWritten.set(written));
+
+        assertEquals(1000, result.getImported());
+        assertEquals(List.of(256, 256, 256, 232), batchSizes);
+        assertEquals(1000, lastWritten.get());
+    }
+
+    @Test
+    void testOptionalCopiesColumn() throws Exception {
+        StubDataStore store = new StubDataStore();
+        String csv = "111,Single\n222,Popular,40\n333,Broken,zero\n";
+
+        ImportResult result = new CatalogImporter(store).importFrom(new StringReader(csv), ',', (l, w) -> { });
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getInvalid());
+        assertEquals(1, store.findBookByIsbn("111").orElseThrow().getTotalCopies());
+        assertEquals(40, store.findBookByIsbn("222").orElseThrow().getAvailableCopies());
+    }
+
+    private static String feedWithDuplicates() {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            csv.append("isbn-").append(i).append(",first-").append(i).append('\n');
+        }
+        for (int i = 0; i < 100; i++) {
+            csv.append("isbn-").append(i).append(",last-").append(i).append('\n');
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.library.good.index;
+
+import com.example.library.good.datastore.BookMutation;
+import com.example.library.good.datastore.DatabaseStore;
+import com.example.library.good.datastore.InMemoryDataStore;
+import com.example.library.good.datastore.MutableDataStore;
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.datastore.VersionedDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedDataStoreTest {
+    private final User alice = new User("u1", "Alice", false);
+
+    @Test
+    void testIndexesExistingBooksOnWrap() {
+        IndexedDataStore store = IndexedDataStore.wrap(new DatabaseStore(), new BookStatusIndex());
+
+        assertEquals(2, store.getIndex().cardinality(BookStatus.AVAILABLE));
+        assertEquals(0, store.getIndex().cardinality(BookStatus.ON_LOAN));
+    }
+
+    @Test
+    void testCirculationKeepsIndexCurrent() {
+        IndexedDataStore store = IndexedDataStore.wrap(new DatabaseStore(), new BookStatusIndex());
+        store.updateBook(new Book("mc", "Course Reserve", 2));
+        LibraryService service = new LibraryService(store);
+        BookStatusIndex index = store.getIndex();
+
+        service.issueBookWithDueDate(alice, "111", LocalDate.of(2030, 1, 1));
+        service.issueBook(alice, "mc");
+
+        assertFalse(index.has("111", BookStatus.AVAILABLE));
+        assertTrue(index.has("mc", BookStatus.AVAILABLE));
+        assertTrue(index.has("mc", BookStatus.ON_LOAN));
+        RoaringBitmap allOut = RoaringBitmap.andNot(index.select(BookStatus.ON_LOAN), index.select(BookStatus.AVAILABLE));
+        assertEquals(List.of("111"), index.isbnsOf(allOut));
+        RoaringBitmap neverOut = RoaringBitmap.andNot(index.all(), index.select(BookStatus.ON_LOAN));
+        assertEquals(List.of("222"), index.isbnsOf(neverOut));
+        assertEquals(List.of("111"), index.isbnsOf(index.selectOverdue(LocalDate.of(2030, 1, 2))));
+        assertTrue(index.selectOverdue(LocalDate.of(2030, 1, 1)).isEmpty());
+
+        service.returnBookEnhanced(alice, "111");
+        assertTrue(index.has("111", BookStatus.AVAILABLE));
+        assertEquals(1, index.cardinality(BookStatus.ON_LOAN));
+        assertTrue(index.selectOverdue(LocalDate.of(2030, 1, 2)).isEmpty());
+    }
+
+    @Test
+    void testOverdueFollowsTheEarliestDueLoan() {
+        IndexedDataStore store = IndexedDataStore.wrap(new DatabaseStore(), new BookStatusIndex());
+        store.updateBook(new Book("mc", "Course Reserve", 2));
+        LibraryService service = new LibraryService(store);
+        User bob = new User("u2", "Bob", false);
+        BookStatusIndex index = store.getIndex();
+
+        service.issueBookWithDueDate(alice, "mc", LocalDate.of(2030, 1, 10));
+        service.issueBookWithDueDate(bob, "mc", LocalDate.of(2030, 1, 5));
+        assertEquals(List.of("mc"), index.isbnsOf(index.selectOverdue(LocalDate.of(2030, 1, 6))));
+
+        service.returnBookEnhanced(bob, "mc");
+        assertTrue(index.selectOverdue(LocalDate.of(2030, 1, 6)).isEmpty());
+        assertEquals(List.of("mc"), index.isbnsOf(index.selectOverdue(LocalDate.of(2030, 1, 11))));
+    }
+
+    @Test
+    void testWrapKeepsVersioningOnlyWhenDelegateHasIt() {
+        assertTrue(IndexedDataStore.wrap(new DatabaseStore(), new BookStatusIndex()) instanceof VersionedDataStore);
+        assertFalse(IndexedDataStore.wrap(new StubDataStore(), new BookStatusIndex()) instanceof VersionedDataStore);
+    }
+
+    @Test
+    void testWrapKeepsInPlaceUpdatesAndIndexesThem() {
+        InMemoryDataStore delegate = new InMemoryDataStore();
+        delegate.updateBook(new Book("b1", "One"));
+        delegate.updateBook(new Book("b2", "Two"));
+        IndexedDataStore store = IndexedDataStore.wrap(delegate, new BookStatusIndex());
+        assertTrue(store instanceof MutableDataStore);
+        LibraryService service = new LibraryService(store);
+
+        assertTrue(service.issueBook(alice, "b1"));
+        assertTrue(service.issueBooks(alice, List.of("b2"), null));
+
+        assertTrue(store.getIndex().has("b1", BookStatus.ON_LOAN));
+        assertTrue(store.getIndex().has("b2", BookStatus.ON_LOAN));
+        assertEquals(0, store.getIndex().cardinality(BookStatus.AVAILABLE));
+    }
+
+    @Test
+    void testInPlaceBatchCannotIndexOverANewerWrite() throws Exception {
+        CountDownLatch batchApplied = new CountDownLatch(1);
+        CountDownLatch racerDone = new CountDownLatch(1);
+        // Hands back detached copies, as LsmDataStore does, and lingers before the decorator sees them.
+        InMemoryDataStore delegate = new InMemoryDataStore() {
+            @Override
+            public <A, B> List<Book> updateAllInPlace(List<String> isbns, BookMutation<A, B> mutation,
+                                                      A first, B second) {
+                List<Book> results = super.updateAllInPlace(isbns, mutation, first, second).stream()
+                        .map(Book::copy).collect(Collectors.toList());
+                batchApplied.countDown();
+                try {
+                    racerDone.await(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return results;
+            }
+        };
+        delegate.updateBook(new Book("b1", "One"));
+        MutableDataStore store = (MutableDataStore) IndexedDataStore.wrap(delegate, new BookStatusIndex());
+        BookMutation<Void, Void> checkOut = (book, a, b) -> {
+            book.setAvailable(false);
+            return true;
+        };
+        BookMutation<Void, Void> checkIn = (book, a, b) -> {
+            book.setAvailable(true);
+            return true;
+        };
+
+        CompletableFuture<Void> batch = CompletableFuture.runAsync(
+                () -> store.updateAllInPlace(List.of("b1"), checkOut, null, null));
+        assertTrue(batchApplied.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> racer = CompletableFuture.runAsync(() -> {
+            store.updateInPlace("b1", checkIn, null, null);
+            racerDone.countDown();
+        });
+        batch.get(5, TimeUnit.SECONDS);
+        racer.get(5, TimeUnit.SECONDS);
+
+        BookStatusIndex index = ((IndexedDataStore) store).getIndex();
+        assertTrue(store.findBookByIsbn("b1").orElseThrow().isAvailable());
+        assertTrue(index.has("b1", BookStatus.AVAILABLE));
+        assertFalse(index.has("b1", BookStatus.ON_LOAN));
+    }
+
+    @Test
+    void testFailedConditionalUpdateLeavesIndexAlone() {
+        IndexedDataStore store = IndexedDataStore.wrap(new DatabaseStore(), new BookStatusIndex());
+        Book stale = store.findBookByIsbn("111").orElseThrow();
+        store.updateBook(store.findBookByIsbn("111").orElseThrow());
+        stale.setAvailable(false);
+
+        assertFalse(((VersionedDataStore) store).updateBookIfVersion(stale, stale.getVersion()));
+        assertTrue(store.getIndex().has("111", BookStatus.AVAILABLE));
+    }
+
+    @Test
+    void testBatchWritesAreIndexed() {
+        IndexedDataStore store = IndexedDataStore.wrap(new StubDataStore(), new BookStatusIndex());
+        Book out = new Book("b1", "Out");
+        out.setAvailable(false);
+        store.updateBooks(List.of(out, new Book("b2", "In")));
+
+        assertEquals(List.of("b1"), store.getIndex().isbnsOf(store.getIndex().select(BookStatus.ON_LOAN)));
+        assertEquals(2, store.getIndex().size());
+    }
+}
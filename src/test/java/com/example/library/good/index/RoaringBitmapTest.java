@@ -0,0 +1,91 @@
+package com.example.library.good.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoaringBitmapTest {
+
+    @Test
+    void testAddRemoveContains() {
+        RoaringBitmap bitmap = RoaringBitmap.of(3, 70_000, 5, 3);
+
+        assertTrue(bitmap.contains(3));
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(4));
+        assertEquals(3, bitmap.cardinality());
+        assertArrayEquals(new int[]{3, 5, 70_000}, bitmap.toArray());
+
+        bitmap.remove(70_000);
+        bitmap.remove(12345);
+        assertArrayEquals(new int[]{3, 5}, bitmap.toArray());
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+
+    @Test
+    void testDenseContainerConvertsBothWays() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(i * 2);
+        }
+        assertEquals(10_000, bitmap.cardinality());
+        for (int i = 0; i < 9_000; i++) {
+            bitmap.remove(i * 2);
+        }
+
+        assertEquals(1_000, bitmap.cardinality());
+        assertTrue(bitmap.contains(19_998));
+        assertFalse(bitmap.contains(17_998));
+    }
+
+    @Test
+    void testSetOperationsMatchBitSet() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            // Mix sparse and dense regions so every container pairing is exercised.
+            int density = round % 2 == 0 ? 20 : 2;
+            BitSet expectedA = new BitSet();
+            BitSet expectedB = new BitSet();
+            RoaringBitmap a = new RoaringBitmap();
+            RoaringBitmap b = new RoaringBitmap();
+            for (int i = 0; i < 300_000; i++) {
+                if (random.nextInt(density) == 0) {
+                    expectedA.set(i);
+                    a.add(i);
+                }
+                if (random.nextInt(i < 150_000 ? 2 : 50) == 0) {
+                    expectedB.set(i);
+                    b.add(i);
+                }
+            }
+
+            BitSet and = (BitSet) expectedA.clone();
+            and.and(expectedB);
+            BitSet or = (BitSet) expectedA.clone();
+            or.or(expectedB);
+            BitSet andNot = (BitSet) expectedA.clone();
+            andNot.andNot(expectedB);
+
+            assertArrayEquals(and.stream().toArray(), RoaringBitmap.and(a, b).toArray());
+            assertArrayEquals(or.stream().toArray(), RoaringBitmap.or(a, b).toArray());
+            assertArrayEquals(andNot.stream().toArray(), RoaringBitmap.andNot(a, b).toArray());
+            assertArrayEquals(expectedB.stream().toArray(), RoaringBitmap.andNot(b, RoaringBitmap.of()).toArray());
+            assertEquals(and.cardinality(), RoaringBitmap.and(a, b).cardinality());
+        }
+    }
+
+    @Test
+    void testOperandsAreNotModified() {
+        RoaringBitmap a = RoaringBitmap.of(1, 2, 3);
+        RoaringBitmap b = RoaringBitmap.of(2, 3, 4);
+        RoaringBitmap union = RoaringBitmap.or(a, b);
+        union.add(99);
+
+        assertEquals(RoaringBitmap.of(1, 2, 3), a);
+        assertEquals(RoaringBitmap.of(2, 3, 4), b);
+        assertEquals(RoaringBitmap.of(2, 3), RoaringBitmap.and(a, b));
+    }
+}
@@ -2,6 +2,9 @@ package com.example.library.good.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class BookTest {
@@ -19,4 +22,116 @@ public class BookTest {
         book.setAvailable(false);
         assertFalse(book.isAvailable());
     }
+
+    @Test
+    void testMultiCopyCheckoutAndReturn() {
+        Book book = new Book("123", "Popular Title", 3);
+        assertTrue(book.checkoutCopy());
+        assertTrue(book.checkoutCopy());
+        assertTrue(book.checkoutCopy());
+        assertFalse(book.checkoutCopy(), "No copies left");
+        assertFalse(book.isAvailable());
+
+        assertTrue(book.returnCopy());
+        assertTrue(book.isAvailable());
+        assertEquals(1, book.getAvailableCopies());
+        assertTrue(book.returnCopy());
+        assertTrue(book.returnCopy());
+        assertFalse(book.returnCopy(), "Cannot return more copies than exist");
+    }
+
+    @Test
+    void testConcurrentCheckoutsNeverOversell() throws InterruptedException {
+        Book book = new Book("123", "Bestseller", 40);
+        AtomicInteger checkedOut = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    if (book.checkoutCopy()) {
+                        checkedOut.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40, checkedOut.get());
+        assertEquals(0, book.getAvailableCopies());
+    }
+
+    @Test
+    void testReturnBook_keepsLoanDetailsUntilAllCopiesAreBack() {
+        Book book = new Book("123", "Two Copies", 2);
+        User user = new User("u1", "Ann", false);
+        book.checkoutCopy();
+        book.borrowBy(user, LocalDate.of(2030, 1, 1));
+        book.checkoutCopy();
+
+        book.returnBook();
+        assertEquals(user, book.getBorrowedBy());
+        assertTrue(book.isOverdue(LocalDate.of(2030, 1, 2)));
+
+        book.returnBook();
+        assertNull(book.getBorrowedBy());
+        assertNull(book.getDueDate());
+    }
+
+    @Test
+    void testLoansAreTrackedPerBorrower() {
+        Book book = new Book("123", "Three Copies", 3);
+        User ann = new User("u1", "Ann", false);
+        User ben = new User("u2", "Ben", false);
+        book.checkoutCopy();
+        book.borrowBy(ann, LocalDate.of(2030, 1, 1));
+        book.checkoutCopy();
+        book.borrowBy(ben, LocalDate.of(2030, 2, 1));
+
+        assertEquals(ben, book.getBorrowedBy(), "The latest loan");
+        assertEquals(LocalDate.of(2030, 1, 1), book.getDueDate(new User("u1", null, false)));
+
+        assertTrue(book.returnBook(ann));
+        assertEquals(1, book.getLoanCount());
+        assertEquals(ben, book.getLoans().get(0).getBorrower());
+        assertFalse(book.isOverdue(LocalDate.of(2030, 1, 2)), "Only Ann's loan was late");
+
+        assertTrue(book.returnBook(ben));
+        assertFalse(book.returnBook(ben), "Nothing left out");
+        assertEquals(0, book.getLoanCount());
+    }
+
+    @Test
+    void testNeverRecordsMoreLoansThanCopies() {
+        Book book = new Book("123", "Two Copies", 2);
+        for (int i = 0; i < 3; i++) {
+            book.borrowBy(new User("u" + i, "Patron " + i, false), LocalDate.of(2030, 1, 1 + i));
+        }
+
+        assertEquals(2, book.getLoanCount());
+        assertEquals("u1", book.getLoans().get(0).getBorrower().getId(), "The oldest loan gives way");
+    }
+
+    @Test
+    void testRestoreUndoesLoanChanges() {
+        Book book = new Book("123", "Two Copies", 2);
+        book.checkoutCopy();
+        book.borrowBy(new User("u1", "Ann", false), LocalDate.of(2030, 1, 1));
+        Book snapshot = book.copy();
+
+        book.checkoutCopy();
+        book.borrowBy(new User("u2", "Ben", false), LocalDate.of(2030, 2, 1));
+        book.restore(snapshot);
+
+        assertEquals(1, book.getAvailableCopies());
+        assertEquals(1, book.getLoanCount());
+        assertEquals("u1", book.getBorrowedBy().getId());
+    }
+
+    @Test
+    void testCopiesMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new Book("123", "No Copies", 0));
+    }
 }
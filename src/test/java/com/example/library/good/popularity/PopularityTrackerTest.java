@@ -0,0 +1,141 @@
+package com.example.library.good.popularity;
+
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import com.example.library.good.testing.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PopularityTrackerTest {
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2030-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void testFindsHotTitlesInALongTail() {
+        PopularityTracker tracker = new PopularityTracker(10, clock);
+        Random random = new Random(7);
+        Map<String, Long> exact = new HashMap<>();
+        Set<String> hot = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            hot.add("hot-" + i);
+        }
+        for (int i = 0; i < 200_000; i++) {
+            String isbn = random.nextInt(10) < 3 ? "hot-" + random.nextInt(10) : "978-" + random.nextInt(50_000);
+            tracker.onBookLookedUp(isbn);
+            exact.merge(isbn, 1L, Long::sum);
+        }
+
+        List<PopularTitle> top = tracker.topTitles();
+        assertEquals(10, top.size());
+        assertEquals(hot, top.stream().map(PopularTitle::getIsbn).collect(Collectors.toSet()));
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(top.get(i - 1).getScore() >= top.get(i).getScore());
+        }
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            assertTrue(tracker.estimate(entry.getKey()) >= entry.getValue(), entry.getKey());
+        }
+        assertEquals(3, tracker.topTitles(3).size());
+    }
+
+    @Test
+    void testCheckoutsOutweighLookups() {
+        StubDataStore store = new StubDataStore();
+        store.addBook(new Book("111", "Looked At"));
+        store.addBook(new Book("222", "Borrowed"));
+        LibraryService service = new LibraryService(store);
+        PopularityTracker tracker = new PopularityTracker(5, clock);
+        service.addCirculationListener(tracker);
+
+        for (int i = 0; i < 3; i++) {
+            service.findBook("111");
+        }
+        service.issueBook(new User("u1", "Alice", false), "222");
+        service.findBook("missing");
+
+        assertEquals(3, tracker.estimate("111"));
+        assertEquals(PopularityTracker.DEFAULT_CHECKOUT_WEIGHT, tracker.estimate("222"));
+        assertEquals(1, tracker.estimate("missing"));
+        assertEquals("222", tracker.topTitles().get(0).getIsbn());
+    }
+
+    @Test
+    void testScoresHalveEveryHalfLife() {
+        PopularityTracker tracker = new PopularityTracker(64, 4, 5, Duration.ofHours(1), 1, clock);
+        for (int i = 0; i < 100; i++) {
+            tracker.onBookLookedUp("111");
+        }
+
+        clock.advance(Duration.ofMinutes(59));
+        assertEquals(100, tracker.estimate("111"));
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(50, tracker.estimate("111"));
+        clock.advance(Duration.ofHours(3));
+        assertEquals(6, tracker.estimate("111"));
+
+        // A newcomer overtakes the decayed favourite, and long-idle titles drop out entirely.
+        for (int i = 0; i < 10; i++) {
+            tracker.onBookLookedUp("222");
+        }
+        assertEquals("222", tracker.topTitles().get(0).getIsbn());
+        clock.advance(Duration.ofHours(10));
+        assertTrue(tracker.topTitles().isEmpty());
+    }
+
+    @Test
+    void testConcurrentLookupsAreAllCounted() throws Exception {
+        PopularityTracker tracker = new PopularityTracker(10, clock);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                clients.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        tracker.onBookLookedUp("hot-" + (i % 3));
+                    }
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(tracker.estimate("hot-" + i) >= 4 * 3_333);
+        }
+        assertEquals(Set.of("hot-0", "hot-1", "hot-2"),
+                tracker.topTitles(3).stream().map(PopularTitle::getIsbn).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new PopularityTracker(0, clock));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PopularityTracker(0, 4, 5, Duration.ofHours(1), 1, clock));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PopularityTracker(64, 4, 5, Duration.ZERO, 1, clock));
+    }
+}
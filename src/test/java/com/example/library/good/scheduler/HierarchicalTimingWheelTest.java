@@ -0,0 +1,94 @@
+package com.example.library.good.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HierarchicalTimingWheelTest {
+
+    @Test
+    void testTimerFiresAtDeadlineAndNotBefore() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 0);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(1_005, "a");
+
+        wheel.advanceTo(1_009, fired::add);
+        assertTrue(fired.isEmpty(), "Deadline is rounded up to the next tick");
+
+        wheel.advanceTo(1_010, fired::add);
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancelledTimerNeverFires() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 0);
+        List<String> fired = new ArrayList<>();
+        HierarchicalTimingWheel.Timer<String> timer = wheel.schedule(5_000, "cancelled");
+        wheel.schedule(5_000, "kept");
+
+        assertTrue(timer.cancel());
+        assertFalse(timer.cancel(), "Second cancel is a no-op");
+        wheel.advanceTo(10_000, fired::add);
+
+        assertEquals(List.of("kept"), fired);
+    }
+
+    @Test
+    void testPastDeadlineFiresOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1_000, 50_000);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(10_000, "late");
+
+        wheel.advanceTo(50_000, fired::add);
+
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void testRandomDeadlinesAcrossAllLevels() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(1, 0);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long deadline = 1 + (long) (Math.pow(random.nextDouble(), 4) * 100_000_000_000L);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        deadlines.sort(null);
+
+        List<Long> fired = new ArrayList<>();
+        long now = 0;
+        while (wheel.size() > 0) {
+            now += 1 + random.nextInt(5_000_000);
+            long current = now;
+            wheel.advanceTo(current, deadline -> {
+                assertTrue(deadline <= current, "Fired early");
+                fired.add(deadline);
+            });
+            for (Long deadline : fired) {
+                assertTrue(deadline > current - 5_000_001, "Fired late");
+            }
+            fired.clear();
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testFarFutureTimerBeyondTopLevel() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 0);
+        List<String> fired = new ArrayList<>();
+        long farAway = 1L << 50;
+        wheel.schedule(farAway, "far");
+
+        wheel.advanceTo(farAway - 1, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advanceTo(farAway, fired::add);
+
+        assertEquals(List.of("far"), fired);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.library.good.scheduler;
+
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+import com.example.library.good.service.NotificationService;
+import com.example.library.good.testing.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class ReminderSchedulerTest {
+    private static final LocalDate TODAY = LocalDate.of(2030, 1, 1);
+
+    private MutableClock clock;
+    private NotificationService mockNotifier;
+    private StubDataStore store;
+    private Book book;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(TODAY.atStartOfDay(ZoneOffset.UTC).toInstant());
+        mockNotifier = mock(NotificationService.class);
+        store = new StubDataStore();
+        book = new Book("rem001", "Reminder Book");
+        store.addBook(book);
+        user = new User("u1", "Alice", false);
+    }
+
+    @Test
+    void testOverdueReminderFiresOnDayAfterDueDate() {
+        ReminderScheduler scheduler = new ReminderScheduler(mockNotifier, clock, 0);
+        LibraryService service = new LibraryService(store, mockNotifier);
+        service.addCirculationListener(scheduler);
+
+        service.issueBookWithDueDate(user, "rem001", TODAY.plusDays(14));
+
+        clock.advance(Duration.ofDays(15).minusSeconds(1));
+        scheduler.tick();
+        verify(mockNotifier, never()).notifyOverdue(any(), any());
+
+        clock.advance(Duration.ofSeconds(1));
+        scheduler.tick();
+        verify(mockNotifier).notifyOverdue(user, book);
+    }
+
+    @Test
+    void testReturnCancelsReminders() {
+        ReminderScheduler scheduler = new ReminderScheduler(mockNotifier, clock, 3);
+        LibraryService service = new LibraryService(store, mockNotifier);
+        service.addCirculationListener(scheduler);
+
+        service.issueBookWithDueDate(user, "rem001", TODAY.plusDays(7));
+        service.returnBookEnhanced(user, "rem001");
+
+        clock.advance(Duration.ofDays(30));
+        scheduler.tick();
+
+        verify(mockNotifier, never()).notifyOverdue(any(), any());
+        verify(mockNotifier, never()).notifyDueSoon(any(), any());
+    }
+
+    @Test
+    void testReturnCancelsTheReturnersEarliestDueLoan() {
+        Book reserve = new Book("rem002", "Course Reserve", 2);
+        store.addBook(reserve);
+        ReminderScheduler scheduler = new ReminderScheduler(mockNotifier, clock, 0);
+        LibraryService service = new LibraryService(store, mockNotifier);
+        service.addCirculationListener(scheduler);
+
+        service.issueBookWithDueDate(user, "rem002", TODAY.plusDays(10));
+        service.issueBookWithDueDate(user, "rem002", TODAY.plusDays(5));
+        service.returnBookEnhanced(user, "rem002");
+
+        clock.advance(Duration.ofDays(6));
+        scheduler.tick();
+        verify(mockNotifier, never()).notifyOverdue(any(), any());
+
+        clock.advance(Duration.ofDays(5));
+        scheduler.tick();
+        verify(mockNotifier).notifyOverdue(user, reserve);
+    }
+
+    @Test
+    void testDueSoonReminderFiresDaysBeforeDueDate() {
+        ReminderScheduler scheduler = new ReminderScheduler(mockNotifier, clock, 2);
+        LibraryService service = new LibraryService(store, mockNotifier);
+        service.addCirculationListener(scheduler);
+
+        service.issueBookWithDueDate(user, "rem001", TODAY.plusDays(10));
+
+        clock.advance(Duration.ofDays(7));
+        scheduler.tick();
+        verify(mockNotifier, never()).notifyDueSoon(any(), any());
+
+        clock.advance(Duration.ofDays(1));
+        scheduler.tick();
+        verify(mockNotifier).notifyDueSoon(user, book);
+        verify(mockNotifier, never()).notifyOverdue(any(), any());
+    }
+
+    @Test
+    void testNotifierWithoutDueSoonSupportStillGetsOverdueReminders() {
+        // Written against the interface before due-soon reminders existed.
+        NotificationService overdueOnly = new NotificationService() {
+            @Override
+            public void notifyOverdue(User user, Book book) {
+                mockNotifier.notifyOverdue(user, book);
+            }
+
+            @Override
+            public void notifyReservationAvailable(User user, Book book) {
+            }
+
+            @Override
+            public void notifyBookBorrowed(User user, Book book) {
+            }
+        };
+        ReminderScheduler scheduler = new ReminderScheduler(overdueOnly, clock, 2);
+        LibraryService service = new LibraryService(store, overdueOnly);
+        service.addCirculationListener(scheduler);
+
+        service.issueBookWithDueDate(user, "rem001", TODAY.plusDays(3));
+        clock.advance(Duration.ofDays(4));
+        scheduler.tick();
+
+        verify(mockNotifier).notifyOverdue(user, book);
+    }
+
+    @Test
+    void testIssueWithoutDueDateSchedulesNothing() {
+        ReminderScheduler scheduler = new ReminderScheduler(mockNotifier, clock, 1);
+        LibraryService service = new LibraryService(store, mockNotifier);
+        service.addCirculationListener(scheduler);
+
+        service.issueBook(user, "rem001");
+
+        assertEquals(0, scheduler.pendingReminders());
+    }
+
+    @Test
+    void testLoanWithoutBorrowerIsSkippedAndLaterReturnsStillWork() {
+        ReminderScheduler scheduler = new ReminderScheduler(mockNotifier, clock, 1);
+
+        scheduler.onBookIssued(null, book, TODAY.plusDays(3));
+        assertEquals(0, scheduler.pendingReminders());
+
+        scheduler.onBookIssued(user, book, TODAY.plusDays(3));
+        assertDoesNotThrow(() -> scheduler.onBookReturned(new User("u2", "Bob", false), book));
+    }
+
+    @Test
+    void testStartsFromTheLoansAlreadyInTheStore() {
+        Book reserve = new Book("rem003", "Course Reserve", 3);
+        User bob = new User("u2", "Bob", false);
+        reserve.checkoutCopy();
+        reserve.borrowBy(user, TODAY.minusDays(2));
+        reserve.checkoutCopy();
+        reserve.borrowBy(bob, TODAY.plusDays(5));
+        reserve.checkoutCopy();
+        reserve.borrowBy(null, TODAY.plusDays(1));
+        store.addBook(reserve);
+
+        ReminderScheduler scheduler = new ReminderScheduler(mockNotifier, clock, 2, store);
+        assertEquals(3, scheduler.pendingReminders());
+
+        scheduler.tick();
+        verify(mockNotifier).notifyOverdue(user, reserve);
+        verify(mockNotifier, never()).notifyDueSoon(any(), any());
+
+        clock.advance(Duration.ofDays(3));
+        scheduler.tick();
+        verify(mockNotifier).notifyDueSoon(bob, reserve);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.library.good.service;
+
+import com.example.library.good.datastore.StubDataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.AdmissionController.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControllerTest {
+    private static final Duration THRESHOLD = Duration.ofMillis(10);
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+    private static final long SLOW = Duration.ofMillis(100).toNanos();
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void testLimitGrowsWhileFullyUsedAndFast() {
+        AdmissionController admission = controller(4, 1, 8, 0, Duration.ZERO);
+
+        for (int round = 0; round < 40; round++) {
+            long[] admitted = new long[admission.getLimit()];
+            for (int i = 0; i < admitted.length; i++) {
+                admitted[i] = admission.acquire(Priority.LOOKUP);
+            }
+            now.addAndGet(FAST);
+            for (long admittedAt : admitted) {
+                admission.release(admittedAt);
+            }
+        }
+
+        assertEquals(8, admission.getLimit());
+        assertEquals(0, admission.getInFlight());
+        assertEquals(0, admission.getRejected());
+    }
+
+    @Test
+    void testLimitDoesNotGrowWhenUnderUsed() {
+        AdmissionController admission = controller(4, 1, 8, 0, Duration.ZERO);
+
+        for (int i = 0; i < 100; i++) {
+            long admittedAt = admission.acquire(Priority.LOOKUP);
+            now.addAndGet(FAST);
+            admission.release(admittedAt);
+        }
+
+        assertEquals(4, admission.getLimit());
+    }
+
+    @Test
+    void testSlowCallsBackOffToTheMinimum() {
+        AdmissionController admission = controller(20, 2, 20, 0, Duration.ZERO);
+
+        long admittedAt = admission.acquire(Priority.LOOKUP);
+        now.addAndGet(SLOW);
+        admission.release(admittedAt);
+        assertEquals(18, admission.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            admittedAt = admission.acquire(Priority.LOOKUP);
+            now.addAndGet(SLOW);
+            admission.release(admittedAt);
+        }
+        assertEquals(2, admission.getLimit());
+    }
+
+    @Test
+    void testShedsAtTheLimitWithoutAQueue() {
+        AdmissionController admission = controller(2, 1, 2, 0, Duration.ZERO);
+
+        admission.acquire(Priority.RETURN);
+        admission.acquire(Priority.LOOKUP);
+        assertThrows(ServiceOverloadedException.class, () -> admission.acquire(Priority.LOOKUP));
+        assertThrows(ServiceOverloadedException.class, () -> admission.acquire(Priority.RETURN));
+
+        assertEquals(2, admission.getAdmitted());
+        assertEquals(2, admission.getRejected());
+        assertEquals(1, admission.getRejected(Priority.LOOKUP));
+        assertEquals(1, admission.getRejected(Priority.RETURN));
+        assertEquals(0.5, admission.getRejectionRate(), 1e-9);
+    }
+
+    @Test
+    void testQueuedReturnsGoAheadOfLookups() throws Exception {
+        AdmissionController admission = controller(1, 1, 1, 10, Duration.ofSeconds(5));
+        long held = admission.acquire(Priority.ISSUE);
+        List<Priority> order = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> lookup = pool.submit(() -> runRecorded(admission, Priority.LOOKUP, order));
+            awaitQueued(admission, 1);
+            Future<?> ret = pool.submit(() -> runRecorded(admission, Priority.RETURN, order));
+            awaitQueued(admission, 2);
+
+            admission.release(held);
+            lookup.get(5, TimeUnit.SECONDS);
+            ret.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(List.of(Priority.RETURN, Priority.LOOKUP), order);
+        assertEquals(0, admission.getRejected());
+    }
+
+    @Test
+    void testFullQueueDisplacesALookupForAReturn() throws Exception {
+        AdmissionController admission = controller(1, 1, 1, 1, Duration.ofSeconds(5));
+        long held = admission.acquire(Priority.ISSUE);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> lookup = pool.submit(() -> admission.acquire(Priority.LOOKUP));
+            awaitQueued(admission, 1);
+
+            // A newcomer of the same priority cannot displace anyone.
+            assertThrows(ServiceOverloadedException.class, () -> admission.acquire(Priority.LOOKUP));
+
+            Future<Long> ret = pool.submit(() -> admission.acquire(Priority.RETURN));
+            Exception shed = assertThrows(Exception.class, () -> lookup.get(5, TimeUnit.SECONDS));
+            assertTrue(shed.getCause() instanceof ServiceOverloadedException);
+
+            admission.release(held);
+            admission.release(ret.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(2, admission.getRejected(Priority.LOOKUP));
+        assertEquals(0, admission.getRejected(Priority.RETURN));
+        assertEquals(0, admission.getQueued());
+        assertEquals(0, admission.getInFlight());
+    }
+
+    @Test
+    void testQueuedCallIsShedAfterMaxWait() {
+        AdmissionController admission = new AdmissionController(1, 1, 1, THRESHOLD, 10, Duration.ofMillis(20));
+        admission.acquire(Priority.ISSUE);
+
+        assertThrows(ServiceOverloadedException.class, () -> admission.acquire(Priority.RETURN));
+        assertEquals(0, admission.getQueued());
+        assertEquals(1, admission.getRejected(Priority.RETURN));
+    }
+
+    @Test
+    void testServiceShedsCallsAndFreesTheirPermits() {
+        StubDataStore store = new StubDataStore();
+        store.addBook(new Book("111", "Clean Code"));
+        AdmissionController admission = controller(1, 1, 1, 0, Duration.ZERO);
+        LibraryService service = new LibraryService(store, null, null, admission);
+        User alice = new User("u1", "Alice", false);
+
+        assertTrue(service.issueBook(alice, "111"));
+        assertTrue(service.findBook("111").isPresent());
+        assertEquals(0, admission.getInFlight());
+
+        long held = admission.acquire(Priority.LOOKUP);
+        assertThrows(ServiceOverloadedException.class, () -> service.returnBook(alice, "111"));
+        assertThrows(ServiceOverloadedException.class, () -> service.findBook("111"));
+        admission.release(held);
+
+        assertFalse(store.findBookByIsbn("111").orElseThrow().isAvailable(), "a shed return must change nothing");
+        assertTrue(service.returnBook(alice, "111"));
+        assertEquals(2, admission.getRejected());
+        assertEquals(4, admission.getAdmitted());
+    }
+
+    @Test
+    void testRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> controller(0, 0, 1, 0, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> controller(5, 1, 4, 0, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> controller(1, 2, 4, 0, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> controller(1, 1, 4, -1, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdmissionController(1, 1, 4, Duration.ZERO, 0, Duration.ZERO));
+    }
+
+    private AdmissionController controller(int initial, int min, int max, int maxQueued, Duration maxWait) {
+        return new AdmissionController(initial, min, max, THRESHOLD, maxQueued, maxWait, now::get);
+    }
+
+    private static void runRecorded(AdmissionController admission, Priority priority, List<Priority> order) {
+        long admittedAt = admission.acquire(priority);
+        try {
+            synchronized (order) {
+                order.add(priority);
+            }
+        } finally {
+            admission.release(admittedAt);
+        }
+    }
+
+    private static void awaitQueued(AdmissionController admission, int queued) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admission.getQueued() < queued) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for " + queued + " queued calls");
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.library.good.service.template;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import com.example.library.good.service.EmailNotificationService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchedMessageWriterTest {
+    private static final MessageTemplate HELLO = MessageTemplate.compile("hello {name}\n");
+
+    @Test
+    void testMessagesAreWrittenOncePerBatch() throws Exception {
+        RecordingChannel channel = new RecordingChannel();
+        BatchedMessageWriter writer = new BatchedMessageWriter(channel, 3);
+        User user = new User("u1", "Ann", false);
+        Book book = new Book("1", "T");
+
+        writer.write(HELLO, user, book);
+        writer.write(HELLO, user, book);
+        assertEquals(0, channel.writes, "Nothing is written until the batch is full");
+        writer.write(HELLO, user, book);
+        assertEquals(1, channel.writes);
+
+        writer.write(HELLO, user, book);
+        writer.close();
+
+        assertEquals(2, channel.writes);
+        assertEquals("hello Ann\n".repeat(4), channel.text());
+    }
+
+    @Test
+    void testBuffersAreReturnedToThePool() {
+        BufferPool pool = new BufferPool(64, 4);
+        BatchedMessageWriter writer = new BatchedMessageWriter(new RecordingChannel(), 2, pool);
+
+        for (int i = 0; i < 10; i++) {
+            writer.write(HELLO, new User("u" + i, "Reader " + i, false), new Book("1", "T"));
+        }
+
+        assertEquals(1, pool.pooled());
+    }
+
+    @Test
+    void testPoolHandsOutHeapBuffersWhenAsked() {
+        assertTrue(new BufferPool(64, 4, false).acquire().hasArray());
+        assertTrue(new BufferPool(64, 4).acquire().isDirect());
+    }
+
+    @Test
+    void testMessagesLargerThanPooledBuffers() throws Exception {
+        RecordingChannel channel = new RecordingChannel();
+        BatchedMessageWriter writer = new BatchedMessageWriter(channel, 10, new BufferPool(16, 2));
+        String longName = "x".repeat(100);
+
+        writer.write(HELLO, new User("u1", "Ann", false), new Book("1", "T"));
+        writer.write(HELLO, new User("u2", longName, false), new Book("1", "T"));
+        writer.write(HELLO, new User("u3", "Bo", false), new Book("1", "T"));
+        writer.close();
+
+        assertEquals("hello Ann\nhello " + longName + "\nhello Bo\n", channel.text());
+    }
+
+    @Test
+    void testEmailNotificationService_keepsMessageText() throws Exception {
+        RecordingChannel channel = new RecordingChannel();
+        BatchedMessageWriter writer = new BatchedMessageWriter(channel, 100);
+        EmailNotificationService email = new EmailNotificationService(writer);
+        User user = new User("u1", "Alice", false);
+        Book book = new Book("111", "Clean Code");
+
+        email.notifyOverdue(user, book);
+        email.notifyBookBorrowed(user, book);
+        email.notifyReservationAvailable(user, book);
+        writer.flush();
+
+        String eol = System.lineSeparator();
+        assertEquals("EMAIL: Dear Alice, your book 'Clean Code' is overdue!" + eol
+                + "EMAIL: Dear Alice, you have successfully borrowed 'Clean Code'." + eol
+                + "EMAIL: Dear Alice, your reserved book 'Clean Code' is now available!" + eol, channel.text());
+    }
+
+    @Test
+    void testEmailNotificationService_writesToStdoutAsItIsWhenSending() {
+        EmailNotificationService email = new EmailNotificationService();
+        PrintStream original = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            email.notifyOverdue(new User("u1", "Alice", false), new Book("111", "Clean Code"));
+        } finally {
+            System.setOut(original);
+        }
+
+        assertEquals("EMAIL: Dear Alice, your book 'Clean Code' is overdue!" + System.lineSeparator(),
+                captured.toString(StandardCharsets.UTF_8));
+    }
+
+    static class RecordingChannel implements WritableByteChannel {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int writes;
+        boolean open = true;
+
+        @Override
+        public int write(ByteBuffer src) {
+            writes++;
+            int n = src.remaining();
+            while (src.hasRemaining()) {
+                bytes.write(src.get());
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        String text() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.library.good.service.template;
+
+import com.example.library.good.model.Book;
+import com.example.library.good.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageTemplateTest {
+
+    @Test
+    void testRender_matchesStringConcatenation() {
+        MessageTemplate template = MessageTemplate.compile("Dear {name}, your book '{title}' ({isbn}) is overdue!");
+        User user = new User("u1", "Zo\u00EB \u00C5ngstr\u00F6m", false);
+        Book book = new Book("978-1", "\u0395\u03BB\u03BB\u03B7\u03BD\u03B9\u03BA\u03AC \uD83D\uDCDA \u6F22\u5B57");
+
+        String expected = "Dear " + user.getName() + ", your book '" + book.getTitle() + "' (" + book.getIsbn() + ") is overdue!";
+        assertEquals(expected, render(template, user, book));
+    }
+
+    @Test
+    void testRender_dueDateAndNulls() {
+        MessageTemplate template = MessageTemplate.compile("{userId}:{name} due {dueDate}");
+        Book book = new Book("1", "Title");
+        book.borrowBy(new User("u7", null, false), LocalDate.of(2031, 2, 3));
+
+        assertEquals("u7:null due 2031-02-03", render(template, book.getBorrowedBy(), book));
+        assertEquals("u8:Al due null", render(template, new User("u8", "Al", false), new Book("2", "Other")));
+    }
+
+    @Test
+    void testCompile_rejectsUnknownField() {
+        assertThrows(IllegalArgumentException.class, () -> MessageTemplate.compile("Hello {nickname}"));
+    }
+
+    @Test
+    void testRender_overflowsSmallBuffer() {
+        MessageTemplate template = MessageTemplate.compile("Dear {name}");
+        ByteBuffer tiny = ByteBuffer.allocate(4);
+
+        assertThrows(BufferOverflowException.class,
+                () -> template.render(new User("u1", "Alice", false), new Book("1", "T"), tiny));
+    }
+
+    private static String render(MessageTemplate template, User user, Book book) {
+        ByteBuffer out = ByteBuffer.allocate(256);
+        template.render(user, book, out);
+        return new String(out.array(), 0, out.position(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.library.good.stress;
+
+import com.example.library.good.model.Loan;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Decides whether a concurrent history of circulation calls could have come
+ * from some sequential order that respects real time, against a sequential
+ * model of one {@link com.example.library.good.model.Book}'s shelf and loans.
+ *
+ * Books are independent objects, so each ISBN's sub-history is checked on
+ * its own (a history is linearizable iff every per-object projection is).
+ * Each check is the Wing-Gong search with Lowe's memoisation: a
+ * (set of linearized operations, model state) pair is explored at most once.
+ *
+ * The model, for a book with {@code total} copies and {@code available} on
+ * the shelf, and its loans oldest first:
+ * <ul>
+ * <li>an issue succeeds and takes a copy iff one is available, and fails
+ *     otherwise; with a due date it also records a loan, dropping the oldest
+ *     if every copy already has one;</li>
+ * <li>a return succeeds and puts a copy back iff one is out, and fails
+ *     otherwise; the enhanced return also ends the returner's earliest-due
+ *     loan, else the oldest once more loans are recorded than copies are out,
+ *     and every loan once every copy is in;</li>
+ * <li>a lookup finds the book and sees exactly {@code available}, and the
+ *     loans too if it recorded them;</li>
+ * <li>an aborted call has no effect.</li>
+ * </ul>
+ * A batch is projected onto each of its books: a successful one acts there as
+ * the single-book call would, a refused one has no effect. That the refusal
+ * had a cause in some book, and that a batch took effect on all its books at
+ * one instant, is beyond a per-book check; a partial batch still shows up as
+ * a copy count or loan that no order explains.
+ */
+public final class LinearizabilityChecker {
+    private final Map<String, Integer> totalCopies;
+
+    /**
+     * @param totalCopies every ISBN in the history with its copy count; all copies start on the shelf
+     */
+    public LinearizabilityChecker(Map<String, Integer> totalCopies) {
+        this.totalCopies = new LinkedHashMap<>(totalCopies);
+    }
+
+    /**
+     * @return the ISBNs whose sub-history is not linearizable; empty if the whole history is
+     */
+    public List<String> violations(List<Operation> history) {
+        Map<String, List<Operation>> byIsbn = new LinkedHashMap<>();
+        for (String isbn : totalCopies.keySet()) {
+            byIsbn.put(isbn, new ArrayList<>());
+        }
+        for (Operation operation : history) {
+            for (String isbn : operation.getIsbns()) {
+                List<Operation> operations = byIsbn.get(isbn);
+                if (operations == null) {
+                    throw new IllegalArgumentException("unknown ISBN in history: " + isbn);
+                }
+                operations.add(operation);
+            }
+        }
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, List<Operation>> entry : byIsbn.entrySet()) {
+            if (!isLinearizable(entry.getValue(), totalCopies.get(entry.getKey()))) {
+                violations.add(entry.getKey());
+            }
+        }
+        return violations;
+    }
+
+    static boolean isLinearizable(List<Operation> operations, int total) {
+        Node head = buildEventList(operations);
+        Set<CacheKey> seen = new HashSet<>();
+        Deque<Frame> stack = new ArrayDeque<>();
+        BitSet linearized = new BitSet(operations.size());
+        Shelf state = Shelf.full(total);
+        Node entry = head.next;
+        while (head.next != null) {
+            if (entry.call) {
+                Shelf next = step(state, total, entry.operation);
+                if (next != null) {
+                    BitSet candidate = (BitSet) linearized.clone();
+                    candidate.set(entry.id);
+                    if (seen.add(new CacheKey(candidate, next))) {
+                        stack.push(new Frame(entry, state, linearized));
+                        state = next;
+                        linearized = candidate;
+                        entry.lift();
+                        entry = head.next;
+                        continue;
+                    }
+                }
+                entry = entry.next;
+            } else {
+                // The earliest pending response: some call before it must be linearized first, so backtrack.
+                if (stack.isEmpty()) {
+                    return false;
+                }
+                Frame frame = stack.pop();
+                state = frame.state;
+                linearized = frame.linearized;
+                frame.entry.unlift();
+                entry = frame.entry.next;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the shelf after the operation, or null if its result contradicts the model
+     */
+    static Shelf step(Shelf shelf, int total, Operation operation) {
+        if (operation.isAborted()) {
+            return shelf;
+        }
+        switch (operation.getKind()) {
+            case ISSUE:
+            case ISSUE_WITH_DUE_DATE:
+            case ISSUE_BATCH:
+                if (operation.getKind() == Operation.Kind.ISSUE_BATCH && !operation.isSucceeded()) {
+                    return shelf;
+                }
+                if (shelf.available > 0) {
+                    return operation.isSucceeded() ? shelf.issue(total, operation) : null;
+                }
+                return operation.isSucceeded() ? null : shelf;
+            case RETURN:
+            case RETURN_ENHANCED:
+            case RETURN_BATCH:
+                if (operation.getKind() == Operation.Kind.RETURN_BATCH && !operation.isSucceeded()) {
+                    return shelf;
+                }
+                if (shelf.available < total) {
+                    return operation.isSucceeded() ? shelf.giveBack(total, operation) : null;
+                }
+                return operation.isSucceeded() ? null : shelf;
+            case LOOKUP:
+                return operation.isSucceeded() && shelf.matches(operation) ? shelf : null;
+            default:
+                throw new IllegalArgumentException("unknown operation " + operation.getKind());
+        }
+    }
+
+    private static Node buildEventList(List<Operation> operations) {
+        List<Node> events = new ArrayList<>(operations.size() * 2);
+        for (int id = 0; id < operations.size(); id++) {
+            Operation operation = operations.get(id);
+            Node call = new Node(operation, id, true, operation.getInvokedAt());
+            Node response = new Node(operation, id, false, operation.getReturnedAt());
+            call.match = response;
+            events.add(call);
+            events.add(response);
+        }
+        // On a tie the call goes first, which treats the two operations as concurrent.
+        events.sort(Comparator.comparingLong((Node node) -> node.time).thenComparing(node -> !node.call));
+        Node head = new Node(null, -1, false, Long.MIN_VALUE);
+        Node tail = head;
+        for (Node event : events) {
+            tail.next = event;
+            event.prev = tail;
+            tail = event;
+        }
+        return head;
+    }
+
+    private static final class Node {
+        final Operation operation;
+        final int id;
+        final boolean call;
+        final long time;
+        Node match;
+        Node prev;
+        Node next;
+
+        Node(Operation operation, int id, boolean call, long time) {
+            this.operation = operation;
+            this.id = id;
+            this.call = call;
+            this.time = time;
+        }
+
+        // Unlinks this call and its response; a call is always followed by something.
+        void lift() {
+            prev.next = next;
+            next.prev = prev;
+            match.prev.next = match.next;
+            if (match.next != null) {
+                match.next.prev = match.prev;
+            }
+        }
+
+        void unlift() {
+            match.prev.next = match;
+            if (match.next != null) {
+                match.next.prev = match;
+            }
+            prev.next = this;
+            next.prev = this;
+        }
+    }
+
+    /**
+     * Copies on the shelf and the recorded loans, oldest first, as
+     * {@link com.example.library.good.model.Book} keeps them. Immutable, so
+     * states can be shared between search frames and cache keys.
+     */
+    static final class Shelf {
+        private static final String[] NO_BORROWERS = new String[0];
+        private static final LocalDate[] NO_DUE_DATES = new LocalDate[0];
+
+        final int available;
+        private final String[] borrowers;
+        private final LocalDate[] dueDates;
+
+        private Shelf(int available, String[] borrowers, LocalDate[] dueDates) {
+            this.available = available;
+            this.borrowers = borrowers;
+            this.dueDates = dueDates;
+        }
+
+        static Shelf full(int total) {
+            return new Shelf(total, NO_BORROWERS, NO_DUE_DATES);
+        }
+
+        Shelf issue(int total, Operation issue) {
+            if (issue.getKind() == Operation.Kind.ISSUE
+                    || (issue.getKind() == Operation.Kind.ISSUE_BATCH && issue.getDueDate() == null)) {
+                return new Shelf(available - 1, borrowers, dueDates);
+            }
+            int drop = borrowers.length == total ? 1 : 0;
+            String[] nextBorrowers = Arrays.copyOfRange(borrowers, drop, borrowers.length + 1);
+            LocalDate[] nextDueDates = Arrays.copyOfRange(dueDates, drop, dueDates.length + 1);
+            nextBorrowers[nextBorrowers.length - 1] = issue.getUserId();
+            nextDueDates[nextDueDates.length - 1] = issue.getDueDate();
+            return new Shelf(available - 1, nextBorrowers, nextDueDates);
+        }
+
+        Shelf giveBack(int total, Operation giveBack) {
+            int nextAvailable = available + 1;
+            if (giveBack.getKind() == Operation.Kind.RETURN) {
+                return new Shelf(nextAvailable, borrowers, dueDates);
+            }
+            if (nextAvailable == total) {
+                return new Shelf(nextAvailable, NO_BORROWERS, NO_DUE_DATES);
+            }
+            int ended = loanOf(giveBack.getUserId());
+            if (ended < 0 && borrowers.length > total - nextAvailable) {
+                ended = 0;
+            }
+            if (ended < 0) {
+                return new Shelf(nextAvailable, borrowers, dueDates);
+            }
+            return new Shelf(nextAvailable, without(borrowers, ended), without(dueDates, ended));
+        }
+
+        boolean matches(Operation lookup) {
+            if (lookup.getObservedCopies() != available) {
+                return false;
+            }
+            List<Loan> loans = lookup.getObservedLoans();
+            if (loans == null) {
+                return true;
+            }
+            if (loans.size() != borrowers.length) {
+                return false;
+            }
+            for (int i = 0; i < borrowers.length; i++) {
+                Loan loan = loans.get(i);
+                String borrower = loan.getBorrower() == null ? null : loan.getBorrower().getId();
+                if (!Objects.equals(borrower, borrowers[i]) || !Objects.equals(loan.getDueDate(), dueDates[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Earliest-due loan held by userId, the oldest of equals winning, or -1.
+        private int loanOf(String userId) {
+            int found = -1;
+            for (int i = 0; i < borrowers.length; i++) {
+                if (borrowers[i] != null && borrowers[i].equals(userId)
+                        && (found < 0 || isEarlier(dueDates[i], dueDates[found]))) {
+                    found = i;
+                }
+            }
+            return found;
+        }
+
+        private static boolean isEarlier(LocalDate a, LocalDate b) {
+            return a != null && (b == null || a.isBefore(b));
+        }
+
+        private static <T> T[] without(T[] values, int index) {
+            T[] result = Arrays.copyOf(values, values.length - 1);
+            System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Shelf)) {
+                return false;
+            }
+            Shelf other = (Shelf) o;
+            return available == other.available && Arrays.equals(borrowers, other.borrowers)
+                    && Arrays.equals(dueDates, other.dueDates);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * available + Arrays.hashCode(borrowers)) + Arrays.hashCode(dueDates);
+        }
+    }
+
+    private static final class Frame {
+        final Node entry;
+        final Shelf state;
+        final BitSet linearized;
+
+        Frame(Node entry, Shelf state, BitSet linearized) {
+            this.entry = entry;
+            this.state = state;
+            this.linearized = linearized;
+        }
+    }
+
+    private static final class CacheKey {
+        final BitSet linearized;
+        final Shelf state;
+
+        CacheKey(BitSet linearized, Shelf state) {
+            this.linearized = linearized;
+            this.state = state;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return state.equals(other.state) && linearized.equals(other.linearized);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(linearized, state);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.library.good.stress;
+
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinearizabilityCheckerTest {
+    private final LinearizabilityChecker checker = new LinearizabilityChecker(Map.of("111", 1, "222", 2));
+
+    @Test
+    void testSequentialHistoryFollowingTheModelPasses() {
+        List<Operation> history = List.of(
+                op(Operation.Kind.ISSUE, "111", 1, 2, true),
+                lookup("111", 3, 4, 0),
+                op(Operation.Kind.ISSUE, "111", 5, 6, false),
+                op(Operation.Kind.RETURN_ENHANCED, "111", 7, 8, true),
+                lookup("111", 9, 10, 1));
+
+        assertTrue(checker.violations(history).isEmpty());
+    }
+
+    @Test
+    void testDoubleIssueOfTheLastCopyIsCaught() {
+        List<Operation> history = List.of(
+                op(Operation.Kind.ISSUE, "111", 1, 4, true),
+                op(Operation.Kind.ISSUE_WITH_DUE_DATE, "111", 2, 3, true));
+
+        assertEquals(List.of("111"), checker.violations(history));
+    }
+
+    @Test
+    void testLostUpdateIsCaughtByALaterLookup() {
+        // Two overlapping checkouts of a two-copy title both succeed, yet a later lookup still sees a copy.
+        List<Operation> history = List.of(
+                op(Operation.Kind.ISSUE, "222", 1, 3, true),
+                op(Operation.Kind.ISSUE, "222", 2, 4, true),
+                lookup("222", 5, 6, 1));
+
+        assertEquals(List.of("222"), checker.violations(history));
+    }
+
+    @Test
+    void testOverlappingCallsMayTakeEffectInEitherOrder() {
+        // The lookup overlaps the return, so it may have seen the shelf before or after it.
+        List<Operation> history = List.of(
+                op(Operation.Kind.ISSUE, "111", 1, 2, true),
+                op(Operation.Kind.RETURN, "111", 3, 6, true),
+                lookup("111", 4, 5, 1),
+                op(Operation.Kind.ISSUE, "111", 7, 8, true));
+
+        assertTrue(checker.violations(history).isEmpty());
+    }
+
+    @Test
+    void testRealTimeOrderIsRespected() {
+        // The return completed before the issue started, so the failed issue has no excuse.
+        List<Operation> history = List.of(
+                op(Operation.Kind.ISSUE, "111", 1, 2, true),
+                op(Operation.Kind.RETURN, "111", 3, 4, true),
+                op(Operation.Kind.ISSUE, "111", 5, 6, false));
+
+        assertEquals(List.of("111"), checker.violations(history));
+    }
+
+    @Test
+    void testReturnWithEveryCopyInMustFail() {
+        assertTrue(checker.violations(List.of(op(Operation.Kind.RETURN, "111", 1, 2, false))).isEmpty());
+        assertEquals(List.of("111"), checker.violations(List.of(op(Operation.Kind.RETURN_ENHANCED, "111", 1, 2, true))));
+    }
+
+    @Test
+    void testLookupMustSeeTheLoansTheModelHolds() {
+        LocalDate due = LocalDate.of(2030, 1, 1);
+        Operation issue = new Operation(Operation.Kind.ISSUE_WITH_DUE_DATE, List.of("222"), "u1", due, 1, 2, true,
+                -1, null);
+        Operation sawLoan = loansLookup("222", 3, 4, 1, List.of(new Loan(new User("u1", "U1", false), due)));
+        Operation sawWrongDate = loansLookup("222", 3, 4, 1,
+                List.of(new Loan(new User("u1", "U1", false), due.plusDays(1))));
+
+        assertTrue(checker.violations(List.of(issue, sawLoan)).isEmpty());
+        assertEquals(List.of("222"), checker.violations(List.of(issue, sawWrongDate)));
+    }
+
+    @Test
+    void testEnhancedReturnEndsTheReturnersLoan() {
+        LocalDate due = LocalDate.of(2030, 1, 1);
+        List<Operation> history = List.of(
+                new Operation(Operation.Kind.ISSUE_WITH_DUE_DATE, List.of("222"), "u1", due, 1, 2, true, -1, null),
+                new Operation(Operation.Kind.ISSUE_WITH_DUE_DATE, List.of("222"), "u2", due, 3, 4, true, -1, null),
+                new Operation(Operation.Kind.RETURN_ENHANCED, List.of("222"), "u1", null, 5, 6, true, -1, null),
+                loansLookup("222", 7, 8, 1, List.of(new Loan(new User("u2", "U2", false), due))));
+
+        assertTrue(checker.violations(history).isEmpty());
+    }
+
+    @Test
+    void testAbortedCallHasNoEffect() {
+        List<Operation> history = List.of(
+                Operation.aborted(Operation.Kind.ISSUE, List.of("111"), "u1", null, 1, 2),
+                op(Operation.Kind.ISSUE, "111", 3, 4, true));
+
+        assertTrue(checker.violations(history).isEmpty());
+    }
+
+    @Test
+    void testBatchIssueTakesACopyOfEachBook() {
+        List<Operation> history = List.of(
+                new Operation(Operation.Kind.ISSUE_BATCH, List.of("111", "222"), "u1", LocalDate.of(2030, 1, 1),
+                        1, 2, true, -1, null),
+                op(Operation.Kind.ISSUE, "222", 3, 4, true),
+                op(Operation.Kind.ISSUE, "111", 5, 6, true));
+
+        assertEquals(List.of("111"), checker.violations(history));
+    }
+
+    @Test
+    void testManyConcurrentCallsAreCheckedQuickly() {
+        // Eight clients issue and return in lockstep windows: lots of overlap, still linearizable.
+        List<Operation> history = new ArrayList<>();
+        long time = 0;
+        for (int round = 0; round < 500; round++) {
+            long start = time;
+            history.add(op(Operation.Kind.ISSUE, "222", start + 1, start + 10, true));
+            history.add(op(Operation.Kind.ISSUE, "222", start + 2, start + 11, true));
+            for (int i = 0; i < 6; i++) {
+                history.add(op(Operation.Kind.ISSUE, "222", start + 3 + i, start + 12 + i, false));
+            }
+            history.add(op(Operation.Kind.RETURN, "222", start + 20, start + 30, true));
+            history.add(op(Operation.Kind.RETURN_ENHANCED, "222", start + 21, start + 31, true));
+            time = start + 40;
+        }
+
+        assertTrue(checker.violations(history).isEmpty());
+    }
+
+    @Test
+    void testRejectsOperationsOnUnknownBooks() {
+        assertThrows(IllegalArgumentException.class,
+                () -> checker.violations(List.of(op(Operation.Kind.ISSUE, "999", 1, 2, true))));
+    }
+
+    private static Operation op(Operation.Kind kind, String isbn, long invoked, long returned, boolean succeeded) {
+        return new Operation(kind, isbn, "u1", invoked, returned, succeeded, -1);
+    }
+
+    private static Operation lookup(String isbn, long invoked, long returned, int observed) {
+        return new Operation(Operation.Kind.LOOKUP, isbn, "u1", invoked, returned, true, observed);
+    }
+
+    private static Operation loansLookup(String isbn, long invoked, long returned, int observed, List<Loan> loans) {
+        return new Operation(Operation.Kind.LOOKUP, List.of(isbn), "u1", null, invoked, returned, true, observed,
+                loans);
+    }
+}
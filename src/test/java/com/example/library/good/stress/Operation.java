@@ -0,0 +1,145 @@
+package com.example.library.good.stress;
+
+import com.example.library.good.model.Loan;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One completed {@link com.example.library.good.service.LibraryService} call
+ * as seen by the client: what was asked, what came back, and when it was
+ * invoked and answered on the harness's logical clock.
+ */
+public final class Operation {
+    public enum Kind {
+        ISSUE,
+        ISSUE_WITH_DUE_DATE,
+        RETURN,
+        RETURN_ENHANCED,
+        LOOKUP,
+        ISSUE_BATCH,
+        RETURN_BATCH
+    }
+
+    private final Kind kind;
+    private final List<String> isbns;
+    private final String userId;
+    private final LocalDate dueDate;
+    private final long invokedAt;
+    private final long returnedAt;
+    private final boolean succeeded;
+    private final boolean aborted;
+    private final int observedCopies;
+    private final List<Loan> observedLoans;
+
+    /**
+     * A call on one book with no due date whose lookup, if it is one, only
+     * reports the copy count.
+     *
+     * @param succeeded      the call's boolean result; for a lookup, whether the book was found
+     * @param observedCopies available copies a lookup saw; -1 for other operations
+     */
+    public Operation(Kind kind, String isbn, String userId, long invokedAt, long returnedAt, boolean succeeded,
+                     int observedCopies) {
+        this(kind, List.of(isbn), userId, null, invokedAt, returnedAt, succeeded, false, observedCopies, null);
+    }
+
+    /**
+     * @param isbns          the books the call named; more than one only for batches
+     * @param dueDate        the due date asked for, or null
+     * @param succeeded      the call's boolean result; for a lookup, whether the book was found
+     * @param observedCopies available copies a lookup saw; -1 for other operations
+     * @param observedLoans  the loans a lookup saw, oldest first; null if it did not look
+     */
+    public Operation(Kind kind, List<String> isbns, String userId, LocalDate dueDate, long invokedAt, long returnedAt,
+                     boolean succeeded, int observedCopies, List<Loan> observedLoans) {
+        this(kind, isbns, userId, dueDate, invokedAt, returnedAt, succeeded, false, observedCopies, observedLoans);
+    }
+
+    private Operation(Kind kind, List<String> isbns, String userId, LocalDate dueDate, long invokedAt,
+                      long returnedAt, boolean succeeded, boolean aborted, int observedCopies,
+                      List<Loan> observedLoans) {
+        this.kind = kind;
+        this.isbns = List.copyOf(isbns);
+        this.userId = userId;
+        this.dueDate = dueDate;
+        this.invokedAt = invokedAt;
+        this.returnedAt = returnedAt;
+        this.succeeded = succeeded;
+        this.aborted = aborted;
+        this.observedCopies = observedCopies;
+        this.observedLoans = observedLoans == null ? null : List.copyOf(observedLoans);
+    }
+
+    /**
+     * A call that gave up, e.g. with a {@link java.util.ConcurrentModificationException}
+     * after too many conflicting writes, and so changed nothing.
+     */
+    public static Operation aborted(Kind kind, List<String> isbns, String userId, LocalDate dueDate,
+                                    long invokedAt, long returnedAt) {
+        return new Operation(kind, isbns, userId, dueDate, invokedAt, returnedAt, false, true, -1, null);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The only book of a single-book call, or the first book of a batch.
+     */
+    public String getIsbn() {
+        return isbns.get(0);
+    }
+
+    public List<String> getIsbns() {
+        return isbns;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public long getInvokedAt() {
+        return invokedAt;
+    }
+
+    public long getReturnedAt() {
+        return returnedAt;
+    }
+
+    public boolean isSucceeded() {
+        return succeeded;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public int getObservedCopies() {
+        return observedCopies;
+    }
+
+    public List<Loan> getObservedLoans() {
+        return observedLoans;
+    }
+
+    @Override
+    public String toString() {
+        String target = isbns.size() == 1 ? isbns.get(0) : isbns.toString();
+        String result;
+        if (aborted) {
+            result = "aborted";
+        } else if (kind == Kind.LOOKUP) {
+            result = !succeeded ? "missing"
+                    : observedCopies + " available" + (observedLoans == null ? "" : ", " + observedLoans.size() + " loans");
+        } else {
+            result = String.valueOf(succeeded);
+        }
+        return "[" + invokedAt + ", " + returnedAt + "] " + kind + " " + target + " by " + userId
+                + (dueDate == null ? "" : " due " + dueDate) + " -> " + result;
+    }
+}
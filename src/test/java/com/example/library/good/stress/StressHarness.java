@@ -0,0 +1,184 @@
+package com.example.library.good.stress;
+
+import com.example.library.good.datastore.DataStore;
+import com.example.library.good.model.Book;
+import com.example.library.good.model.Loan;
+import com.example.library.good.model.User;
+import com.example.library.good.service.LibraryService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hammers a {@link LibraryService} over any {@link DataStore} from many
+ * threads with random issue/return/lookup calls, single or batched, on a few
+ * hot books, records every call with its invocation and response on a shared
+ * logical clock, and hands the history to a {@link LinearizabilityChecker}.
+ *
+ * The books have one, two and three copies in turn, so both the single-copy
+ * and the multi-copy paths are contended. Due dates vary over a few days so
+ * the order in which loans end matters. A call that gives up with a
+ * {@link ConcurrentModificationException} is recorded as aborted. After the
+ * threads finish, one lookup per book is appended so the final state is
+ * checked too.
+ */
+public final class StressHarness {
+    private static final LocalDate DUE_DATE = LocalDate.of(2030, 1, 1);
+    private static final int DUE_DATE_SPREAD = 3;
+
+    private final int threads;
+    private final int operationsPerThread;
+    private final int books;
+    private final long seed;
+    private final AtomicLong clock = new AtomicLong();
+
+    public StressHarness(int threads, int operationsPerThread, int books, long seed) {
+        this.threads = threads;
+        this.operationsPerThread = operationsPerThread;
+        this.books = books;
+        this.seed = seed;
+    }
+
+    /**
+     * ISBN to total copies of the books {@link #run} puts in the store.
+     */
+    public Map<String, Integer> catalog() {
+        Map<String, Integer> catalog = new LinkedHashMap<>();
+        for (int i = 0; i < books; i++) {
+            catalog.put("stress-" + i, 1 + i % 3);
+        }
+        return catalog;
+    }
+
+    /**
+     * Seeds {@code store} with the catalog and runs the workload against it.
+     *
+     * @return every call made, in no particular order
+     */
+    public List<Operation> run(DataStore store) throws InterruptedException {
+        Map<String, Integer> catalog = catalog();
+        for (Map.Entry<String, Integer> entry : catalog.entrySet()) {
+            store.updateBook(new Book(entry.getKey(), "Stress " + entry.getKey(), entry.getValue()));
+        }
+        LibraryService service = new LibraryService(store);
+        String[] isbns = catalog.keySet().toArray(new String[0]);
+
+        List<List<Operation>> perThread = new ArrayList<>(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int t = 0; t < threads; t++) {
+            List<Operation> operations = new ArrayList<>(operationsPerThread);
+            perThread.add(operations);
+            SplittableRandom random = seeds.split();
+            User user = new User("u" + t, "Patron " + t, false);
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        Operation.Kind kind = Operation.Kind.values()[random.nextInt(Operation.Kind.values().length)];
+                        List<String> targets = pick(random, isbns, kind);
+                        LocalDate dueDate = DUE_DATE.plusDays(random.nextInt(DUE_DATE_SPREAD));
+                        operations.add(invoke(service, kind, targets, user, dueDate));
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "stress-" + t);
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("a stress thread failed", failure.get());
+        }
+
+        List<Operation> history = new ArrayList<>(threads * operationsPerThread + isbns.length);
+        perThread.forEach(history::addAll);
+        User auditor = new User("auditor", "Auditor", true);
+        for (String isbn : isbns) {
+            history.add(invoke(service, Operation.Kind.LOOKUP, List.of(isbn), auditor, null));
+        }
+        return history;
+    }
+
+    /**
+     * Runs the workload and checks it.
+     *
+     * @return the ISBNs whose history is not linearizable; empty if all are
+     */
+    public List<String> runAndCheck(DataStore store) throws InterruptedException {
+        return new LinearizabilityChecker(catalog()).violations(run(store));
+    }
+
+    // A batch names two distinct books when there are two to name.
+    private static List<String> pick(SplittableRandom random, String[] isbns, Operation.Kind kind) {
+        int first = random.nextInt(isbns.length);
+        boolean batch = kind == Operation.Kind.ISSUE_BATCH || kind == Operation.Kind.RETURN_BATCH;
+        if (!batch || isbns.length == 1) {
+            return List.of(isbns[first]);
+        }
+        int second = (first + 1 + random.nextInt(isbns.length - 1)) % isbns.length;
+        return List.of(isbns[first], isbns[second]);
+    }
+
+    // The lookup snapshots the book before the response is stamped, so what it saw is from inside the call.
+    private Operation invoke(LibraryService service, Operation.Kind kind, List<String> isbns, User user,
+                             LocalDate dueDate) {
+        long invoked = clock.incrementAndGet();
+        String isbn = isbns.get(0);
+        if (kind != Operation.Kind.ISSUE_WITH_DUE_DATE && kind != Operation.Kind.ISSUE_BATCH) {
+            dueDate = null;
+        }
+        boolean succeeded;
+        int observed = -1;
+        List<Loan> loans = null;
+        try {
+            switch (kind) {
+                case ISSUE:
+                    succeeded = service.issueBook(user, isbn);
+                    break;
+                case ISSUE_WITH_DUE_DATE:
+                    succeeded = service.issueBookWithDueDate(user, isbn, dueDate);
+                    break;
+                case RETURN:
+                    succeeded = service.returnBook(user, isbn);
+                    break;
+                case RETURN_ENHANCED:
+                    succeeded = service.returnBookEnhanced(user, isbn);
+                    break;
+                case ISSUE_BATCH:
+                    succeeded = service.issueBooks(user, isbns, dueDate);
+                    break;
+                case RETURN_BATCH:
+                    succeeded = service.returnBooks(user, isbns);
+                    break;
+                case LOOKUP:
+                    // A copy, so the count and loans come from one instant even when the store hands out live books.
+                    Optional<Book> book = service.findBook(isbn).map(Book::copy);
+                    succeeded = book.isPresent();
+                    observed = book.map(Book::getAvailableCopies).orElse(-1);
+                    loans = book.map(Book::getLoans).orElse(null);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown operation " + kind);
+            }
+        } catch (ConcurrentModificationException e) {
+            return Operation.aborted(kind, isbns, user.getId(), dueDate, invoked, clock.incrementAndGet());
+        }
+        return new Operation(kind, isbns, user.getId(), dueDate, invoked, clock.incrementAndGet(), succeeded,
+                observed, loans);
+    }
+}